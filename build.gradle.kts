@@ -31,6 +31,8 @@ val kotlin_version = "1.9.22" // Define kotlin version
 // Define the main class for the application plugin
 application {
     mainClass.set("org.example.SmartRecognitionApp")
+    // SIMD distance kernels of the Java recognizer engine (recognizer.engine=java)
+    applicationDefaultJvmArgs = listOf("--add-modules=jdk.incubator.vector")
 }
 
 dependencies {
@@ -65,4 +67,75 @@ javafx {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    // Tests exercise the SIMD kernels; without the module they cover the scalar fallback only.
+    jvmArgs("--add-modules=jdk.incubator.vector")
+}
+
+// SIMD kernels on jdk.incubator.vector live in their own source set, the only code compiled
+// against the incubator module. javac warns about incubating modules on every such compile and
+// -Xlint:none is what silences it, so lint is off for these two files only. The rest of the
+// code calls them only when the module is present at runtime and falls back to scalar loops.
+val vector by sourceSets.creating
+sourceSets {
+    main {
+        compileClasspath += vector.output
+        runtimeClasspath += vector.output
+    }
+    test {
+        compileClasspath += vector.output
+        runtimeClasspath += vector.output
+    }
+}
+
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(listOf("--add-modules=jdk.incubator.vector", "-Xlint:none"))
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+tasks.withType<JavaExec> {
+    jvmArgs("--add-modules=jdk.incubator.vector")
+}
+
+// Detection time/recall at several detection scales on a recorded clip:
+// gradlew benchmarkDetection --args="clip.mp4 [maxFrames] [scale ...]"
+tasks.register<JavaExec>("benchmarkDetection") {
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.bench.DetectionScaleBenchmark")
+}
+
+// Face detection fps and precision of the haar and yunet detectors on the same clip:
+// gradlew benchmarkFaceDetector --args="clip.mp4 [maxFrames] [groundTruth.csv|-] [detector ...]"
+tasks.register<JavaExec>("benchmarkFaceDetector") {
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.bench.FaceDetectorBenchmark")
+}
+
+// Train time, predict time and agreement of the OpenCV and Java LBPH engines:
+// gradlew benchmarkRecognizer --args="[photoDir|-] [queries] [gallerySize ...]"
+tasks.register<JavaExec>("benchmarkRecognizer") {
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.bench.RecognizerEngineBenchmark")
+    maxHeapSize = "2g"
+}
+
+// gradlew benchmarkGalleryIndex --args="[photoDir|-] [samples] [queries] [nprobe ...]"
+tasks.register<JavaExec>("benchmarkGalleryIndex") {
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.bench.GalleryIndexBenchmark")
+    maxHeapSize = "2g"
+}
+
+// Cosine top-k search time of the sface engine on random embeddings:
+// gradlew benchmarkEmbeddingSearch --args="[dimension] [queries] [k] [gallerySize ...]"
+tasks.register<JavaExec>("benchmarkEmbeddingSearch") {
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.bench.EmbeddingSearchBenchmark")
+}
@@ -81,6 +81,17 @@ echo $env:DB_USER="your_username"
 echo $env:DB_PASSWORD="your_password"
 echo.
 
+echo ========================================
+echo Downloading DNN models...
+echo ========================================
+echo.
+
+REM face.detector=yunet and recognizer.engine=sface load these from src\main\resources
+if not exist "src\main\resources" mkdir "src\main\resources"
+call :download_model face_detection_yunet_2023mar.onnx https://github.com/opencv/opencv_zoo/raw/main/models/face_detection_yunet/face_detection_yunet_2023mar.onnx
+call :download_model face_recognition_sface_2021dec.onnx https://github.com/opencv/opencv_zoo/raw/main/models/face_recognition_sface/face_recognition_sface_2021dec.onnx
+echo.
+
 echo ========================================
 echo Building the project...
 echo ========================================
@@ -123,3 +134,19 @@ echo - Keep your training data private
 echo - Regularly backup your data
 echo.
 pause
+
+goto :eof
+
+:download_model
+if exist "src\main\resources\%~1" (
+    echo %~1 already exists
+    goto :eof
+)
+curl -fsSL -o "src\main\resources\%~1" "%~2"
+if %errorlevel% neq 0 (
+    if exist "src\main\resources\%~1" del "src\main\resources\%~1"
+    echo WARNING: Could not download %~1; face.detector=yunet / recognizer.engine=sface will not start without it
+) else (
+    echo Downloaded %~1
+)
+goto :eof
@@ -76,6 +76,30 @@ echo "export DB_USER=your_username"
 echo "export DB_PASSWORD=your_password"
 echo
 
+echo "========================================"
+echo "Downloading DNN models..."
+echo "========================================"
+echo
+
+# face.detector=yunet and recognizer.engine=sface load these from src/main/resources
+download_model() {
+    local file="src/main/resources/$1"
+    if [ -f "$file" ]; then
+        echo "$1 already exists"
+    elif curl -fsSL -o "$file" "$2"; then
+        echo "Downloaded $1"
+    else
+        rm -f "$file"
+        echo "WARNING: Could not download $1; face.detector=yunet / recognizer.engine=sface will not start without it"
+    fi
+}
+mkdir -p src/main/resources
+download_model face_detection_yunet_2023mar.onnx \
+    https://github.com/opencv/opencv_zoo/raw/main/models/face_detection_yunet/face_detection_yunet_2023mar.onnx
+download_model face_recognition_sface_2021dec.onnx \
+    https://github.com/opencv/opencv_zoo/raw/main/models/face_recognition_sface/face_recognition_sface_2021dec.onnx
+echo
+
 echo "========================================"
 echo "Building the project..."
 echo "========================================"
@@ -1,8 +1,15 @@
 package org.example;
 
+import org.example.camera.CameraDefinition;
+import org.example.pipeline.DropPolicy;
+import org.example.recognition.GalleryIndex;
+import org.example.vision.FaceQualityGate;
+
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class AppConfig {
@@ -10,6 +17,7 @@ public class AppConfig {
     private static final String CONFIG_FILE = "config.properties";
     private static final String DEFAULT_CAMERA_TYPE = "WEBCAM"; // Options: WEBCAM, IP_CAMERA
     private static final String DEFAULT_IP_CAMERA_URL = "";
+    private static final String DEFAULT_CAMERA_ID = "main";
 
     private Properties properties;
 
@@ -58,4 +66,300 @@ public class AppConfig {
     public void setIpCameraUrl(String ipCameraUrl) {
         properties.setProperty("ip.camera.url", ipCameraUrl);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the configured cameras. A comma-separated {@code cameras} list
+     * selects per-camera keys ({@code camera.<id>.type}, {@code camera.<id>.url},
+     * {@code camera.<id>.index}); without it the legacy single-camera keys are
+     * used under the id "main".
+     */
+    public List<CameraDefinition> getCameraDefinitions() {
+        List<CameraDefinition> cameras = new ArrayList<>();
+        String ids = properties.getProperty("cameras", "").trim();
+        if (ids.isEmpty()) {
+            cameras.add(new CameraDefinition(DEFAULT_CAMERA_ID, getCameraType(), getIpCameraUrl(), 0));
+            return cameras;
+        }
+        for (String rawId : ids.split(",")) {
+            String id = rawId.trim();
+            if (id.isEmpty()) continue;
+            String type = properties.getProperty("camera." + id + ".type", CameraDefinition.IP_CAMERA).trim();
+            String url = properties.getProperty("camera." + id + ".url", "").trim();
+            int index = getInt("camera." + id + ".index", 0);
+            cameras.add(new CameraDefinition(id, type, url, index));
+        }
+        return cameras;
+    }
+
+    /** Worker threads shared by the analyze stages of all cameras. */
+    public int getAnalysisThreads() {
+        return Math.max(1, getInt("analysis.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Threads that decode and extract faces from training photos during a retrain. */
+    public int getTrainingThreads() {
+        return Math.max(1, getInt("training.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Training photos kept per person (0 = no limit). Above it, the photos
+     * with the lowest quality and diversity are deleted before a full
+     * training.
+     */
+    public int getMaxPhotosPerPerson() {
+        return getInt("training.maxPhotosPerPerson", 0);
+    }
+
+    /**
+     * Largest difference-hash distance (of 64 bits) at which a captured face
+     * counts as a duplicate of one of the person's photos and is not saved.
+     * Negative disables the check.
+     */
+    public int getDuplicatePhotoDistance() {
+        return getInt("training.dedup.maxDistance", 5);
+    }
+
+    /**
+     * Detector instances kept per detector (face, body). Detections running in
+     * parallel each need their own; more are loaded on demand.
+     */
+    public int getDetectorPoolSize() {
+        return Math.max(1, getInt("detection.poolSize", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Face detector: "haar" (frontal-face cascade, default) or "yunet" (OpenCV DNN, CPU). */
+    public String getFaceDetector() {
+        return properties.getProperty("face.detector", "haar").trim();
+    }
+
+    /** ONNX file for the yunet detector; empty to use the model bundled in resources. */
+    public String getFaceDetectorModel() {
+        return properties.getProperty("face.detector.model", "").trim();
+    }
+
+    /** Minimum yunet face score in [0, 1]; lower finds more faces and more false positives. */
+    public float getFaceDetectorScoreThreshold() {
+        return (float) getDouble("face.detector.scoreThreshold", 0.9);
+    }
+
+    /** Worker threads shared by the record, render and display stages of all cameras. */
+    public int getStreamThreads() {
+        return Math.max(1, getInt("stream.threads", Math.max(2, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    public boolean isMotionGatingEnabled() {
+        return getBoolean("motion.enabled", true);
+    }
+
+    /** Width in pixels of the downscaled grayscale frame used for motion detection. */
+    public int getMotionAnalysisWidth() {
+        return getInt("motion.analysisWidth", 320);
+    }
+
+    /** Per-pixel intensity change (0-255) that counts as movement. */
+    public double getMotionPixelThreshold() {
+        return getDouble("motion.pixelThreshold", 25.0);
+    }
+
+    /** Fraction of changed pixels needed before detectors run. */
+    public double getMotionMinAreaFraction() {
+        return getDouble("motion.minAreaFraction", 0.005);
+    }
+
+    /** Frames detection keeps running after motion stops. */
+    public int getMotionHangoverFrames() {
+        return getInt("motion.hangoverFrames", 15);
+    }
+
+    /**
+     * Factor applied to the frame before the cascades scan it (0 < scale <= 1).
+     * Boxes are mapped back and recognition still crops from full resolution.
+     */
+    public double getDetectionScale() {
+        return getDouble("detection.scale", 1.0);
+    }
+
+    /** Run face detection on every Nth analyzed frame; the tracker fills the frames in between. */
+    public int getFaceDetectionInterval() {
+        return getInt("detection.face.interval", 3);
+    }
+
+    public int getBodyDetectionInterval() {
+        return getInt("detection.body.interval", 10);
+    }
+
+    /** Per-frame confidence decay of tracked boxes that are only predicted. */
+    public double getTrackingDecay() {
+        return getDouble("tracking.decay", 0.97);
+    }
+
+    /** Below this track confidence the detector runs on the next frame regardless of its interval. */
+    public double getTrackingConfidenceThreshold() {
+        return getDouble("tracking.confidenceThreshold", 0.6);
+    }
+
+    /**
+     * Recognizer engine: "opencv" (OpenCV's LBPH, default), "java" (same LBPH
+     * in Java, vectorized scan) or "sface" (DNN embeddings, cosine search).
+     */
+    public String getRecognizerEngine() {
+        return properties.getProperty("recognizer.engine", "opencv").trim();
+    }
+
+    /** ONNX file for the sface engine; empty to use the network bundled in resources. */
+    public String getSFaceModel() {
+        return properties.getProperty("recognizer.sface.model", "").trim();
+    }
+
+    /**
+     * Gallery index of the Java engine: galleries of at least
+     * recognizer.index.minSamples samples (0 = never) are split into
+     * recognizer.index.lists clusters (0 = about sqrt(samples)), and
+     * recognizer.index.nprobe of them are searched per face. A fraction
+     * recognizer.index.recallSampleRate of predicts is checked against the
+     * exact scan.
+     */
+    public GalleryIndex.Settings getGalleryIndexSettings() {
+        return new GalleryIndex.Settings(
+                getInt("recognizer.index.minSamples", 5000),
+                getInt("recognizer.index.lists", 0),
+                getInt("recognizer.index.nprobe", 8),
+                getDouble("recognizer.index.recallSampleRate", 0.01));
+    }
+
+    /**
+     * Face crops are only recognized or saved if their shorter side is at
+     * least quality.minFaceSize pixels, their sides differ by at most
+     * quality.maxAspect, and their 64x64 gray thumbnail has a Laplacian
+     * variance of at least quality.minSharpness and a gray-level standard
+     * deviation of at least quality.minContrast.
+     */
+    public FaceQualityGate.Settings getFaceQualitySettings() {
+        return new FaceQualityGate.Settings(
+                getInt("quality.minFaceSize", 100),
+                getDouble("quality.maxAspect", 1.6),
+                getDouble("quality.minSharpness", 30.0),
+                getDouble("quality.minContrast", 12.0));
+    }
+
+    /** A tracked face whose cached LBPH distance is at or above this is re-predicted on the next detection. */
+    public double getRecognitionRepredictDistance() {
+        return getDouble("recognition.repredictDistance", 80.0);
+    }
+
+    /** Cached recognition results older than this are re-predicted even if they were good. */
+    public long getRecognitionRefreshMs() {
+        return getInt("recognition.refreshMs", 2000);
+    }
+
+    public DropPolicy getStagePolicy(String stage, DropPolicy defaultPolicy) {
+        String value = properties.getProperty("pipeline." + stage + ".policy");
+        if (value == null || value.isBlank()) return defaultPolicy;
+        try {
+            return DropPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown drop policy '" + value + "' for stage " + stage + ", using " + defaultPolicy);
+            return defaultPolicy;
+        }
+    }
+
+    public int getStageCapacity(String stage, int defaultCapacity) {
+        return getInt("pipeline." + stage + ".capacity", defaultCapacity);
+    }
+
+    /** Seconds of JPEG pre-roll kept per camera for "record last N seconds" and event clips. */
+    public int getPreRollSeconds() {
+        return getInt("preroll.seconds", 15);
+    }
+
+    /** Upper bound on a camera's pre-roll memory; the oldest frames go first when it is reached. */
+    public int getPreRollMaxMegabytes() {
+        return getInt("preroll.maxMegabytes", 128);
+    }
+
+    public int getPreRollJpegQuality() {
+        return getInt("preroll.jpegQuality", 85);
+    }
+
+    /**
+     * Events that start a clip automatically, comma-separated: UNKNOWN_FACE,
+     * BODY_WITHOUT_FACE or {@code ROLE:<role>}, each optionally limited to hours
+     * with {@code @HH-HH}. Empty (the default) disables event recording.
+     */
+    public List<String> getRecordingTriggers() {
+        List<String> triggers = new ArrayList<>();
+        for (String trigger : properties.getProperty("recording.triggers", "").split(",")) {
+            if (!trigger.isBlank()) triggers.add(trigger.trim());
+        }
+        return triggers;
+    }
+
+    public int getRecordingPreSeconds() {
+        return getInt("recording.preSeconds", 10);
+    }
+
+    public int getRecordingPostSeconds() {
+        return getInt("recording.postSeconds", 15);
+    }
+
+    /** Recordings are split into files of at most this length. */
+    public int getRecordingSegmentSeconds() {
+        return getInt("recording.segmentSeconds", 60);
+    }
+
+    /** Record every camera all the time; events then only annotate the segments. */
+    public boolean isContinuousRecording() {
+        return getBoolean("recording.continuous", false);
+    }
+
+    /**
+     * Frame rate recorded while nothing moves and nothing is detected; 0 keeps
+     * every frame. Full rate resumes as soon as there is activity.
+     */
+    public double getRecordingIdleFps() {
+        return getDouble("recording.idleFps", 2.0);
+    }
+
+    /** How long after the last motion or detection recording stays at full rate. */
+    public int getRecordingActivityHoldSeconds() {
+        return getInt("recording.activityHoldSeconds", 3);
+    }
+
+    /** Segments older than this are deleted; 0 keeps them until the size cap applies. */
+    public int getRecordingRetentionDays() {
+        return getInt("recording.retentionDays", 30);
+    }
+
+    /** Total size cap for all recordings; the oldest segments go first. 0 means no cap. */
+    public double getRecordingMaxGigabytes() {
+        return getDouble("recording.maxGigabytes", 0);
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -57,10 +57,14 @@ public class DatabaseService {
                 " FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE" + // Added ON DELETE CASCADE
                 ");";
 
+        // Added for multi-camera sites; existing databases are upgraded in place.
+        String addCameraColumnSQL = "ALTER TABLE recognition_log ADD COLUMN IF NOT EXISTS camera_id TEXT;";
+
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(createUserTableSQL);
             stmt.execute(createLogTableSQL);
+            stmt.execute(addCameraColumnSQL);
             System.out.println("PostgreSQL database and tables are ready.");
         } catch (SQLException e) {
             System.err.println("Error initializing the database: " + e.getMessage());
@@ -119,11 +123,16 @@ public class DatabaseService {
     }
 
     public void logRecognition(int userId, double confidence) {
-        String sql = "INSERT INTO recognition_log(user_id, confidence) VALUES(?, ?)";
+        logRecognition(userId, confidence, null);
+    }
+
+    public void logRecognition(int userId, double confidence, String cameraId) {
+        String sql = "INSERT INTO recognition_log(user_id, confidence, camera_id) VALUES(?, ?, ?)";
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             pstmt.setDouble(2, confidence);
+            pstmt.setString(3, cameraId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.err.println("Error logging recognition event: " + e.getMessage());
@@ -132,7 +141,7 @@ public class DatabaseService {
 
     public ObservableList<RecognitionLog> getHistory() {
         ObservableList<RecognitionLog> history = FXCollections.observableArrayList();
-        String sql = "SELECT u.name, u.role, r.timestamp, r.confidence " +
+        String sql = "SELECT u.name, u.role, r.timestamp, r.confidence, r.camera_id " +
                 "FROM recognition_log r " +
                 "JOIN users u ON r.user_id = u.id " +
                 "ORDER BY r.timestamp DESC;";
@@ -146,7 +155,8 @@ public class DatabaseService {
                         rs.getString("name"),
                         rs.getString("role"),
                         rs.getTimestamp("timestamp").toString(), // Use getTimestamp
-                        rs.getDouble("confidence")
+                        rs.getDouble("confidence"),
+                        rs.getString("camera_id")
                 ));
             }
         } catch (SQLException e) {
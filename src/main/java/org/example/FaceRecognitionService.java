@@ -1,23 +1,46 @@
 package org.example;
 
 import org.bytedeco.opencv.opencv_core.*;
-import org.bytedeco.opencv.opencv_face.LBPHFaceRecognizer;
-import org.bytedeco.opencv.opencv_objdetect.CascadeClassifier;
+import org.example.recognition.ModelSnapshot;
+import org.example.recognition.OpenCvLbphEngine;
+import org.example.recognition.RecognizerEngine;
+import org.example.recognition.RecognizerModel;
+import org.example.training.FaceCropCache;
+import org.example.training.PerceptualHashIndex;
+import org.example.training.SampleBudget;
+import org.example.training.TrainingProgress;
+import org.example.vision.CascadePool;
+import org.example.vision.FaceDetector;
+import org.example.vision.FaceQualityGate;
+import org.example.vision.FrameAnalysisContext;
+import org.example.vision.HaarFaceDetector;
+import org.example.vision.MatPool;
+import org.example.vision.ModelResources;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
-import static org.bytedeco.opencv.global.opencv_core.CV_32SC1;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
 import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
 import static org.bytedeco.opencv.global.opencv_imgcodecs.imwrite;
 import static org.bytedeco.opencv.global.opencv_imgproc.*;
@@ -27,48 +50,89 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
  * and LBPH recognition along with training data management.
  *
  * Responsibilities:
- * - Load cascade classifiers and the LBPH recognizer
+ * - Load the face detector (see {@link FaceDetector}), the body cascade and the LBPH recognizer
  * - Train from `training-data` filesystem and save/load model file
  * - Detect faces and bodies in frames and return recognition results
  * - Persist new training images and delete a user's training set
+ *
+ * The model and its label map are published together as an immutable
+ * {@link ModelSnapshot}. Training and updates build the next model on the
+ * side and swap it in with one atomic reference write, so predictions keep
+ * running against the previous model until the new one is ready.
  */
 public class FaceRecognitionService {
 
     private final DatabaseService databaseService;
-    private final CascadeClassifier faceDetector;
-    private final CascadeClassifier bodyDetector;
-    private final LBPHFaceRecognizer faceRecognizer;
-    private final Map<Integer, String> labelNameMap;
-    private volatile boolean isTrained = false;
+    // Both detectors keep one native instance per concurrent detection; see DetectorPool.
+    private final FaceDetector faceDetector;
+    private final CascadePool bodyDetectors;
+    private final AtomicReference<ModelSnapshot> model;
+    private volatile RecognizerEngine engine = new OpenCvLbphEngine();
+    private final AtomicLong predictCount = new AtomicLong();
+    private final TrainingProgress trainingProgress = new TrainingProgress();
+    // Captures within this many dHash bits of an existing photo of the same person are not saved.
+    private final PerceptualHashIndex photoHashes = new PerceptualHashIndex(Paths.get("training-data"), 5);
+    // Photos kept per person; enforced before each full training.
+    private final SampleBudget sampleBudget = new SampleBudget(Paths.get("training-data"), 0);
+    // Crops that fail these are neither recognized nor saved; see FaceQualityGate.
+    private final FaceQualityGate predictGate = new FaceQualityGate("predict", DEFAULT_QUALITY);
+    private final FaceQualityGate captureGate = new FaceQualityGate("capture", DEFAULT_QUALITY);
+    private volatile int trainingThreads = Runtime.getRuntime().availableProcessors();
+    // Photos saved since the last training, added by updateModel().
+    private final Queue<PendingSample> pendingSamples = new ConcurrentLinkedQueue<>();
+
+    private static final int FACE_MIN_SIZE = 100;
+    private static final Size FACE_MODEL_SIZE = new Size(200, 200);
+    private static final FaceQualityGate.Settings DEFAULT_QUALITY = new FaceQualityGate.Settings(FACE_MIN_SIZE, 1.6, 30, 12);
+    private static final int BODY_MIN_WIDTH = 50;
+    private static final int BODY_MIN_HEIGHT = 100;
+    // If motion ROIs cover more than this fraction of the frame, one full scan is cheaper.
+    private static final double FULL_FRAME_COVERAGE = 0.6;
+    // Kept inside the training directory; photos are only .jpg/.png so it is never mistaken for one.
+    private static final String FACE_CACHE_FILE = ".face-cache.bin";
+
+    /** Outcome of {@link #saveTrainingImage}. */
+    public enum SaveResult { SAVED, LOW_QUALITY, DUPLICATE, IO_ERROR }
 
     public static class RecognitionResult {
-        private final int label; private final String name; private final double confidence; private final Rect faceRect;
-        public RecognitionResult(int l, String n, double c, Rect r) { label=l; name=n; confidence=c; faceRect=r; }
+        private final int label; private final String name; private final double confidence; private final Rect faceRect; private final long modelVersion;
+        public RecognitionResult(int l, String n, double c, Rect r) { this(l, n, c, r, 0); }
+        public RecognitionResult(int l, String n, double c, Rect r, long v) { label=l; name=n; confidence=c; faceRect=r; modelVersion=v; }
         public int getLabel() { return label; } public String getName() { return name; } public double getConfidence() { return confidence; } public Rect getFaceRect() { return faceRect; }
+        /** Version of the {@link ModelSnapshot} that produced this result; 0 without a model. */
+        public long getModelVersion() { return modelVersion; }
+        /** A detected face whose crop failed the quality gate: shown and reported as unknown, never predicted. */
+        public static RecognitionResult lowQuality(Rect r, long v) { return new RecognitionResult(-1, LOW_QUALITY_NAME, Double.MAX_VALUE, r, v); }
+        public boolean isLowQuality() { return label == -1 && LOW_QUALITY_NAME.equals(name); }
     }
 
+    public static final String LOW_QUALITY_NAME = "Unknown (low quality)";
+
     public FaceRecognitionService(DatabaseService dbService) {
+        this(dbService, defaultFaceDetector(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** @param faceDetector the configured detector, built once; see {@link FaceDetector#forName} */
+    public FaceRecognitionService(DatabaseService dbService, FaceDetector faceDetector) {
         this.databaseService = dbService;
-        this.labelNameMap = dbService.getLabelNameMap();
+        this.faceDetector = faceDetector;
+        this.model = new AtomicReference<>(ModelSnapshot.untrained(dbService.getLabelNameMap()));
 
         try {
-            this.faceDetector = new CascadeClassifier(loadCascadeFile("haarcascade_frontalface_default.xml"));
-            this.bodyDetector = new CascadeClassifier(loadCascadeFile("haarcascade_fullbody.xml"));
+            int cores = Runtime.getRuntime().availableProcessors();
+            this.bodyDetectors = new CascadePool("body", ModelResources.extract("haarcascade_fullbody.xml", ".xml"), cores);
         } catch (IOException e) { throw new RuntimeException("CRITICAL ERROR: Could not load cascade files.", e); }
-        this.faceRecognizer = LBPHFaceRecognizer.create();
     }
 
-    private String loadCascadeFile(String cascadeFileName) throws IOException {
-        InputStream is = getClass().getClassLoader().getResourceAsStream(cascadeFileName);
-        if (is == null) { throw new IOException("Cascade file not found in resources: " + cascadeFileName); }
-        File tempFile = File.createTempFile("cascade-", ".xml");
-        tempFile.deleteOnExit();
-        try (FileOutputStream os = new FileOutputStream(tempFile)) { byte[] buffer = new byte[1024]; int bytesRead; while ((bytesRead = is.read(buffer)) != -1) { os.write(buffer, 0, bytesRead); } }
-        is.close();
-        return tempFile.getAbsolutePath();
+    /** The Haar cascade face detector, used unless another one is configured. */
+    public static FaceDetector defaultFaceDetector(int poolSize) {
+        try {
+            return new HaarFaceDetector(ModelResources.extract(HaarFaceDetector.CASCADE_RESOURCE, ".xml"), poolSize);
+        } catch (IOException e) { throw new RuntimeException("CRITICAL ERROR: Could not load cascade files.", e); }
     }
 
     public void deleteTrainingData(String role, String name) {
+        photoHashes.forget(role, name);
         Path userDirectory = Paths.get("training-data", role, name);
         if (Files.exists(userDirectory)) {
             try {
@@ -84,51 +148,289 @@ public class FaceRecognitionService {
     }
 
     public RectVector detectBodies(Mat frame) {
-        Mat grayFrame = new Mat();
-        cvtColor(frame, grayFrame, COLOR_BGR2GRAY);
-        equalizeHist(grayFrame, grayFrame);
+        return detectBodies(frame, null);
+    }
+
+    /**
+     * Detects bodies only inside the given regions (e.g. from the motion
+     * detector). A null list scans the whole frame; an empty list scans nothing.
+     */
+    public RectVector detectBodies(Mat frame, List<Rect> regions) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return detectBodies(context, regions);
+        }
+    }
+
+    public RectVector detectBodies(FrameAnalysisContext context, List<Rect> regions) {
         RectVector bodies = new RectVector();
-        bodyDetector.detectMultiScale(grayFrame, bodies, 1.1, 3, 0, new Size(50, 100), new Size());
-        grayFrame.release();
+        List<Rect> areas = searchAreas(context, regions, BODY_MIN_WIDTH, BODY_MIN_HEIGHT);
+        for (Rect body : bodyDetectors.detect(context, areas, BODY_MIN_WIDTH, BODY_MIN_HEIGHT, 3)) {
+            bodies.push_back(body);
+        }
         return bodies;
     }
 
+    /**
+     * Turns detector ROIs into the areas actually scanned: each region is
+     * padded and grown to at least twice the detector's minimum size. If the
+     * regions cover most of the frame anyway, the whole frame is scanned once.
+     */
+    private static List<Rect> searchAreas(FrameAnalysisContext context, List<Rect> regions, int minWidth, int minHeight) {
+        int frameWidth = context.width();
+        int frameHeight = context.height();
+        Rect whole = new Rect(0, 0, frameWidth, frameHeight);
+        if (regions == null) return List.of(whole);
+        List<Rect> areas = new ArrayList<>();
+        long coveredArea = 0;
+        for (Rect region : regions) {
+            int w = Math.max(region.width() + region.width() / 2, 2 * minWidth);
+            int h = Math.max(region.height() + region.height() / 2, 2 * minHeight);
+            int cx = region.x() + region.width() / 2;
+            int cy = region.y() + region.height() / 2;
+            int x1 = Math.max(0, cx - w / 2);
+            int y1 = Math.max(0, cy - h / 2);
+            int x2 = Math.min(frameWidth, cx + w / 2);
+            int y2 = Math.min(frameHeight, cy + h / 2);
+            if (x2 - x1 < minWidth || y2 - y1 < minHeight) continue;
+            areas.add(new Rect(x1, y1, x2 - x1, y2 - y1));
+            coveredArea += (long) (x2 - x1) * (y2 - y1);
+        }
+        if (coveredArea > FULL_FRAME_COVERAGE * frameWidth * frameHeight) return List.of(whole);
+        return areas;
+    }
+
     public boolean isTrained() {
-        return this.isTrained;
+        return model.get().isTrained();
     }
 
+    /** The model and label map currently used for predictions. */
+    public ModelSnapshot getModel() {
+        return model.get();
+    }
+
+    public long getModelVersion() {
+        return model.get().getVersion();
+    }
+
+    /** Engine, version and the engine's own figures for the published model. */
+    public Map<String, Object> modelStats() {
+        ModelSnapshot snapshot = model.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", engine.name());
+        stats.put("version", snapshot.getVersion());
+        if (snapshot.isTrained()) stats.putAll(snapshot.getRecognizer().stats());
+        return stats;
+    }
+
+    /**
+     * Publishes the users in the database as the new label map. Labels of the
+     * current model that no longer have a user are skipped from now on.
+     */
     public void rebuildLabelNameMap() {
         System.out.println("Rebuilding label-to-name map from database...");
         Map<Integer, String> dbLabelMap = databaseService.getLabelNameMap();
-        synchronized (labelNameMap) {
-            labelNameMap.clear();
-            labelNameMap.putAll(dbLabelMap);
-        }
-        System.out.println("Label-to-name map rebuilt. Found " + labelNameMap.size() + " users.");
+        ModelSnapshot published = model.updateAndGet(current -> current.withLabelNames(dbLabelMap));
+        System.out.println("Label-to-name map rebuilt. Found " + dbLabelMap.size() + " users (model version " + published.getVersion() + ").");
+    }
+
+    /** Swaps in a newly built model, keeping deletions made while it was built. */
+    private ModelSnapshot publish(RecognizerModel next) {
+        return model.updateAndGet(current -> current.withRecognizer(next));
+    }
+
+    /** The engine that trains and loads models from now on; takes effect with the next train or load. */
+    public void setRecognizerEngine(RecognizerEngine engine) {
+        this.engine = engine;
+        System.out.println("Recognizer engine: " + engine.name());
+    }
+
+    /** Number of worker threads used to decode and extract faces when training. */
+    public void setTrainingThreads(int threads) {
+        this.trainingThreads = Math.max(1, threads);
+    }
+
+    /** Detector instances kept for reuse per detector, i.e. the detections expected to run in parallel. */
+    public void setDetectorPoolSize(int size) {
+        faceDetector.setPoolSize(size);
+        bodyDetectors.setMaxIdle(size);
     }
 
-    public void trainModel(String trainingDataPath) {
+    public String getFaceDetectorName() { return faceDetector.name(); }
+
+    public Map<String, Object> detectorStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("face", faceDetector.stats());
+        stats.put(bodyDetectors.getName(), bodyDetectors.stats());
+        return stats;
+    }
+
+    public TrainingProgress getTrainingProgress() {
+        return trainingProgress;
+    }
+
+    /**
+     * Retrains the recognizer from the photos of every user in the database.
+     * Crops of unchanged photos come from the {@link FaceCropCache}; the rest
+     * are decoded and extracted on a work-stealing pool; each extraction
+     * checks out its own face detector instance. The collected crops go into
+     * a single train call on a fresh recognizer, which replaces the live one
+     * only when it is complete. A photo whose extraction fails is skipped and
+     * counted; an interrupted training publishes nothing. The cache is
+     * rewritten to match the photos on disk.
+     */
+    public synchronized void trainModel(String trainingDataPath) {
         rebuildLabelNameMap();
+        Map<Integer, String> users = model.get().getLabelNames();
 
-        if (labelNameMap.isEmpty()) {
+        if (users.isEmpty()) {
             System.err.println("Info: No users found in the database. Model will not be trained.");
-            this.isTrained = false;
+            model.updateAndGet(ModelSnapshot::withoutRecognizer);
             return;
         }
 
+        // A full training reads every photo on disk, including the pending ones.
+        pendingSamples.clear();
+        if (sampleBudget.isEnabled()) {
+            for (SampleBudget.Entry entry : sampleBudget.enforce().people) {
+                String[] parts = entry.person.split(": ");
+                if (entry.evicted > 0) photoHashes.forget(parts[0], parts[1]);
+            }
+        }
+        List<TrainingImage> sources = listTrainingImages(trainingDataPath, users);
+        int threads = trainingThreads;
+        System.out.println("Starting model training on " + sources.size() + " photos with " + threads + " threads...");
+        trainingProgress.start(sources.size(), threads);
+
+        FaceDetector detector = faceDetector;
+        FaceCropCache cache = FaceCropCache.open(cacheFile(trainingDataPath, detector),
+                (int) FACE_MODEL_SIZE.width(), (int) FACE_MODEL_SIZE.height());
+        List<Callable<Mat>> jobs = new ArrayList<>(sources.size());
+        for (TrainingImage source : sources) {
+            jobs.add(() -> loadTrainingFace(source, cache, detector));
+        }
+
         MatVector images = new MatVector();
         List<Integer> labelsList = new ArrayList<>();
-
-        System.out.println("Starting model training based on database users...");
-        CascadeClassifier trainingDetector;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        FaceCropCache.Writer cacheWriter = null;
         try {
-            trainingDetector = new CascadeClassifier(loadCascadeFile("haarcascade_frontalface_default.xml"));
+            cacheWriter = cache.newWriter();
         } catch (IOException e) {
-            System.err.println("FATAL: Could not load cascade for training thread. Aborting retrain.");
+            System.err.println("Face crop cache will not be updated: " + e.getMessage());
+        }
+        List<Future<Mat>> faces = List.of();
+        int consumed = 0;
+        try {
+            // Results come back in submission order, so the model does not depend on scheduling.
+            faces = pool.invokeAll(jobs);
+            for (; consumed < faces.size(); consumed++) {
+                TrainingImage source = sources.get(consumed);
+                Mat face;
+                try {
+                    face = faces.get(consumed).get();
+                } catch (ExecutionException e) {
+                    // Only this photo is lost; the other users' photos still make it into the model.
+                    System.err.println("Error extracting training face from " + source.path + ": " + e.getCause());
+                    trainingProgress.imageFailed();
+                    continue;
+                }
+                if (face == null) continue;
+                images.push_back(face);
+                labelsList.add(source.label);
+                cacheWriter = addToCache(cacheWriter, source, face);
+                face.release();
+            }
+            if (cacheWriter != null) cacheWriter.commit();
+        } catch (InterruptedException e) {
+            // invokeAll waited for every job, so the crops not consumed yet are all there to release.
+            releaseResults(faces, consumed);
+            Thread.currentThread().interrupt();
+            System.err.println("Training interrupted; keeping the current model.");
+            trainingProgress.finished(false);
+            images.close();
             return;
+        } catch (IOException e) {
+            System.err.println("Error writing face crop cache: " + e.getMessage());
+        } finally {
+            if (cacheWriter != null) cacheWriter.close();
+            cache.close();
+            pool.shutdown();
+        }
+        System.out.println("Face crop cache: " + cache.getHits() + " reused, " + cache.getMisses() + " extracted.");
+
+        trainingProgress.trainingStarted();
+        if (images.size() > 0) {
+            RecognizerModel next = engine.train(images, toArray(labelsList));
+            // Deleted users have no photos left, so their labels are gone from the new model.
+            ModelSnapshot published = publish(next);
+            trainingProgress.finished(true);
+            System.out.println("Model training complete. Trained on " + images.size() + " images for " + users.size() + " users with the " + engine.name() + " engine (model version " + published.getVersion() + "). " + trainingProgress.summary());
+        } else {
+            System.err.println("Error: Could not find any valid training photos for the users in the database.");
+            trainingProgress.finished(false);
+            model.updateAndGet(ModelSnapshot::withoutRecognizer);
         }
 
-        for (Map.Entry<Integer, String> entry : this.labelNameMap.entrySet()) {
+        images.close();
+    }
+
+    /** Adds a crop to the new cache; returns null, and gives up on the cache, if it cannot be written. */
+    private static FaceCropCache.Writer addToCache(FaceCropCache.Writer cacheWriter, TrainingImage source, Mat face) {
+        if (cacheWriter == null) return null;
+        try {
+            cacheWriter.add(source.path.toString(), source.size, source.lastModified, face);
+            return cacheWriter;
+        } catch (IOException e) {
+            System.err.println("Face crop cache will not be updated: " + e.getMessage());
+            cacheWriter.close();
+            return null;
+        }
+    }
+
+    /** Releases the crops of finished extraction jobs from {@code from} on. */
+    private static void releaseResults(List<Future<Mat>> faces, int from) {
+        for (int i = from; i < faces.size(); i++) {
+            Future<Mat> future = faces.get(i);
+            if (!future.isDone() || future.isCancelled()) continue;
+            try {
+                Mat face = future.get();
+                if (face != null) face.release();
+            } catch (InterruptedException | ExecutionException e) {
+                // No crop to release.
+            }
+        }
+    }
+
+    /** Crops depend on the detector that found them, so each detector has its own cache. */
+    private static Path cacheFile(String trainingDataPath, FaceDetector detector) {
+        String name = "haar".equals(detector.name()) ? FACE_CACHE_FILE : ".face-cache-" + detector.name() + ".bin";
+        return Paths.get(trainingDataPath, name);
+    }
+
+    private static int[] toArray(List<Integer> labels) {
+        int[] array = new int[labels.size()];
+        for (int i = 0; i < array.length; i++) array[i] = labels.get(i);
+        return array;
+    }
+
+    /** A training photo, the label of the user it belongs to and its cache key attributes. */
+    private static final class TrainingImage {
+        final int label;
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        TrainingImage(int label, Path path) throws IOException {
+            this.label = label;
+            this.path = path;
+            this.size = Files.size(path);
+            this.lastModified = Files.getLastModifiedTime(path).toMillis();
+        }
+    }
+
+    private List<TrainingImage> listTrainingImages(String trainingDataPath, Map<Integer, String> users) {
+        List<TrainingImage> sources = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(users).entrySet()) {
             int currentLabel = entry.getKey();
             String displayName = entry.getValue();
             String[] parts = displayName.split(": ");
@@ -146,13 +448,10 @@ public class FaceRecognitionService {
             try (Stream<Path> paths = Files.walk(personDirPath)) {
                 paths.filter(Files::isRegularFile)
                         .filter(path -> path.toString().toLowerCase().endsWith(".jpg") || path.toString().toLowerCase().endsWith(".png"))
+                        .sorted()
                         .forEach(imageFile -> {
                             try {
-                                Mat image = imdecode(new Mat(Files.readAllBytes(imageFile)), 1);
-                                if (!image.empty()) {
-                                    addFaceToTrainingSet(image, images, labelsList, currentLabel, imageFile.toFile(), trainingDetector);
-                                }
-                                image.release();
+                                sources.add(new TrainingImage(currentLabel, imageFile));
                             } catch (IOException e) {
                                 System.err.println("Error reading file: " + imageFile);
                             }
@@ -161,114 +460,348 @@ public class FaceRecognitionService {
                 System.err.println("Error walking directory: " + personDirPath);
             }
         }
+        return sources;
+    }
 
-        if (images.size() > 0) {
-            Mat labelsMat = new Mat(labelsList.size(), 1, CV_32SC1);
-            org.bytedeco.javacpp.indexer.IntIndexer indexer = labelsMat.createIndexer();
-            for (int i = 0; i < labelsList.size(); i++) {
-                indexer.put(i, labelsList.get(i));
+    /**
+     * Adds the photos saved since the last training to the model with LBPH's
+     * update(), leaving the existing samples alone. The update is applied to
+     * a copy of the live model, which is then swapped in. Without a model yet,
+     * or when a person with new photos is over the {@link SampleBudget}, this
+     * falls back to a full {@link #trainModel}, which evicts photos first.
+     * Returns the number of faces added.
+     */
+    public synchronized int updateModel(String trainingDataPath) {
+        if (!isTrained()) {
+            trainModel(trainingDataPath);
+            return model.get().getSampleCount();
+        }
+        for (PendingSample pending : pendingSamples) {
+            if (sampleBudget.isOverBudget(pending.role, pending.name)) {
+                System.out.println(pending.name + " is over the sample budget; retraining from disk instead of updating.");
+                trainModel(trainingDataPath);
+                return model.get().getSampleCount();
             }
+        }
+        // New enrollments need their label.
+        rebuildLabelNameMap();
+        ModelSnapshot base = model.get();
+        Map<String, Integer> labelsByName = new HashMap<>();
+        base.getLabelNames().forEach((label, displayName) -> labelsByName.put(displayName, label));
 
-            faceRecognizer.train(images, labelsMat);
-            this.isTrained = true;
-            System.out.println("Model training complete. Trained on " + images.size() + " images for " + labelNameMap.size() + " users.");
-            labelsMat.release();
-        } else {
-            System.err.println("Error: Could not find any valid training photos for the users in the database.");
-            this.isTrained = false;
+        MatVector images = new MatVector();
+        List<Integer> labelsList = new ArrayList<>();
+        FaceDetector detector = faceDetector;
+        PendingSample sample;
+        while ((sample = pendingSamples.poll()) != null) {
+            Integer label = labelsByName.get(sample.role + ": " + sample.name);
+            if (label == null || !Files.exists(sample.path)) continue;
+            Mat face = extractTrainingFace(sample.path, detector);
+            if (face == null) continue;
+            images.push_back(face);
+            labelsList.add(label);
+            face.release();
         }
 
+        int added = (int) images.size();
+        if (added > 0) {
+            try {
+                RecognizerModel next = base.getRecognizer().withSamples(images, toArray(labelsList));
+                ModelSnapshot published = publish(next);
+                System.out.println("Model updated with " + added + " new faces (model version " + published.getVersion() + ").");
+            } catch (IOException e) {
+                System.err.println("Error copying the model for an update: " + e.getMessage());
+                added = 0;
+            }
+        }
         images.close();
-        trainingDetector.close();
+        return added;
+    }
+
+    /**
+     * Drops a deleted user's label from recognition immediately. The samples
+     * stay in the model, but predict skips them; the next full training
+     * (compaction) removes them for good.
+     */
+    public void removeLabel(int label) {
+        ModelSnapshot published = model.updateAndGet(current -> current.withRemovedLabel(label));
+        System.out.println("Label " + label + " removed from the live model (" + published.getRemovedLabelCount() + " pending compaction).");
+    }
+
+    public int getPendingSampleCount() { return pendingSamples.size(); }
+    public int getRemovedLabelCount() { return model.get().getRemovedLabelCount(); }
+
+    /** A photo saved by {@link #saveTrainingImage} that is not in the model yet. */
+    private static final class PendingSample {
+        final String role;
+        final String name;
+        final Path path;
+
+        PendingSample(String role, String name, Path path) {
+            this.role = role;
+            this.name = name;
+            this.path = path;
+        }
+    }
+
+    /** The photo's face crop from the cache, or freshly extracted when the photo is new or changed. */
+    private Mat loadTrainingFace(TrainingImage source, FaceCropCache cache, FaceDetector detector) {
+        Mat cached = cache.get(source.path.toString(), source.size, source.lastModified);
+        if (cached != null) {
+            trainingProgress.cacheHit();
+            return cached;
+        }
+        Mat face = extractTrainingFace(source.path, detector);
+        trainingProgress.imageDone(face != null);
+        return face;
     }
 
-    private void addFaceToTrainingSet(Mat image, MatVector images, List<Integer> labelsList, int label, File imageFile, CascadeClassifier detectorToUse) {
+    /**
+     * Decodes a training photo and returns its single face as a 200x200
+     * equalized crop, or null. Photos without exactly one face are skipped
+     * but kept: they may have been captured with another detector, which
+     * found the face this one misses.
+     */
+    private Mat extractTrainingFace(Path imageFile, FaceDetector detector) {
+        Mat image;
+        try {
+            image = imdecode(new Mat(Files.readAllBytes(imageFile)), 1);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + imageFile);
+            return null;
+        }
+        if (image.empty()) {
+            image.release();
+            return null;
+        }
         Mat grayImage = new Mat();
         cvtColor(image, grayImage, COLOR_BGR2GRAY);
         equalizeHist(grayImage, grayImage);
-        RectVector detectedFaces = new RectVector();
-        detectorToUse.detectMultiScale(grayImage, detectedFaces, 1.1, 3, 0, new Size(30, 30), new Size());
+        List<Rect> detectedFaces = detector.detectInPhoto(image, grayImage);
+        image.release();
 
+        Mat resizedFace = null;
         if (detectedFaces.size() == 1) {
             Mat face = new Mat(grayImage, detectedFaces.get(0));
-            Mat resizedFace = new Mat();
-            resize(face, resizedFace, new Size(200, 200));
-            images.push_back(resizedFace);
-            labelsList.add(label);
+            resizedFace = new Mat();
+            resize(face, resizedFace, FACE_MODEL_SIZE);
             face.release();
         } else {
-            System.out.println("Warning: Skipping image '" + imageFile.getName() + "' (found " + detectedFaces.size() + " faces). DELETING FILE.");
-            try {
-                Files.delete(imageFile.toPath());
-            } catch (IOException e) {
-                System.err.println("Error deleting skipped image: " + e.getMessage());
-            }
+            System.out.println("Warning: Skipping image '" + imageFile + "' (" + detector.name() + " found "
+                    + detectedFaces.size() + " faces). The file is kept.");
         }
         grayImage.release();
-        detectedFaces.releaseReference();
+        return resizedFace;
     }
 
     public List<RecognitionResult> recognizeFaces(Mat frame) {
-        List<RecognitionResult> results = new ArrayList<>();
-        if (!isTrained) return results;
+        return recognizeFaces(frame, null);
+    }
 
-        Mat grayFrame = new Mat();
-        cvtColor(frame, grayFrame, COLOR_BGR2GRAY);
-        equalizeHist(grayFrame, grayFrame);
-        RectVector detectedFaces = new RectVector();
-        this.faceDetector.detectMultiScale(grayFrame, detectedFaces, 1.1, 6, 0, new Size(100, 100), new Size());
+    /**
+     * Detects and recognizes faces only inside the given regions. A null list
+     * scans the whole frame; an empty list scans nothing.
+     */
+    public List<RecognitionResult> recognizeFaces(Mat frame, List<Rect> regions) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return recognizeFaces(context, regions);
+        }
+    }
 
-        for (long i = 0; i < detectedFaces.size(); i++) {
-            Rect faceRect = detectedFaces.get(i);
-            Mat face = new Mat(grayFrame, faceRect);
-            Mat resizedFace = new Mat();
-            resize(face, resizedFace, new Size(200, 200));
+    public List<RecognitionResult> recognizeFaces(FrameAnalysisContext context, List<Rect> regions) {
+        List<RecognitionResult> results = new ArrayList<>();
+        // All faces of one frame are matched against the same model.
+        ModelSnapshot snapshot = model.get();
+        if (!snapshot.isTrained()) return results;
+        // A face too poor to recognize is still reported, just not predicted.
+        for (Rect faceRect : detectFaces(context, regions)) {
+            results.add(isRecognizable(context, faceRect)
+                    ? predict(snapshot, context, faceRect)
+                    : RecognitionResult.lowQuality(faceRect, snapshot.getVersion()));
+        }
+        return results;
+    }
 
-            int[] predictedLabel = new int[1];
-            double[] confidence = new double[1];
-            faceRecognizer.predict(resizedFace, predictedLabel, confidence);
+    /** Face boxes in full-frame coordinates, without recognition. */
+    public List<Rect> detectFaces(Mat frame, List<Rect> regions) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return detectFaces(context, regions);
+        }
+    }
 
-            String name = getLabelName(predictedLabel[0]);
-            results.add(new RecognitionResult(predictedLabel[0], name, confidence[0], faceRect));
+    public List<Rect> detectFaces(FrameAnalysisContext context, List<Rect> regions) {
+        return faceDetector.detect(context, searchAreas(context, regions, FACE_MIN_SIZE, FACE_MIN_SIZE), FACE_MIN_SIZE);
+    }
 
-            face.release();
-            resizedFace.release();
+    /**
+     * Runs the recognizer on one face box of a BGR frame. The crop is always
+     * taken from the full-resolution frame, whatever the detection scale, and
+     * equalized on its own, the same way training images are prepared. It is
+     * resized to the model size first so every scratch image has a fixed size
+     * and comes from the thread's {@link MatPool}.
+     */
+    public RecognitionResult predict(Mat frame, Rect faceRect) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return predict(context, faceRect);
         }
-        grayFrame.release();
-        detectedFaces.releaseReference();
-        return results;
     }
 
+    public RecognitionResult predict(FrameAnalysisContext context, Rect faceRect) {
+        return predict(model.get(), context, faceRect);
+    }
+
+    private RecognitionResult predict(ModelSnapshot snapshot, FrameAnalysisContext context, Rect faceRect) {
+        if (!snapshot.isTrained()) return new RecognitionResult(-1, "Unknown", Double.MAX_VALUE, faceRect, snapshot.getVersion());
+        MatPool pool = MatPool.local();
+        Mat colorFace = new Mat(context.frame(), faceRect);
+        Mat resizedColor = pool.acquire(FACE_MODEL_SIZE.height(), FACE_MODEL_SIZE.width(), context.frame().type());
+        resize(colorFace, resizedColor, FACE_MODEL_SIZE);
+        Mat resizedFace = pool.acquire(FACE_MODEL_SIZE.height(), FACE_MODEL_SIZE.width(), CV_8UC1);
+        cvtColor(resizedColor, resizedFace, COLOR_BGR2GRAY);
+        equalizeHist(resizedFace, resizedFace);
+
+        int[] predictedLabel = new int[1];
+        double[] confidence = new double[1];
+        snapshot.predict(resizedFace, predictedLabel, confidence);
+        predictCount.incrementAndGet();
+
+        colorFace.close();
+        pool.release(resizedColor);
+        pool.release(resizedFace);
+        return new RecognitionResult(predictedLabel[0], snapshot.getLabelName(predictedLabel[0]), confidence[0], faceRect, snapshot.getVersion());
+    }
+
+    /**
+     * Whether the face box is good enough to be worth a predict. Callers that
+     * track faces can defer a failing face to a later frame instead.
+     */
+    public boolean isRecognizable(FrameAnalysisContext context, Rect faceRect) {
+        return predictGate.check(context.frame(), faceRect) == null;
+    }
+
+    /** Why a crop would not be saved as a training photo, or null if it would. */
+    public FaceQualityGate.Reason checkTrainingImage(Mat faceImage) {
+        return captureGate.check(faceImage);
+    }
+
+    public void setFaceQualitySettings(FaceQualityGate.Settings settings) {
+        predictGate.setSettings(settings);
+        captureGate.setSettings(settings);
+    }
+
+    public Map<String, Object> faceQualityStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("predict", predictGate.stats());
+        stats.put("capture", captureGate.stats());
+        return stats;
+    }
+
+    /** Total recognizer invocations since startup. */
+    public long getPredictCount() { return predictCount.get(); }
+
     public RectVector detectFacesOnly(Mat frame) {
-        Mat grayFrame = new Mat();
-        cvtColor(frame, grayFrame, COLOR_BGR2GRAY);
-        equalizeHist(grayFrame, grayFrame);
-        RectVector detectedFaces = new RectVector();
-        this.faceDetector.detectMultiScale(grayFrame, detectedFaces, 1.1, 6, 0, new Size(100, 100), new Size());
-        grayFrame.release();
-        return detectedFaces;
+        return detectFacesOnly(frame, null);
     }
 
-    public void saveTrainingImage(Mat faceImage, String personName, String personRole) {
+    public RectVector detectFacesOnly(Mat frame, List<Rect> regions) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return detectFacesOnly(context, regions);
+        }
+    }
+
+    public RectVector detectFacesOnly(FrameAnalysisContext context, List<Rect> regions) {
+        RectVector faces = new RectVector();
+        for (Rect faceRect : detectFaces(context, regions)) {
+            faces.push_back(faceRect);
+        }
+        return faces;
+    }
+
+    /**
+     * Saves a face crop as a training photo of the person and queues it for
+     * the next model update. Nothing is saved if the crop fails the
+     * {@link FaceQualityGate}, is a near-duplicate of one of their existing
+     * photos (see {@link PerceptualHashIndex}) or could not be written; the
+     * result says which.
+     */
+    public SaveResult saveTrainingImage(Mat faceImage, String personName, String personRole) {
+        FaceQualityGate.Reason reason = captureGate.check(faceImage);
+        if (reason != null) {
+            System.out.println("Skipped low-quality training image for " + personName + ": " + reason);
+            return SaveResult.LOW_QUALITY;
+        }
+        long hash = PerceptualHashIndex.dHash(faceImage);
+        if (!photoHashes.admit(personRole, personName, hash)) {
+            System.out.println("Skipped near-duplicate training image for " + personName);
+            return SaveResult.DUPLICATE;
+        }
         Path dirPath = Paths.get("training-data", personRole, personName);
+        boolean saved = false;
         try {
             Files.createDirectories(dirPath);
             String fileName = personName + "_" + System.currentTimeMillis() + ".jpg";
-            imwrite(dirPath.resolve(fileName).toString(), faceImage);
-            System.out.println("Saved new training image: " + fileName + " for Role: " + personRole);
+            Path file = dirPath.resolve(fileName);
+            saved = imwrite(file.toString(), faceImage);
+            if (saved) {
+                pendingSamples.add(new PendingSample(personRole, personName, file));
+                System.out.println("Saved new training image: " + fileName + " for Role: " + personRole);
+            } else {
+                System.err.println("Error saving new training image: could not write " + file);
+            }
         } catch (IOException e) { System.err.println("Error saving new training image: " + e.getMessage()); }
+        if (saved) return SaveResult.SAVED;
+        photoHashes.remove(personRole, personName, hash);
+        return SaveResult.IO_ERROR;
+    }
+
+    /** Largest dHash distance at which a capture counts as a duplicate; negative disables the check. */
+    public void setDuplicatePhotoDistance(int maxDistance) {
+        photoHashes.setMaxDistance(maxDistance);
+    }
+
+    /**
+     * Deletes near-duplicate photos from the whole training-data tree. The
+     * removed samples stay in the model until it is retrained.
+     */
+    public PerceptualHashIndex.CompactionReport compactTrainingData() {
+        return photoHashes.compact();
+    }
+
+    /** Photos kept per person before a full training; 0 or less means no limit. */
+    public void setMaxPhotosPerPerson(int maxPhotos) {
+        sampleBudget.setMaxPerPerson(maxPhotos);
+    }
+
+    public Map<String, Object> sampleBudgetStats() {
+        return sampleBudget.stats();
+    }
+
+    public Map<String, Object> photoHashStats() {
+        return photoHashes.stats();
     }
 
     public String getLabelName(int label) {
-        synchronized (labelNameMap) {
-            return labelNameMap.getOrDefault(label, "Unknown");
-        }
+        return model.get().getLabelName(label);
     }
 
-    public void saveModel(String filePath) { faceRecognizer.save(filePath); }
+    public void saveModel(String filePath) {
+        try {
+            model.get().save(filePath);
+        } catch (IOException e) {
+            System.err.println("Error saving model to " + filePath + ": " + e.getMessage());
+        }
+    }
 
-    public void loadModel(String filePath) {
-        faceRecognizer.read(filePath);
-        this.isTrained = true;
+    /**
+     * Loads a model saved by the current engine. A file written by another
+     * engine is ignored, leaving the service untrained so it trains from disk.
+     */
+    public synchronized void loadModel(String filePath) {
+        try {
+            ModelSnapshot published = publish(engine.load(filePath));
+            System.out.println("Model loaded from " + filePath + " (model version " + published.getVersion() + ").");
+        } catch (IOException e) {
+            System.err.println("Could not load model " + filePath + " with the " + engine.name() + " engine: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
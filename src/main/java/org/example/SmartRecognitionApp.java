@@ -14,28 +14,48 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.Java2DFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameGrabber;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.bytedeco.opencv.opencv_core.Point;
 import org.bytedeco.opencv.opencv_core.Rect;
 import org.bytedeco.opencv.opencv_core.RectVector;
 import org.bytedeco.opencv.opencv_core.Scalar;
-import org.example.camera.CameraManager;
+import org.example.camera.CameraDefinition;
+import org.example.camera.CameraSession;
+import org.example.metrics.MetricsRegistry;
+import org.example.motion.MotionResult;
+import org.example.model.CaptureState;
 import org.example.model.RecognitionLog;
 import org.example.network.WebServer;
+import org.example.pipeline.AnnotatedFrame;
+import org.example.pipeline.FrameHandlers;
+import org.example.pipeline.FramePipeline;
+import org.example.pipeline.Overlay;
+import org.example.pipeline.SharedFrame;
 import org.example.profile.HeightProfileStore;
+import org.example.recognition.RecognizerEngine;
+import org.example.tracking.BoxTracker;
+import org.example.tracking.DetectionScheduler;
+import org.example.tracking.DetectorKind;
+import org.example.tracking.FaceTrackManager;
+import org.example.tracking.Track;
+import org.example.tracking.TrackedFace;
+import org.example.training.PerceptualHashIndex;
 import org.example.ui.MainControls;
 import org.example.ui.SettingsWindow;
 import org.example.ui.UserManagementWindow;
+import org.example.vision.FaceDetector;
+import org.example.vision.FaceQualityGate;
+import org.example.vision.FrameAnalysisContext;
+import org.example.vision.MatPool;
+import org.example.video.EncodedFrame;
+import org.example.video.PreRollBuffer;
+import org.example.video.RecordingStore;
+import org.example.video.RecordingTriggerEngine;
 import org.example.video.VideoRecorder;
 
 import javafx.embed.swing.SwingFXUtils;
 
 // --- FIX: Corrected the import paths ---
-import org.bytedeco.javacpp.BytePointer; // CORRECTED PATH
-import org.bytedeco.opencv.global.opencv_imgcodecs;
 import org.example.network.SharedFrameHolder;
 
 import java.awt.image.BufferedImage;
@@ -45,9 +65,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.bytedeco.opencv.global.opencv_imgproc.*;
 
 public class SmartRecognitionApp extends Application {
 
@@ -55,6 +76,7 @@ public class SmartRecognitionApp extends Application {
     private volatile SystemState currentState = SystemState.INITIALIZING;
 
     private ImageView imageView;
+    private ChoiceBox<String> cameraSelector;
     private Label statusLabel;
     private MainControls controls;
     private Stage primaryStage;
@@ -62,33 +84,34 @@ public class SmartRecognitionApp extends Application {
     private TableView<RecognitionLog> historyTable;
     private ObservableList<RecognitionLog> recognitionLogList;
 
-    private final CameraManager cameraManager = new CameraManager();
     private final DatabaseService databaseService = new DatabaseService();
-    private final FaceRecognitionService recognitionService = new FaceRecognitionService(databaseService);
-    private final OpenCVFrameConverter.ToMat toMatConverter = new OpenCVFrameConverter.ToMat();
-    private final Java2DFrameConverter java2DConverter = new Java2DFrameConverter();
     private final AppConfig appConfig = new AppConfig();
+    private final FaceRecognitionService recognitionService = new FaceRecognitionService(databaseService, createFaceDetector(appConfig));
+    private final RecordingStore recordingStore = new RecordingStore(
+            RECORDINGS_DIR, appConfig.getRecordingRetentionDays(), appConfig.getRecordingMaxGigabytes());
     private WebServer webServer;
 
     private final AtomicBoolean isRetraining = new AtomicBoolean(false);
     private final AtomicBoolean isRecording = new AtomicBoolean(false);
-    private volatile Mat currentFrame;
 
-    private final Map<Integer, org.example.model.CaptureState> lastCaptureState = new HashMap<>();
-    private int newPhotosCaptured = 0;
+    // One session per configured camera; all of them share the services above.
+    private final Map<String, CameraSession> sessions = new LinkedHashMap<>();
+    private volatile CameraSession selectedSession;
+    private ExecutorService analysisPool;
+    private ExecutorService streamPool;
+
+    private final AtomicInteger newPhotosCaptured = new AtomicInteger(0);
     private static final int RETRAIN_THRESHOLD = 10;
     private static final String MODEL_FILE = "my_trained_model.yml";
+    // Set once the face detector is known; see modelFileFor.
+    private volatile String modelPath = MODEL_FILE;
     private static final String TRAINING_DIR = "training-data";
     private static final double POSE_CHANGE_THRESHOLD = 0.15;
     private static final long COOLDOWN_PERIOD_MS = 5000;
     private static final double HIGH_CONFIDENCE_THRESHOLD = 50.0;
 
-    private Rect lastSeenUnknownFace = null;
-    private long unknownFaceLastSeenTime = 0;
     private static final long UNKNOWN_FACE_STABLE_MS = 2000;
 
-    private final Deque<Mat> frameBuffer = new LinkedList<>();
-    private static final int VIDEO_BUFFER_FRAMES = 450;
     private static final String RECORDINGS_DIR = "recordings";
 
     private static final int MIN_HEIGHT_SAMPLES = 10;
@@ -105,11 +128,27 @@ public class SmartRecognitionApp extends Application {
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
-        this.webServer = new WebServer(databaseService, recognitionService);
+        this.webServer = new WebServer(databaseService, recognitionService, recordingStore);
 
         this.recognitionLogList = FXCollections.observableArrayList();
 
         this.imageView = new ImageView();
+        for (CameraDefinition definition : appConfig.getCameraDefinitions()) {
+            sessions.put(definition.getId(), new CameraSession(definition, appConfig, recordingStore));
+        }
+        this.selectedSession = sessions.values().iterator().next();
+        SharedFrameHolder.setDefaultCamera(selectedSession.getId());
+
+        this.cameraSelector = new ChoiceBox<>(FXCollections.observableArrayList(sessions.keySet()));
+        cameraSelector.setValue(selectedSession.getId());
+        cameraSelector.setVisible(sessions.size() > 1);
+        cameraSelector.setManaged(sessions.size() > 1);
+        cameraSelector.getSelectionModel().selectedItemProperty().addListener((obs, oldId, newId) -> {
+            if (newId != null) {
+                selectedSession = sessions.get(newId);
+                controls.enrollButton.setDisable(selectedSession.getLastSeenUnknownFace() == null);
+            }
+        });
         this.statusLabel = new Label("Status: Initializing...");
         statusLabel.setStyle("-fx-font-size: 14px; -fx-padding: 10;");
 
@@ -127,7 +166,7 @@ public class SmartRecognitionApp extends Application {
 
         this.historyTable = createHistoryTable();
 
-        VBox root = new VBox(10, imageView, statusLabel, historyTable, controls);
+        VBox root = new VBox(10, cameraSelector, imageView, statusLabel, historyTable, controls);
         root.setAlignment(Pos.CENTER);
         VBox.setVgrow(historyTable, Priority.ALWAYS);
 
@@ -159,7 +198,10 @@ public class SmartRecognitionApp extends Application {
         TableColumn<RecognitionLog, Double> confidenceCol = new TableColumn<>("Confidence");
         confidenceCol.setCellValueFactory(new PropertyValueFactory<>("confidence"));
 
-        table.getColumns().addAll(nameCol, roleCol, timeCol, confidenceCol);
+        TableColumn<RecognitionLog, String> cameraCol = new TableColumn<>("Camera");
+        cameraCol.setCellValueFactory(new PropertyValueFactory<>("camera"));
+
+        table.getColumns().addAll(nameCol, roleCol, timeCol, confidenceCol, cameraCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
         table.setItems(recognitionLogList);
@@ -167,26 +209,87 @@ public class SmartRecognitionApp extends Application {
     }
 
     private void showUserManagementWindow() {
-        Runnable retrain = () -> {
-            updateStatus("User deleted. Retraining AI model...");
-            recognitionService.trainModel(TRAINING_DIR);
-            recognitionService.saveModel(MODEL_FILE);
-            Platform.runLater(() -> updateStatus("Model retrained successfully."));
+        Runnable userDeleted = () -> updateStatus("User deleted and removed from the live model.");
+        Runnable rebuild = () -> {
+            if (!isRetraining.compareAndSet(false, true)) {
+                updateStatus("Status: A model update is already running.");
+                return;
+            }
+            try {
+                updateStatus("Status: Rebuilding AI model from all training photos...");
+                recognitionService.trainModel(TRAINING_DIR);
+                recognitionService.saveModel(modelPath);
+                updateStatus("Model rebuilt: " + recognitionService.getTrainingProgress().summary());
+            } finally {
+                isRetraining.set(false);
+            }
+        };
+        Runnable removeDuplicates = () -> {
+            if (!isRetraining.compareAndSet(false, true)) {
+                updateStatus("Status: A model update is already running.");
+                return;
+            }
+            try {
+                updateStatus("Status: Removing near-duplicate training photos...");
+                PerceptualHashIndex.CompactionReport report = recognitionService.compactTrainingData();
+                if (report.removed > 0) {
+                    updateStatus("Status: " + report + " Rebuilding AI model...");
+                    recognitionService.trainModel(TRAINING_DIR);
+                    recognitionService.saveModel(modelPath);
+                }
+                updateStatus("Status: " + report);
+            } finally {
+                isRetraining.set(false);
+            }
         };
-        new UserManagementWindow(databaseService, recognitionService, retrain).show(primaryStage);
+        new UserManagementWindow(databaseService, recognitionService, userDeleted, rebuild, removeDuplicates).show(primaryStage);
     }
 
     private void showSettingsWindow() {
         new SettingsWindow(appConfig, () -> updateStatus("Settings saved. Restart application for changes to take full effect.")).show(primaryStage);
     }
 
+    /**
+     * A model is trained on the crops of one face detector, so each detector
+     * has its own model file; the Haar cascade keeps the original name.
+     */
+    private static String modelFileFor(String faceDetector) {
+        if ("haar".equals(faceDetector)) return MODEL_FILE;
+        return "my_trained_model-" + faceDetector + ".yml";
+    }
+
+    /** The configured face detector, or the Haar cascade if it cannot be loaded. */
+    private static FaceDetector createFaceDetector(AppConfig config) {
+        try {
+            return FaceDetector.forName(config.getFaceDetector(), config.getFaceDetectorModel(),
+                    config.getFaceDetectorScoreThreshold(), config.getDetectorPoolSize());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not load face detector '" + config.getFaceDetector() + "', using haar: " + e.getMessage());
+            return FaceRecognitionService.defaultFaceDetector(config.getDetectorPoolSize());
+        }
+    }
+
     private void startBackgroundServices() {
         heightProfileStore.load();
+        recognitionService.setTrainingThreads(appConfig.getTrainingThreads());
+        recognitionService.setDetectorPoolSize(appConfig.getDetectorPoolSize());
+        recognitionService.setDuplicatePhotoDistance(appConfig.getDuplicatePhotoDistance());
+        recognitionService.setMaxPhotosPerPerson(appConfig.getMaxPhotosPerPerson());
+        recognitionService.setFaceQualitySettings(appConfig.getFaceQualitySettings());
+        recognitionService.setRecognizerEngine(RecognizerEngine.forName(
+                appConfig.getRecognizerEngine(), appConfig.getGalleryIndexSettings(), appConfig.getSFaceModel()));
+        modelPath = modelFileFor(recognitionService.getFaceDetectorName());
+        MetricsRegistry.register("detectors", recognitionService::detectorStats);
+        MetricsRegistry.register("training", recognitionService.getTrainingProgress()::stats);
+        MetricsRegistry.register("trainingPhotos", recognitionService::photoHashStats);
+        MetricsRegistry.register("sampleBudget", recognitionService::sampleBudgetStats);
+        MetricsRegistry.register("faceQuality", recognitionService::faceQualityStats);
         new Thread(() -> {
-            File modelFile = new File(MODEL_FILE);
+            recordingStore.start();
+            File modelFile = new File(modelPath);
             if (modelFile.exists() && !modelFile.isDirectory()) {
                 updateStatus("Status: Loading AI model...");
-                recognitionService.loadModel(MODEL_FILE);
+                recognitionService.loadModel(modelPath);
                 recognitionService.rebuildLabelNameMap();
             }
 
@@ -206,207 +309,286 @@ public class SmartRecognitionApp extends Application {
                 updateStatus("Status: No trained data. Please enroll a new person.");
             }
 
-            CameraManager.GrabberFactory factory = () -> {
-                String cameraType = appConfig.getCameraType();
-                if (cameraType.equals("WEBCAM")) {
-                    System.out.println("Starting default webcam...");
-                    return new OpenCVFrameGrabber(0);
-                } else {
-                    String ipCameraUrl = appConfig.getIpCameraUrl();
-                    if (ipCameraUrl.isEmpty()) {
-                        Platform.runLater(() -> {
-                            updateStatus("ERROR: IP Camera selected, but URL is empty. Please configure in settings.");
-                            showAlert("Configuration Error", "IP Camera selected, but URL is empty. Please configure in settings.");
-                        });
-                        throw new IllegalStateException("IP Camera URL is empty");
-                    }
-                    System.out.println("Starting IP camera from URL: " + ipCameraUrl);
-                    return new OpenCVFrameGrabber(ipCameraUrl);
-                }
-            };
-
-            cameraManager.startAsync(
-                    factory,
-                    frame -> {
-                        Mat grabbedMat = toMatConverter.convert(frame);
-                        if (grabbedMat == null || grabbedMat.empty()) return;
-                        synchronized (frameBuffer) {
-                            frameBuffer.addLast(grabbedMat.clone());
-                            if (frameBuffer.size() > VIDEO_BUFFER_FRAMES) {
-                                frameBuffer.removeFirst().release();
-                            }
-                        }
-                        synchronized (this) {
-                            if (this.currentFrame != null && !this.currentFrame.isNull()) {
-                                this.currentFrame.release();
-                            }
-                            this.currentFrame = grabbedMat.clone();
-                        }
-                        processAndDisplayFrame(grabbedMat);
-                    },
-                    e -> Platform.runLater(() -> {
-                        updateStatus("ERROR: Could not start camera! " + e.getMessage());
-                        showAlert("Camera Error", "Could not start camera. Please check your settings or camera connection.\nDetails: " + e.getMessage());
-                    })
-            );
+            MetricsRegistry.register("recognizer", () -> Map.of(
+                    "modelVersion", recognitionService.getModelVersion(),
+                    "predictsTotal", recognitionService.getPredictCount(),
+                    "pendingSamples", recognitionService.getPendingSampleCount(),
+                    "removedLabels", recognitionService.getRemovedLabelCount(),
+                    "model", recognitionService.modelStats()));
+            MetricsRegistry.register("matPool", MatPool::stats);
+            MetricsRegistry.register("recordings", recordingStore::stats);
+            analysisPool = FramePipeline.newSharedExecutor("analysis", appConfig.getAnalysisThreads());
+            streamPool = FramePipeline.newSharedExecutor("stream", appConfig.getStreamThreads());
+            for (CameraSession session : sessions.values()) {
+                startCameraSession(session);
+            }
         }).start();
     }
 
-    private void processAndDisplayFrame(Mat frame) {
-        Mat frameToProcess = frame.clone();
-        switch (currentState) {
-            case RECOGNIZING:
-                processFrameForRecognition(frameToProcess);
-                break;
-            case ENROLLMENT_ONLY:
-                processFrameForEnrollment(frameToProcess);
-                break;
-            case INITIALIZING:
-                break;
+    private void startCameraSession(CameraSession session) {
+        FramePipeline pipeline = new FramePipeline(session.getId(), new FrameHandlers() {
+            @Override public void record(SharedFrame frame) { session.bufferFrame(frame); }
+            @Override public void analyze(Mat frame) { analyzeFrame(session, frame); }
+            @Override public List<Overlay> overlays() { return session.getLatestOverlays(); }
+            @Override public void render(AnnotatedFrame frame) { renderFrame(session, frame); }
+            @Override public void display(AnnotatedFrame frame) { displayFrame(session, frame); }
+        }, appConfig, analysisPool, streamPool);
+        MetricsRegistry.register("pipeline." + session.getId(), pipeline::stats);
+        MetricsRegistry.register("motion." + session.getId(), session.getMotionDetector()::stats);
+        MetricsRegistry.register("detectors." + session.getId(), session.getDetectionScheduler()::stats);
+        MetricsRegistry.register("faces." + session.getId(), session.getFaceTracks()::stats);
+        MetricsRegistry.register("preroll." + session.getId(), session.getPreRoll()::stats);
+        MetricsRegistry.register("recording." + session.getId(), session.getRecordingTriggers()::stats);
+
+        session.start(pipeline, e -> Platform.runLater(() -> {
+            updateStatus("ERROR: Could not start camera '" + session.getId() + "'! " + e.getMessage());
+            showAlert("Camera Error", "Could not start camera '" + session.getId() + "'. Please check your settings or camera connection.\nDetails: " + e.getMessage());
+        }));
+    }
+
+    // --- Pipeline stage handlers (see FramePipeline) ---
+
+    private void analyzeFrame(CameraSession session, Mat frame) {
+        if (currentState == SystemState.INITIALIZING) return;
+        // One context per frame: motion, both cascades and the recognizer share its gray/equalized images.
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame, session.getDetectionScale())) {
+            MotionResult motion = session.getMotionDetector().analyze(context);
+            // Nothing moved: the previous overlays are still accurate, so skip the cascades entirely.
+            if (!motion.hasMotion()) return;
+            session.getRecordingTriggers().reportActivity();
+
+            List<Overlay> overlays = new ArrayList<>();
+            switch (currentState) {
+                case RECOGNIZING:
+                    processFrameForRecognition(session, context, motion.getRegions(), overlays);
+                    break;
+                case ENROLLMENT_ONLY:
+                    processFrameForEnrollment(session, context, motion.getRegions(), overlays);
+                    break;
+                case INITIALIZING:
+                    break;
+            }
+            session.setLatestOverlays(overlays);
         }
+    }
 
+    private void renderFrame(CameraSession session, AnnotatedFrame frame) {
         // --- Feed the MJPEG Stream ---
-        BytePointer jpegBytes = new BytePointer();
-        opencv_imgcodecs.imencode(".jpg", frameToProcess, jpegBytes);
-        byte[] byteArray = new byte[(int) jpegBytes.limit()];
-        jpegBytes.get(byteArray);
-        SharedFrameHolder.updateFrame(byteArray);
-        jpegBytes.close();
-
-        Image imageToShow = matToImage(frameToProcess);
-        Platform.runLater(() -> imageView.setImage(imageToShow));
+        // Without overlays the stream shows the recorded pixels, so it reuses the pre-roll JPEG.
+        PreRollBuffer encoder = session.getPreRoll();
+        byte[] jpeg = frame.getOverlays().isEmpty()
+                ? frame.getBase().jpeg(encoder::encode)
+                : encoder.encode(frame.image());
+        SharedFrameHolder.updateFrame(session.getId(), jpeg);
+    }
 
-        frameToProcess.release();
-        frame.release();
+    private void displayFrame(CameraSession session, AnnotatedFrame frame) {
+        if (session != selectedSession) return;
+        Image imageToShow = matToImage(session, frame.image());
+        Platform.runLater(() -> imageView.setImage(imageToShow));
     }
 
 
-    private void processFrameForRecognition(Mat frame) {
-        RectVector detectedBodies = recognitionService.detectBodies(frame);
-        List<FaceRecognitionService.RecognitionResult> faceResults = recognitionService.recognizeFaces(frame);
-        boolean unknownFaceFoundThisFrame = false;
-        Set<Rect> matchedBodyRects = new HashSet<>();
+    private void processFrameForRecognition(CameraSession session, FrameAnalysisContext context, List<Rect> regions, List<Overlay> overlays) {
+        DetectionScheduler scheduler = session.getDetectionScheduler();
+        FaceTrackManager faceTracks = session.getFaceTracks();
+        BoxTracker<Overlay> bodyTracker = session.getBodyTracker();
+        boolean runBodies = scheduler.shouldRun(DetectorKind.BODY);
+        boolean runFaces = scheduler.shouldRun(DetectorKind.FACE);
 
-        for (FaceRecognitionService.RecognitionResult result : faceResults) {
-            Rect faceRect = result.getFaceRect();
-            String nameLabelText;
-            Scalar color;
+        // On frames where a detector is skipped its tracker extrapolates the last boxes instead.
+        List<Rect> detectedBodies;
+        if (runBodies) {
+            RectVector bodies = recognitionService.detectBodies(context, regions);
+            detectedBodies = copyRects(bodies);
+            bodies.releaseReference();
+        } else {
+            bodyTracker.predict();
+            detectedBodies = bodyTracker.currentRects();
+        }
 
-            if (result.getLabel() != -1 && result.getConfidence() < 80) {
-                nameLabelText = result.getName() + " (" + String.format("%.2f", result.getConfidence()) + ")";
-                if (result.getName().startsWith("Owner:")) color = new Scalar(0, 255, 0, 0);
-                else if (result.getName().startsWith("Employee:")) color = new Scalar(255, 255, 0, 0);
-                else if (result.getName().equalsIgnoreCase("Unknown")) {
-                    nameLabelText = "Unknown";
-                    color = new Scalar(0, 0, 255, 0);
-                    unknownFaceFoundThisFrame = true;
-                    handleUnknownFace(faceRect);
+        if (runFaces) {
+            detectAndRecognizeFaces(session, context, regions, detectedBodies, faceTracks);
+        } else {
+            faceTracks.predict();
+        }
+
+        if (runBodies) {
+            List<Overlay> bodyOverlays = new ArrayList<>();
+            for (Rect bodyRect : detectedBodies) {
+                String bestMatchName = null;
+                Optional<Integer> bestLabel = heightProfileStore.bestMatchByHeight(bodyRect.height(), MIN_HEIGHT_SAMPLES, HEIGHT_MATCH_TOLERANCE);
+                if (bestLabel.isPresent()) {
+                    bestMatchName = recognitionService.getLabelName(bestLabel.get());
+                }
+                if (bestMatchName != null && !bestMatchName.equalsIgnoreCase("Unknown")) {
+                    String label = "Possible: " + bestMatchName + " (by height)";
+                    bodyOverlays.add(new Overlay(bodyRect, label, new Scalar(0, 255, 255, 0)));
                 } else {
-                    color = new Scalar(0, 255, 0, 0);
+                    bodyOverlays.add(new Overlay(bodyRect, "Body", new Scalar(255, 0, 0, 0)));
                 }
+            }
+            bodyTracker.update(detectedBodies, bodyOverlays);
+        }
 
-                if (!nameLabelText.equals("Unknown")) {
-                    for (long i = 0; i < detectedBodies.size(); i++) {
-                        Rect bodyRect = detectedBodies.get(i);
-                        if (bodyRect.contains(new Point(faceRect.x() + faceRect.width() / 2, faceRect.y() + faceRect.height() / 2))) {
-                            heightProfileStore.addSample(result.getLabel(), bodyRect.height());
-                            matchedBodyRects.add(bodyRect);
-                            break;
-                        }
-                    }
+        scheduler.reportTrackConfidence(DetectorKind.FACE, faceTracks.lowestConfidence(), runFaces);
+        scheduler.reportTrackConfidence(DetectorKind.BODY, bodyTracker.lowestConfidence(), runBodies);
+
+        // Bodies that already carry a recognized face are not labelled twice.
+        List<Rect> knownFaces = new ArrayList<>();
+        List<Rect> allFaces = new ArrayList<>();
+        for (TrackedFace face : faceTracks.current()) {
+            FaceRecognitionService.RecognitionResult result = face.getResult();
+            overlays.add(faceOverlay(result));
+            allFaces.add(result.getFaceRect());
+            if (isKnownFace(result)) knownFaces.add(result.getFaceRect());
+        }
+        for (Track<Overlay> body : bodyTracker.getTracks()) {
+            Rect bodyRect = body.getRect();
+            if (containsFaceCenter(bodyRect, knownFaces) == null) {
+                overlays.add(body.getPayload().movedTo(bodyRect));
+            }
+            if (containsFaceCenter(bodyRect, allFaces) == null) {
+                session.getRecordingTriggers().fire(RecordingTriggerEngine.BODY_WITHOUT_FACE);
+            }
+        }
+    }
 
-                    if (result.getConfidence() < HIGH_CONFIDENCE_THRESHOLD && shouldCaptureNewPose(result.getLabel(), faceRect)) {
-                        String[] parts = result.getName().split(": ");
-                        if (parts.length == 2) {
-                            Mat frameForSaving;
-                            synchronized(this) {
-                                if(this.currentFrame != null && !this.currentFrame.empty()){
-                                    frameForSaving = this.currentFrame.clone();
-                                } else {
-                                    frameForSaving = frame.clone();
-                                }
-                            }
-                            recognitionService.saveTrainingImage(frameForSaving.apply(faceRect), parts[1], parts[0]);
-                            frameForSaving.release();
-
-                            databaseService.logRecognition(result.getLabel(), result.getConfidence());
-                            addNewLogToTable(result.getName(), new Timestamp(System.currentTimeMillis()).toString(), result.getConfidence());
-
-                            lastCaptureState.put(result.getLabel(), new org.example.model.CaptureState(System.currentTimeMillis(), faceRect));
-                            updateStatus("Status: Captured new photo for: " + parts[1]);
-                            newPhotosCaptured++;
-                            if (newPhotosCaptured >= RETRAIN_THRESHOLD) triggerBackgroundRetraining();
-                            try {
-                                String json = String.format(java.util.Locale.ROOT,
-                                        "{\"type\":\"recognition\",\"name\":\"%s\",\"confidence\":%.2f,\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
-                                        parts[1], result.getConfidence(), faceRect.x(), faceRect.y(), faceRect.width(), faceRect.height());
-                                org.example.network.EventBus.broadcast(json);
-                            } catch (Throwable ignored) {}
-                        }
-                    } else if (shouldLogRecognition(result.getLabel())) {
-                        databaseService.logRecognition(result.getLabel(), result.getConfidence());
-                        addNewLogToTable(result.getName(), new Timestamp(System.currentTimeMillis()).toString(), result.getConfidence());
-
-                        lastCaptureState.put(result.getLabel(), new org.example.model.CaptureState(System.currentTimeMillis(), result.getFaceRect()));
-
-                        System.out.println("Logged recognition for user " + result.getLabel() + " to database.");
-                        try {
-                            String json = String.format(java.util.Locale.ROOT,
-                                    "{\"type\":\"recognition\",\"name\":\"%s\",\"confidence\":%.2f,\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
-                                    result.getName(), result.getConfidence(), result.getFaceRect().x(), result.getFaceRect().y(), result.getFaceRect().width(), result.getFaceRect().height());
-                            org.example.network.EventBus.broadcast(json);
-                        } catch (Throwable ignored) {}
+    private void detectAndRecognizeFaces(CameraSession session, FrameAnalysisContext context, List<Rect> regions, List<Rect> detectedBodies, FaceTrackManager faceTracks) {
+        List<Rect> faceRects = recognitionService.detectFaces(context, regions);
+        // Only new, poorly recognized or stale tracks reach the recognizer; the rest reuse their cached result.
+        // Blurred, tiny or cut-off crops are not predicted; their track is handled as a low-quality unknown until a better frame.
+        List<TrackedFace> trackedFaces = faceTracks.update(faceRects,
+                faceRect -> recognitionService.isRecognizable(context, faceRect) ? recognitionService.predict(context, faceRect) : null,
+                recognitionService.getModelVersion());
+        Set<Integer> liveTracks = faceTracks.liveTrackIds();
+        session.getLastCaptureState().values().removeIf(state -> !liveTracks.contains(state.trackId));
+        boolean unknownFaceFoundThisFrame = false;
+
+        for (TrackedFace tracked : trackedFaces) {
+            FaceRecognitionService.RecognitionResult result = tracked.getResult();
+            Rect faceRect = result.getFaceRect();
+            int trackId = tracked.getTrackId();
+
+            if (result.getLabel() == -1 || result.getConfidence() >= 80) {
+                unknownFaceFoundThisFrame = true;
+                handleUnknownFace(session, faceRect);
+                session.getRecordingTriggers().fire(RecordingTriggerEngine.UNKNOWN_FACE);
+                try {
+                    String json = String.format(java.util.Locale.ROOT,
+                            "{\"type\":\"unknown\",\"camera\":\"%s\",\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
+                            session.getId(), faceRect.x(), faceRect.y(), faceRect.width(), faceRect.height());
+                    org.example.network.EventBus.broadcast(json);
+                } catch (Throwable ignored) {}
+                continue;
+            }
+            if (!isKnownFace(result)) {
+                unknownFaceFoundThisFrame = true;
+                handleUnknownFace(session, faceRect);
+                session.getRecordingTriggers().fire(RecordingTriggerEngine.UNKNOWN_FACE);
+                continue;
+            }
+            String[] nameParts = result.getName().split(": ");
+            if (nameParts.length == 2) {
+                session.getRecordingTriggers().fire(RecordingTriggerEngine.ROLE_PREFIX + nameParts[0]);
+            }
+            session.getRecordingTriggers().observeIdentity(result.getName());
+
+            for (Rect bodyRect : detectedBodies) {
+                if (containsFaceCenter(bodyRect, List.of(faceRect)) != null) {
+                    heightProfileStore.addSample(result.getLabel(), bodyRect.height());
+                    break;
+                }
+            }
+
+            // Training photos are only taken when the recognizer has just confirmed this crop, never from a cached result.
+            if (tracked.isFresh() && result.getConfidence() < HIGH_CONFIDENCE_THRESHOLD && shouldCaptureNewPose(session, trackId, result.getLabel(), faceRect)) {
+                String[] parts = result.getName().split(": ");
+                if (parts.length == 2) {
+                    // The analysis frame is never drawn on, so the crop matches the detected rect exactly.
+                    boolean saved = recognitionService.saveTrainingImage(context.frame().apply(faceRect), parts[1], parts[0])
+                            == FaceRecognitionService.SaveResult.SAVED;
+
+                    databaseService.logRecognition(result.getLabel(), result.getConfidence(), session.getId());
+                    addNewLogToTable(result.getName(), new Timestamp(System.currentTimeMillis()).toString(), result.getConfidence(), session.getId());
+
+                    // A near-duplicate still counts as captured, so the same pose is not retried every frame.
+                    recordCapture(session, trackId, result.getLabel(), faceRect);
+                    if (saved) {
+                        updateStatus("Status: Captured new photo for: " + parts[1]);
+                        if (newPhotosCaptured.incrementAndGet() >= RETRAIN_THRESHOLD) triggerBackgroundRetraining();
                     }
+                    try {
+                        String json = String.format(java.util.Locale.ROOT,
+                                "{\"type\":\"recognition\",\"camera\":\"%s\",\"name\":\"%s\",\"confidence\":%.2f,\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
+                                session.getId(), parts[1], result.getConfidence(), faceRect.x(), faceRect.y(), faceRect.width(), faceRect.height());
+                        org.example.network.EventBus.broadcast(json);
+                    } catch (Throwable ignored) {}
                 }
-            } else {
-                nameLabelText = "Unknown";
-                color = new Scalar(0, 0, 255, 0);
-                unknownFaceFoundThisFrame = true;
-                handleUnknownFace(faceRect);
+            } else if (shouldLogRecognition(session, result.getLabel())) {
+                databaseService.logRecognition(result.getLabel(), result.getConfidence(), session.getId());
+                addNewLogToTable(result.getName(), new Timestamp(System.currentTimeMillis()).toString(), result.getConfidence(), session.getId());
+
+                recordCapture(session, trackId, result.getLabel(), faceRect);
+
+                System.out.println("Logged recognition for user " + result.getLabel() + " on camera " + session.getId() + " to database.");
                 try {
                     String json = String.format(java.util.Locale.ROOT,
-                            "{\"type\":\"unknown\",\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
-                            faceRect.x(), faceRect.y(), faceRect.width(), faceRect.height());
+                            "{\"type\":\"recognition\",\"camera\":\"%s\",\"name\":\"%s\",\"confidence\":%.2f,\"box\":{\"x\":%d,\"y\":%d,\"width\":%d,\"height\":%d}}",
+                            session.getId(), result.getName(), result.getConfidence(), faceRect.x(), faceRect.y(), faceRect.width(), faceRect.height());
                     org.example.network.EventBus.broadcast(json);
                 } catch (Throwable ignored) {}
             }
-            rectangle(frame, faceRect, color, 2, LINE_8, 0);
-            putText(frame, nameLabelText, new Point(faceRect.x(), faceRect.y() - 10), FONT_HERSHEY_SIMPLEX, 0.7, color, 2, LINE_8, false);
         }
 
         if (!unknownFaceFoundThisFrame) {
-            resetUnknownFaceTracking();
+            resetUnknownFaceTracking(session);
         }
+    }
 
-        for (long i = 0; i < detectedBodies.size(); i++) {
-            Rect bodyRect = detectedBodies.get(i);
-            if (matchedBodyRects.contains(bodyRect)) continue;
-            int bodyHeight = bodyRect.height();
-            String bestMatchName = null;
-            Optional<Integer> bestLabel = heightProfileStore.bestMatchByHeight(bodyHeight, MIN_HEIGHT_SAMPLES, HEIGHT_MATCH_TOLERANCE);
-            if (bestLabel.isPresent()) {
-                bestMatchName = recognitionService.getLabelName(bestLabel.get());
-            }
-            if (bestMatchName != null && !bestMatchName.equalsIgnoreCase("Unknown")) {
-                Scalar color = new Scalar(0, 255, 255, 0);
-                String label = "Possible: " + bestMatchName + " (by height)";
-                rectangle(frame, bodyRect, color, 2, LINE_8, 0);
-                putText(frame, label, new Point(bodyRect.x(), bodyRect.y() - 10), FONT_HERSHEY_SIMPLEX, 0.7, color, 2, LINE_8, false);
-            } else {
-                Scalar color = new Scalar(255, 0, 0, 0);
-                rectangle(frame, bodyRect, color, 2, LINE_8, 0);
-                putText(frame, "Body", new Point(bodyRect.x(), bodyRect.y() - 10), FONT_HERSHEY_SIMPLEX, 0.7, color, 2, LINE_8, false);
+    private static boolean isKnownFace(FaceRecognitionService.RecognitionResult result) {
+        return result.getLabel() != -1 && result.getConfidence() < 80 && !result.getName().equalsIgnoreCase("Unknown");
+    }
+
+    private static Overlay faceOverlay(FaceRecognitionService.RecognitionResult result) {
+        if (!isKnownFace(result)) {
+            String text = result.isLowQuality() ? FaceRecognitionService.LOW_QUALITY_NAME : "Unknown";
+            return new Overlay(result.getFaceRect(), text, new Scalar(0, 0, 255, 0));
+        }
+        String nameLabelText = result.getName() + " (" + String.format("%.2f", result.getConfidence()) + ")";
+        Scalar color;
+        if (result.getName().startsWith("Owner:")) color = new Scalar(0, 255, 0, 0);
+        else if (result.getName().startsWith("Employee:")) color = new Scalar(255, 255, 0, 0);
+        else color = new Scalar(0, 255, 0, 0);
+        return new Overlay(result.getFaceRect(), nameLabelText, color);
+    }
+
+    /** Returns the first face whose center lies inside the body box, or null. */
+    private static Rect containsFaceCenter(Rect bodyRect, List<Rect> faces) {
+        for (Rect faceRect : faces) {
+            if (bodyRect.contains(new Point(faceRect.x() + faceRect.width() / 2, faceRect.y() + faceRect.height() / 2))) {
+                return faceRect;
             }
         }
-        detectedBodies.releaseReference();
+        return null;
+    }
+
+    /** Copies the rects out of a native vector so they stay valid after it is released. */
+    private static List<Rect> copyRects(RectVector vector) {
+        List<Rect> rects = new ArrayList<>((int) vector.size());
+        for (long i = 0; i < vector.size(); i++) {
+            Rect r = vector.get(i);
+            rects.add(new Rect(r.x(), r.y(), r.width(), r.height()));
+        }
+        return rects;
     }
 
-    private void addNewLogToTable(String displayName, String timestamp, double confidence) {
+    private void addNewLogToTable(String displayName, String timestamp, double confidence, String cameraId) {
         String[] parts = displayName.split(": ");
         String role = parts.length > 1 ? parts[0] : "Unknown";
         String name = parts.length > 1 ? parts[1] : parts[0];
 
-        RecognitionLog newLog = new RecognitionLog(name, role, timestamp, confidence);
+        RecognitionLog newLog = new RecognitionLog(name, role, timestamp, confidence, cameraId);
 
         Platform.runLater(() -> {
             recognitionLogList.add(0, newLog);
@@ -416,29 +598,34 @@ public class SmartRecognitionApp extends Application {
         });
     }
 
-    private void processFrameForEnrollment(Mat frame) {
-        RectVector detectedFaces = recognitionService.detectFacesOnly(frame);
+    private void processFrameForEnrollment(CameraSession session, FrameAnalysisContext context, List<Rect> regions, List<Overlay> overlays) {
+        RectVector detectedFaces = recognitionService.detectFacesOnly(context, regions);
         boolean unknownFaceFoundThisFrame = false;
         if (detectedFaces.size() > 0) {
-            Rect faceRect = detectedFaces.get(0);
-            rectangle(frame, faceRect, new Scalar(0, 0, 255, 0), 2, LINE_8, 0);
-            Point namePos = new Point(faceRect.x(), faceRect.y() - 10);
-            putText(frame, "Unknown (Enrollment Mode)", namePos, FONT_HERSHEY_SIMPLEX, 0.7, new Scalar(0, 0, 255, 0), 2, LINE_8, false);
+            // The overlay and the session outlive the vector, so they get a copy of its native rect.
+            Rect first = detectedFaces.get(0);
+            Rect faceRect = new Rect(first.x(), first.y(), first.width(), first.height());
+            overlays.add(new Overlay(faceRect, "Unknown (Enrollment Mode)", new Scalar(0, 0, 255, 0)));
             unknownFaceFoundThisFrame = true;
-            handleUnknownFace(faceRect);
+            handleUnknownFace(session, faceRect);
         }
         if (!unknownFaceFoundThisFrame) {
-            resetUnknownFaceTracking();
+            resetUnknownFaceTracking(session);
         }
         detectedFaces.releaseReference();
     }
 
     private void enrollManually() {
+        CameraSession session = selectedSession;
+        Rect lastSeenUnknownFace = session.getLastSeenUnknownFace();
         if (lastSeenUnknownFace != null) {
-            Mat faceToSave;
-            synchronized(this){
-                if (this.currentFrame == null || this.currentFrame.empty()) return;
-                faceToSave = this.currentFrame.apply(lastSeenUnknownFace).clone();
+            Mat faceToSave = session.copyCurrentFrameRegion(lastSeenUnknownFace);
+            if (faceToSave == null) return;
+            FaceQualityGate.Reason rejected = recognitionService.checkTrainingImage(faceToSave);
+            if (rejected != null) {
+                faceToSave.release();
+                updateStatus("Status: Face not clear enough to enroll (" + rejected + "). Please try again.");
+                return;
             }
 
             TextInputDialog nameDialog = new TextInputDialog();
@@ -460,9 +647,13 @@ public class SmartRecognitionApp extends Application {
                         int newUserId = databaseService.addUser(name, role);
                         if (newUserId != -1) {
                             updateStatus("Status: Enrolling '" + name + "' as " + role + " with ID " + newUserId);
-                            recognitionService.saveTrainingImage(faceToSave, name, role);
-                            newPhotosCaptured++;
-                            triggerBackgroundRetraining();
+                            FaceRecognitionService.SaveResult saved = recognitionService.saveTrainingImage(faceToSave, name, role);
+                            if (saved == FaceRecognitionService.SaveResult.SAVED) {
+                                newPhotosCaptured.incrementAndGet();
+                                triggerBackgroundRetraining();
+                            } else {
+                                updateStatus("Status: Enrolled " + name + " but their photo was not saved: " + describe(saved));
+                            }
                         } else {
                             updateStatus("Error: Could not enroll " + name + ". They may already exist.");
                         }
@@ -470,19 +661,19 @@ public class SmartRecognitionApp extends Application {
                 }
             });
             faceToSave.release();
-            resetUnknownFaceTracking();
+            resetUnknownFaceTracking(session);
         }
     }
 
 
-    private void handleUnknownFace(Rect faceRect) {
+    private void handleUnknownFace(CameraSession session, Rect faceRect) {
         if (isRetraining.get()) return;
-        lastSeenUnknownFace = faceRect;
+        session.setLastSeenUnknownFace(faceRect);
         long currentTime = System.currentTimeMillis();
-        if (unknownFaceLastSeenTime == 0) {
-            unknownFaceLastSeenTime = currentTime;
+        if (session.getUnknownFaceLastSeenTime() == 0) {
+            session.setUnknownFaceLastSeenTime(currentTime);
         }
-        if (currentTime - unknownFaceLastSeenTime > UNKNOWN_FACE_STABLE_MS) {
+        if (session == selectedSession && currentTime - session.getUnknownFaceLastSeenTime() > UNKNOWN_FACE_STABLE_MS) {
             Platform.runLater(() -> {
                 controls.enrollButton.setDisable(false);
                 if (!isRecording.get() && !isRetraining.get()) {
@@ -492,26 +683,30 @@ public class SmartRecognitionApp extends Application {
         }
     }
 
-    private void resetUnknownFaceTracking() {
-        if (lastSeenUnknownFace != null) {
-            lastSeenUnknownFace = null;
-            unknownFaceLastSeenTime = 0;
-            Platform.runLater(() -> controls.enrollButton.setDisable(true));
+    private void resetUnknownFaceTracking(CameraSession session) {
+        if (session.getLastSeenUnknownFace() != null) {
+            session.setLastSeenUnknownFace(null);
+            session.setUnknownFaceLastSeenTime(0);
+            if (session == selectedSession) {
+                Platform.runLater(() -> controls.enrollButton.setDisable(true));
+            }
         }
     }
 
     private void triggerBackgroundRetraining() {
         if (isRetraining.compareAndSet(false, true)) {
-            updateStatus("Status: Retraining model with " + newPhotosCaptured + " new photos...");
-            final int photosForThisTraining = newPhotosCaptured;
-            newPhotosCaptured = 0;
+            final int photosForThisTraining = newPhotosCaptured.getAndSet(0);
+            updateStatus("Status: Updating model with " + photosForThisTraining + " new photos...");
             new Thread(() -> {
-                recognitionService.trainModel(TRAINING_DIR);
-                recognitionService.saveModel(MODEL_FILE);
+                // Only the new photos are added; a full rebuild is in User Management.
+                long started = System.currentTimeMillis();
+                int added = recognitionService.updateModel(TRAINING_DIR);
+                long updateMillis = System.currentTimeMillis() - started;
+                recognitionService.saveModel(modelPath);
                 if (currentState == SystemState.ENROLLMENT_ONLY && recognitionService.isTrained()) {
                     currentState = SystemState.RECOGNIZING;
                 }
-                updateStatus("Status: Model update complete! (" + photosForThisTraining + " photos added)");
+                updateStatus("Status: Model update complete! (" + added + " faces added in " + updateMillis + " ms)");
                 try { Thread.sleep(5000); } catch (InterruptedException e) {}
                 if (!isRecording.get()) { updateStatus("Status: Live recognition started."); }
                 isRetraining.set(false);
@@ -521,11 +716,9 @@ public class SmartRecognitionApp extends Application {
 
     private void manualCapture() {
         if (currentState != SystemState.RECOGNIZING) { updateStatus("Status: Please wait until the model is trained."); return; }
-        Mat frameToProcess;
-        synchronized (this) {
-            if (currentFrame == null || currentFrame.empty()) { updateStatus("Error: No frame available to capture."); return; }
-            frameToProcess = currentFrame.clone();
-        }
+        SharedFrame currentFrame = selectedSession.acquireCurrentFrame();
+        if (currentFrame == null) { updateStatus("Error: No frame available to capture."); return; }
+        Mat frameToProcess = currentFrame.mat();
         List<FaceRecognitionService.RecognitionResult> results = recognitionService.recognizeFaces(frameToProcess);
         FaceRecognitionService.RecognitionResult bestCandidate = null;
         int maxArea = 0;
@@ -541,43 +734,40 @@ public class SmartRecognitionApp extends Application {
             if (parts.length == 2) {
                 String role = parts[0];
                 String name = parts[1];
-                recognitionService.saveTrainingImage(frameToProcess.apply(bestCandidate.getFaceRect()), name, role);
-                updateStatus("Status: Manually captured photo for: " + name);
-                newPhotosCaptured++;
-                if (newPhotosCaptured >= RETRAIN_THRESHOLD) { triggerBackgroundRetraining(); }
+                FaceRecognitionService.SaveResult saved = recognitionService.saveTrainingImage(frameToProcess.apply(bestCandidate.getFaceRect()), name, role);
+                if (saved == FaceRecognitionService.SaveResult.SAVED) {
+                    updateStatus("Status: Manually captured photo for: " + name);
+                    if (newPhotosCaptured.incrementAndGet() >= RETRAIN_THRESHOLD) { triggerBackgroundRetraining(); }
+                } else {
+                    updateStatus("Status: Photo of " + name + " not saved: " + describe(saved));
+                }
             }
         } else {
             updateStatus("Status: No recognized person found to capture.");
         }
-        frameToProcess.release();
+        currentFrame.release();
+    }
+
+    /** Status-bar wording for a training photo that was not saved. */
+    private static String describe(FaceRecognitionService.SaveResult result) {
+        switch (result) {
+            case LOW_QUALITY: return "the face is too blurry, small or dark.";
+            case DUPLICATE: return "too similar to an existing photo.";
+            case IO_ERROR: return "it could not be written to disk.";
+            default: return "saved.";
+        }
     }
 
     private void recordLast15Seconds() {
         if (isRecording.compareAndSet(false, true)) {
-            updateStatus("Status: Saving last 15 seconds...");
+            CameraSession session = selectedSession;
+            updateStatus("Status: Saving last " + appConfig.getPreRollSeconds() + " seconds of camera '" + session.getId() + "'...");
             new Thread(() -> {
-                List<Mat> matsToRecord;
-                synchronized (frameBuffer) {
-                    matsToRecord = new ArrayList<>(frameBuffer.size());
-                    for (Mat mat : frameBuffer) {
-                        matsToRecord.add(mat.clone());
-                    }
-                }
-                if (matsToRecord.isEmpty()) {
-                    updateStatus("Error: Frame buffer is empty. Nothing to record.");
-                    isRecording.set(false);
-                    return;
-                }
-                OpenCVFrameGrabber activeGrabber = cameraManager.getGrabber();
-                if (activeGrabber == null) {
-                    updateStatus("Error: Camera not initialized.");
-                    isRecording.set(false);
-                    return;
-                }
-                VideoRecorder recorder = new VideoRecorder(isRecording, RECORDINGS_DIR);
-                recorder.recordBufferedMats(
-                        matsToRecord,
-                        activeGrabber,
+                // A snapshot only copies references to the immutable JPEG frames.
+                List<EncodedFrame> framesToRecord = session.getPreRoll().snapshot();
+                VideoRecorder recorder = new VideoRecorder(isRecording, recordingStore, session.getId());
+                recorder.recordBufferedFrames(
+                        framesToRecord,
                         () -> { try { Thread.sleep(5000); } catch (InterruptedException ignored) {} if (!isRetraining.get()) { updateStatus("Status: Live recognition started."); } },
                         this::updateStatus
                 );
@@ -594,20 +784,13 @@ public class SmartRecognitionApp extends Application {
 
         heightProfileStore.save();
         System.out.println("Starting clean shutdown...");
-        cameraManager.stop();
-        synchronized (this) {
-            if (this.currentFrame != null && !this.currentFrame.isNull()) {
-                this.currentFrame.release();
-                this.currentFrame = null;
-                System.out.println("Final currentFrame Mat released.");
-            }
-        }
-        synchronized (frameBuffer) {
-            while (!frameBuffer.isEmpty()) {
-                frameBuffer.removeFirst().release();
-            }
-            System.out.println("All Mats in frame buffer released.");
+        for (CameraSession session : sessions.values()) {
+            session.stop();
+            System.out.println("Camera '" + session.getId() + "' stopped and its frames released.");
         }
+        recordingStore.stop();
+        if (analysisPool != null) analysisPool.shutdownNow();
+        if (streamPool != null) streamPool.shutdownNow();
         System.out.println("Shutdown complete. Exiting.");
         Platform.exit();
         System.exit(0);
@@ -625,16 +808,22 @@ public class SmartRecognitionApp extends Application {
         });
     }
 
-    private boolean shouldCaptureNewPose(int label, Rect currentFaceRect) {
+    /**
+     * The cooldown is per label, so a face that flickers out and comes back on a
+     * new track is not captured or logged again; the pose is compared with the
+     * same track's last capture when there is one.
+     */
+    private boolean shouldCaptureNewPose(CameraSession session, int trackId, int label, Rect currentFaceRect) {
         long currentTime = System.currentTimeMillis();
-        org.example.model.CaptureState state = lastCaptureState.get(label);
-        if (state == null) return true;
-        if (currentTime - state.lastCaptureTime < COOLDOWN_PERIOD_MS) return false;
-        return hasPoseChanged(state.lastFaceRect, currentFaceRect);
+        CaptureState labelState = session.getLabelCaptureState().get(label);
+        if (labelState == null) return true;
+        if (currentTime - labelState.lastCaptureTime < COOLDOWN_PERIOD_MS) return false;
+        CaptureState trackState = session.getLastCaptureState().get(CaptureState.key(trackId, label));
+        return hasPoseChanged((trackState != null ? trackState : labelState).lastFaceRect, currentFaceRect);
     }
 
-    private boolean shouldLogRecognition(int label) {
-        org.example.model.CaptureState state = lastCaptureState.get(label);
+    private boolean shouldLogRecognition(CameraSession session, int label) {
+        CaptureState state = session.getLabelCaptureState().get(label);
         if (state == null) {
             return true;
         }
@@ -642,6 +831,12 @@ public class SmartRecognitionApp extends Application {
         return currentTime - state.lastCaptureTime > COOLDOWN_PERIOD_MS;
     }
 
+    private void recordCapture(CameraSession session, int trackId, int label, Rect faceRect) {
+        CaptureState state = new CaptureState(trackId, System.currentTimeMillis(), faceRect);
+        session.getLastCaptureState().put(CaptureState.key(trackId, label), state);
+        session.getLabelCaptureState().put(label, state);
+    }
+
     private boolean hasPoseChanged(Rect lastRect, Rect currentRect) {
         int lastCenterX = lastRect.x() + lastRect.width() / 2;
         int lastCenterY = lastRect.y() + lastRect.height() / 2;
@@ -657,9 +852,10 @@ public class SmartRecognitionApp extends Application {
         return positionChange > POSE_CHANGE_THRESHOLD || areaChange > POSE_CHANGE_THRESHOLD;
     }
 
-    private Image matToImage(Mat mat) {
-        Frame frame = toMatConverter.convert(mat);
-        BufferedImage bufferedImage = java2DConverter.getBufferedImage(frame, 1.0, false, null);
+    /** Uses the session's own converters: display stages of different cameras run concurrently. */
+    private static Image matToImage(CameraSession session, Mat mat) {
+        Frame frame = session.getDisplayConverter().convert(mat);
+        BufferedImage bufferedImage = session.getJava2DConverter().getBufferedImage(frame, 1.0, false, null);
         return SwingFXUtils.toFXImage(bufferedImage, null);
     }
 
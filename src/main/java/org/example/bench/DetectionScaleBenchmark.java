@@ -0,0 +1,138 @@
+package org.example.bench;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.RectVector;
+import org.example.DatabaseService;
+import org.example.FaceRecognitionService;
+import org.example.vision.FrameAnalysisContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures face/body detection time and recall at several detection scales on
+ * a recorded clip. Recall is relative to the full-resolution (scale 1.0)
+ * detections on the same frame: a reference box counts as found when a box at
+ * the reduced scale overlaps it with IoU >= 0.5.
+ *
+ * Usage: gradlew benchmarkDetection --args="clip.mp4 [maxFrames] [scale ...]"
+ */
+public class DetectionScaleBenchmark {
+
+    private static final double MATCH_IOU = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: DetectionScaleBenchmark <clip> [maxFrames] [scale ...]");
+            return;
+        }
+        String clip = args[0];
+        int maxFrames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        List<Double> scales = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) scales.add(Double.parseDouble(args[i]));
+        if (scales.isEmpty()) scales = List.of(1.0, 0.75, 0.5, 0.33, 0.25);
+
+        // Only the cascades are used; without a database the service simply has no users.
+        FaceRecognitionService service = new FaceRecognitionService(new DatabaseService());
+        Result[] results = new Result[scales.size()];
+        for (int s = 0; s < results.length; s++) results[s] = new Result(scales.get(s));
+
+        OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+        int frames = 0;
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(clip)) {
+            grabber.start();
+            System.out.println("Clip: " + clip + " (" + grabber.getImageWidth() + "x" + grabber.getImageHeight() + ")");
+            Frame grabbed;
+            while (frames < maxFrames && (grabbed = grabber.grabImage()) != null) {
+                Mat frame = converter.convert(grabbed);
+                if (frame == null || frame.empty()) continue;
+
+                List<Rect> referenceFaces;
+                List<Rect> referenceBodies;
+                try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+                    referenceFaces = service.detectFaces(context, null);
+                    referenceBodies = toList(service.detectBodies(context, null));
+                }
+                for (Result result : results) {
+                    try (FrameAnalysisContext context = new FrameAnalysisContext(frame, result.scale)) {
+                        long start = System.nanoTime();
+                        List<Rect> faces = service.detectFaces(context, null);
+                        long afterFaces = System.nanoTime();
+                        List<Rect> bodies = toList(service.detectBodies(context, null));
+                        long afterBodies = System.nanoTime();
+
+                        result.faceNanos += afterFaces - start;
+                        result.bodyNanos += afterBodies - afterFaces;
+                        result.referenceFaces += referenceFaces.size();
+                        result.foundFaces += matched(referenceFaces, faces);
+                        result.referenceBodies += referenceBodies.size();
+                        result.foundBodies += matched(referenceBodies, bodies);
+                    }
+                }
+                frames++;
+            }
+            grabber.stop();
+        }
+
+        System.out.println("Frames: " + frames);
+        System.out.printf("%-7s %12s %12s %12s %12s%n", "scale", "face ms", "body ms", "face recall", "body recall");
+        for (Result result : results) {
+            System.out.printf("%-7.2f %12.2f %12.2f %12s %12s%n",
+                    result.scale,
+                    result.faceNanos / 1e6 / Math.max(1, frames),
+                    result.bodyNanos / 1e6 / Math.max(1, frames),
+                    recall(result.foundFaces, result.referenceFaces),
+                    recall(result.foundBodies, result.referenceBodies));
+        }
+    }
+
+    private static List<Rect> toList(RectVector vector) {
+        List<Rect> rects = new ArrayList<>();
+        for (long i = 0; i < vector.size(); i++) {
+            Rect r = vector.get(i);
+            rects.add(new Rect(r.x(), r.y(), r.width(), r.height()));
+        }
+        vector.releaseReference();
+        return rects;
+    }
+
+    private static int matched(List<Rect> reference, List<Rect> candidates) {
+        int found = 0;
+        for (Rect ref : reference) {
+            for (Rect candidate : candidates) {
+                if (iou(ref, candidate) >= MATCH_IOU) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static double iou(Rect a, Rect b) {
+        int x1 = Math.max(a.x(), b.x());
+        int y1 = Math.max(a.y(), b.y());
+        int x2 = Math.min(a.x() + a.width(), b.x() + b.width());
+        int y2 = Math.min(a.y() + a.height(), b.y() + b.height());
+        double inter = Math.max(0, x2 - x1) * (double) Math.max(0, y2 - y1);
+        double union = (double) a.width() * a.height() + (double) b.width() * b.height() - inter;
+        return union <= 0 ? 0 : inter / union;
+    }
+
+    private static String recall(int found, int reference) {
+        if (reference == 0) return "n/a";
+        return String.format("%.1f%%", 100.0 * found / reference);
+    }
+
+    private static class Result {
+        final double scale;
+        long faceNanos, bodyNanos;
+        int referenceFaces, foundFaces, referenceBodies, foundBodies;
+
+        Result(double scale) { this.scale = scale; }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bench;
+
+import org.example.recognition.CosineTopK;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Times the cosine top-k search of the SFace engine on random unit-length
+ * embeddings at several gallery sizes, and checks its best hit against a
+ * plain scalar scan. No network is needed: this measures the matching step
+ * alone, which is what grows with the number of enrolled samples.
+ *
+ * Usage: gradlew benchmarkEmbeddingSearch --args="[dimension] [queries] [k] [gallerySize ...]"
+ */
+public class EmbeddingSearchBenchmark {
+
+    private static final int WARMUP = 200;
+
+    public static void main(String[] args) {
+        int dimension = args.length > 0 ? Integer.parseInt(args[0]) : 128;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) sizes.add(Integer.parseInt(args[i]));
+        if (sizes.isEmpty()) sizes = List.of(1000, 10000, 100000);
+
+        System.out.println("Dimension: " + dimension + ", top-" + k + ", vector kernel: " + CosineTopK.isVectorized()
+                + ", cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %14s %10s%n", "samples", "search us", "agree");
+        Random random = new Random(5);
+        for (int size : sizes) {
+            float[] matrix = new float[size * dimension];
+            int[] labels = new int[size];
+            for (int row = 0; row < size; row++) {
+                randomUnit(random, matrix, row * dimension, dimension);
+                labels[row] = row;
+            }
+            float[][] probes = new float[queries][dimension];
+            for (float[] probe : probes) randomUnit(random, probe, 0, dimension);
+
+            for (int i = 0; i < WARMUP; i++) CosineTopK.search(matrix, dimension, labels, size, probes[i % queries], k, Set.of());
+            int agree = 0;
+            long nanos = 0;
+            for (float[] probe : probes) {
+                long start = System.nanoTime();
+                CosineTopK.Hit[] hits = CosineTopK.search(matrix, dimension, labels, size, probe, k, Set.of());
+                nanos += System.nanoTime() - start;
+                if (hits.length > 0 && hits[0].row == bruteForce(matrix, dimension, size, probe)) agree++;
+            }
+            System.out.printf("%-8d %14.1f %9.1f%%%n", size, nanos / 1e3 / queries, 100.0 * agree / queries);
+        }
+    }
+
+    private static int bruteForce(float[] matrix, int dimension, int size, float[] query) {
+        int best = -1;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < size; row++) {
+            double similarity = 0;
+            for (int i = 0; i < dimension; i++) similarity += matrix[row * dimension + i] * query[i];
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = row;
+            }
+        }
+        return best;
+    }
+
+    private static void randomUnit(Random random, float[] out, int offset, int dimension) {
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            float value = (float) random.nextGaussian();
+            out[offset + i] = value;
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) out[offset + i] *= scale;
+    }
+}
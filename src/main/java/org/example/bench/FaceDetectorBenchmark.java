@@ -0,0 +1,165 @@
+package org.example.bench;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.example.vision.FaceDetector;
+import org.example.vision.FrameAnalysisContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares face detectors on the same recorded clip: frames per second of
+ * face detection alone, faces found per frame and precision. With a ground
+ * truth file (lines "frame,x,y,w,h", frame numbers from 0) precision and
+ * recall are exact, counting a box as correct when it overlaps a true face
+ * with IoU >= 0.5. Without one, "confirmed" is the share of a detector's
+ * boxes that another detector also found, a rough stand-in for precision.
+ *
+ * Every detector scans the whole frame with the live minimum face size. A
+ * yunet model other than the bundled one is given as yunet=path/model.onnx.
+ *
+ * Usage: gradlew benchmarkFaceDetector --args="clip.mp4 [maxFrames] [groundTruth.csv|-] [detector ...]"
+ */
+public class FaceDetectorBenchmark {
+
+    private static final double MATCH_IOU = 0.5;
+    // Same as live detection in FaceRecognitionService.
+    private static final int MIN_FACE_SIZE = 100;
+    private static final float SCORE_THRESHOLD = 0.9f;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: FaceDetectorBenchmark <clip> [maxFrames] [groundTruth.csv|-] [detector ...]");
+            return;
+        }
+        String clip = args[0];
+        int maxFrames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        Map<Integer, List<Rect>> truth = args.length > 2 && !"-".equals(args[2]) ? loadTruth(args[2]) : null;
+        List<String> names = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) names.add(args[i]);
+        if (names.isEmpty()) names = List.of("haar", "yunet");
+
+        List<Result> results = new ArrayList<>();
+        for (String spec : names) {
+            String[] parts = spec.split("=", 2);
+            results.add(new Result(FaceDetector.forName(parts[0], parts.length > 1 ? parts[1] : null, SCORE_THRESHOLD, 1)));
+        }
+
+        OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+        int frames = 0;
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(clip)) {
+            grabber.start();
+            System.out.println("Clip: " + clip + " (" + grabber.getImageWidth() + "x" + grabber.getImageHeight() + ")");
+            Frame grabbed;
+            while (frames < maxFrames && (grabbed = grabber.grabImage()) != null) {
+                Mat frame = converter.convert(grabbed);
+                if (frame == null || frame.empty()) continue;
+                List<Rect> whole = List.of(new Rect(0, 0, frame.cols(), frame.rows()));
+                List<List<Rect>> found = new ArrayList<>();
+                for (Result result : results) {
+                    // A fresh context per detector, so shared conversions are not credited to the second one.
+                    try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+                        long start = System.nanoTime();
+                        List<Rect> faces = result.detector.detect(context, whole, MIN_FACE_SIZE);
+                        result.nanos += System.nanoTime() - start;
+                        result.detections += faces.size();
+                        found.add(faces);
+                    }
+                }
+                List<Rect> expected = truth == null ? null : truth.getOrDefault(frames, List.of());
+                for (int r = 0; r < results.size(); r++) {
+                    Result result = results.get(r);
+                    List<Rect> faces = found.get(r);
+                    if (expected != null) {
+                        result.truthFaces += expected.size();
+                        result.correct += matched(faces, expected);
+                        result.foundTruth += matched(expected, faces);
+                    } else {
+                        List<Rect> others = new ArrayList<>();
+                        for (int o = 0; o < found.size(); o++) if (o != r) others.addAll(found.get(o));
+                        result.correct += matched(faces, others);
+                    }
+                }
+                frames++;
+            }
+            grabber.stop();
+        }
+
+        System.out.println("Frames: " + frames + (truth == null ? " (no ground truth: precision = confirmed by another detector)" : ""));
+        System.out.printf("%-8s %10s %12s %12s %12s%n", "detector", "fps", "faces/frame", truth == null ? "confirmed" : "precision", "recall");
+        for (Result result : results) {
+            double seconds = result.nanos / 1e9;
+            System.out.printf("%-8s %10.1f %12.2f %12s %12s%n",
+                    result.detector.name(),
+                    seconds > 0 ? frames / seconds : 0,
+                    (double) result.detections / Math.max(1, frames),
+                    percent(result.correct, result.detections),
+                    truth == null ? "-" : percent(result.foundTruth, result.truthFaces));
+            result.detector.close();
+        }
+    }
+
+    /** Boxes of {@code boxes} that overlap any box of {@code reference}. */
+    private static int matched(List<Rect> boxes, List<Rect> reference) {
+        int count = 0;
+        for (Rect box : boxes) {
+            for (Rect other : reference) {
+                if (iou(box, other) >= MATCH_IOU) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double iou(Rect a, Rect b) {
+        int x1 = Math.max(a.x(), b.x());
+        int y1 = Math.max(a.y(), b.y());
+        int x2 = Math.min(a.x() + a.width(), b.x() + b.width());
+        int y2 = Math.min(a.y() + a.height(), b.y() + b.height());
+        double inter = Math.max(0, x2 - x1) * (double) Math.max(0, y2 - y1);
+        double union = (double) a.width() * a.height() + (double) b.width() * b.height() - inter;
+        return union <= 0 ? 0 : inter / union;
+    }
+
+    private static Map<Integer, List<Rect>> loadTruth(String file) throws IOException {
+        Map<Integer, List<Rect>> truth = new HashMap<>();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = line.split(",");
+            if (f.length < 5) continue;
+            try {
+                Rect rect = new Rect(Integer.parseInt(f[1].trim()), Integer.parseInt(f[2].trim()),
+                        Integer.parseInt(f[3].trim()), Integer.parseInt(f[4].trim()));
+                truth.computeIfAbsent(Integer.parseInt(f[0].trim()), k -> new ArrayList<>()).add(rect);
+            } catch (NumberFormatException e) {
+                // Header or malformed line.
+            }
+        }
+        return truth;
+    }
+
+    private static String percent(int part, int whole) {
+        if (whole == 0) return "n/a";
+        return String.format("%.1f%%", 100.0 * part / whole);
+    }
+
+    private static class Result {
+        final FaceDetector detector;
+        long nanos;
+        int detections, correct, truthFaces, foundTruth;
+
+        Result(FaceDetector detector) { this.detector = detector; }
+    }
+}
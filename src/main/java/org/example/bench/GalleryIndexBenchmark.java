@@ -0,0 +1,155 @@
+package org.example.bench;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.example.recognition.GalleryIndex;
+import org.example.recognition.JavaLbphEngine;
+import org.example.recognition.RecognizerModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_GRAYSCALE;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imread;
+import static org.bytedeco.opencv.global.opencv_imgproc.GaussianBlur;
+import static org.bytedeco.opencv.global.opencv_imgproc.equalizeHist;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * Measures the Java engine's gallery index against its exact scan: predict
+ * time and recall (share of queries answered with the exact scan's label)
+ * for several nprobe values. The gallery is built from photos in a directory
+ * (one identity per subdirectory, like training-data/role/name) or, by
+ * default, from synthetic identities with several noisy samples each.
+ *
+ * Usage: gradlew benchmarkGalleryIndex --args="[photoDir|-] [samples] [queries] [nprobe ...]"
+ */
+public class GalleryIndexBenchmark {
+
+    private static final Size MODEL_SIZE = new Size(200, 200);
+    private static final int SAMPLES_PER_IDENTITY = 10;
+
+    public static void main(String[] args) throws IOException {
+        String photoDir = args.length > 0 ? args[0] : "-";
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        List<Integer> probes = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) probes.add(Integer.parseInt(args[i]));
+        if (probes.isEmpty()) probes = List.of(1, 2, 4, 8, 16, 32);
+
+        Random random = new Random(3);
+        MatVector gallery = new MatVector();
+        List<Integer> labelList = new ArrayList<>();
+        List<Mat> sources = "-".equals(photoDir)
+                ? syntheticGallery(samples, random, gallery, labelList)
+                : photoGallery(Paths.get(photoDir), samples, gallery, labelList);
+        if (gallery.size() == 0) {
+            System.err.println("No usable photos in " + photoDir);
+            return;
+        }
+        int[] labels = labelList.stream().mapToInt(Integer::intValue).toArray();
+        List<Mat> queryFaces = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) queryFaces.add(noisy(sources.get(random.nextInt(sources.size())), random));
+        System.out.println("Gallery: " + gallery.size() + " samples, " + queries + " queries");
+
+        RecognizerModel exact = new JavaLbphEngine(GalleryIndex.Settings.disabled()).train(gallery, labels);
+        int[] expected = new int[queries];
+        long exactNanos = predictAll(exact, queryFaces, expected);
+        System.out.printf("%-8s %14s %10s%n", "nprobe", "predict us", "recall");
+        System.out.printf("%-8s %14.1f %10s%n", "exact", exactNanos / 1e3 / queries, "100.0%");
+
+        for (int nprobe : probes) {
+            RecognizerModel indexed = new JavaLbphEngine(new GalleryIndex.Settings(1, 0, nprobe, 0)).train(gallery, labels);
+            int[] found = new int[queries];
+            long nanos = predictAll(indexed, queryFaces, found);
+            int same = 0;
+            for (int i = 0; i < queries; i++) if (found[i] == expected[i]) same++;
+            System.out.printf("%-8d %14.1f %9.1f%%%n", nprobe, nanos / 1e3 / queries, 100.0 * same / queries);
+        }
+    }
+
+    private static long predictAll(RecognizerModel model, List<Mat> queries, int[] labels) {
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        for (int i = 0; i < Math.min(20, queries.size()); i++) model.predict(queries.get(i), Set.of(), label, distance);
+        long start = System.nanoTime();
+        for (int i = 0; i < queries.size(); i++) {
+            model.predict(queries.get(i), Set.of(), label, distance);
+            labels[i] = label[0];
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Identities are random textures; each sample is its identity's texture with fresh noise. */
+    private static List<Mat> syntheticGallery(int samples, Random random, MatVector gallery, List<Integer> labels) {
+        List<Mat> identities = new ArrayList<>();
+        byte[] pixels = new byte[(int) (MODEL_SIZE.width() * MODEL_SIZE.height())];
+        int count = Math.max(1, samples / SAMPLES_PER_IDENTITY);
+        for (int id = 0; id < count; id++) {
+            Mat base = new Mat(MODEL_SIZE.height(), MODEL_SIZE.width(), CV_8UC1);
+            random.nextBytes(pixels);
+            base.data().put(pixels);
+            GaussianBlur(base, base, new Size(7, 7), 0);
+            equalizeHist(base, base);
+            identities.add(base);
+        }
+        for (int i = 0; i < samples; i++) {
+            int id = i % count;
+            gallery.push_back(noisy(identities.get(id), random));
+            labels.add(id);
+        }
+        return identities;
+    }
+
+    private static List<Mat> photoGallery(Path dir, int samples, MatVector gallery, List<Integer> labels) throws IOException {
+        List<Mat> faces = new ArrayList<>();
+        List<Integer> faceLabels = new ArrayList<>();
+        List<Path> people;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            people = paths.filter(Files::isDirectory).sorted().toList();
+        }
+        for (int label = 0; label < people.size(); label++) {
+            try (Stream<Path> files = Files.list(people.get(label))) {
+                for (Path path : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                    String name = path.toString().toLowerCase();
+                    if (!name.endsWith(".jpg") && !name.endsWith(".png")) continue;
+                    Mat image = imread(path.toString(), IMREAD_GRAYSCALE);
+                    if (image.empty()) continue;
+                    Mat face = new Mat();
+                    resize(image, face, MODEL_SIZE);
+                    equalizeHist(face, face);
+                    image.release();
+                    faces.add(face);
+                    faceLabels.add(label);
+                }
+            }
+        }
+        // Repeat the photos to reach the requested gallery size.
+        for (int i = 0; !faces.isEmpty() && i < samples; i++) {
+            gallery.push_back(faces.get(i % faces.size()));
+            labels.add(faceLabels.get(i % faces.size()));
+        }
+        return faces;
+    }
+
+    private static Mat noisy(Mat face, Random random) {
+        Mat copy = face.clone();
+        byte[] pixels = new byte[copy.rows() * copy.cols()];
+        copy.data().get(pixels);
+        for (int p = 0; p < pixels.length; p++) {
+            int value = (pixels[p] & 0xFF) + (int) (random.nextGaussian() * 6);
+            pixels[p] = (byte) Math.max(0, Math.min(255, value));
+        }
+        copy.data().put(pixels);
+        return copy;
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.bench;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.example.recognition.ChiSquare;
+import org.example.recognition.JavaLbphEngine;
+import org.example.recognition.OpenCvLbphEngine;
+import org.example.recognition.RecognizerEngine;
+import org.example.recognition.RecognizerModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_GRAYSCALE;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imread;
+import static org.bytedeco.opencv.global.opencv_imgproc.GaussianBlur;
+import static org.bytedeco.opencv.global.opencv_imgproc.equalizeHist;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * Compares the OpenCV and Java LBPH engines at several gallery sizes: train
+ * time, mean predict time and whether both return the same label and
+ * distance for the same query. Faces come from a directory of photos
+ * (grayscale, resized to 200x200 and equalized like training crops) or, by
+ * default, from synthetic textures. Photos are reused round-robin to fill
+ * large galleries, so memory is dominated by the histograms themselves:
+ * 64 KB per sample and engine.
+ *
+ * Usage: gradlew benchmarkRecognizer --args="[photoDir|-] [queries] [gallerySize ...]"
+ */
+public class RecognizerEngineBenchmark {
+
+    private static final Size MODEL_SIZE = new Size(200, 200);
+    private static final int WARMUP = 20;
+    // Distances are summed in float by the vector kernel and in double by OpenCV.
+    private static final double DISTANCE_TOLERANCE = 1e-3;
+
+    public static void main(String[] args) throws IOException {
+        String photoDir = args.length > 0 ? args[0] : "-";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) sizes.add(Integer.parseInt(args[i]));
+        if (sizes.isEmpty()) sizes = List.of(100, 1000, 10000);
+
+        List<Mat> faces = "-".equals(photoDir) ? syntheticFaces(500) : loadFaces(Paths.get(photoDir));
+        if (faces.isEmpty()) {
+            System.err.println("No usable photos in " + photoDir);
+            return;
+        }
+        System.out.println("Faces: " + faces.size() + " distinct, vector kernel: " + ChiSquare.isVectorized()
+                + ", cores: " + Runtime.getRuntime().availableProcessors());
+        List<Mat> probes = probes(faces, queries);
+
+        RecognizerEngine opencv = new OpenCvLbphEngine();
+        RecognizerEngine java = new JavaLbphEngine();
+        System.out.printf("%-8s %-7s %12s %14s %10s%n", "samples", "engine", "train ms", "predict us", "agree");
+        for (int size : sizes) {
+            MatVector gallery = new MatVector();
+            int[] labels = new int[size];
+            for (int i = 0; i < size; i++) {
+                gallery.push_back(faces.get(i % faces.size()));
+                labels[i] = i % faces.size();
+            }
+            Run reference = run(opencv, gallery, labels, probes);
+            Run candidate = run(java, gallery, labels, probes);
+            print(size, opencv, reference, null);
+            print(size, java, candidate, reference);
+            gallery.close();
+        }
+    }
+
+    private static Run run(RecognizerEngine engine, MatVector gallery, int[] labels, List<Mat> probes) {
+        Run run = new Run(probes.size());
+        long start = System.nanoTime();
+        RecognizerModel model = engine.train(gallery, labels);
+        run.trainNanos = System.nanoTime() - start;
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        for (int i = 0; i < WARMUP; i++) model.predict(probes.get(i % probes.size()), Set.of(), label, distance);
+        start = System.nanoTime();
+        for (int i = 0; i < probes.size(); i++) {
+            model.predict(probes.get(i), Set.of(), label, distance);
+            run.labels[i] = label[0];
+            run.distances[i] = distance[0];
+        }
+        run.predictNanos = System.nanoTime() - start;
+        return run;
+    }
+
+    private static void print(int size, RecognizerEngine engine, Run run, Run reference) {
+        String agree = "-";
+        if (reference != null) {
+            int same = 0;
+            for (int i = 0; i < run.labels.length; i++) {
+                double tolerance = DISTANCE_TOLERANCE * Math.max(1, reference.distances[i]);
+                if (run.labels[i] == reference.labels[i] && Math.abs(run.distances[i] - reference.distances[i]) <= tolerance) same++;
+            }
+            agree = String.format("%.1f%%", 100.0 * same / run.labels.length);
+        }
+        System.out.printf("%-8d %-7s %12.1f %14.1f %10s%n", size, engine.name(),
+                run.trainNanos / 1e6, run.predictNanos / 1e3 / run.labels.length, agree);
+    }
+
+    /** Gallery faces with a little noise, so the nearest sample is known but not an exact copy. */
+    private static List<Mat> probes(List<Mat> faces, int count) {
+        Random random = new Random(7);
+        List<Mat> probes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Mat probe = faces.get(random.nextInt(faces.size())).clone();
+            byte[] pixels = new byte[probe.rows() * probe.cols()];
+            probe.data().get(pixels);
+            for (int p = 0; p < pixels.length; p += 97) pixels[p] = (byte) random.nextInt(256);
+            probe.data().put(pixels);
+            probes.add(probe);
+        }
+        return probes;
+    }
+
+    private static List<Mat> syntheticFaces(int count) {
+        Random random = new Random(1);
+        List<Mat> faces = new ArrayList<>(count);
+        byte[] pixels = new byte[(int) (MODEL_SIZE.width() * MODEL_SIZE.height())];
+        for (int i = 0; i < count; i++) {
+            Mat face = new Mat(MODEL_SIZE.height(), MODEL_SIZE.width(), CV_8UC1);
+            random.nextBytes(pixels);
+            face.data().put(pixels);
+            GaussianBlur(face, face, new Size(5, 5), 0);
+            equalizeHist(face, face);
+            faces.add(face);
+        }
+        return faces;
+    }
+
+    private static List<Mat> loadFaces(Path dir) throws IOException {
+        List<Mat> faces = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile).sorted()::iterator) {
+                String name = path.toString().toLowerCase();
+                if (!name.endsWith(".jpg") && !name.endsWith(".png")) continue;
+                Mat image = imread(path.toString(), IMREAD_GRAYSCALE);
+                if (image.empty()) continue;
+                Mat face = new Mat();
+                resize(image, face, MODEL_SIZE);
+                equalizeHist(face, face);
+                image.release();
+                faces.add(face);
+            }
+        }
+        return faces;
+    }
+
+    private static class Run {
+        final int[] labels;
+        final double[] distances;
+        long trainNanos, predictNanos;
+
+        Run(int queries) {
+            labels = new int[queries];
+            distances = new double[queries];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.camera;
+
+import org.bytedeco.javacv.OpenCVFrameGrabber;
+
+/**
+ * CameraDefinition is one camera entry from config.properties: a stable id
+ * (used in logs, events and stream URLs) plus how to open the device.
+ */
+public class CameraDefinition {
+
+    public static final String WEBCAM = "WEBCAM";
+    public static final String IP_CAMERA = "IP_CAMERA";
+
+    private final String id;
+    private final String type;
+    private final String url;
+    private final int webcamIndex;
+
+    public CameraDefinition(String id, String type, String url, int webcamIndex) {
+        this.id = id;
+        this.type = type;
+        this.url = url;
+        this.webcamIndex = webcamIndex;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getUrl() { return url; }
+    public int getWebcamIndex() { return webcamIndex; }
+
+    /** Creates the grabber for this camera. Throws if an IP camera has no URL configured. */
+    public OpenCVFrameGrabber createGrabber() {
+        if (WEBCAM.equals(type)) {
+            System.out.println("[" + id + "] Starting webcam " + webcamIndex + "...");
+            return new OpenCVFrameGrabber(webcamIndex);
+        }
+        if (url == null || url.isEmpty()) {
+            throw new IllegalStateException("IP Camera URL is empty for camera '" + id + "'. Please configure it in settings.");
+        }
+        System.out.println("[" + id + "] Starting IP camera from URL: " + url);
+        return new OpenCVFrameGrabber(url);
+    }
+}
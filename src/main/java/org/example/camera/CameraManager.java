@@ -21,6 +21,14 @@ public class CameraManager {
      * Starts the camera asynchronously and begins delivering frames to the consumer.
      */
     public void startAsync(GrabberFactory factory, Consumer<Frame> onFrame, Consumer<Exception> onError) {
+        startAsync(factory, onFrame, onError, "camera-thread");
+    }
+
+    /**
+     * Same as {@link #startAsync(GrabberFactory, Consumer, Consumer)} with a custom
+     * thread name, so several cameras can be told apart in thread dumps.
+     */
+    public void startAsync(GrabberFactory factory, Consumer<Frame> onFrame, Consumer<Exception> onError, String threadName) {
         stop();
         new Thread(() -> {
             try {
@@ -36,7 +44,7 @@ public class CameraManager {
             } catch (Exception e) {
                 onError.accept(e);
             }
-        }, "camera-thread").start();
+        }, threadName).start();
     }
 
     /** Stops the camera and releases resources. Safe to call multiple times. */
@@ -0,0 +1,199 @@
+package org.example.camera;
+
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.javacv.OpenCVFrameGrabber;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.example.AppConfig;
+import org.example.model.CaptureState;
+import org.example.motion.MotionDetector;
+import org.example.pipeline.FramePipeline;
+import org.example.pipeline.Overlay;
+import org.example.pipeline.SharedFrame;
+import org.example.tracking.BoxTracker;
+import org.example.tracking.DetectionScheduler;
+import org.example.tracking.FaceTrackManager;
+import org.example.video.EncodedFrame;
+import org.example.video.MotionAdaptiveDecimator;
+import org.example.video.PreRollBuffer;
+import org.example.video.RecordingStore;
+import org.example.video.RecordingTriggerEngine;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * CameraSession holds everything that exists once per camera: the grabber,
+ * its frame pipeline, the latest frame, the clip buffer and the per-camera
+ * recognition bookkeeping. Services such as the recognizer and the database
+ * are shared between sessions and live in the application.
+ */
+public class CameraSession {
+
+    private final CameraDefinition definition;
+    private final CameraManager cameraManager = new CameraManager();
+    private final OpenCVFrameConverter.ToMat grabConverter = new OpenCVFrameConverter.ToMat();
+    // Converters reuse their buffers and are not thread-safe; only this camera's display stage uses these.
+    private final OpenCVFrameConverter.ToMat displayConverter = new OpenCVFrameConverter.ToMat();
+    private final Java2DFrameConverter java2DConverter = new Java2DFrameConverter();
+    private final PreRollBuffer preRoll;
+    private final RecordingTriggerEngine recordingTriggers;
+    private final Map<String, CaptureState> lastCaptureState = new ConcurrentHashMap<>();
+    private final Map<Integer, CaptureState> labelCaptureState = new ConcurrentHashMap<>();
+    private final MotionDetector motionDetector;
+    private final double detectionScale;
+    private final DetectionScheduler detectionScheduler;
+    private final FaceTrackManager faceTracks;
+    private final BoxTracker<Overlay> bodyTracker;
+
+    private FramePipeline pipeline;
+    private final AtomicReference<SharedFrame> currentFrame = new AtomicReference<>();
+    private volatile List<Overlay> latestOverlays = List.of();
+
+    private volatile Rect lastSeenUnknownFace = null;
+    private volatile long unknownFaceLastSeenTime = 0;
+
+    public CameraSession(CameraDefinition definition, AppConfig config, RecordingStore recordings) {
+        this.definition = definition;
+        this.preRoll = new PreRollBuffer(
+                config.getPreRollSeconds(),
+                config.getPreRollMaxMegabytes(),
+                config.getPreRollJpegQuality());
+        this.recordingTriggers = new RecordingTriggerEngine(
+                definition.getId(),
+                preRoll,
+                recordings,
+                config.getRecordingTriggers(),
+                config.getRecordingPreSeconds(),
+                config.getRecordingPostSeconds(),
+                config.getRecordingSegmentSeconds(),
+                config.isContinuousRecording(),
+                new MotionAdaptiveDecimator(
+                        config.getRecordingIdleFps(),
+                        config.getRecordingActivityHoldSeconds()));
+        this.motionDetector = new MotionDetector(
+                config.isMotionGatingEnabled(),
+                config.getMotionAnalysisWidth(),
+                config.getMotionPixelThreshold(),
+                config.getMotionMinAreaFraction(),
+                config.getMotionHangoverFrames());
+        this.detectionScale = config.getDetectionScale();
+        this.detectionScheduler = new DetectionScheduler(
+                config.getFaceDetectionInterval(),
+                config.getBodyDetectionInterval(),
+                config.getTrackingConfidenceThreshold());
+        this.faceTracks = new FaceTrackManager(
+                config.getTrackingDecay(),
+                config.getRecognitionRepredictDistance(),
+                config.getRecognitionRefreshMs());
+        this.bodyTracker = new BoxTracker<>(config.getTrackingDecay());
+    }
+
+    /** Starts grabbing; every frame is published as the current frame and submitted to the pipeline. */
+    public void start(FramePipeline pipeline, Consumer<Exception> onError) {
+        this.pipeline = pipeline;
+        cameraManager.startAsync(
+                definition::createGrabber,
+                frame -> {
+                    Mat grabbedMat = grabConverter.convert(frame);
+                    if (grabbedMat == null || grabbedMat.empty()) return;
+                    // The only copy of this frame; everything downstream shares it by reference.
+                    SharedFrame shared = SharedFrame.copyOf(grabbedMat);
+                    publishCurrentFrame(shared.retain());
+                    pipeline.submit(shared);
+                    shared.release();
+                },
+                onError,
+                "camera-" + definition.getId()
+        );
+    }
+
+    public void stop() {
+        cameraManager.stop();
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+        SharedFrame last = currentFrame.getAndSet(null);
+        if (last != null) last.release();
+        recordingTriggers.stop();
+        preRoll.clear();
+        motionDetector.release();
+    }
+
+    /** Swaps the latest-frame slot without locking; takes ownership of the reference. */
+    private void publishCurrentFrame(SharedFrame frame) {
+        SharedFrame previous = currentFrame.getAndSet(frame);
+        if (previous != null) previous.release();
+    }
+
+    /**
+     * Returns a reference to the latest frame, or null if none has arrived
+     * yet. The pixels are shared and read-only; the caller must release it.
+     */
+    public SharedFrame acquireCurrentFrame() {
+        while (true) {
+            SharedFrame frame = currentFrame.get();
+            if (frame == null) return null;
+            // If the slot was swapped and the old frame freed in between, retry with the new one.
+            if (frame.tryRetain()) return frame;
+        }
+    }
+
+    /** Returns a private copy of a region of the latest frame, or null if none has arrived yet. */
+    public Mat copyCurrentFrameRegion(Rect region) {
+        SharedFrame frame = acquireCurrentFrame();
+        if (frame == null) return null;
+        try {
+            return frame.mat().apply(region).clone();
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Takes ownership of the frame reference, compresses it into the pre-roll
+     * buffer and releases it. The same JPEG feeds an open event clip and, if
+     * the frame is streamed without overlays, the stream.
+     */
+    public void bufferFrame(SharedFrame frame) {
+        try {
+            Mat mat = frame.mat();
+            EncodedFrame encoded = new EncodedFrame(frame.jpeg(preRoll::encode), frame.getTimestampMillis(), mat.cols(), mat.rows());
+            preRoll.add(encoded);
+            recordingTriggers.onFrame(encoded);
+        } finally {
+            frame.release();
+        }
+    }
+
+    public PreRollBuffer getPreRoll() { return preRoll; }
+    public RecordingTriggerEngine getRecordingTriggers() { return recordingTriggers; }
+
+    public String getId() { return definition.getId(); }
+    public CameraDefinition getDefinition() { return definition; }
+    public OpenCVFrameGrabber getGrabber() { return cameraManager.getGrabber(); }
+    public FramePipeline getPipeline() { return pipeline; }
+    public OpenCVFrameConverter.ToMat getDisplayConverter() { return displayConverter; }
+    public Java2DFrameConverter getJava2DConverter() { return java2DConverter; }
+    /** Capture/log cooldowns keyed by {@link CaptureState#key(int, int)}. */
+    public Map<String, CaptureState> getLastCaptureState() { return lastCaptureState; }
+    /** The last capture/log of each label on any track; kept when the track ends so a re-detected face stays in cooldown. */
+    public Map<Integer, CaptureState> getLabelCaptureState() { return labelCaptureState; }
+    public MotionDetector getMotionDetector() { return motionDetector; }
+    public double getDetectionScale() { return detectionScale; }
+    public DetectionScheduler getDetectionScheduler() { return detectionScheduler; }
+    public FaceTrackManager getFaceTracks() { return faceTracks; }
+    public BoxTracker<Overlay> getBodyTracker() { return bodyTracker; }
+
+    public List<Overlay> getLatestOverlays() { return latestOverlays; }
+    public void setLatestOverlays(List<Overlay> overlays) { this.latestOverlays = overlays; }
+
+    public Rect getLastSeenUnknownFace() { return lastSeenUnknownFace; }
+    public void setLastSeenUnknownFace(Rect rect) { this.lastSeenUnknownFace = rect; }
+    public long getUnknownFaceLastSeenTime() { return unknownFaceLastSeenTime; }
+    public void setUnknownFaceLastSeenTime(long time) { this.unknownFaceLastSeenTime = time; }
+}
@@ -0,0 +1,38 @@
+package org.example.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * MetricsRegistry is a process-wide list of named metric sources. Components
+ * register a supplier once; the /metrics endpoint serializes a snapshot of all
+ * of them on demand, so nothing is computed unless someone is looking.
+ */
+public final class MetricsRegistry {
+
+    private static final Map<String, Supplier<?>> SOURCES = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {}
+
+    public static void register(String name, Supplier<?> source) {
+        SOURCES.put(name, source);
+    }
+
+    public static void unregister(String name) {
+        SOURCES.remove(name);
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<?>> e : SOURCES.entrySet()) {
+            try {
+                snapshot.put(e.getKey(), e.getValue().get());
+            } catch (RuntimeException ex) {
+                snapshot.put(e.getKey(), "error: " + ex.getMessage());
+            }
+        }
+        return snapshot;
+    }
+}
@@ -4,16 +4,24 @@ import org.bytedeco.opencv.opencv_core.Rect;
 
 /**
  * CaptureState tracks the last time and face rectangle used to decide
- * when to capture/log again for a given label.
+ * when to capture/log again for a given face track and label, or for a
+ * label on whichever track saw it last.
  */
 public class CaptureState {
+    public final int trackId;
     public long lastCaptureTime;
     public Rect lastFaceRect;
 
-    public CaptureState(long time, Rect rect) {
+    public CaptureState(int trackId, long time, Rect rect) {
+        this.trackId = trackId;
         this.lastCaptureTime = time;
         this.lastFaceRect = rect;
     }
+
+    /** Map key for the capture/log cooldown of one label on one track. */
+    public static String key(int trackId, int label) {
+        return trackId + ":" + label;
+    }
 }
 
 
@@ -12,13 +12,19 @@ public class RecognitionLog {
     private final SimpleStringProperty role;
     private final SimpleStringProperty timestamp;
     private final SimpleDoubleProperty confidence;
+    private final SimpleStringProperty camera;
 
     public RecognitionLog(String name, String role, String timestamp, Double confidence) {
+        this(name, role, timestamp, confidence, null);
+    }
+
+    public RecognitionLog(String name, String role, String timestamp, Double confidence, String camera) {
         this.name = new SimpleStringProperty(name);
         this.role = new SimpleStringProperty(role);
         this.timestamp = new SimpleStringProperty(timestamp);
         // Format confidence to two decimal places for display
         this.confidence = new SimpleDoubleProperty(Math.round(confidence * 100.0) / 100.0);
+        this.camera = new SimpleStringProperty(camera == null ? "" : camera);
     }
 
     // --- Getters required for JavaFX PropertyValueFactory ---
@@ -26,6 +32,7 @@ public class RecognitionLog {
     public String getRole() { return role.get(); }
     public String getTimestamp() { return timestamp.get(); }
     public double getConfidence() { return confidence.get(); }
+    public String getCamera() { return camera.get(); }
 }
 
 
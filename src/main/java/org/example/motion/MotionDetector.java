@@ -0,0 +1,196 @@
+package org.example.motion;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.example.vision.FrameAnalysisContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_core.CV_8U;
+import static org.bytedeco.opencv.global.opencv_core.absdiff;
+import static org.bytedeco.opencv.global.opencv_core.countNonZero;
+import static org.bytedeco.opencv.global.opencv_imgproc.*;
+
+/**
+ * MotionDetector is a cheap gate in front of the Haar cascades. It compares a
+ * small blurred grayscale copy of each frame against a running-average
+ * background and reports the bounding boxes of the changed areas, scaled back
+ * to full resolution. When nothing moves the analyzer skips detection
+ * entirely, so an empty scene costs little more than decoding.
+ *
+ * Each camera owns one instance and calls it from its (serial) analyze
+ * stage. Analysis and {@link #release()} are synchronized only so that a
+ * camera being stopped cannot free the scratch Mats under a frame still in
+ * flight; after release every frame is reported as moving.
+ */
+public class MotionDetector {
+
+    private static final int BLOB_PADDING = 8;
+
+    private final boolean enabled;
+    private final int analysisWidth;
+    private final double pixelThreshold;
+    private final double minAreaFraction;
+    private final int hangoverFrames;
+    private final double learningRate;
+
+    private final Mat gray = new Mat();
+    private final Mat background8u = new Mat();
+    private final Mat diff = new Mat();
+    // findContours modifies its input, so it gets a copy of the mask.
+    private final Mat contourInput = new Mat();
+    private final MatVector contours = new MatVector();
+    // An empty kernel is OpenCV's default 3x3 rectangle.
+    private final Mat dilateKernel = new Mat();
+    private final Size blurSize = new Size(5, 5);
+    private Mat background;
+    private boolean released = false;
+
+    private int framesSinceMotion = Integer.MAX_VALUE;
+    private List<Rect> lastRegions = null;
+
+    private final AtomicLong framesAnalyzed = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private volatile double lastChangedFraction = 0.0;
+
+    public MotionDetector(boolean enabled, int analysisWidth, double pixelThreshold, double minAreaFraction, int hangoverFrames) {
+        this.enabled = enabled;
+        this.analysisWidth = Math.max(32, analysisWidth);
+        this.pixelThreshold = pixelThreshold;
+        this.minAreaFraction = minAreaFraction;
+        this.hangoverFrames = Math.max(0, hangoverFrames);
+        this.learningRate = 0.05;
+    }
+
+    /**
+     * Compares the frame against the background model. Frames within
+     * {@code hangoverFrames} of the last motion still count as moving, so a
+     * person who just stopped is detected a few more times.
+     */
+    public MotionResult analyze(Mat frame) {
+        try (FrameAnalysisContext context = new FrameAnalysisContext(frame)) {
+            return analyze(context);
+        }
+    }
+
+    /** As {@link #analyze(Mat)}, reusing the frame's shared downscaled grayscale. */
+    public synchronized MotionResult analyze(FrameAnalysisContext context) {
+        framesAnalyzed.incrementAndGet();
+        if (!enabled || released) return MotionResult.WHOLE_FRAME;
+
+        Mat small = context.grayAtWidth(analysisWidth);
+        int width = small.cols();
+        int height = small.rows();
+        double scale = (double) width / context.width();
+        GaussianBlur(small, gray, blurSize, 0);
+
+        if (background == null || background.rows() != height || background.cols() != width) {
+            if (background != null) background.release();
+            background = new Mat();
+            gray.convertTo(background, CV_32F);
+            framesSinceMotion = 0;
+            lastRegions = null;
+            return MotionResult.WHOLE_FRAME;
+        }
+
+        background.convertTo(background8u, CV_8U);
+        absdiff(gray, background8u, diff);
+        threshold(diff, diff, pixelThreshold, 255, THRESH_BINARY);
+        dilate(diff, diff, dilateKernel);
+        dilate(diff, diff, dilateKernel);
+        accumulateWeighted(gray, background, learningRate);
+
+        double changedFraction = (double) countNonZero(diff) / (width * height);
+        lastChangedFraction = changedFraction;
+
+        if (changedFraction >= minAreaFraction) {
+            framesSinceMotion = 0;
+            lastRegions = movingRegions(diff, scale, context.width(), context.height());
+            return new MotionResult(true, lastRegions, changedFraction);
+        }
+        if (framesSinceMotion < hangoverFrames) {
+            framesSinceMotion++;
+            return new MotionResult(true, lastRegions, changedFraction);
+        }
+        framesSinceMotion = Integer.MAX_VALUE;
+        framesSkipped.incrementAndGet();
+        return MotionResult.STATIC;
+    }
+
+    private List<Rect> movingRegions(Mat mask, double scale, int frameWidth, int frameHeight) {
+        mask.copyTo(contourInput);
+        findContours(contourInput, contours, RETR_EXTERNAL, CHAIN_APPROX_SIMPLE);
+        List<Rect> regions = new ArrayList<>();
+        for (long i = 0; i < contours.size(); i++) {
+            Rect box = boundingRect(contours.get(i));
+            int x = (int) Math.floor(box.x() / scale) - BLOB_PADDING;
+            int y = (int) Math.floor(box.y() / scale) - BLOB_PADDING;
+            int w = (int) Math.ceil(box.width() / scale) + 2 * BLOB_PADDING;
+            int h = (int) Math.ceil(box.height() / scale) + 2 * BLOB_PADDING;
+            regions.add(clip(x, y, w, h, frameWidth, frameHeight));
+        }
+        return mergeOverlapping(regions);
+    }
+
+    /** Repeatedly unions overlapping boxes so each detector pass sees one ROI per moving object. */
+    static List<Rect> mergeOverlapping(List<Rect> regions) {
+        List<Rect> merged = new ArrayList<>(regions);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            outer:
+            for (int i = 0; i < merged.size(); i++) {
+                for (int j = i + 1; j < merged.size(); j++) {
+                    Rect a = merged.get(i);
+                    Rect b = merged.get(j);
+                    if (overlaps(a, b)) {
+                        int x1 = Math.min(a.x(), b.x());
+                        int y1 = Math.min(a.y(), b.y());
+                        int x2 = Math.max(a.x() + a.width(), b.x() + b.width());
+                        int y2 = Math.max(a.y() + a.height(), b.y() + b.height());
+                        merged.set(i, new Rect(x1, y1, x2 - x1, y2 - y1));
+                        merged.remove(j);
+                        changed = true;
+                        break outer;
+                    }
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static boolean overlaps(Rect a, Rect b) {
+        return a.x() < b.x() + b.width() && b.x() < a.x() + a.width()
+                && a.y() < b.y() + b.height() && b.y() < a.y() + a.height();
+    }
+
+    private static Rect clip(int x, int y, int w, int h, int frameWidth, int frameHeight) {
+        int x1 = Math.max(0, x);
+        int y1 = Math.max(0, y);
+        int x2 = Math.min(frameWidth, x + w);
+        int y2 = Math.min(frameHeight, y + h);
+        return new Rect(x1, y1, Math.max(1, x2 - x1), Math.max(1, y2 - y1));
+    }
+
+    public MotionStats stats() {
+        return new MotionStats(framesAnalyzed.get(), framesSkipped.get(), lastChangedFraction);
+    }
+
+    public synchronized void release() {
+        if (released) return;
+        released = true;
+        gray.release();
+        background8u.release();
+        diff.release();
+        contourInput.release();
+        contours.close();
+        dilateKernel.release();
+        blurSize.close();
+        if (background != null) background.release();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.motion;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.util.List;
+
+/**
+ * MotionResult tells the analyzer whether detection is worth running on a
+ * frame and, if so, where. A null region list means "the whole frame".
+ */
+public class MotionResult {
+
+    static final MotionResult WHOLE_FRAME = new MotionResult(true, null, 1.0);
+    static final MotionResult STATIC = new MotionResult(false, List.of(), 0.0);
+
+    private final boolean motion;
+    private final List<Rect> regions;
+    private final double changedFraction;
+
+    public MotionResult(boolean motion, List<Rect> regions, double changedFraction) {
+        this.motion = motion;
+        this.regions = regions;
+        this.changedFraction = changedFraction;
+    }
+
+    public boolean hasMotion() { return motion; }
+    /** Moving regions in full-resolution coordinates, or null to scan the whole frame. */
+    public List<Rect> getRegions() { return regions; }
+    public double getChangedFraction() { return changedFraction; }
+}
@@ -0,0 +1,24 @@
+package org.example.motion;
+
+/**
+ * MotionStats is a snapshot of how often a camera's detectors were skipped
+ * because nothing moved. Serialized as-is by the /metrics endpoint.
+ */
+public class MotionStats {
+    private final long framesAnalyzed;
+    private final long framesSkipped;
+    private final double skipRatio;
+    private final double lastChangedFraction;
+
+    public MotionStats(long framesAnalyzed, long framesSkipped, double lastChangedFraction) {
+        this.framesAnalyzed = framesAnalyzed;
+        this.framesSkipped = framesSkipped;
+        this.skipRatio = framesAnalyzed == 0 ? 0.0 : (double) framesSkipped / framesAnalyzed;
+        this.lastChangedFraction = lastChangedFraction;
+    }
+
+    public long getFramesAnalyzed() { return framesAnalyzed; }
+    public long getFramesSkipped() { return framesSkipped; }
+    public double getSkipRatio() { return skipRatio; }
+    public double getLastChangedFraction() { return lastChangedFraction; }
+}
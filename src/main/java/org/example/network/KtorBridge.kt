@@ -4,6 +4,7 @@ import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.channels.trySendBlocking
 import org.example.DatabaseService
 import org.example.FaceRecognitionService
+import org.example.video.RecordingStore
 
 /**
  * A lightweight singleton registry to bridge Java-created services
@@ -12,6 +13,7 @@ import org.example.FaceRecognitionService
 object ServiceRegistry {
     @Volatile var databaseService: DatabaseService? = null
     @Volatile var recognitionService: FaceRecognitionService? = null
+    @Volatile var recordingStore: RecordingStore? = null
 }
 
 /**
@@ -1,28 +1,45 @@
 package org.example.network
 
-import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.ConcurrentHashMap
 
 /**
- * A thread-safe holder for the latest camera frame, compressed as a JPEG.
- * This acts as a bridge between the Java camera thread (producer) and
+ * A thread-safe holder for the latest frame of every camera, compressed as a JPEG.
+ * This acts as a bridge between the Java pipeline threads (producers) and
  * the Ktor web server threads (consumers).
  */
 object SharedFrameHolder {
-    // AtomicReference ensures that reads/writes of the frame are atomic.
-    private val latestFrame = AtomicReference<ByteArray?>(null)
+    // One slot per camera id; map writes replace the reference atomically.
+    private val latestFrames = ConcurrentHashMap<String, ByteArray>()
+
+    /** Camera served by the legacy /camera/live.mjpeg endpoint. */
+    @Volatile private var defaultCameraId: String? = null
+
+    @JvmStatic
+    fun setDefaultCamera(cameraId: String) {
+        defaultCameraId = cameraId
+    }
 
     /**
-     * Called from the Java camera loop to update the current frame.
+     * Called from the Java render stage to update a camera's current frame.
      */
     @JvmStatic
-    fun updateFrame(newFrame: ByteArray) {
-        latestFrame.set(newFrame)
+    fun updateFrame(cameraId: String, newFrame: ByteArray) {
+        latestFrames[cameraId] = newFrame
     }
 
     /**
-     * Called from the Ktor endpoint to get the latest frame for streaming.
+     * Called from the Ktor endpoint to get the latest frame of one camera.
+     */
+    fun getFrame(cameraId: String): ByteArray? {
+        return latestFrames[cameraId]
+    }
+
+    /**
+     * Latest frame of the default camera, for the single-camera endpoint.
      */
     fun getFrame(): ByteArray? {
-        return latestFrame.get()
+        return defaultCameraId?.let { latestFrames[it] }
     }
-}
\ No newline at end of file
+
+    fun cameraIds(): Set<String> = latestFrames.keys.toSortedSet()
+}
@@ -0,0 +1,45 @@
+package org.example.pipeline;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.util.List;
+
+/**
+ * AnnotatedFrame is the copy-on-write overlay layer on top of a
+ * {@link SharedFrame}. The overlays are only painted when the image is first
+ * requested, onto a private copy; a frame without overlays is served straight
+ * from the shared pixels without copying.
+ */
+public final class AnnotatedFrame {
+
+    private final SharedFrame base;
+    private final List<Overlay> overlays;
+    private Mat composite;
+
+    /** Takes ownership of one reference to {@code base}. */
+    public AnnotatedFrame(SharedFrame base, List<Overlay> overlays) {
+        this.base = base;
+        this.overlays = overlays;
+    }
+
+    /** The frame with its overlays drawn. Read-only for callers. */
+    public synchronized Mat image() {
+        if (overlays.isEmpty()) return base.mat();
+        if (composite == null) {
+            composite = base.mat().clone();
+            Overlay.drawAll(overlays, composite);
+        }
+        return composite;
+    }
+
+    public SharedFrame getBase() { return base; }
+    public List<Overlay> getOverlays() { return overlays; }
+
+    public synchronized void release() {
+        if (composite != null) {
+            composite.release();
+            composite = null;
+        }
+        base.release();
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.pipeline;
+
+/**
+ * DropPolicy decides what a bounded {@link FrameQueue} does when a producer
+ * offers an item while the queue is already full.
+ */
+public enum DropPolicy {
+    /** Evict the oldest queued item so the newest one always gets in (analysis, preview). */
+    LATEST_WINS,
+    /** Block the producer until the consumer makes room (e.g. recording that must keep every frame). */
+    NEVER_DROP
+}
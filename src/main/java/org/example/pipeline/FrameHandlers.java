@@ -0,0 +1,25 @@
+package org.example.pipeline;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.util.List;
+
+/**
+ * FrameHandlers are the per-stage callbacks plugged into a {@link FramePipeline}.
+ */
+public interface FrameHandlers {
+    /** Keeps the frame for recording. Takes ownership of one reference and must release it eventually. */
+    void record(SharedFrame frame);
+
+    /** Runs detection/recognition on the shared pixels, which must not be modified. */
+    void analyze(Mat frame);
+
+    /** The overlays to paint on frames that are rendered now. */
+    List<Overlay> overlays();
+
+    /** Encodes the stream output. The annotated frame is then displayed. */
+    void render(AnnotatedFrame frame);
+
+    /** Shows the annotated frame in the UI. The frame is released by the pipeline afterwards. */
+    void display(AnnotatedFrame frame);
+}
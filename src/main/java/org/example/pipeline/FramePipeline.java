@@ -0,0 +1,114 @@
+package org.example.pipeline;
+
+import org.example.AppConfig;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FramePipeline decouples grabbing from the expensive per-frame work. The
+ * camera thread only hands a reference to the shared frame to three bounded
+ * queues:
+ *
+ *   grab -> record                   (LATEST_WINS, capacity 8)
+ *        -> analyze                  (LATEST_WINS, capacity 1)
+ *        -> render -> display        (LATEST_WINS)
+ *
+ * Stages run on executors shared by all cameras: analysis on a pool sized to
+ * the cores, everything else on a smaller stream pool. A 150 ms recognition
+ * pass therefore never stalls {@code grabber.grab()}, and aggregate throughput
+ * scales with the number of cores rather than the number of cameras.
+ * Policies and capacities can be overridden per stage in config.properties
+ * (pipeline.&lt;stage&gt;.policy / .capacity). Recording JPEG-encodes every
+ * frame, so it drops the oldest queued frames rather than block the grabber
+ * when encoding falls behind; the drops show up in its stage stats.
+ *
+ * Stages share one {@link SharedFrame} rather than copies; rendering paints
+ * overlays into an {@link AnnotatedFrame} that is then passed on to display.
+ */
+public class FramePipeline {
+
+    public static final String RECORD = "record";
+    public static final String ANALYZE = "analyze";
+    public static final String RENDER = "render";
+    public static final String DISPLAY = "display";
+
+    private final String name;
+    private final PipelineStage<SharedFrame> recordStage;
+    private final PipelineStage<SharedFrame> analyzeStage;
+    private final PipelineStage<SharedFrame> renderStage;
+    private final PipelineStage<AnnotatedFrame> displayStage;
+
+    public FramePipeline(String name, FrameHandlers handlers, AppConfig config, Executor analysisExecutor, Executor streamExecutor) {
+        this.name = name;
+        this.displayStage = new PipelineStage<>(DISPLAY,
+                new FrameQueue<>(config.getStageCapacity(DISPLAY, 1), config.getStagePolicy(DISPLAY, DropPolicy.LATEST_WINS), AnnotatedFrame::release),
+                streamExecutor, frame -> {
+            try {
+                handlers.display(frame);
+            } finally {
+                frame.release();
+            }
+        });
+        this.renderStage = new PipelineStage<>(RENDER, queue(config, RENDER, DropPolicy.LATEST_WINS, 2), streamExecutor, frame -> {
+            AnnotatedFrame annotated = new AnnotatedFrame(frame, handlers.overlays());
+            boolean forwarded = false;
+            try {
+                handlers.render(annotated);
+                displayStage.submit(annotated);
+                forwarded = true;
+            } finally {
+                if (!forwarded) annotated.release();
+            }
+        });
+        this.analyzeStage = new PipelineStage<>(ANALYZE, queue(config, ANALYZE, DropPolicy.LATEST_WINS, 1), analysisExecutor, frame -> {
+            try {
+                handlers.analyze(frame.mat());
+            } finally {
+                frame.release();
+            }
+        });
+        this.recordStage = new PipelineStage<>(RECORD, queue(config, RECORD, DropPolicy.LATEST_WINS, 8), streamExecutor, handlers::record);
+    }
+
+    /** Creates a fixed pool of daemon workers suitable for sharing between pipelines. */
+    public static ExecutorService newSharedExecutor(String threadPrefix, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, threadPrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static FrameQueue<SharedFrame> queue(AppConfig config, String stage, DropPolicy defaultPolicy, int defaultCapacity) {
+        return new FrameQueue<>(config.getStageCapacity(stage, defaultCapacity), config.getStagePolicy(stage, defaultPolicy), SharedFrame::release);
+    }
+
+    /**
+     * Called from the camera thread. The caller keeps its own reference; each
+     * stage receives an additional one to the same pixels.
+     */
+    public void submit(SharedFrame frame) {
+        recordStage.submit(frame.retain());
+        analyzeStage.submit(frame.retain());
+        renderStage.submit(frame.retain());
+    }
+
+    public List<StageStats> stats() {
+        return List.of(recordStage.stats(), analyzeStage.stats(), renderStage.stats(), displayStage.stats());
+    }
+
+    /** Stops all stages and releases queued frames. The shared executors are owned by the caller. */
+    public void stop() {
+        recordStage.stop();
+        analyzeStage.stop();
+        renderStage.stop();
+        displayStage.stop();
+    }
+
+    public String getName() { return name; }
+}
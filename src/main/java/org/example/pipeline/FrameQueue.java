@@ -0,0 +1,73 @@
+package org.example.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * FrameQueue is a bounded hand-off between two pipeline stages. When full it
+ * applies its {@link DropPolicy}; evicted items are passed to {@code onDrop}
+ * so native buffers can be released instead of leaking.
+ */
+public class FrameQueue<T> {
+
+    private final ArrayBlockingQueue<T> queue;
+    private final int capacity;
+    private final DropPolicy policy;
+    private final Consumer<T> onDrop;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public FrameQueue(int capacity, DropPolicy policy, Consumer<T> onDrop) {
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.policy = policy;
+        this.onDrop = onDrop;
+    }
+
+    /**
+     * Enqueues an item according to the drop policy. Returns false only if the
+     * producer was interrupted while waiting on a NEVER_DROP queue; the item is
+     * then dropped and released.
+     */
+    public boolean offer(T item) {
+        if (policy == DropPolicy.NEVER_DROP) {
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discard(item);
+                return false;
+            }
+        } else {
+            while (!queue.offer(item)) {
+                T stale = queue.poll();
+                if (stale != null) discard(stale);
+            }
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    public T poll() { return queue.poll(); }
+
+    /** Drops an item that will never be enqueued or processed. */
+    public void discard(T item) {
+        dropped.incrementAndGet();
+        onDrop.accept(item);
+    }
+
+    /** Releases everything still queued, e.g. on shutdown. */
+    public void clear() {
+        T item;
+        while ((item = queue.poll()) != null) {
+            onDrop.accept(item);
+        }
+    }
+
+    public int depth() { return queue.size(); }
+    public int capacity() { return capacity; }
+    public DropPolicy policy() { return policy; }
+    public long accepted() { return accepted.get(); }
+    public long dropped() { return dropped.get(); }
+}
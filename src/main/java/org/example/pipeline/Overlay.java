@@ -0,0 +1,47 @@
+package org.example.pipeline;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Scalar;
+
+import java.util.List;
+
+import static org.bytedeco.opencv.global.opencv_imgproc.*;
+
+/**
+ * Overlay is one labelled box produced by the analysis stage. The render
+ * stage draws the most recent overlays onto every frame, so the preview keeps
+ * running at camera rate even when analysis is slower.
+ */
+public class Overlay {
+    private final Rect rect;
+    private final String label;
+    private final Scalar color;
+
+    public Overlay(Rect rect, String label, Scalar color) {
+        this.rect = rect;
+        this.label = label;
+        this.color = color;
+    }
+
+    public Rect getRect() { return rect; }
+    public String getLabel() { return label; }
+    public Scalar getColor() { return color; }
+
+    /** Same label and color at a new position, e.g. a tracker's predicted box. */
+    public Overlay movedTo(Rect newRect) {
+        return new Overlay(newRect, label, color);
+    }
+
+    public void draw(Mat frame) {
+        rectangle(frame, rect, color, 2, LINE_8, 0);
+        putText(frame, label, new Point(rect.x(), rect.y() - 10), FONT_HERSHEY_SIMPLEX, 0.7, color, 2, LINE_8, false);
+    }
+
+    public static void drawAll(List<Overlay> overlays, Mat frame) {
+        for (Overlay overlay : overlays) {
+            overlay.draw(frame);
+        }
+    }
+}
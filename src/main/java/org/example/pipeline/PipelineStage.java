@@ -0,0 +1,87 @@
+package org.example.pipeline;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PipelineStage drains a {@link FrameQueue} on an {@link Executor}. At most
+ * one drain task per stage is in flight, so a stage processes its items in
+ * order even when the executor is shared with other stages.
+ *
+ * The handler takes ownership of each item it receives.
+ */
+public class PipelineStage<T> {
+
+    private static final int MAX_BATCH = 8;
+
+    private final String name;
+    private final FrameQueue<T> input;
+    private final Consumer<T> handler;
+    private final Executor executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicLong processed = new AtomicLong();
+    private volatile long lastLatencyNanos = 0;
+    private volatile boolean running = true;
+
+    public PipelineStage(String name, FrameQueue<T> input, Executor executor, Consumer<T> handler) {
+        this.name = name;
+        this.input = input;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    public void submit(T item) {
+        if (!running) {
+            input.discard(item);
+            return;
+        }
+        input.offer(item);
+        schedule();
+    }
+
+    private void schedule() {
+        if (running && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_BATCH && running; i++) {
+                T item = input.poll();
+                if (item == null) break;
+                long start = System.nanoTime();
+                try {
+                    handler.accept(item);
+                } catch (RuntimeException e) {
+                    System.err.println("Pipeline stage '" + name + "' failed: " + e.getMessage());
+                }
+                lastLatencyNanos = System.nanoTime() - start;
+                processed.incrementAndGet();
+            }
+        } finally {
+            scheduled.set(false);
+            if (input.depth() > 0) schedule();
+        }
+    }
+
+    /** Stops accepting work and releases anything still queued. */
+    public void stop() {
+        running = false;
+        input.clear();
+    }
+
+    public StageStats stats() {
+        return new StageStats(name, input.policy().name(), input.depth(), input.capacity(),
+                processed.get(), input.dropped(), lastLatencyNanos / 1_000_000.0);
+    }
+
+    public String getName() { return name; }
+}
@@ -0,0 +1,93 @@
+package org.example.pipeline;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * SharedFrame is an immutable, reference-counted handle to one captured
+ * frame. The grabbed image is copied exactly once (the grabber reuses its
+ * buffer); after that the clip buffer, the "latest frame" slot and every
+ * pipeline stage hold references to the same pixels instead of their own
+ * clones. The Mat is released when the last reference is released.
+ *
+ * Holders must treat {@link #mat()} as read-only; annotations go into an
+ * {@link AnnotatedFrame}, which copies on write. The JPEG of the frame is
+ * likewise made once and shared by the pre-roll and the stream.
+ */
+public final class SharedFrame {
+
+    private static final AtomicLong sequenceCounter = new AtomicLong();
+
+    private final Mat mat;
+    private final long sequence;
+    private final long timestampMillis;
+    private final AtomicInteger refs = new AtomicInteger(1);
+    private byte[] jpeg;
+
+    private SharedFrame(Mat mat, long timestampMillis) {
+        this.mat = mat;
+        this.sequence = sequenceCounter.incrementAndGet();
+        this.timestampMillis = timestampMillis;
+    }
+
+    /** Copies a borrowed Mat (e.g. the grabber's buffer) into a new frame with one reference. */
+    public static SharedFrame copyOf(Mat source) {
+        return new SharedFrame(source.clone(), System.currentTimeMillis());
+    }
+
+    /** Takes ownership of a Mat nobody else references. */
+    public static SharedFrame wrap(Mat owned) {
+        return new SharedFrame(owned, System.currentTimeMillis());
+    }
+
+    /** Adds a reference for a new holder. The caller must already hold one. */
+    public SharedFrame retain() {
+        if (refs.getAndIncrement() <= 0) {
+            throw new IllegalStateException("SharedFrame " + sequence + " retained after release");
+        }
+        return this;
+    }
+
+    /**
+     * Adds a reference unless the frame has already been freed. Used by
+     * readers that found the frame through a shared slot rather than owning a
+     * reference themselves.
+     */
+    public boolean tryRetain() {
+        while (true) {
+            int current = refs.get();
+            if (current <= 0) return false;
+            if (refs.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /** Drops one reference; the last one frees the pixels. */
+    public void release() {
+        int remaining = refs.decrementAndGet();
+        if (remaining == 0) {
+            mat.release();
+        } else if (remaining < 0) {
+            throw new IllegalStateException("SharedFrame " + sequence + " released too often");
+        }
+    }
+
+    /**
+     * The frame as JPEG. The first caller encodes it, later callers get the
+     * same bytes (waiting if it is still being encoded). The caller must hold
+     * a reference, and the bytes must not be modified.
+     */
+    public synchronized byte[] jpeg(Function<Mat, byte[]> encoder) {
+        if (jpeg == null) jpeg = encoder.apply(mat);
+        return jpeg;
+    }
+
+    /** The pixels. Read-only for every holder. */
+    public Mat mat() { return mat; }
+
+    public long getSequence() { return sequence; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public int getRefCount() { return refs.get(); }
+}
@@ -0,0 +1,39 @@
+package org.example.pipeline;
+
+/**
+ * StageStats is an immutable snapshot of one pipeline stage, serialized as-is
+ * by the /metrics endpoint.
+ */
+public class StageStats {
+    private final String stage;
+    private final String policy;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long processed;
+    private final long dropped;
+    private final double lastLatencyMs;
+
+    public StageStats(String stage, String policy, int queueDepth, int queueCapacity, long processed, long dropped, double lastLatencyMs) {
+        this.stage = stage;
+        this.policy = policy;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.processed = processed;
+        this.dropped = dropped;
+        this.lastLatencyMs = lastLatencyMs;
+    }
+
+    public String getStage() { return stage; }
+    public String getPolicy() { return policy; }
+    public int getQueueDepth() { return queueDepth; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public long getProcessed() { return processed; }
+    public long getDropped() { return dropped; }
+    public double getLastLatencyMs() { return lastLatencyMs; }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT, "%s[%s] depth=%d/%d processed=%d dropped=%d last=%.1fms",
+                stage, policy, queueDepth, queueCapacity, processed, dropped, lastLatencyMs);
+    }
+}
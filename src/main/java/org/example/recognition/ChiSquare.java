@@ -0,0 +1,53 @@
+package org.example.recognition;
+
+/**
+ * Chi-square distance between LBP histograms, as OpenCV's LBPH computes it
+ * ({@code HISTCMP_CHISQR_ALT}): {@code 2 * sum((a - b)^2 / (a + b))} over the
+ * bins where {@code a + b} is not zero.
+ *
+ * Uses the SIMD kernel in {@link VectorChiSquare} when the JVM was started
+ * with {@code --add-modules jdk.incubator.vector}, and a scalar loop
+ * otherwise. Both stop early once the running sum reaches {@code limit};
+ * the terms are never negative, so the result is then already too large to
+ * be a nearest match.
+ */
+public final class ChiSquare {
+
+    // Bins between two early-exit checks: four cells of 256 patterns.
+    static final int CHECK_INTERVAL = 1024;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorChiSquare.isUsable();
+
+    private ChiSquare() {}
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /** Distance from {@code query} to the histogram at {@code offset} in {@code gallery}, or any value >= limit. */
+    public static double distance(float[] gallery, int offset, float[] query, int length, double limit) {
+        return VECTORIZED
+                ? VectorChiSquare.distance(gallery, offset, query, length, limit, CHECK_INTERVAL)
+                : scalar(gallery, offset, query, length, limit);
+    }
+
+    static double scalar(float[] gallery, int offset, float[] query, int length, double limit) {
+        double half = limit / 2;
+        double sum = 0;
+        for (int start = 0; start < length; start += CHECK_INTERVAL) {
+            int end = Math.min(length, start + CHECK_INTERVAL);
+            for (int i = start; i < end; i++) {
+                float g = gallery[offset + i];
+                float q = query[i];
+                float b = g + q;
+                if (b > 0) {
+                    double a = g - q;
+                    sum += a * a / b;
+                }
+            }
+            if (sum >= half) break;
+        }
+        return 2 * sum;
+    }
+}
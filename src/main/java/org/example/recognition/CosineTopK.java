@@ -0,0 +1,114 @@
+package org.example.recognition;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Top-k search by cosine similarity over unit-length embeddings stored row
+ * by row in one contiguous {@code float[]}. With unit vectors the cosine is
+ * the dot product, computed by the SIMD kernel in {@link VectorDot} when the
+ * JVM was started with {@code --add-modules jdk.incubator.vector} and by a
+ * scalar loop otherwise. Large matrices are split across the common
+ * fork-join pool and the per-chunk top-k lists merged.
+ */
+public final class CosineTopK {
+
+    // Below this many rows a single thread is faster than splitting the scan.
+    static final int PARALLEL_MIN_ROWS = 8192;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorDot.isUsable();
+
+    private CosineTopK() {}
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /** A matrix row and its similarity to the query. */
+    public static final class Hit {
+        public final int row;
+        public final float similarity;
+
+        Hit(int row, float similarity) {
+            this.row = row;
+            this.similarity = similarity;
+        }
+    }
+
+    public static float dot(float[] matrix, int offset, float[] query, int dim) {
+        return VECTORIZED ? VectorDot.dot(matrix, offset, query, dim) : scalar(matrix, offset, query, dim);
+    }
+
+    static float scalar(float[] matrix, int offset, float[] query, int dim) {
+        float sum = 0;
+        for (int i = 0; i < dim; i++) sum += matrix[offset + i] * query[i];
+        return sum;
+    }
+
+    /**
+     * The {@code k} rows among the first {@code count} most similar to
+     * {@code query}, most similar first; rows whose label is in
+     * {@code skipLabels} are ignored. Ties go to the earlier row.
+     */
+    public static Hit[] search(float[] matrix, int dim, int[] labels, int count, float[] query, int k, Set<Integer> skipLabels) {
+        if (count < PARALLEL_MIN_ROWS) return new TopK(k).scan(matrix, dim, labels, 0, count, query, skipLabels).hits();
+        int chunks = Math.max(1, Math.min(count / (PARALLEL_MIN_ROWS / 2), Runtime.getRuntime().availableProcessors() * 4));
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> new TopK(k).scan(matrix, dim, labels,
+                        (int) ((long) count * chunk / chunks), (int) ((long) count * (chunk + 1) / chunks), query, skipLabels))
+                .reduce(TopK::merge)
+                .map(TopK::hits)
+                .orElse(new Hit[0]);
+    }
+
+    /** The best k rows seen so far, kept sorted by similarity (then row). */
+    private static final class TopK {
+        final int[] rows;
+        final float[] similarities;
+        int size;
+
+        TopK(int k) {
+            rows = new int[Math.max(1, k)];
+            similarities = new float[rows.length];
+        }
+
+        TopK scan(float[] matrix, int dim, int[] labels, int from, int to, float[] query, Set<Integer> skipLabels) {
+            boolean skipping = !skipLabels.isEmpty();
+            for (int row = from; row < to; row++) {
+                if (skipping && skipLabels.contains(labels[row])) continue;
+                offer(row, dot(matrix, row * dim, query, dim));
+            }
+            return this;
+        }
+
+        void offer(int row, float similarity) {
+            if (size == rows.length && !before(row, similarity, size - 1)) return;
+            int position = size < rows.length ? size++ : size - 1;
+            while (position > 0 && before(row, similarity, position - 1)) {
+                rows[position] = rows[position - 1];
+                similarities[position] = similarities[position - 1];
+                position--;
+            }
+            rows[position] = row;
+            similarities[position] = similarity;
+        }
+
+        /** Whether the row ranks above the entry at {@code position}: more similar, or as similar and earlier. */
+        private boolean before(int row, float similarity, int position) {
+            return similarity > similarities[position] || (similarity == similarities[position] && row < rows[position]);
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.size; i++) offer(other.rows[i], other.similarities[i]);
+            return this;
+        }
+
+        Hit[] hits() {
+            Hit[] hits = new Hit[size];
+            for (int i = 0; i < size; i++) hits[i] = new Hit(rows[i], similarities[i]);
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.example.recognition;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * GalleryIndex is an inverted-file (IVF) index over the training histograms
+ * of the {@link JavaLbphEngine}: k-means splits the gallery into {@code lists}
+ * clusters, and a query is compared only with the samples of the
+ * {@code nprobe} clusters whose centroids are closest to it. The cost of a
+ * predict drops from every sample to {@code lists + nprobe * count / lists}
+ * distances; more probes trade speed back for recall.
+ *
+ * Clustering and routing use a compact descriptor, the histogram folded into
+ * uniform-LBP bins ({@link LbphFeatures#uniformMapping()}), a quarter of the
+ * size; candidates are still compared on the full histogram, so a match found
+ * through the index has exactly the distance the exact scan would report.
+ *
+ * Samples added later are assigned to their nearest existing centroid. Once
+ * the gallery has grown by half since the clusters were computed, the engine
+ * builds a new index. An index is immutable; {@link #extend} returns a new
+ * one that shares the centroids and the recall counters.
+ */
+public final class GalleryIndex {
+
+    private static final int KMEANS_ITERATIONS = 10;
+    // k-means runs on at most this many samples per cluster; the rest are only assigned.
+    private static final int TRAINING_SAMPLES_PER_LIST = 64;
+
+    /** Index configuration; see the recognizer.index.* keys. */
+    public static final class Settings {
+        final int minSamples;
+        final int lists;
+        final int nprobe;
+        final double recallSampleRate;
+
+        /**
+         * @param minSamples       galleries smaller than this are scanned exactly; 0 disables the index
+         * @param lists            number of clusters; 0 picks about sqrt(samples)
+         * @param nprobe           clusters compared per query
+         * @param recallSampleRate fraction of predicts also answered by an exact scan to measure recall
+         */
+        public Settings(int minSamples, int lists, int nprobe, double recallSampleRate) {
+            this.minSamples = minSamples;
+            this.lists = Math.max(0, lists);
+            this.nprobe = Math.max(1, nprobe);
+            this.recallSampleRate = Math.max(0, Math.min(1, recallSampleRate));
+        }
+
+        public static Settings disabled() {
+            return new Settings(0, 0, 1, 0);
+        }
+
+        boolean appliesTo(int samples) {
+            return minSamples > 0 && samples >= minSamples;
+        }
+    }
+
+    private final Settings settings;
+    private final int[] mapping;
+    private final int cells;
+    private final int patterns;
+    private final int dims;
+    private final float[] centroids;
+    private final int[][] lists;
+    private final int builtRows;
+    private final int rows;
+    private final Recall recall;
+
+    private GalleryIndex(Settings settings, int[] mapping, int cells, int patterns, int dims, float[] centroids,
+                         int[][] lists, int builtRows, int rows, Recall recall) {
+        this.settings = settings;
+        this.mapping = mapping;
+        this.cells = cells;
+        this.patterns = patterns;
+        this.dims = dims;
+        this.centroids = centroids;
+        this.lists = lists;
+        this.builtRows = builtRows;
+        this.rows = rows;
+        this.recall = recall;
+    }
+
+    /** Clusters the first {@code count} histograms; null if the settings do not call for an index. */
+    public static GalleryIndex build(Settings settings, LbphFeatures features, float[] histograms, int count) {
+        if (!settings.appliesTo(count)) return null;
+        long started = System.nanoTime();
+        int[] mapping = features.uniformMapping();
+        int cells = features.cells();
+        int patterns = features.patterns();
+        int dims = cells * features.uniformBins();
+        int length = features.length();
+
+        // Compact descriptors of every sample, row-major.
+        float[] compact = new float[count * dims];
+        IntStream.range(0, count).parallel().forEach(row ->
+                fold(mapping, cells, patterns, dims, histograms, row * length, compact, row * dims));
+
+        int wanted = settings.lists > 0 ? settings.lists : (int) Math.round(Math.sqrt(count));
+        int k = Math.max(1, Math.min(wanted, count));
+        float[] centroids = kMeans(compact, count, dims, k);
+        int[] assignment = new int[count];
+        IntStream.range(0, count).parallel().forEach(row -> assignment[row] = nearest(centroids, k, dims, compact, row * dims));
+        int[][] lists = group(assignment, k, count);
+        System.out.println("Gallery index built: " + count + " samples in " + k + " lists ("
+                + (System.nanoTime() - started) / 1_000_000 + " ms).");
+        return new GalleryIndex(settings, mapping, cells, patterns, dims, centroids, lists, count, count, new Recall());
+    }
+
+    /**
+     * The index with rows [{@link #rows()}, count) added to their nearest
+     * lists, or null if the gallery has grown enough to be clustered again.
+     */
+    public GalleryIndex extend(float[] histograms, int length, int count) {
+        if (count - builtRows > builtRows / 2) return null;
+        int k = lists.length;
+        int[][] extended = new int[k][];
+        int[] added = new int[k];
+        int[] assignment = new int[count - rows];
+        float[] compact = new float[dims];
+        for (int row = rows; row < count; row++) {
+            fold(mapping, cells, patterns, dims, histograms, row * length, compact, 0);
+            int list = nearest(centroids, k, dims, compact, 0);
+            assignment[row - rows] = list;
+            added[list]++;
+        }
+        for (int list = 0; list < k; list++) {
+            extended[list] = Arrays.copyOf(lists[list], lists[list].length + added[list]);
+            added[list] = lists[list].length;
+        }
+        for (int row = rows; row < count; row++) {
+            int list = assignment[row - rows];
+            extended[list][added[list]++] = row;
+        }
+        return new GalleryIndex(settings, mapping, cells, patterns, dims, centroids, extended, builtRows, count, recall);
+    }
+
+    public int rows() { return rows; }
+    public Settings settings() { return settings; }
+
+    /**
+     * The rows to compare with {@code query}: the members of the
+     * {@code nprobe} lists with the closest centroids, in ascending order.
+     */
+    public int[] candidates(float[] query) {
+        float[] compact = new float[dims];
+        fold(mapping, cells, patterns, dims, query, 0, compact, 0);
+        int k = lists.length;
+        int probes = Math.min(settings.nprobe, k);
+        double[] distances = new double[k];
+        Integer[] order = new Integer[k];
+        for (int list = 0; list < k; list++) {
+            distances[list] = ChiSquare.distance(centroids, list * dims, compact, dims, Double.MAX_VALUE);
+            order[list] = list;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+        int total = 0;
+        for (int p = 0; p < probes; p++) total += lists[order[p]].length;
+        int[] rowsToScan = new int[total];
+        int next = 0;
+        for (int p = 0; p < probes; p++) {
+            int[] members = lists[order[p]];
+            System.arraycopy(members, 0, rowsToScan, next, members.length);
+            next += members.length;
+        }
+        // Ascending rows keep the tie-break of the exact scan.
+        Arrays.sort(rowsToScan);
+        return rowsToScan;
+    }
+
+    /** Whether this predict should also run the exact scan to measure recall. */
+    boolean sampleRecall() {
+        return settings.recallSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < settings.recallSampleRate;
+    }
+
+    /** Records whether the indexed answer matched the exact scan's label. */
+    void recordRecall(boolean sameLabel) {
+        recall.sampled.incrementAndGet();
+        if (sameLabel) recall.matched.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int largest = 0;
+        for (int[] list : lists) largest = Math.max(largest, list.length);
+        stats.put("lists", lists.length);
+        stats.put("nprobe", settings.nprobe);
+        stats.put("rows", rows);
+        stats.put("largestList", largest);
+        long sampled = recall.sampled.get();
+        stats.put("recallSamples", sampled);
+        stats.put("recall", sampled == 0 ? "n/a" : String.format("%.3f", (double) recall.matched.get() / sampled));
+        return stats;
+    }
+
+    /** Agreement with the exact scan, shared by an index and its extensions. */
+    private static final class Recall {
+        final AtomicLong sampled = new AtomicLong();
+        final AtomicLong matched = new AtomicLong();
+    }
+
+    /** Sums each cell's pattern bins into its uniform-pattern bins. */
+    private static void fold(int[] mapping, int cells, int patterns, int dims, float[] histograms, int offset,
+                             float[] out, int outOffset) {
+        Arrays.fill(out, outOffset, outOffset + dims, 0f);
+        int bins = dims / cells;
+        for (int cell = 0; cell < cells; cell++) {
+            int in = offset + cell * patterns;
+            int base = outOffset + cell * bins;
+            for (int p = 0; p < patterns; p++) {
+                out[base + mapping[p]] += histograms[in + p];
+            }
+        }
+    }
+
+    private static int nearest(float[] centroids, int k, int dims, float[] vectors, int offset) {
+        float[] query = offset == 0 && vectors.length == dims ? vectors : Arrays.copyOfRange(vectors, offset, offset + dims);
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double d = ChiSquare.distance(centroids, c * dims, query, dims, bestDistance);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** Lloyd's k-means with chi-square assignment on an evenly spaced subset of the rows. */
+    private static float[] kMeans(float[] compact, int count, int dims, int k) {
+        int trainingRows = Math.min(count, k * TRAINING_SAMPLES_PER_LIST);
+        float[] training = new float[trainingRows * dims];
+        for (int i = 0; i < trainingRows; i++) {
+            int row = (int) ((long) i * count / trainingRows);
+            System.arraycopy(compact, row * dims, training, i * dims, dims);
+        }
+        // Seed with distinct training rows.
+        float[] centroids = new float[k * dims];
+        int[] seeds = new Random(42).ints(0, trainingRows).distinct().limit(k).toArray();
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(training, seeds[c] * dims, centroids, c * dims, dims);
+        }
+        int[] assignment = new int[trainingRows];
+        Arrays.fill(assignment, -1);
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            float[] current = centroids;
+            int[] next = IntStream.range(0, trainingRows).parallel()
+                    .map(i -> nearest(current, k, dims, training, i * dims))
+                    .toArray();
+            boolean changed = !Arrays.equals(next, assignment);
+            assignment = next;
+            if (!changed) break;
+            float[] sums = new float[k * dims];
+            int[] sizes = new int[k];
+            for (int i = 0; i < trainingRows; i++) {
+                int c = assignment[i];
+                sizes[c]++;
+                for (int d = 0; d < dims; d++) sums[c * dims + d] += training[i * dims + d];
+            }
+            for (int c = 0; c < k; c++) {
+                // An emptied cluster keeps its previous centroid.
+                if (sizes[c] == 0) {
+                    System.arraycopy(current, c * dims, sums, c * dims, dims);
+                    continue;
+                }
+                float scale = 1f / sizes[c];
+                for (int d = 0; d < dims; d++) sums[c * dims + d] *= scale;
+            }
+            centroids = sums;
+        }
+        return centroids;
+    }
+
+    private static int[][] group(int[] assignment, int k, int count) {
+        int[] sizes = new int[k];
+        for (int row = 0; row < count; row++) sizes[assignment[row]]++;
+        int[][] lists = new int[k][];
+        for (int c = 0; c < k; c++) lists[c] = new int[sizes[c]];
+        int[] next = new int[k];
+        for (int row = 0; row < count; row++) {
+            int c = assignment[row];
+            lists[c][next[c]++] = row;
+        }
+        return lists;
+    }
+}
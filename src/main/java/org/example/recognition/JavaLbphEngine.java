@@ -0,0 +1,299 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+
+/**
+ * JavaLbphEngine is an LBPH recognizer written in Java. It computes the same
+ * histograms as OpenCV's LBPH ({@link LbphFeatures}) and returns the same
+ * labels and chi-square distances, but keeps all training histograms in one
+ * contiguous {@code float[]} and scans it with the {@link ChiSquare} kernels.
+ * Large galleries are split across the common fork-join pool, and a sample
+ * stops being compared as soon as it is farther than the best match so far.
+ *
+ * Adding samples appends to the array in place when no newer model has done
+ * so already, so an update costs the new histograms only.
+ *
+ * Galleries of at least {@code recognizer.index.minSamples} samples are
+ * searched through a {@link GalleryIndex} instead of a full scan.
+ *
+ * Model file (big-endian): int magic 'JLB1', int radius, neighbors, gridX,
+ * gridY, count, then count labels and count histograms.
+ */
+public class JavaLbphEngine implements RecognizerEngine {
+
+    private static final int MAGIC = 0x4A4C4231; // "JLB1"
+    // Below this many samples a single thread is faster than splitting the scan.
+    private static final int PARALLEL_MIN_SAMPLES = 2048;
+
+    private final LbphFeatures features;
+    private final GalleryIndex.Settings indexSettings;
+
+    public JavaLbphEngine() {
+        this(new LbphFeatures(), GalleryIndex.Settings.disabled());
+    }
+
+    public JavaLbphEngine(GalleryIndex.Settings indexSettings) {
+        this(new LbphFeatures(), indexSettings);
+    }
+
+    public JavaLbphEngine(LbphFeatures features, GalleryIndex.Settings indexSettings) {
+        this.features = features;
+        this.indexSettings = indexSettings;
+    }
+
+    @Override
+    public String name() { return "java"; }
+
+    @Override
+    public RecognizerModel train(MatVector faces, int[] labels) {
+        return new Model(features, new Gallery(features.length(), (int) faces.size()), 0, indexSettings, null)
+                .withSamples(faces, labels);
+    }
+
+    @Override
+    public RecognizerModel load(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(24);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not a Java LBPH model: " + filePath);
+            LbphFeatures stored = new LbphFeatures(header.getInt(), header.getInt(), header.getInt(), header.getInt());
+            int count = header.getInt();
+            Gallery gallery = new Gallery(stored.length(), count);
+            ByteBuffer labelBytes = ByteBuffer.allocate(4 * count);
+            readFully(channel, labelBytes);
+            labelBytes.flip();
+            labelBytes.asIntBuffer().get(gallery.labels, 0, count);
+            ByteBuffer row = ByteBuffer.allocate(4 * stored.length());
+            for (int i = 0; i < count; i++) {
+                row.clear();
+                readFully(channel, row);
+                row.flip();
+                row.asFloatBuffer().get(gallery.histograms, i * stored.length(), stored.length());
+            }
+            gallery.used.set(count);
+            return new Model(stored, gallery, count, indexSettings,
+                    GalleryIndex.build(indexSettings, stored, gallery.histograms, count));
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Model file is truncated");
+        }
+    }
+
+    /**
+     * Append-only sample storage shared by successive models. A model reads
+     * the first {@code count} rows only, so rows added for a newer model never
+     * change what an older one sees.
+     */
+    private static final class Gallery {
+        final int length;
+        final float[] histograms;
+        final int[] labels;
+        final AtomicInteger used = new AtomicInteger();
+
+        Gallery(int length, int capacity) {
+            if ((long) length * capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Gallery of " + capacity + " samples does not fit in one array");
+            }
+            this.length = length;
+            this.histograms = new float[length * Math.max(1, capacity)];
+            this.labels = new int[Math.max(1, capacity)];
+        }
+
+        int capacity() { return labels.length; }
+    }
+
+    /** A gallery row and its distance to the query. */
+    private static final class Match {
+        static final Match NONE = new Match(-1, Double.MAX_VALUE);
+
+        final int index;
+        final double distance;
+
+        Match(int index, double distance) {
+            this.index = index;
+            this.distance = distance;
+        }
+
+        /** The closer match; on a tie the earlier row, as a sequential scan would pick. */
+        static Match closer(Match a, Match b) {
+            if (b.index < 0) return a;
+            if (a.index < 0) return b;
+            if (a.distance != b.distance) return a.distance < b.distance ? a : b;
+            return a.index < b.index ? a : b;
+        }
+    }
+
+    private static final class Model implements RecognizerModel {
+        private final LbphFeatures features;
+        private final Gallery gallery;
+        private final int count;
+        private final GalleryIndex.Settings indexSettings;
+        private final GalleryIndex index;
+        private final Set<Integer> labels = new HashSet<>();
+
+        Model(LbphFeatures features, Gallery gallery, int count, GalleryIndex.Settings indexSettings, GalleryIndex index) {
+            this.features = features;
+            this.gallery = gallery;
+            this.count = count;
+            this.indexSettings = indexSettings;
+            this.index = index;
+            for (int i = 0; i < count; i++) labels.add(gallery.labels[i]);
+        }
+
+        @Override
+        public void predict(Mat face, Set<Integer> skipLabels, int[] label, double[] distance) {
+            label[0] = -1;
+            distance[0] = Double.MAX_VALUE;
+            if (count == 0) return;
+            float[] query = histogramOf(face);
+            Match best;
+            if (index == null) {
+                best = scan(query, skipLabels, null, count);
+            } else {
+                int[] candidates = index.candidates(query);
+                best = scan(query, skipLabels, candidates, candidates.length);
+                if (index.sampleRecall()) checkRecall(query, skipLabels, best);
+            }
+            if (best.index < 0) return;
+            label[0] = gallery.labels[best.index];
+            distance[0] = best.distance;
+        }
+
+        /** Runs the exact scan in the background and records whether the index found the same label. */
+        private void checkRecall(float[] query, Set<Integer> skipLabels, Match indexed) {
+            GalleryIndex sampledIndex = index;
+            ForkJoinPool.commonPool().execute(() -> {
+                Match exact = scan(query, skipLabels, null, count);
+                int expected = exact.index < 0 ? -1 : gallery.labels[exact.index];
+                int found = indexed.index < 0 ? -1 : gallery.labels[indexed.index];
+                sampledIndex.recordRecall(expected == found);
+            });
+        }
+
+        /**
+         * The closest of {@code n} samples: rows 0..n-1, or {@code rows[0..n-1]}
+         * if given. Large scans are split across the common pool.
+         */
+        private Match scan(float[] query, Set<Integer> skipLabels, int[] rows, int n) {
+            if (n < PARALLEL_MIN_SAMPLES) return nearest(query, skipLabels, rows, 0, n);
+            int chunks = Math.max(1, Math.min(n / (PARALLEL_MIN_SAMPLES / 2), Runtime.getRuntime().availableProcessors() * 4));
+            return IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(chunk -> nearest(query, skipLabels, rows,
+                            (int) ((long) n * chunk / chunks), (int) ((long) n * (chunk + 1) / chunks)))
+                    .reduce(Match.NONE, Match::closer);
+        }
+
+        /** The closest sample among positions [from, to); {@link Match#NONE} if every sample is skipped. */
+        private Match nearest(float[] query, Set<Integer> skipLabels, int[] rows, int from, int to) {
+            double bestDistance = Double.MAX_VALUE;
+            int bestIndex = -1;
+            for (int position = from; position < to; position++) {
+                int i = rows == null ? position : rows[position];
+                if (!skipLabels.isEmpty() && skipLabels.contains(gallery.labels[i])) continue;
+                double d = ChiSquare.distance(gallery.histograms, i * gallery.length, query, gallery.length, bestDistance);
+                // Strictly closer, like OpenCV, so ties go to the earlier sample.
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    bestIndex = i;
+                }
+            }
+            return bestIndex < 0 ? Match.NONE : new Match(bestIndex, bestDistance);
+        }
+
+        private float[] histogramOf(Mat face) {
+            if (face.type() != CV_8UC1 || !face.isContinuous()) {
+                throw new IllegalArgumentException("Expected a continuous 8-bit grayscale face");
+            }
+            byte[] pixels = new byte[face.rows() * face.cols()];
+            face.data().get(pixels);
+            return features.histogram(pixels, face.rows(), face.cols());
+        }
+
+        @Override
+        public Set<Integer> labels() { return Set.copyOf(labels); }
+
+        @Override
+        public int sampleCount() { return count; }
+
+        @Override
+        public Model withSamples(MatVector faces, int[] newLabels) {
+            int added = (int) faces.size();
+            int total = count + added;
+            Gallery target = gallery;
+            // Append in place only if this model is the newest one on its gallery.
+            if (total > gallery.capacity() || !gallery.used.compareAndSet(count, total)) {
+                target = new Gallery(gallery.length, Math.max(total, total + total / 2));
+                System.arraycopy(gallery.histograms, 0, target.histograms, 0, count * gallery.length);
+                System.arraycopy(gallery.labels, 0, target.labels, 0, count);
+                target.used.set(total);
+            }
+            for (int i = 0; i < added; i++) {
+                Mat face = faces.get(i);
+                byte[] pixels = new byte[face.rows() * face.cols()];
+                face.data().get(pixels);
+                features.histogram(pixels, face.rows(), face.cols(), target.histograms, (count + i) * target.length);
+                target.labels[count + i] = newLabels[i];
+            }
+            GalleryIndex nextIndex = index == null ? null : index.extend(target.histograms, target.length, total);
+            if (nextIndex == null) nextIndex = GalleryIndex.build(indexSettings, features, target.histograms, total);
+            return new Model(features, target, total, indexSettings, nextIndex);
+        }
+
+        @Override
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("samples", count);
+            stats.put("vectorized", ChiSquare.isVectorized());
+            if (index != null) stats.put("index", index.stats());
+            return stats;
+        }
+
+        @Override
+        public void save(String filePath) throws IOException {
+            Path file = Paths.get(filePath);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(24 + 4 * count);
+                header.putInt(MAGIC).putInt(features.getRadius()).putInt(features.getNeighbors())
+                        .putInt(features.getGridX()).putInt(features.getGridY()).putInt(count);
+                header.asIntBuffer().put(Arrays.copyOf(gallery.labels, count));
+                header.position(header.capacity());
+                header.flip();
+                while (header.hasRemaining()) channel.write(header);
+                ByteBuffer row = ByteBuffer.allocate(4 * gallery.length);
+                for (int i = 0; i < count; i++) {
+                    row.clear();
+                    row.asFloatBuffer().put(gallery.histograms, i * gallery.length, gallery.length);
+                    while (row.hasRemaining()) channel.write(row);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.recognition;
+
+/**
+ * LbphFeatures computes the spatial LBP histogram OpenCV's LBPH recognizer
+ * uses as a face descriptor, so the Java engine produces the same
+ * histograms: a circular local binary pattern code per pixel (bilinearly
+ * interpolated neighbours), then a normalized histogram of the codes in each
+ * cell of a {@code gridX x gridY} grid, concatenated into one vector.
+ */
+public final class LbphFeatures {
+
+    private static final float FLT_EPSILON = Math.ulp(1.0f);
+
+    private final int radius;
+    private final int neighbors;
+    private final int gridX;
+    private final int gridY;
+    private final int patterns;
+
+    /** OpenCV's defaults: radius 1, 8 neighbours, 8x8 grid. */
+    public LbphFeatures() {
+        this(1, 8, 8, 8);
+    }
+
+    public LbphFeatures(int radius, int neighbors, int gridX, int gridY) {
+        if (neighbors < 1 || neighbors > 16) throw new IllegalArgumentException("neighbors must be 1..16");
+        this.radius = radius;
+        this.neighbors = neighbors;
+        this.gridX = gridX;
+        this.gridY = gridY;
+        this.patterns = 1 << neighbors;
+    }
+
+    public int getRadius() { return radius; }
+    public int getNeighbors() { return neighbors; }
+    public int getGridX() { return gridX; }
+    public int getGridY() { return gridY; }
+
+    /** Floats per histogram. */
+    public int length() {
+        return gridX * gridY * patterns;
+    }
+
+    public int cells() {
+        return gridX * gridY;
+    }
+
+    public int patterns() {
+        return patterns;
+    }
+
+    /**
+     * Maps each LBP code to its "uniform pattern" bin: codes with at most two
+     * 0/1 transitions around the circle get a bin each, all others share the
+     * last one. For 8 neighbours that is 59 bins instead of 256, which keeps
+     * most of the discriminative power in a quarter of the size.
+     */
+    public int[] uniformMapping() {
+        int[] mapping = new int[patterns];
+        int next = 0;
+        for (int code = 0; code < patterns; code++) {
+            int rotated = ((code << 1) | (code >>> (neighbors - 1))) & (patterns - 1);
+            if (Integer.bitCount(code ^ rotated) <= 2) mapping[code] = next++;
+            else mapping[code] = -1;
+        }
+        for (int code = 0; code < patterns; code++) {
+            if (mapping[code] < 0) mapping[code] = next;
+        }
+        return mapping;
+    }
+
+    /** Number of bins {@link #uniformMapping()} maps to. */
+    public int uniformBins() {
+        return neighbors * (neighbors - 1) + 3;
+    }
+
+    /** The histogram of an 8-bit grayscale image given as row-major pixels. */
+    public float[] histogram(byte[] pixels, int rows, int cols) {
+        float[] histogram = new float[length()];
+        histogram(pixels, rows, cols, histogram, 0);
+        return histogram;
+    }
+
+    public void histogram(byte[] pixels, int rows, int cols, float[] out, int offset) {
+        int codeRows = rows - 2 * radius;
+        int codeCols = cols - 2 * radius;
+        int[] codes = codes(pixels, rows, cols, codeRows, codeCols);
+        int cellWidth = codeCols / gridX;
+        int cellHeight = codeRows / gridY;
+        float scale = (float) (1.0 / (cellWidth * cellHeight));
+        int[] counts = new int[patterns];
+        int cell = 0;
+        for (int gy = 0; gy < gridY; gy++) {
+            for (int gx = 0; gx < gridX; gx++) {
+                java.util.Arrays.fill(counts, 0);
+                for (int y = gy * cellHeight; y < (gy + 1) * cellHeight; y++) {
+                    int row = y * codeCols;
+                    for (int x = gx * cellWidth; x < (gx + 1) * cellWidth; x++) {
+                        counts[codes[row + x]]++;
+                    }
+                }
+                int base = offset + cell * patterns;
+                for (int p = 0; p < patterns; p++) {
+                    out[base + p] = counts[p] * scale;
+                }
+                cell++;
+            }
+        }
+    }
+
+    /**
+     * Extended LBP codes, computed the way OpenCV's elbp does, including its
+     * float rounding: every neighbour is bilinearly interpolated, even those
+     * that fall on a pixel.
+     */
+    private int[] codes(byte[] pixels, int rows, int cols, int codeRows, int codeCols) {
+        int[] topLeft = new int[neighbors];
+        int[] topRight = new int[neighbors];
+        int[] bottomLeft = new int[neighbors];
+        int[] bottomRight = new int[neighbors];
+        float[] w1 = new float[neighbors];
+        float[] w2 = new float[neighbors];
+        float[] w3 = new float[neighbors];
+        float[] w4 = new float[neighbors];
+        for (int n = 0; n < neighbors; n++) {
+            float x = (float) (radius * Math.cos(2.0 * Math.PI * n / (float) neighbors));
+            float y = (float) (-radius * Math.sin(2.0 * Math.PI * n / (float) neighbors));
+            int fx = (int) Math.floor(x);
+            int fy = (int) Math.floor(y);
+            int cx = (int) Math.ceil(x);
+            int cy = (int) Math.ceil(y);
+            float ty = y - fy;
+            float tx = x - fx;
+            w1[n] = (1 - tx) * (1 - ty);
+            w2[n] = tx * (1 - ty);
+            w3[n] = (1 - tx) * ty;
+            w4[n] = tx * ty;
+            // Offsets relative to the centre pixel.
+            topLeft[n] = fy * cols + fx;
+            topRight[n] = fy * cols + cx;
+            bottomLeft[n] = cy * cols + fx;
+            bottomRight[n] = cy * cols + cx;
+        }
+        int[] codes = new int[codeRows * codeCols];
+        for (int i = radius; i < rows - radius; i++) {
+            int out = (i - radius) * codeCols - radius;
+            for (int j = radius; j < cols - radius; j++) {
+                int center = i * cols + j;
+                int c = pixels[center] & 0xFF;
+                int code = 0;
+                for (int n = 0; n < neighbors; n++) {
+                    float t = w1[n] * (pixels[center + topLeft[n]] & 0xFF) + w2[n] * (pixels[center + topRight[n]] & 0xFF)
+                            + w3[n] * (pixels[center + bottomLeft[n]] & 0xFF) + w4[n] * (pixels[center + bottomRight[n]] & 0xFF);
+                    if (t > c || Math.abs(t - c) < FLT_EPSILON) code |= 1 << n;
+                }
+                codes[out + j] = code;
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ModelSnapshot is one published state of the recognizer: the trained
+ * {@link RecognizerModel}, the label-to-name map it answers with and the
+ * labels it must skip because their user was deleted. Snapshots are never changed after they are
+ * published; training, updates and deletions build a new one and swap it in,
+ * so predictions always see a model and label map that belong together.
+ *
+ * A replaced model is not closed explicitly, since predictions that started
+ * on it may still be running. Its memory is freed once the last of
+ * them lets go and the snapshot is garbage collected.
+ */
+public final class ModelSnapshot {
+
+    private final long version;
+    private final RecognizerModel recognizer;
+    private final Set<Integer> modelLabels;
+    private final Map<Integer, String> labelNames;
+    private final Set<Integer> removedLabels;
+
+    private ModelSnapshot(long version, RecognizerModel recognizer, Set<Integer> modelLabels,
+                          Map<Integer, String> labelNames, Set<Integer> removedLabels) {
+        this.version = version;
+        this.recognizer = recognizer;
+        this.modelLabels = modelLabels;
+        this.labelNames = labelNames;
+        this.removedLabels = removedLabels;
+    }
+
+    /** Version 0: no model yet, only the names of the users in the database. */
+    public static ModelSnapshot untrained(Map<Integer, String> labelNames) {
+        return new ModelSnapshot(0, null, Set.of(), Map.copyOf(labelNames), Set.of());
+    }
+
+    /**
+     * The next version with a new model. Labels still removed in this snapshot
+     * stay removed, and labels of the model that have no user in the label
+     * map (e.g. a model file older than a deletion) are removed as well.
+     */
+    public ModelSnapshot withRecognizer(RecognizerModel next) {
+        Set<Integer> nextLabels = next.labels();
+        Set<Integer> removed = new HashSet<>();
+        for (int label : nextLabels) {
+            if (removedLabels.contains(label) || !labelNames.containsKey(label)) removed.add(label);
+        }
+        return new ModelSnapshot(version + 1, next, Set.copyOf(nextLabels), labelNames, Set.copyOf(removed));
+    }
+
+    /** The next version without a model, e.g. after the last user was deleted. */
+    public ModelSnapshot withoutRecognizer() {
+        return new ModelSnapshot(version + 1, null, Set.of(), labelNames, Set.of());
+    }
+
+    /** The next version answering with new names; model labels without a name are removed. */
+    public ModelSnapshot withLabelNames(Map<Integer, String> names) {
+        Set<Integer> removed = new HashSet<>(removedLabels);
+        for (int label : modelLabels) {
+            if (!names.containsKey(label)) removed.add(label);
+        }
+        return new ModelSnapshot(version + 1, recognizer, modelLabels, Map.copyOf(names), Set.copyOf(removed));
+    }
+
+    /** The next version skipping {@code label}; the same snapshot if it is not in the model or already removed. */
+    public ModelSnapshot withRemovedLabel(int label) {
+        if (!modelLabels.contains(label) || removedLabels.contains(label)) return this;
+        Set<Integer> removed = new HashSet<>(removedLabels);
+        removed.add(label);
+        return new ModelSnapshot(version + 1, recognizer, modelLabels, labelNames, Set.copyOf(removed));
+    }
+
+    public long getVersion() { return version; }
+    public boolean isTrained() { return recognizer != null; }
+    public Map<Integer, String> getLabelNames() { return labelNames; }
+    public int getRemovedLabelCount() { return removedLabels.size(); }
+
+    public String getLabelName(int label) {
+        return labelNames.getOrDefault(label, "Unknown");
+    }
+
+    /** Number of training samples in the model. */
+    public int getSampleCount() {
+        return recognizer == null ? 0 : recognizer.sampleCount();
+    }
+
+    /** The model itself, e.g. to add samples to; null without a model. */
+    public RecognizerModel getRecognizer() {
+        return recognizer;
+    }
+
+    /**
+     * Nearest training sample for an equalized model-size face. Label -1 if
+     * there is no model or every sample belongs to a removed label. Models
+     * are read-only, so snapshots are shared by all threads.
+     */
+    public void predict(Mat face, int[] predictedLabel, double[] confidence) {
+        predictedLabel[0] = -1;
+        confidence[0] = Double.MAX_VALUE;
+        if (recognizer == null) return;
+        recognizer.predict(face, removedLabels, predictedLabel, confidence);
+    }
+
+    public void save(String filePath) throws IOException {
+        if (recognizer != null) recognizer.save(filePath);
+    }
+}
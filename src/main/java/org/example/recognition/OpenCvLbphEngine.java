@@ -0,0 +1,226 @@
+package org.example.recognition;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.indexer.IntIndexer;
+import org.bytedeco.opencv.opencv_core.FileStorage;
+import org.bytedeco.opencv.opencv_core.IntDoublePairVector;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_face.LBPHFaceRecognizer;
+import org.bytedeco.opencv.opencv_face.StandardCollector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32SC1;
+
+/**
+ * OpenCvLbphEngine wraps OpenCV's {@link LBPHFaceRecognizer} with its default
+ * parameters. Models are saved in OpenCV's YAML format.
+ *
+ * LBPH update() changes a recognizer in place and OpenCV has no copy call,
+ * so a model with added samples cannot simply update the published one.
+ * Instead it keeps the published recognizers and adds a small delta
+ * recognizer trained on the new samples only; predict takes the nearest
+ * match over all of them. After {@value Model#MAX_DELTAS} deltas the next
+ * update folds them into a copy of the base recognizer, made in memory.
+ * That copy is O(N) in the model size, but it is paid once every few
+ * updates instead of on every one.
+ */
+public class OpenCvLbphEngine implements RecognizerEngine {
+
+    @Override
+    public String name() { return "opencv"; }
+
+    @Override
+    public RecognizerModel train(MatVector faces, int[] labels) {
+        LBPHFaceRecognizer recognizer = LBPHFaceRecognizer.create();
+        Mat labelsMat = toMat(labels);
+        recognizer.train(faces, labelsMat);
+        labelsMat.release();
+        return new Model(recognizer, List.of(), new MatVector(), new int[0]);
+    }
+
+    @Override
+    public RecognizerModel load(String filePath) throws IOException {
+        LBPHFaceRecognizer recognizer = LBPHFaceRecognizer.create();
+        try {
+            recognizer.read(filePath);
+        } catch (RuntimeException e) {
+            recognizer.close();
+            throw new IOException("Not an OpenCV LBPH model: " + filePath, e);
+        }
+        return new Model(recognizer, List.of(), new MatVector(), new int[0]);
+    }
+
+    private static Mat toMat(int[] labels) {
+        Mat labelsMat = new Mat(labels.length, 1, CV_32SC1);
+        IntIndexer indexer = labelsMat.createIndexer();
+        for (int i = 0; i < labels.length; i++) {
+            indexer.put(i, labels[i]);
+        }
+        indexer.close();
+        return labelsMat;
+    }
+
+    /** Copies a recognizer through an in-memory YAML document; O(N) in its samples. */
+    private static LBPHFaceRecognizer copyOf(LBPHFaceRecognizer recognizer) throws IOException {
+        try (FileStorage out = new FileStorage(".yml", FileStorage.WRITE | FileStorage.MEMORY)) {
+            recognizer.write(out);
+            try (BytePointer yaml = out.releaseAndGetString();
+                 FileStorage in = new FileStorage(yaml, FileStorage.READ | FileStorage.MEMORY)) {
+                LBPHFaceRecognizer copy = LBPHFaceRecognizer.create();
+                copy.read(in.root());
+                return copy;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Could not copy the OpenCV LBPH model", e);
+        }
+    }
+
+    private static final class Model implements RecognizerModel {
+        static final int MAX_DELTAS = 4;
+
+        private final LBPHFaceRecognizer base;
+        // Recognizers trained on the samples of one update each, and those samples, oldest first.
+        private final List<LBPHFaceRecognizer> deltas;
+        private final MatVector deltaFaces;
+        private final int[] deltaLabels;
+        private final Set<Integer> labels = new HashSet<>();
+        private final int sampleCount;
+
+        Model(LBPHFaceRecognizer base, List<LBPHFaceRecognizer> deltas, MatVector deltaFaces, int[] deltaLabels) {
+            this.base = base;
+            this.deltas = deltas;
+            this.deltaFaces = deltaFaces;
+            this.deltaLabels = deltaLabels;
+            Mat mat = base.getLabels();
+            IntIndexer indexer = mat.createIndexer();
+            for (int i = 0; i < mat.rows(); i++) {
+                labels.add(indexer.get(i));
+            }
+            indexer.close();
+            for (int label : deltaLabels) {
+                labels.add(label);
+            }
+            this.sampleCount = mat.rows() + deltaLabels.length;
+            mat.close();
+        }
+
+        /** LBPH predict only reads the model, so one instance serves all threads. */
+        @Override
+        public void predict(Mat face, Set<Integer> skipLabels, int[] label, double[] distance) {
+            label[0] = -1;
+            distance[0] = Double.MAX_VALUE;
+            nearest(base, face, skipLabels, label, distance);
+            for (LBPHFaceRecognizer delta : deltas) {
+                nearest(delta, face, skipLabels, label, distance);
+            }
+        }
+
+        /** Replaces label and distance if {@code recognizer} has a closer sample that is not skipped. */
+        private static void nearest(LBPHFaceRecognizer recognizer, Mat face, Set<Integer> skipLabels,
+                                    int[] label, double[] distance) {
+            if (skipLabels.isEmpty()) {
+                int[] found = {-1};
+                double[] foundDistance = {Double.MAX_VALUE};
+                recognizer.predict(face, found, foundDistance);
+                if (found[0] != -1 && foundDistance[0] < distance[0]) {
+                    label[0] = found[0];
+                    distance[0] = foundDistance[0];
+                }
+                return;
+            }
+            StandardCollector collector = StandardCollector.create();
+            recognizer.predict_collect(face, collector);
+            IntDoublePairVector results = collector.getResults(true);
+            for (long i = 0; i < results.size(); i++) {
+                if (!skipLabels.contains(results.first(i))) {
+                    if (results.second(i) < distance[0]) {
+                        label[0] = results.first(i);
+                        distance[0] = results.second(i);
+                    }
+                    break;
+                }
+            }
+            results.close();
+            collector.close();
+        }
+
+        @Override
+        public Set<Integer> labels() { return Set.copyOf(labels); }
+
+        @Override
+        public int sampleCount() { return sampleCount; }
+
+        /**
+         * Adds a delta recognizer trained on {@code faces} alone, so the cost
+         * depends on the new samples, not on the model size. Once there are
+         * {@link #MAX_DELTAS} deltas, all staged samples are folded into a
+         * copy of the base instead.
+         */
+        @Override
+        public RecognizerModel withSamples(MatVector faces, int[] newLabels) throws IOException {
+            // The caller owns faces; the model keeps its own copies for the next fold.
+            MatVector staged = new MatVector();
+            for (long i = 0; i < deltaFaces.size(); i++) {
+                Mat kept = deltaFaces.get(i);
+                staged.push_back(kept);
+                kept.close();
+            }
+            for (long i = 0; i < faces.size(); i++) {
+                Mat copy = faces.get(i).clone();
+                staged.push_back(copy);
+                copy.close();
+            }
+            int[] stagedLabels = new int[deltaLabels.length + newLabels.length];
+            System.arraycopy(deltaLabels, 0, stagedLabels, 0, deltaLabels.length);
+            System.arraycopy(newLabels, 0, stagedLabels, deltaLabels.length, newLabels.length);
+
+            if (deltas.size() >= MAX_DELTAS) {
+                LBPHFaceRecognizer folded = copyOf(base);
+                Mat labelsMat = toMat(stagedLabels);
+                folded.update(staged, labelsMat);
+                labelsMat.release();
+                staged.close();
+                return new Model(folded, List.of(), new MatVector(), new int[0]);
+            }
+            LBPHFaceRecognizer delta = LBPHFaceRecognizer.create();
+            Mat labelsMat = toMat(newLabels);
+            delta.train(faces, labelsMat);
+            labelsMat.release();
+            List<LBPHFaceRecognizer> nextDeltas = new ArrayList<>(deltas);
+            nextDeltas.add(delta);
+            return new Model(base, List.copyOf(nextDeltas), staged, stagedLabels);
+        }
+
+        @Override
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("samples", sampleCount);
+            stats.put("deltas", deltas.size());
+            stats.put("deltaSamples", deltaLabels.length);
+            return stats;
+        }
+
+        /** Staged samples are written too; that needs a merged copy of the base, O(N) like a fold. */
+        @Override
+        public void save(String filePath) throws IOException {
+            if (deltas.isEmpty()) {
+                base.save(filePath);
+                return;
+            }
+            LBPHFaceRecognizer merged = copyOf(base);
+            Mat labelsMat = toMat(deltaLabels);
+            merged.update(deltaFaces, labelsMat);
+            labelsMat.release();
+            merged.save(filePath);
+            merged.close();
+        }
+    }
+}
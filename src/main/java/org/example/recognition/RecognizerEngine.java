@@ -0,0 +1,49 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.example.vision.ModelResources;
+
+import java.io.IOException;
+
+/**
+ * RecognizerEngine builds the face models the service predicts with. An
+ * engine turns equalized, model-size face crops into a {@link RecognizerModel}
+ * and reads back models it saved earlier. Which engine is used is chosen with
+ * {@code recognizer.engine} ({@link #forName}).
+ */
+public interface RecognizerEngine {
+
+    String name();
+
+    /** A model trained on {@code faces}, where {@code labels[i]} is the user of {@code faces.get(i)}. */
+    RecognizerModel train(MatVector faces, int[] labels);
+
+    /** A model previously written with {@link RecognizerModel#save}. */
+    RecognizerModel load(String filePath) throws IOException;
+
+    /**
+     * "opencv" (default), "java" or "sface"; unknown names fall back to the
+     * default with a warning. The gallery index is only used by the Java
+     * engine. SFace reads its ONNX network from {@code sfaceModel} if set,
+     * otherwise from {@link SFaceEngine#MODEL_RESOURCE} on the classpath; if
+     * the network cannot be loaded the default engine is used.
+     */
+    static RecognizerEngine forName(String name, GalleryIndex.Settings index, String sfaceModel) {
+        if ("java".equalsIgnoreCase(name)) return new JavaLbphEngine(index);
+        if ("sface".equalsIgnoreCase(name)) {
+            try {
+                String modelPath = sfaceModel == null || sfaceModel.isBlank()
+                        ? ModelResources.extract(SFaceEngine.MODEL_RESOURCE, ".onnx")
+                        : sfaceModel;
+                return new SFaceEngine(modelPath, Runtime.getRuntime().availableProcessors());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not load the SFace network, using opencv: " + e.getMessage());
+                return new OpenCvLbphEngine();
+            }
+        }
+        if (name != null && !name.isBlank() && !"opencv".equalsIgnoreCase(name)) {
+            System.err.println("Unknown recognizer.engine '" + name + "', using opencv.");
+        }
+        return new OpenCvLbphEngine();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A trained face model. Models are never changed once built: adding samples
+ * returns a new model, so a published model can be shared by every predicting
+ * thread without locks.
+ */
+public interface RecognizerModel {
+
+    /**
+     * Nearest training sample to an equalized model-size face, ignoring
+     * samples whose label is in {@code skipLabels}. Sets label -1 and
+     * distance {@link Double#MAX_VALUE} when nothing is left to match.
+     * Distances are LBPH chi-square distances: lower is closer.
+     */
+    void predict(Mat face, Set<Integer> skipLabels, int[] label, double[] distance);
+
+    /** The distinct labels of the training samples. */
+    Set<Integer> labels();
+
+    int sampleCount();
+
+    /** A new model holding this model's samples plus {@code faces}. */
+    RecognizerModel withSamples(MatVector faces, int[] labels) throws IOException;
+
+    void save(String filePath) throws IOException;
+
+    /** Engine-specific figures for /metrics. */
+    default Map<String, Object> stats() {
+        return Map.of("samples", sampleCount());
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_objdetect.FaceRecognizerSF;
+import org.example.vision.DetectorPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_BACKEND_OPENCV;
+import static org.bytedeco.opencv.global.opencv_dnn.DNN_TARGET_CPU;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_GRAY2BGR;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * SFaceEngine recognizes faces by embedding: OpenCV's SFace network
+ * ({@link FaceRecognizerSF}, run on the CPU by the DNN module) turns each
+ * face crop into a fixed-size feature vector, and a face is matched to the
+ * training sample with the highest cosine similarity. Unlike LBPH, the cost
+ * per sample is one short dot product, and a new sample is one more row:
+ * enrolling never retrains anything.
+ *
+ * Embeddings are stored unit-length, row by row, in one contiguous
+ * {@code float[]} and searched with {@link CosineTopK}. Like the Java LBPH
+ * gallery, the array is append-only and shared by successive models.
+ *
+ * The network expects aligned 112x112 color faces. The engine receives the
+ * service's equalized grayscale crops, so it replicates the gray channel;
+ * this costs some accuracy against aligned color input but keeps all
+ * engines on the same crops.
+ *
+ * Distances follow the LBPH scale the app's thresholds were chosen for:
+ * {@code (1 - cosine) * DISTANCE_SCALE}, with SFace's recommended match
+ * threshold (cosine 0.363) at 80.
+ *
+ * Model file (big-endian): int magic 'SFE1', int dimension, count, then
+ * count labels and count embeddings.
+ */
+public class SFaceEngine implements RecognizerEngine {
+
+    public static final String MODEL_RESOURCE = "face_recognition_sface_2021dec.onnx";
+
+    private static final int MAGIC = 0x53464531; // "SFE1"
+    private static final Size INPUT_SIZE = new Size(112, 112);
+    private static final double MATCH_COSINE = 0.363;
+    static final double DISTANCE_SCALE = 80 / (1 - MATCH_COSINE);
+
+    private final DetectorPool<FaceRecognizerSF> networks;
+    private final int dimension;
+
+    /**
+     * @param modelPath SFace ONNX file
+     * @param poolSize  network instances kept for embedding in parallel
+     */
+    public SFaceEngine(String modelPath, int poolSize) {
+        this.networks = new DetectorPool<>("sface", () -> create(modelPath), poolSize);
+        this.dimension = probeDimension();
+    }
+
+    private static FaceRecognizerSF create(String modelPath) {
+        FaceRecognizerSF network = FaceRecognizerSF.create(modelPath, "", DNN_BACKEND_OPENCV, DNN_TARGET_CPU);
+        if (network == null || network.isNull()) throw new IllegalStateException("Could not load the SFace model from " + modelPath);
+        return network;
+    }
+
+    /** Embedding size of the loaded network, from one run on a blank face. */
+    private int probeDimension() {
+        Mat blank = new Mat(INPUT_SIZE.height(), INPUT_SIZE.width(), CV_8UC1, new Scalar(128.0));
+        Mat feature = feature(blank);
+        int size = (int) feature.total();
+        feature.close();
+        blank.close();
+        return size;
+    }
+
+    @Override
+    public String name() { return "sface"; }
+
+    @Override
+    public RecognizerModel train(MatVector faces, int[] labels) {
+        return new Model(new Embeddings(dimension, (int) faces.size()), 0).withSamples(faces, labels);
+    }
+
+    @Override
+    public RecognizerModel load(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not an SFace model: " + filePath);
+            int storedDimension = header.getInt();
+            if (storedDimension != dimension) {
+                throw new IOException("Model has " + storedDimension + "-value embeddings, the network produces " + dimension);
+            }
+            int count = header.getInt();
+            Embeddings embeddings = new Embeddings(dimension, count);
+            ByteBuffer body = ByteBuffer.allocate(4 * count + 4 * count * dimension);
+            readFully(channel, body);
+            body.flip();
+            body.asIntBuffer().get(embeddings.labels, 0, count);
+            body.position(4 * count);
+            body.asFloatBuffer().get(embeddings.rows, 0, count * dimension);
+            embeddings.used.set(count);
+            return new Model(embeddings, count);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Model file is truncated");
+        }
+    }
+
+    /** The network output for a grayscale face of any size. */
+    private Mat feature(Mat face) {
+        Mat color = new Mat();
+        cvtColor(face, color, COLOR_GRAY2BGR);
+        Mat input = new Mat();
+        resize(color, input, INPUT_SIZE);
+        color.close();
+        Mat feature = new Mat();
+        FaceRecognizerSF network = networks.acquire();
+        try {
+            network.feature(input, feature);
+        } finally {
+            networks.release(network);
+            input.close();
+        }
+        return feature;
+    }
+
+    /** Writes the unit-length embedding of {@code face} to {@code out} at {@code offset}. */
+    private void embed(Mat face, float[] out, int offset) {
+        Mat feature = feature(face);
+        FloatBuffer values = feature.createBuffer();
+        values.get(out, offset, dimension);
+        feature.close();
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) norm += out[offset + i] * out[offset + i];
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0f;
+        for (int i = 0; i < dimension; i++) out[offset + i] *= scale;
+    }
+
+    /** Append-only embedding storage shared by successive models; a model reads its first {@code count} rows only. */
+    private static final class Embeddings {
+        final int dimension;
+        final float[] rows;
+        final int[] labels;
+        final AtomicInteger used = new AtomicInteger();
+
+        Embeddings(int dimension, int capacity) {
+            this.dimension = dimension;
+            this.rows = new float[dimension * Math.max(1, capacity)];
+            this.labels = new int[Math.max(1, capacity)];
+        }
+
+        int capacity() { return labels.length; }
+    }
+
+    private final class Model implements RecognizerModel {
+        private final Embeddings embeddings;
+        private final int count;
+        private final Set<Integer> labels = new HashSet<>();
+
+        Model(Embeddings embeddings, int count) {
+            this.embeddings = embeddings;
+            this.count = count;
+            for (int i = 0; i < count; i++) labels.add(embeddings.labels[i]);
+        }
+
+        @Override
+        public void predict(Mat face, Set<Integer> skipLabels, int[] label, double[] distance) {
+            label[0] = -1;
+            distance[0] = Double.MAX_VALUE;
+            if (count == 0) return;
+            float[] query = new float[dimension];
+            embed(face, query, 0);
+            CosineTopK.Hit[] best = CosineTopK.search(embeddings.rows, dimension, embeddings.labels, count, query, 1, skipLabels);
+            if (best.length == 0) return;
+            label[0] = embeddings.labels[best[0].row];
+            distance[0] = Math.max(0, (1 - best[0].similarity) * DISTANCE_SCALE);
+        }
+
+        @Override
+        public Set<Integer> labels() { return Set.copyOf(labels); }
+
+        @Override
+        public int sampleCount() { return count; }
+
+        @Override
+        public Model withSamples(MatVector faces, int[] newLabels) {
+            int added = (int) faces.size();
+            int total = count + added;
+            Embeddings target = embeddings;
+            // Append in place only if this model is the newest one on its storage.
+            if (total > embeddings.capacity() || !embeddings.used.compareAndSet(count, total)) {
+                target = new Embeddings(dimension, Math.max(total, total + total / 2));
+                System.arraycopy(embeddings.rows, 0, target.rows, 0, count * dimension);
+                System.arraycopy(embeddings.labels, 0, target.labels, 0, count);
+                target.used.set(total);
+            }
+            Embeddings destination = target;
+            IntStream.range(0, added).parallel().forEach(i -> embed(faces.get(i), destination.rows, (count + i) * dimension));
+            System.arraycopy(newLabels, 0, target.labels, count, added);
+            return new Model(target, total);
+        }
+
+        @Override
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("samples", count);
+            stats.put("dimension", dimension);
+            stats.put("vectorized", CosineTopK.isVectorized());
+            stats.put("networks", networks.stats());
+            return stats;
+        }
+
+        @Override
+        public void save(String filePath) throws IOException {
+            Path file = Paths.get(filePath);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(12 + 4 * count + 4 * count * dimension);
+                buffer.putInt(MAGIC).putInt(dimension).putInt(count);
+                buffer.asIntBuffer().put(Arrays.copyOf(embeddings.labels, count));
+                buffer.position(12 + 4 * count);
+                buffer.asFloatBuffer().put(embeddings.rows, 0, count * dimension);
+                buffer.position(buffer.capacity());
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
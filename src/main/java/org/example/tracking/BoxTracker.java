@@ -0,0 +1,127 @@
+package org.example.tracking;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * BoxTracker carries detected boxes across the frames where the detector is
+ * not run. Detections are associated with existing tracks by greedy IoU
+ * matching; between detections each track moves along its smoothed velocity
+ * and loses confidence, and tracks that fall below the floor are dropped.
+ *
+ * Each track carries an arbitrary payload (e.g. the overlay label or the
+ * recognized identity) that is refreshed whenever it is matched.
+ *
+ * Not thread-safe: owned by one camera's analyze stage.
+ */
+public class BoxTracker<T> {
+
+    private static final double VELOCITY_SMOOTHING = 0.5;
+    private static final double IOU_THRESHOLD = 0.3;
+    private static final double MISS_DECAY = 0.5;
+    private static final double MIN_CONFIDENCE = 0.2;
+
+    private final double decay;
+    private final List<Track<T>> tracks = new ArrayList<>();
+    private int nextId = 1;
+
+    /** @param decay confidence multiplier applied on every frame a track is only predicted */
+    public BoxTracker(double decay) {
+        this.decay = decay;
+    }
+
+    /**
+     * Feeds a detector result. {@code payloads} is parallel to {@code detections}.
+     * Returns the track each detection was assigned to, in the same order.
+     */
+    public List<Track<T>> update(List<Rect> detections, List<T> payloads) {
+        List<Track<T>> assigned = update(detections);
+        for (int d = 0; d < assigned.size(); d++) {
+            assigned.get(d).setPayload(payloads.get(d));
+        }
+        return assigned;
+    }
+
+    /**
+     * Feeds a detector result without replacing payloads: matched tracks keep
+     * theirs and new tracks start with none, so the caller can decide per track
+     * whether its payload needs recomputing.
+     */
+    public List<Track<T>> update(List<Rect> detections) {
+        List<Track<T>> assigned = new ArrayList<>(Collections.nCopies(detections.size(), null));
+        boolean[] trackMatched = new boolean[tracks.size()];
+
+        // Greedy association: repeatedly take the best remaining (track, detection) pair.
+        while (true) {
+            double best = IOU_THRESHOLD;
+            int bestTrack = -1;
+            int bestDetection = -1;
+            for (int t = 0; t < tracks.size(); t++) {
+                if (trackMatched[t]) continue;
+                for (int d = 0; d < detections.size(); d++) {
+                    if (assigned.get(d) != null) continue;
+                    double iou = tracks.get(t).iou(detections.get(d));
+                    if (iou > best) {
+                        best = iou;
+                        bestTrack = t;
+                        bestDetection = d;
+                    }
+                }
+            }
+            if (bestTrack < 0) break;
+            Track<T> track = tracks.get(bestTrack);
+            track.correct(detections.get(bestDetection), VELOCITY_SMOOTHING);
+            trackMatched[bestTrack] = true;
+            assigned.set(bestDetection, track);
+        }
+
+        for (int t = 0; t < trackMatched.length; t++) {
+            if (!trackMatched[t]) tracks.get(t).miss(MISS_DECAY);
+        }
+        for (int d = 0; d < detections.size(); d++) {
+            if (assigned.get(d) == null) {
+                Track<T> track = new Track<>(nextId++, detections.get(d));
+                tracks.add(track);
+                assigned.set(d, track);
+            }
+        }
+        prune();
+        return assigned;
+    }
+
+    /** Advances every track by its velocity for a frame on which the detector did not run. */
+    public void predict() {
+        for (Track<T> track : tracks) {
+            track.predict(decay);
+        }
+        prune();
+    }
+
+    private void prune() {
+        Iterator<Track<T>> it = tracks.iterator();
+        while (it.hasNext()) {
+            if (it.next().getConfidence() < MIN_CONFIDENCE) it.remove();
+        }
+    }
+
+    public List<Track<T>> getTracks() { return Collections.unmodifiableList(tracks); }
+
+    public List<Rect> currentRects() {
+        List<Rect> rects = new ArrayList<>(tracks.size());
+        for (Track<T> track : tracks) rects.add(track.getRect());
+        return rects;
+    }
+
+    /** Lowest confidence among live tracks, or 1.0 when there are none. */
+    public double lowestConfidence() {
+        double lowest = 1.0;
+        for (Track<T> track : tracks) lowest = Math.min(lowest, track.getConfidence());
+        return lowest;
+    }
+
+    public void clear() { tracks.clear(); }
+}
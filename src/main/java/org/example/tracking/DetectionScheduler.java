@@ -0,0 +1,79 @@
+package org.example.tracking;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DetectionScheduler runs each detector at its own cadence, e.g. faces every
+ * 3rd analyzed frame and bodies every 10th, and lets the trackers fill the
+ * frames in between. When the trackers' confidence drops below the threshold
+ * the detector is run again on the next frame, and the interval then backs
+ * off (doubling) to the configured value while tracks stay healthy.
+ *
+ * Not thread-safe: owned by one camera's analyze stage.
+ */
+public class DetectionScheduler {
+
+    private final Map<DetectorKind, Cadence> cadences = new EnumMap<>(DetectorKind.class);
+    private final double confidenceThreshold;
+
+    public DetectionScheduler(int faceInterval, int bodyInterval, double confidenceThreshold) {
+        cadences.put(DetectorKind.FACE, new Cadence(faceInterval));
+        cadences.put(DetectorKind.BODY, new Cadence(bodyInterval));
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /** Called once per analyzed frame and detector; true means run the detector on this frame. */
+    public boolean shouldRun(DetectorKind kind) {
+        Cadence cadence = cadences.get(kind);
+        cadence.framesSinceRun++;
+        if (cadence.framesSinceRun >= cadence.currentInterval) {
+            cadence.framesSinceRun = 0;
+            cadence.runs.incrementAndGet();
+            return true;
+        }
+        cadence.skipped.incrementAndGet();
+        return false;
+    }
+
+    /** Reports the weakest track after the frame; low confidence forces an early detection. */
+    public void reportTrackConfidence(DetectorKind kind, double lowestConfidence, boolean ranThisFrame) {
+        Cadence cadence = cadences.get(kind);
+        if (lowestConfidence < confidenceThreshold) {
+            cadence.currentInterval = 1;
+        } else if (ranThisFrame && cadence.currentInterval < cadence.baseInterval) {
+            cadence.currentInterval = Math.min(cadence.baseInterval, cadence.currentInterval * 2);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<DetectorKind, Cadence> e : cadences.entrySet()) {
+            Cadence c = e.getValue();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("baseInterval", c.baseInterval);
+            entry.put("currentInterval", c.currentInterval);
+            entry.put("runs", c.runs.get());
+            entry.put("skipped", c.skipped.get());
+            stats.put(e.getKey().name().toLowerCase(), entry);
+        }
+        return stats;
+    }
+
+    private static class Cadence {
+        final int baseInterval;
+        int currentInterval;
+        int framesSinceRun;
+        final AtomicLong runs = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+
+        Cadence(int baseInterval) {
+            this.baseInterval = Math.max(1, baseInterval);
+            this.currentInterval = this.baseInterval;
+            // Run on the very first frame.
+            this.framesSinceRun = this.baseInterval;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.example.tracking;
+
+/** The detectors whose cadence is controlled by {@link DetectionScheduler}. */
+public enum DetectorKind { FACE, BODY }
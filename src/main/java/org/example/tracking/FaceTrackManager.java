@@ -0,0 +1,153 @@
+package org.example.tracking;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.example.FaceRecognitionService.RecognitionResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * FaceTrackManager follows faces across frames and caches each track's
+ * recognition result, so the recognizer runs once per person instead of once
+ * per frame. A track is re-predicted only when it is new, when its cached
+ * distance is worse than {@code repredictDistance} (LBPH: lower is better),
+ * when the cached result is older than {@code refreshMs}, or when it came
+ * from an older model version than the one now published.
+ *
+ * The predictor may decline a face (return null), e.g. a blurred crop: the
+ * track then keeps its cached result, or, if it has none yet, gets a
+ * {@link RecognitionResult#lowQuality} result, so the face is still shown
+ * and handled as unknown while a later frame may give a usable crop.
+ *
+ * Not thread-safe: owned by one camera's analyze stage.
+ */
+public class FaceTrackManager {
+
+    private final BoxTracker<CachedIdentity> tracker;
+    private final double repredictDistance;
+    private final long refreshMs;
+    private final LongSupplier clock;
+
+    private final AtomicLong predictions = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private volatile int lastFramePredictions = 0;
+    private volatile int trackCount = 0;
+
+    public FaceTrackManager(double decay, double repredictDistance, long refreshMs) {
+        this(decay, repredictDistance, refreshMs, System::currentTimeMillis);
+    }
+
+    /** @param clock the time cached results are aged against */
+    FaceTrackManager(double decay, double repredictDistance, long refreshMs, LongSupplier clock) {
+        this.tracker = new BoxTracker<>(decay);
+        this.repredictDistance = repredictDistance;
+        this.refreshMs = refreshMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Associates the detected faces with tracks and returns one entry per
+     * face, calling {@code predictor} only for tracks whose cache is not usable.
+     * A face the predictor declines and that has no cached result is
+     * returned as a low-quality unknown.
+     */
+    public List<TrackedFace> update(List<Rect> faces, Function<Rect, RecognitionResult> predictor, long modelVersion) {
+        List<Track<CachedIdentity>> assigned = tracker.update(faces);
+        List<TrackedFace> tracked = new ArrayList<>(faces.size());
+        long now = clock.getAsLong();
+        int predicted = 0;
+
+        for (int i = 0; i < faces.size(); i++) {
+            Track<CachedIdentity> track = assigned.get(i);
+            Rect faceRect = faces.get(i);
+            CachedIdentity cached = track.getPayload();
+            if (!needsPrediction(cached, now, modelVersion)) {
+                tracked.add(new TrackedFace(track.getId(), cached.at(faceRect), false));
+                cacheHits.incrementAndGet();
+                continue;
+            }
+            RecognitionResult result = predictor.apply(faceRect);
+            if (result == null) {
+                deferred.incrementAndGet();
+                if (cached == null) {
+                    // Cached with label -1, so the next detection tries the recognizer again.
+                    cached = new CachedIdentity(RecognitionResult.lowQuality(faceRect, modelVersion), now);
+                    track.setPayload(cached);
+                }
+                tracked.add(new TrackedFace(track.getId(), cached.at(faceRect), false));
+                continue;
+            }
+            track.setPayload(new CachedIdentity(result, now));
+            tracked.add(new TrackedFace(track.getId(), result, true));
+            predicted++;
+        }
+        predictions.addAndGet(predicted);
+        lastFramePredictions = predicted;
+        trackCount = tracker.getTracks().size();
+        return tracked;
+    }
+
+    private boolean needsPrediction(CachedIdentity cached, long now, long modelVersion) {
+        if (cached == null) return true;
+        if (cached.result.getModelVersion() < modelVersion) return true;
+        if (cached.result.getLabel() == -1 || cached.result.getConfidence() >= repredictDistance) return true;
+        return now - cached.predictedAt > refreshMs;
+    }
+
+    /** Extrapolates the tracks on a frame where the face detector did not run. */
+    public void predict() {
+        tracker.predict();
+        lastFramePredictions = 0;
+        trackCount = tracker.getTracks().size();
+    }
+
+    /** Every live track at its current (possibly extrapolated) box with its cached result. */
+    public List<TrackedFace> current() {
+        List<TrackedFace> faces = new ArrayList<>();
+        for (Track<CachedIdentity> track : tracker.getTracks()) {
+            if (track.getPayload() == null) continue;
+            faces.add(new TrackedFace(track.getId(), track.getPayload().at(track.getRect()), false));
+        }
+        return faces;
+    }
+
+    public Set<Integer> liveTrackIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (Track<CachedIdentity> track : tracker.getTracks()) ids.add(track.getId());
+        return ids;
+    }
+
+    public double lowestConfidence() { return tracker.lowestConfidence(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracks", trackCount);
+        stats.put("predictsLastFrame", lastFramePredictions);
+        stats.put("predictsTotal", predictions.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("deferred", deferred.get());
+        return stats;
+    }
+
+    private static class CachedIdentity {
+        final RecognitionResult result;
+        final long predictedAt;
+
+        CachedIdentity(RecognitionResult result, long predictedAt) {
+            this.result = result;
+            this.predictedAt = predictedAt;
+        }
+
+        RecognitionResult at(Rect faceRect) {
+            return new RecognitionResult(result.getLabel(), result.getName(), result.getConfidence(), faceRect, result.getModelVersion());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.tracking;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+
+/**
+ * Track is one object followed by a {@link BoxTracker}: its box, a constant
+ * velocity estimate used between detections, and a confidence that decays
+ * slowly on every predicted frame and sharply whenever the detector runs but
+ * fails to find the object again.
+ */
+public class Track<T> {
+    private final int id;
+    private double x, y, width, height;
+    private double vx, vy;
+    private double detectedX, detectedY;
+    private int framesSinceDetection = 0;
+    private double confidence = 1.0;
+    private int misses = 0;
+    private int hits = 1;
+    private T payload;
+
+    Track(int id, Rect rect) {
+        this.id = id;
+        set(rect);
+    }
+
+    private void set(Rect rect) {
+        x = detectedX = rect.x();
+        y = detectedY = rect.y();
+        width = rect.width();
+        height = rect.height();
+        framesSinceDetection = 0;
+    }
+
+    void correct(Rect rect, double smoothing) {
+        // Velocity is per frame, measured between the last two detections.
+        int frames = framesSinceDetection + 1;
+        double dx = (rect.x() - detectedX) / frames;
+        double dy = (rect.y() - detectedY) / frames;
+        vx = smoothing * vx + (1 - smoothing) * dx;
+        vy = smoothing * vy + (1 - smoothing) * dy;
+        set(rect);
+        confidence = 1.0;
+        misses = 0;
+        hits++;
+    }
+
+    void predict(double decay) {
+        x += vx;
+        y += vy;
+        framesSinceDetection++;
+        confidence *= decay;
+    }
+
+    void miss(double decay) {
+        misses++;
+        x += vx;
+        y += vy;
+        framesSinceDetection++;
+        confidence *= decay;
+    }
+
+    public int getId() { return id; }
+    public double getConfidence() { return confidence; }
+    public int getMisses() { return misses; }
+    public int getHits() { return hits; }
+    public T getPayload() { return payload; }
+
+    void setPayload(T payload) { this.payload = payload; }
+
+    public Rect getRect() {
+        return new Rect((int) Math.round(x), (int) Math.round(y), (int) Math.round(width), (int) Math.round(height));
+    }
+
+    double iou(Rect other) {
+        double ix1 = Math.max(x, other.x());
+        double iy1 = Math.max(y, other.y());
+        double ix2 = Math.min(x + width, other.x() + other.width());
+        double iy2 = Math.min(y + height, other.y() + other.height());
+        double inter = Math.max(0, ix2 - ix1) * Math.max(0, iy2 - iy1);
+        double union = width * height + (double) other.width() * other.height() - inter;
+        return union <= 0 ? 0 : inter / union;
+    }
+}
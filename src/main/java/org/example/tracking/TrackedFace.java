@@ -0,0 +1,24 @@
+package org.example.tracking;
+
+import org.example.FaceRecognitionService.RecognitionResult;
+
+/**
+ * TrackedFace is one face seen on a detection frame: its track id, the
+ * recognition result (cached or new) positioned at the current box, and
+ * whether the recognizer actually ran for it on this frame.
+ */
+public class TrackedFace {
+    private final int trackId;
+    private final RecognitionResult result;
+    private final boolean fresh;
+
+    public TrackedFace(int trackId, RecognitionResult result, boolean fresh) {
+        this.trackId = trackId;
+        this.result = result;
+        this.fresh = fresh;
+    }
+
+    public int getTrackId() { return trackId; }
+    public RecognitionResult getResult() { return result; }
+    public boolean isFresh() { return fresh; }
+}
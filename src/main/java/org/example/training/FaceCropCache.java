@@ -0,0 +1,215 @@
+package org.example.training;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+
+/**
+ * FaceCropCache stores the equalized face crops extracted from training
+ * photos, so a retrain only decodes and runs the cascade on photos that are
+ * new or changed. Entries are keyed by the photo's path, size and
+ * modification time.
+ *
+ * File format (big-endian):
+ * <pre>
+ *   int magic 'FCC1', int width, int height, int count
+ *   count x { short pathLength, byte[] utf8Path, long size, long mtime, byte[width*height] crop }
+ * </pre>
+ * Opening reads only the index; each crop is read on demand with a
+ * positional read, so neither the heap nor a mapping holds the whole file.
+ * A new file is written alongside with {@link Writer} and swapped in
+ * atomically, so a crash never leaves a half-written cache behind. The swap
+ * closes this cache first: Windows cannot replace a file that is still open
+ * without delete sharing, and never one that is mapped.
+ */
+public class FaceCropCache {
+
+    private static final int MAGIC = 0x46434331; // "FCC1"
+    private static final int HEADER_BYTES = 16;
+
+    private final Path file;
+    private final int width;
+    private final int height;
+    private final FileChannel channel;
+    private final Map<String, Long> offsets;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private FaceCropCache(Path file, int width, int height, FileChannel channel, Map<String, Long> offsets) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.channel = channel;
+        this.offsets = offsets;
+    }
+
+    /** Reads the cache file's index; a missing, foreign or damaged file yields an empty cache. */
+    public static FaceCropCache open(Path file, int width, int height) {
+        if (!Files.isRegularFile(file)) {
+            return new FaceCropCache(file, width, height, null, Map.of());
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long length = channel.size();
+            if (length < HEADER_BYTES) throw new IOException("unexpected size " + length);
+            // Not closed: closing the stream would close the channel the crops are read from.
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            if (in.readInt() != MAGIC || in.readInt() != width || in.readInt() != height) {
+                throw new IOException("different format or crop size");
+            }
+            int count = in.readInt();
+            int cropBytes = width * height;
+            Map<String, Long> offsets = new HashMap<>(count * 2);
+            long position = HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                int pathLength = in.readUnsignedShort();
+                byte[] path = new byte[pathLength];
+                in.readFully(path);
+                long size = in.readLong();
+                long mtime = in.readLong();
+                long cropOffset = position + 18 + pathLength;
+                if (cropOffset + cropBytes > length) throw new IOException("truncated at entry " + i);
+                in.skipNBytes(cropBytes);
+                offsets.put(key(new String(path, StandardCharsets.UTF_8), size, mtime), cropOffset);
+                position = cropOffset + cropBytes;
+            }
+            System.out.println("Face crop cache loaded: " + offsets.size() + " crops from " + file);
+            return new FaceCropCache(file, width, height, channel, offsets);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring face crop cache " + file + ": " + e.getMessage());
+            closeQuietly(channel);
+            return new FaceCropCache(file, width, height, null, Map.of());
+        }
+    }
+
+    private static String key(String path, long size, long mtime) {
+        return path + '|' + size + '|' + mtime;
+    }
+
+    /** A new Mat holding the cached crop, or null on a miss or after {@link #close()}. Thread-safe. */
+    public Mat get(String path, long size, long mtime) {
+        Long offset = offsets.get(key(path, size, mtime));
+        byte[] crop = offset == null ? null : read(offset);
+        if (crop == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Mat mat = new Mat(height, width, CV_8UC1);
+        mat.data().put(crop);
+        hits.incrementAndGet();
+        return mat;
+    }
+
+    /** The crop at {@code offset}, or null if it cannot be read. Positional reads are safe from any thread. */
+    private byte[] read(long offset) {
+        ByteBuffer crop = ByteBuffer.allocate(width * height);
+        try {
+            while (crop.hasRemaining()) {
+                if (channel.read(crop, offset + crop.position()) < 0) return null;
+            }
+            return crop.array();
+        } catch (IOException e) {
+            // Also reached once the cache is closed for a swap; the photo is simply extracted again.
+            return null;
+        }
+    }
+
+    /** Closes the file; later lookups are misses. */
+    public void close() {
+        closeQuietly(channel);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public int size() { return offsets.size(); }
+    public int getHits() { return hits.get(); }
+    public int getMisses() { return misses.get(); }
+
+    /** Starts writing the replacement cache; entries are added in any order. */
+    public Writer newWriter() throws IOException {
+        return new Writer();
+    }
+
+    /**
+     * Writes a new cache file next to the current one and swaps it in on
+     * {@link #commit()}, which closes the cache it was created from.
+     */
+    public final class Writer implements AutoCloseable {
+        private final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        private final DataOutputStream out;
+        private final byte[] crop = new byte[width * height];
+        private int count = 0;
+        private boolean committed = false;
+
+        private Writer() throws IOException {
+            Files.createDirectories(tmp.toAbsolutePath().getParent());
+            OutputStream stream = Files.newOutputStream(tmp);
+            out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(0); // count, patched on commit
+        }
+
+        /** Adds a crop; it must be a continuous {@code width x height} 8-bit single-channel Mat. */
+        public void add(String path, long size, long mtime, Mat face) throws IOException {
+            if (face.cols() != width || face.rows() != height || face.type() != CV_8UC1 || !face.isContinuous()) return;
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            if (pathBytes.length > 0xFFFF) return;
+            BytePointer data = face.data();
+            data.get(crop);
+            out.writeShort(pathBytes.length);
+            out.write(pathBytes);
+            out.writeLong(size);
+            out.writeLong(mtime);
+            out.write(crop);
+            count++;
+        }
+
+        public void commit() throws IOException {
+            out.close();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, count), 12);
+            }
+            FaceCropCache.this.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() {
+            if (committed) return;
+            try {
+                out.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.training;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_GRAYSCALE;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGR2GRAY;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+/**
+ * PerceptualHashIndex keeps a 64-bit difference hash (dHash) of every
+ * training photo, per person, so that auto-capture can refuse a crop that is
+ * nearly identical to one already on disk: the same person at the same desk
+ * in the same light adds disk, gallery size and retrain time but nothing the
+ * recognizer does not already know.
+ *
+ * A dHash shrinks the image to 9x8 gray pixels and records whether each
+ * pixel is brighter than its right neighbour. It ignores scale and global
+ * brightness and changes by a few bits for small shifts; two crops whose
+ * hashes differ in at most {@code maxDistance} bits count as duplicates.
+ *
+ * A person's hashes are read from training-data/role/name the first time
+ * that person is captured, and kept up to date as photos are saved,
+ * compacted or deleted.
+ */
+public final class PerceptualHashIndex {
+
+    private static final Size HASH_SIZE = new Size(9, 8);
+
+    private final Path root;
+    private final Map<Path, List<Long>> hashesByPerson = new ConcurrentHashMap<>();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int maxDistance;
+
+    /** @param maxDistance largest Hamming distance that still counts as a duplicate; negative disables the check */
+    public PerceptualHashIndex(Path root, int maxDistance) {
+        this.root = root;
+        this.maxDistance = maxDistance;
+    }
+
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    /** dHash of a BGR or grayscale image. */
+    public static long dHash(Mat image) {
+        Mat gray = image;
+        if (image.channels() != 1) {
+            gray = new Mat();
+            cvtColor(image, gray, COLOR_BGR2GRAY);
+        }
+        Mat small = new Mat(HASH_SIZE.height(), HASH_SIZE.width(), CV_8UC1);
+        resize(gray, small, HASH_SIZE, 0, 0, INTER_AREA);
+        if (gray != image) gray.close();
+        byte[] pixels = new byte[HASH_SIZE.width() * HASH_SIZE.height()];
+        small.data().get(pixels);
+        small.close();
+        long hash = 0;
+        for (int y = 0; y < HASH_SIZE.height(); y++) {
+            for (int x = 0; x < HASH_SIZE.width() - 1; x++) {
+                int left = pixels[y * HASH_SIZE.width() + x] & 0xFF;
+                int right = pixels[y * HASH_SIZE.width() + x + 1] & 0xFF;
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Records the crop's hash for this person and returns true, or returns
+     * false if it is within {@code maxDistance} of a photo they already have.
+     */
+    public boolean admit(String role, String name, long hash) {
+        int limit = maxDistance;
+        List<Long> hashes = hashesOf(role, name);
+        synchronized (hashes) {
+            if (limit >= 0) {
+                for (long existing : hashes) {
+                    if (distance(existing, hash) <= limit) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                }
+            }
+            hashes.add(hash);
+        }
+        admitted.incrementAndGet();
+        return true;
+    }
+
+    /** Undoes {@link #admit} for a crop that could not be written after all. */
+    public void remove(String role, String name, long hash) {
+        List<Long> hashes = hashesOf(role, name);
+        synchronized (hashes) {
+            hashes.remove(Long.valueOf(hash));
+        }
+    }
+
+    /** Forgets a person, e.g. after their photos were deleted. */
+    public void forget(String role, String name) {
+        hashesByPerson.remove(personDir(role, name));
+    }
+
+    private List<Long> hashesOf(String role, String name) {
+        return hashesByPerson.computeIfAbsent(personDir(role, name), dir -> {
+            List<Long> hashes = new ArrayList<>();
+            for (Path photo : TrainingPhotos.listPhotos(dir)) {
+                Long hash = hashPhoto(photo);
+                if (hash != null) hashes.add(hash);
+            }
+            return hashes;
+        });
+    }
+
+    private Path personDir(String role, String name) {
+        return root.resolve(role).resolve(name).toAbsolutePath().normalize();
+    }
+
+    /** Result of {@link #compact()}. */
+    public static final class CompactionReport {
+        public int people;
+        public int photos;
+        public int removed;
+        public long bytesFreed;
+
+        @Override
+        public String toString() {
+            return "Removed " + removed + " of " + photos + " photos of " + people + " people as near-duplicates ("
+                    + bytesFreed / 1024 + " KB freed).";
+        }
+    }
+
+    /**
+     * One-shot deduplication of the existing training-data tree: for each
+     * person, photos are visited oldest name first and a photo within
+     * {@code maxDistance} of one already kept is deleted. Does nothing when
+     * the check is disabled. The model still holds the removed samples until
+     * it is retrained.
+     */
+    public CompactionReport compact() {
+        CompactionReport report = new CompactionReport();
+        int limit = maxDistance;
+        if (limit < 0) return report;
+        for (Path personDir : TrainingPhotos.listPeople(root)) {
+            report.people++;
+            List<Long> kept = new ArrayList<>();
+            for (Path photo : TrainingPhotos.listPhotos(personDir)) {
+                report.photos++;
+                Long hash = hashPhoto(photo);
+                if (hash == null) continue;
+                boolean duplicate = false;
+                for (long existing : kept) {
+                    if (distance(existing, hash) <= limit) {
+                        duplicate = true;
+                        break;
+                    }
+                }
+                if (!duplicate) {
+                    kept.add(hash);
+                    continue;
+                }
+                try {
+                    long size = Files.size(photo);
+                    Files.delete(photo);
+                    report.removed++;
+                    report.bytesFreed += size;
+                } catch (IOException e) {
+                    System.err.println("Could not delete duplicate photo " + photo + ": " + e.getMessage());
+                }
+            }
+            hashesByPerson.put(personDir.toAbsolutePath().normalize(), kept);
+        }
+        System.out.println("Training data compaction: " + report);
+        return report;
+    }
+
+    /** The photo's dHash, or null if it cannot be read. */
+    private static Long hashPhoto(Path photo) {
+        Mat image;
+        try {
+            image = imdecode(new Mat(Files.readAllBytes(photo)), IMREAD_GRAYSCALE);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + photo);
+            return null;
+        }
+        if (image.empty()) {
+            image.release();
+            return null;
+        }
+        long hash = dHash(image);
+        image.release();
+        return hash;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxDistance", maxDistance);
+        stats.put("people", hashesByPerson.size());
+        stats.put("admitted", admitted.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,258 @@
+package org.example.training;
+
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_64F;
+import static org.bytedeco.opencv.global.opencv_core.meanStdDev;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_GRAYSCALE;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
+import static org.bytedeco.opencv.global.opencv_imgproc.Laplacian;
+
+/**
+ * SampleBudget caps the number of training photos kept per person. Model
+ * size and predict time grow with the total number of samples, and a person
+ * who walks past the camera every day would otherwise collect thousands of
+ * near-identical ones.
+ *
+ * When a person has more than {@code maxPerPerson} photos, the ones worth
+ * least are deleted until a tenth of the budget is free again, so new
+ * captures can be appended for a while before the next eviction. A photo's
+ * worth is its quality (sharpness as the variance of its Laplacian, face
+ * size, exposure) plus how different it is from the photos already kept
+ * (dHash distance, see {@link PerceptualHashIndex}). Photos are kept greedily:
+ * each step keeps the photo with the best quality plus distance to the
+ * nearest kept one, so a budget spent on one pose leaves room for others.
+ *
+ * Deleted photos stay in the model until it is retrained from disk.
+ */
+public final class SampleBudget {
+
+    // Quality weights; LBPH histograms lose detail fastest with blur.
+    private static final double SHARPNESS_WEIGHT = 0.5;
+    private static final double SIZE_WEIGHT = 0.3;
+    private static final double EXPOSURE_WEIGHT = 0.2;
+    // Diversity weight relative to quality, and the dHash distance at which a photo counts as fully different.
+    private static final double DIVERSITY_WEIGHT = 1.0;
+    private static final int DIVERSE_DISTANCE = 16;
+
+    private final Path root;
+    private volatile int maxPerPerson;
+    private volatile Report lastReport = new Report(0);
+
+    /** @param maxPerPerson photos kept per person; 0 or less means no limit */
+    public SampleBudget(Path root, int maxPerPerson) {
+        this.root = root;
+        this.maxPerPerson = maxPerPerson;
+    }
+
+    public void setMaxPerPerson(int maxPerPerson) {
+        this.maxPerPerson = maxPerPerson;
+    }
+
+    public boolean isEnabled() {
+        return maxPerPerson > 0;
+    }
+
+    /** Whether the person has more photos on disk than the budget allows. */
+    public boolean isOverBudget(String role, String name) {
+        int limit = maxPerPerson;
+        return limit > 0 && TrainingPhotos.listPhotos(root.resolve(role).resolve(name)).size() > limit;
+    }
+
+    /** Kept and evicted photos of one person. */
+    public static final class Entry {
+        public final String person;
+        public final int kept;
+        public final int evicted;
+        public final long bytesFreed;
+
+        Entry(String person, int kept, int evicted, long bytesFreed) {
+            this.person = person;
+            this.kept = kept;
+            this.evicted = evicted;
+            this.bytesFreed = bytesFreed;
+        }
+    }
+
+    /** Result of {@link #enforce()}. */
+    public static final class Report {
+        public final int maxPerPerson;
+        public final long finishedAt;
+        public final List<Entry> people = new ArrayList<>();
+
+        Report(int maxPerPerson) {
+            this.maxPerPerson = maxPerPerson;
+            this.finishedAt = maxPerPerson > 0 ? System.currentTimeMillis() : 0;
+        }
+
+        public int kept() { return people.stream().mapToInt(entry -> entry.kept).sum(); }
+        public int evicted() { return people.stream().mapToInt(entry -> entry.evicted).sum(); }
+
+        @Override
+        public String toString() {
+            long overBudget = people.stream().filter(entry -> entry.evicted > 0).count();
+            long bytesFreed = people.stream().mapToLong(entry -> entry.bytesFreed).sum();
+            return "Kept " + kept() + " photos of " + people.size() + " people, evicted " + evicted() + " from "
+                    + overBudget + " over the budget of " + maxPerPerson + " (" + bytesFreed / 1024 + " KB freed).";
+        }
+    }
+
+    /**
+     * Evicts photos of every person over the budget and returns how many
+     * were kept and evicted per person. Does nothing when there is no limit.
+     */
+    public Report enforce() {
+        int limit = maxPerPerson;
+        Report report = new Report(limit);
+        if (limit <= 0) return report;
+        int target = Math.max(1, limit - limit / 10);
+        for (Path personDir : TrainingPhotos.listPeople(root)) {
+            String person = personDir.getParent().getFileName() + ": " + personDir.getFileName();
+            List<Path> photos = TrainingPhotos.listPhotos(personDir);
+            if (photos.size() <= limit) {
+                report.people.add(new Entry(person, photos.size(), 0, 0));
+                continue;
+            }
+            boolean[] keep = select(score(photos), target);
+            int evicted = 0;
+            long bytesFreed = 0;
+            for (int i = 0; i < photos.size(); i++) {
+                if (keep[i]) continue;
+                try {
+                    long size = Files.size(photos.get(i));
+                    Files.delete(photos.get(i));
+                    evicted++;
+                    bytesFreed += size;
+                } catch (IOException e) {
+                    System.err.println("Could not evict photo " + photos.get(i) + ": " + e.getMessage());
+                }
+            }
+            report.people.add(new Entry(person, photos.size() - evicted, evicted, bytesFreed));
+            System.out.println("Sample budget: kept " + (photos.size() - evicted) + ", evicted " + evicted + " photos of " + person);
+        }
+        System.out.println("Sample budget: " + report);
+        lastReport = report;
+        return report;
+    }
+
+    /** Quality inputs and dHash of one photo; {@code readable} is false if it could not be decoded. */
+    private static final class Sample {
+        boolean readable;
+        double sharpness;
+        int size;
+        double brightness;
+        long hash;
+        double quality;
+    }
+
+    private static Sample[] score(List<Path> photos) {
+        Sample[] samples = photos.parallelStream().map(SampleBudget::measure).toArray(Sample[]::new);
+        double maxSharpness = 0;
+        int maxSize = 0;
+        for (Sample sample : samples) {
+            if (!sample.readable) continue;
+            maxSharpness = Math.max(maxSharpness, sample.sharpness);
+            maxSize = Math.max(maxSize, sample.size);
+        }
+        for (Sample sample : samples) {
+            if (!sample.readable) {
+                sample.quality = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            // Laplacian variance spans orders of magnitude, so it is compared on a log scale.
+            double sharpness = maxSharpness > 0 ? Math.log1p(sample.sharpness) / Math.log1p(maxSharpness) : 0;
+            double size = maxSize > 0 ? (double) sample.size / maxSize : 0;
+            double exposure = 1 - Math.abs(sample.brightness - 128) / 128;
+            sample.quality = SHARPNESS_WEIGHT * sharpness + SIZE_WEIGHT * size + EXPOSURE_WEIGHT * exposure;
+        }
+        return samples;
+    }
+
+    private static Sample measure(Path photo) {
+        Sample sample = new Sample();
+        Mat image;
+        try {
+            image = imdecode(new Mat(Files.readAllBytes(photo)), IMREAD_GRAYSCALE);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + photo);
+            return sample;
+        }
+        if (image.empty()) {
+            image.release();
+            return sample;
+        }
+        Mat laplacian = new Mat();
+        Mat mean = new Mat();
+        Mat stddev = new Mat();
+        Laplacian(image, laplacian, CV_64F);
+        meanStdDev(laplacian, mean, stddev);
+        double deviation = ((DoubleIndexer) stddev.createIndexer()).get(0);
+        sample.sharpness = deviation * deviation;
+        meanStdDev(image, mean, stddev);
+        sample.brightness = ((DoubleIndexer) mean.createIndexer()).get(0);
+        sample.size = Math.min(image.cols(), image.rows());
+        sample.hash = PerceptualHashIndex.dHash(image);
+        sample.readable = true;
+        laplacian.release();
+        mean.release();
+        stddev.release();
+        image.release();
+        return sample;
+    }
+
+    /** Greedy choice of {@code target} photos by quality plus distance to the nearest photo already chosen. */
+    private static boolean[] select(Sample[] samples, int target) {
+        boolean[] keep = new boolean[samples.length];
+        int[] nearest = new int[samples.length];
+        Arrays.fill(nearest, DIVERSE_DISTANCE);
+        for (int step = 0; step < Math.min(target, samples.length); step++) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < samples.length; i++) {
+                if (keep[i]) continue;
+                double value = samples[i].quality + DIVERSITY_WEIGHT * nearest[i] / DIVERSE_DISTANCE;
+                if (best < 0 || value > bestValue) {
+                    best = i;
+                    bestValue = value;
+                }
+            }
+            keep[best] = true;
+            for (int i = 0; i < samples.length; i++) {
+                if (!keep[i]) nearest[i] = Math.min(nearest[i], PerceptualHashIndex.distance(samples[best].hash, samples[i].hash));
+            }
+        }
+        return keep;
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    public Map<String, Object> stats() {
+        Report report = lastReport;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxPerPerson", maxPerPerson);
+        stats.put("lastRun", report.finishedAt);
+        stats.put("kept", report.kept());
+        stats.put("evicted", report.evicted());
+        Map<String, Object> people = new LinkedHashMap<>();
+        for (Entry entry : report.people) {
+            Map<String, Object> person = new LinkedHashMap<>();
+            person.put("kept", entry.kept);
+            person.put("evicted", entry.evicted);
+            people.put(entry.person, person);
+        }
+        stats.put("people", people);
+        return stats;
+    }
+}
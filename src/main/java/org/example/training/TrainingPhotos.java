@@ -0,0 +1,44 @@
+package org.example.training;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Lists the training-data/role/name folders and the photos in them, in name order. */
+final class TrainingPhotos {
+
+    private TrainingPhotos() {}
+
+    /** training-data/role/name directories. */
+    static List<Path> listPeople(Path root) {
+        List<Path> people = new ArrayList<>();
+        if (!Files.isDirectory(root)) return people;
+        try (Stream<Path> roles = Files.list(root)) {
+            for (Path role : (Iterable<Path>) roles.filter(Files::isDirectory).sorted()::iterator) {
+                try (Stream<Path> names = Files.list(role)) {
+                    names.filter(Files::isDirectory).sorted().forEach(people::add);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing training data: " + e.getMessage());
+        }
+        return people;
+    }
+
+    static List<Path> listPhotos(Path personDir) {
+        List<Path> photos = new ArrayList<>();
+        if (!Files.isDirectory(personDir)) return photos;
+        try (Stream<Path> paths = Files.walk(personDir)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().toLowerCase().endsWith(".jpg") || path.toString().toLowerCase().endsWith(".png"))
+                    .sorted()
+                    .forEach(photos::add);
+        } catch (IOException e) {
+            System.err.println("Error walking directory: " + personDir);
+        }
+        return photos;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.training;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TrainingProgress reports how far the current (or last) model training got
+ * and how long each phase took. Workers update it concurrently; readers such
+ * as the /metrics endpoint take a consistent-enough snapshot via
+ * {@link #stats()}.
+ */
+public class TrainingProgress {
+
+    public enum Phase { IDLE, EXTRACTING, TRAINING, DONE, FAILED }
+
+    private volatile Phase phase = Phase.IDLE;
+    private volatile int threads = 0;
+    private volatile int totalImages = 0;
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger fromCache = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long startedAt = 0;
+    private volatile long extractMillis = 0;
+    private volatile long trainMillis = 0;
+    private volatile long finishedAt = 0;
+
+    public void start(int totalImages, int threads) {
+        this.totalImages = totalImages;
+        this.threads = threads;
+        processed.set(0);
+        accepted.set(0);
+        rejected.set(0);
+        fromCache.set(0);
+        failed.set(0);
+        extractMillis = 0;
+        trainMillis = 0;
+        finishedAt = 0;
+        startedAt = System.currentTimeMillis();
+        phase = Phase.EXTRACTING;
+    }
+
+    public void imageDone(boolean faceFound) {
+        processed.incrementAndGet();
+        (faceFound ? accepted : rejected).incrementAndGet();
+    }
+
+    /** An image whose face crop came from the cache instead of being extracted. */
+    public void cacheHit() {
+        fromCache.incrementAndGet();
+        imageDone(true);
+    }
+
+    /** An image whose extraction threw; it is left out of the model. */
+    public void imageFailed() {
+        processed.incrementAndGet();
+        failed.incrementAndGet();
+    }
+
+    public void trainingStarted() {
+        extractMillis = System.currentTimeMillis() - startedAt;
+        phase = Phase.TRAINING;
+    }
+
+    public void finished(boolean success) {
+        finishedAt = System.currentTimeMillis();
+        if (phase == Phase.TRAINING) trainMillis = finishedAt - startedAt - extractMillis;
+        else extractMillis = finishedAt - startedAt;
+        phase = success ? Phase.DONE : Phase.FAILED;
+    }
+
+    public Phase getPhase() { return phase; }
+
+    /** One-line summary for logs and the status bar. */
+    public String summary() {
+        return String.format("%d/%d images (%d faces, %d cached, %d rejected, %d failed) on %d threads: extract %d ms, train %d ms",
+                processed.get(), totalImages, accepted.get(), fromCache.get(), rejected.get(), failed.get(), threads, extractMillis, trainMillis);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("phase", phase.name());
+        stats.put("threads", threads);
+        stats.put("totalImages", totalImages);
+        stats.put("processed", processed.get());
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("fromCache", fromCache.get());
+        stats.put("failed", failed.get());
+        long elapsed = phase == Phase.EXTRACTING || phase == Phase.TRAINING
+                ? System.currentTimeMillis() - startedAt
+                : finishedAt - startedAt;
+        stats.put("elapsedMs", startedAt == 0 ? 0 : elapsed);
+        stats.put("extractMs", extractMillis);
+        stats.put("trainMs", trainMillis);
+        return stats;
+    }
+}
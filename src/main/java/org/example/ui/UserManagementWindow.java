@@ -16,21 +16,30 @@ import java.util.Optional;
 
 /**
  * UserManagementWindow provides a simple UI to view and delete users.
- * Deleting a user will also delete their logs and training data and
- * trigger a background retrain.
+ * Deleting a user also deletes their logs and training data and removes
+ * their label from the live model at once. "Rebuild Model" retrains from
+ * disk, which also compacts away the samples of deleted users. "Remove
+ * Duplicate Photos" deletes near-identical training photos and retrains if
+ * any were removed.
  */
 public class UserManagementWindow {
 
     private final DatabaseService databaseService;
     private final FaceRecognitionService recognitionService;
-    private final Runnable onAfterRetrain; // Callback to update status from the main app
+    private final Runnable onUserDeleted; // Callback to update status from the main app
+    private final Runnable onRebuildModel;
+    private final Runnable onRemoveDuplicates;
 
     public UserManagementWindow(DatabaseService databaseService,
                                 FaceRecognitionService recognitionService,
-                                Runnable onAfterRetrain) {
+                                Runnable onUserDeleted,
+                                Runnable onRebuildModel,
+                                Runnable onRemoveDuplicates) {
         this.databaseService = databaseService;
         this.recognitionService = recognitionService;
-        this.onAfterRetrain = onAfterRetrain;
+        this.onUserDeleted = onUserDeleted;
+        this.onRebuildModel = onRebuildModel;
+        this.onRemoveDuplicates = onRemoveDuplicates;
     }
 
     public void show(Stage owner) {
@@ -69,13 +78,22 @@ public class UserManagementWindow {
                 if (result.isPresent() && result.get() == ButtonType.OK) {
                     databaseService.deleteUser(selectedUser.getId());
                     recognitionService.deleteTrainingData(selectedUser.getRole(), selectedUser.getName());
+                    recognitionService.removeLabel(selectedUser.getId());
                     userTable.setItems(databaseService.getUsers());
-                    new Thread(onAfterRetrain).start();
+                    onUserDeleted.run();
                 }
             }
         });
 
-        VBox layout = new VBox(10, userTable, deleteButton);
+        Button rebuildButton = new Button("Rebuild Model");
+        rebuildButton.setTooltip(new Tooltip("Retrain from all training photos and drop deleted users' samples"));
+        rebuildButton.setOnAction(e -> new Thread(onRebuildModel).start());
+
+        Button removeDuplicatesButton = new Button("Remove Duplicate Photos");
+        removeDuplicatesButton.setTooltip(new Tooltip("Delete training photos nearly identical to another photo of the same person"));
+        removeDuplicatesButton.setOnAction(e -> new Thread(onRemoveDuplicates).start());
+
+        VBox layout = new VBox(10, userTable, deleteButton, rebuildButton, removeDuplicatesButton);
         layout.setPadding(new Insets(10));
         layout.setAlignment(Pos.CENTER);
 
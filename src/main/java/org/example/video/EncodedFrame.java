@@ -0,0 +1,26 @@
+package org.example.video;
+
+/**
+ * EncodedFrame is one JPEG-compressed frame held in the pre-roll buffer.
+ * Instances are immutable, so a clip snapshot can share them with the buffer.
+ */
+public final class EncodedFrame {
+    private final byte[] jpeg;
+    private final long timestampMillis;
+    private final int width;
+    private final int height;
+
+    public EncodedFrame(byte[] jpeg, long timestampMillis, int width, int height) {
+        this.jpeg = jpeg;
+        this.timestampMillis = timestampMillis;
+        this.width = width;
+        this.height = height;
+    }
+
+    /** The JPEG bytes. Must not be modified. */
+    public byte[] getJpeg() { return jpeg; }
+    public int size() { return jpeg.length; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,226 @@
+package org.example.video;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * MjpegAviWriter stores JPEG frames as a Motion-JPEG AVI file. The frames are
+ * copied into the container as they are, so saving a clip from the pre-roll
+ * buffer costs one sequential file write and no decoding or re-encoding.
+ * The file plays in VLC, browsers' download players and FFmpeg-based tools.
+ *
+ * Frames can be appended over time (event clips); the header sizes and the
+ * index are written on {@link #close()}. Not thread-safe.
+ *
+ * The file has a constant frame rate. Time slots without a frame are written
+ * as empty "drop frame" chunks ({@link #skip(int)}), which players treat as
+ * "keep showing the previous frame", so dropped frames cost 24 bytes each and
+ * playback timing stays correct.
+ */
+public final class MjpegAviWriter implements Closeable {
+
+    private static final int AVIF_HASINDEX = 0x10;
+    private static final int AVIIF_KEYFRAME = 0x10;
+    private static final int HDRL_PAYLOAD = 4 + (8 + 56) + (8 + 4 + (8 + 56) + (8 + 40));
+    // Byte offsets of the fields patched on close.
+    private static final int RIFF_SIZE_OFFSET = 4;
+    private static final int AVIH_OFFSET = 12 + 8 + 4 + 8;
+    private static final int STRH_OFFSET = 12 + 8 + 4 + (8 + 56) + 12 + 8;
+    private static final int MOVI_SIZE_OFFSET = 12 + 8 + HDRL_PAYLOAD + 4;
+    private static final int MOVI_DATA_OFFSET = MOVI_SIZE_OFFSET + 8;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int rate;
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private long moviPayload = 4; // 'movi'
+    private int frameCount = 0;
+    private int maxFrame = 0;
+
+    private MjpegAviWriter(Path file, int width, int height, double fps) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.width = width;
+        this.height = height;
+        this.rate = (int) Math.round(Math.max(0.1, fps) * 1000);
+        writeHeader();
+    }
+
+    /**
+     * Starts a new file; frames are added with {@link #append(EncodedFrame)}.
+     * Never overwrites: throws {@link java.nio.file.FileAlreadyExistsException}
+     * if the file exists.
+     */
+    public static MjpegAviWriter open(Path file, int width, int height, double fps) throws IOException {
+        return new MjpegAviWriter(file, width, height, fps);
+    }
+
+    /** Writes the frames at a constant {@code fps}; all frames must have the same size. */
+    public static void write(Path file, List<EncodedFrame> frames, double fps) throws IOException {
+        if (frames.isEmpty()) throw new IOException("No frames to write");
+        try (MjpegAviWriter writer = open(file, frames.get(0).getWidth(), frames.get(0).getHeight(), fps)) {
+            for (EncodedFrame frame : frames) {
+                writer.append(frame);
+            }
+        }
+    }
+
+    public void append(EncodedFrame frame) throws IOException {
+        int size = frame.size();
+        if (moviPayload + 8 + padded(size) > 0xFFFF_FFFFL - 0x10_0000L) throw new IOException("Clip too large for AVI");
+
+        chunkHeader.clear();
+        putFourcc(chunkHeader, "00dc");
+        chunkHeader.putInt(size);
+        chunkHeader.flip();
+        writeFully(chunkHeader);
+        writeFully(ByteBuffer.wrap(frame.getJpeg()));
+        if ((size & 1) == 1) writeFully(ByteBuffer.wrap(new byte[1]));
+
+        ByteBuffer entry = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        putFourcc(entry, "00dc");
+        entry.putInt(AVIIF_KEYFRAME);
+        entry.putInt((int) moviPayload);
+        entry.putInt(size);
+        index.write(entry.array(), 0, 16);
+
+        moviPayload += 8 + padded(size);
+        frameCount++;
+        maxFrame = Math.max(maxFrame, size);
+    }
+
+    /** Leaves {@code slots} frame intervals without a new picture. */
+    public void skip(int slots) throws IOException {
+        if (slots <= 0) return;
+        ByteBuffer chunks = ByteBuffer.allocate(8 * slots).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer entries = ByteBuffer.allocate(16 * slots).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < slots; i++) {
+            putFourcc(chunks, "00dc");
+            chunks.putInt(0);
+            putFourcc(entries, "00dc");
+            entries.putInt(0);
+            entries.putInt((int) (moviPayload + 8L * i));
+            entries.putInt(0);
+        }
+        chunks.flip();
+        writeFully(chunks);
+        index.write(entries.array(), 0, entries.capacity());
+        moviPayload += 8L * slots;
+        frameCount += slots;
+    }
+
+    /** Number of frame slots written, including skipped ones. */
+    public int getFrameCount() { return frameCount; }
+
+    public double getFps() { return rate / 1000.0; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            ByteBuffer idx = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            putFourcc(idx, "idx1");
+            idx.putInt(index.size());
+            idx.flip();
+            writeFully(idx);
+            writeFully(ByteBuffer.wrap(index.toByteArray()));
+
+            long riffPayload = 4 + (8 + HDRL_PAYLOAD) + (8 + moviPayload) + (8 + index.size());
+            patchInt(RIFF_SIZE_OFFSET, riffPayload);
+            patchInt(MOVI_SIZE_OFFSET, moviPayload);
+            patchInt(AVIH_OFFSET + 4, (long) maxFrame * rate / 1000);   // max bytes per second
+            patchInt(AVIH_OFFSET + 16, frameCount);                    // total frames
+            patchInt(AVIH_OFFSET + 28, maxFrame);                      // suggested buffer size
+            patchInt(STRH_OFFSET + 32, frameCount);                    // stream length
+            patchInt(STRH_OFFSET + 36, maxFrame);                      // suggested buffer size
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(MOVI_DATA_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+        putFourcc(h, "RIFF"); h.putInt(0); putFourcc(h, "AVI ");
+
+        putFourcc(h, "LIST"); h.putInt(HDRL_PAYLOAD); putFourcc(h, "hdrl");
+        putFourcc(h, "avih"); h.putInt(56);
+        h.putInt((int) Math.round(1_000_000_000.0 / rate));   // microseconds per frame
+        h.putInt(0);                                        // max bytes per second (patched)
+        h.putInt(0);                                        // padding granularity
+        h.putInt(AVIF_HASINDEX);
+        h.putInt(0);                                        // total frames (patched)
+        h.putInt(0);                                        // initial frames
+        h.putInt(1);                                        // streams
+        h.putInt(0);                                        // suggested buffer size (patched)
+        h.putInt(width);
+        h.putInt(height);
+        h.putInt(0); h.putInt(0); h.putInt(0); h.putInt(0);
+
+        putFourcc(h, "LIST"); h.putInt(4 + (8 + 56) + (8 + 40)); putFourcc(h, "strl");
+        putFourcc(h, "strh"); h.putInt(56);
+        putFourcc(h, "vids"); putFourcc(h, "MJPG");
+        h.putInt(0);                                        // flags
+        h.putShort((short) 0); h.putShort((short) 0);       // priority, language
+        h.putInt(0);                                        // initial frames
+        h.putInt(1000);                                     // scale
+        h.putInt(rate);                                     // rate: rate/scale = fps
+        h.putInt(0);                                        // start
+        h.putInt(0);                                        // length in frames (patched)
+        h.putInt(0);                                        // suggested buffer size (patched)
+        h.putInt(-1);                                       // quality
+        h.putInt(0);                                        // sample size
+        h.putShort((short) 0); h.putShort((short) 0); h.putShort((short) width); h.putShort((short) height);
+
+        putFourcc(h, "strf"); h.putInt(40);
+        h.putInt(40);
+        h.putInt(width);
+        h.putInt(height);
+        h.putShort((short) 1);                              // planes
+        h.putShort((short) 24);                             // bit count
+        putFourcc(h, "MJPG");
+        h.putInt(width * height * 3);
+        h.putInt(0); h.putInt(0); h.putInt(0); h.putInt(0);
+
+        putFourcc(h, "LIST"); h.putInt(0); putFourcc(h, "movi");
+        h.flip();
+        writeFully(h);
+    }
+
+    /** Average frame rate implied by the frames' capture timestamps. */
+    public static double measuredFps(List<EncodedFrame> frames, double fallback) {
+        if (frames.size() < 2) return fallback;
+        long span = frames.get(frames.size() - 1).getTimestampMillis() - frames.get(0).getTimestampMillis();
+        if (span <= 0) return fallback;
+        return (frames.size() - 1) * 1000.0 / span;
+    }
+
+    private void patchInt(long position, long value) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt((int) value);
+        b.flip();
+        while (b.hasRemaining()) {
+            channel.write(b, position + b.position());
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void putFourcc(ByteBuffer buffer, String code) {
+        for (int i = 0; i < 4; i++) buffer.put((byte) code.charAt(i));
+    }
+
+    private static long padded(int size) {
+        return size + (size & 1);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.video;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * MotionAdaptiveDecimator thins out recorded frames while nothing happens.
+ * Analysis reports activity (motion, detections, triggers); for
+ * {@code holdMillis} afterwards every frame is kept, otherwise only about
+ * {@code idleFps} frames per second. The segment writer keeps dropped frames'
+ * time slots, so playback speed is unaffected.
+ *
+ * {@link #reportActivity(long)} may be called from any thread;
+ * {@link #keep(long)} only from the record stage.
+ */
+public class MotionAdaptiveDecimator {
+
+    private final long idleIntervalMillis;
+    private final long holdMillis;
+    private final LongSupplier clock;
+    private volatile long activeUntilMillis = Long.MIN_VALUE;
+    private long lastKeptMillis = Long.MIN_VALUE / 2;
+
+    private final AtomicLong framesKept = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    /** @param idleFps frame rate kept without activity; 0 or less keeps every frame */
+    public MotionAdaptiveDecimator(double idleFps, int holdSeconds) {
+        this(idleFps, holdSeconds, System::currentTimeMillis);
+    }
+
+    /** @param clock the time {@link #stats()} reports activity against; frame decisions use the timestamps passed in */
+    MotionAdaptiveDecimator(double idleFps, int holdSeconds, LongSupplier clock) {
+        this.idleIntervalMillis = idleFps > 0 ? Math.round(1000.0 / idleFps) : 0;
+        this.holdMillis = Math.max(0, holdSeconds) * 1000L;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return idleIntervalMillis > 0;
+    }
+
+    public void reportActivity(long nowMillis) {
+        long until = nowMillis + holdMillis;
+        if (until > activeUntilMillis) activeUntilMillis = until;
+    }
+
+    /** Whether the frame captured at {@code timestampMillis} should be recorded. */
+    public boolean keep(long timestampMillis) {
+        if (idleIntervalMillis == 0 || timestampMillis <= activeUntilMillis
+                || timestampMillis - lastKeptMillis >= idleIntervalMillis) {
+            lastKeptMillis = timestampMillis;
+            framesKept.incrementAndGet();
+            return true;
+        }
+        framesDropped.incrementAndGet();
+        return false;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("framesKept", framesKept.get());
+        stats.put("framesDropped", framesDropped.get());
+        stats.put("active", activeUntilMillis >= clock.getAsLong());
+        return stats;
+    }
+}
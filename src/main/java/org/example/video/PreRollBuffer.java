@@ -0,0 +1,88 @@
+package org.example.video;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_JPEG_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imencode;
+
+/**
+ * PreRollBuffer keeps the last few seconds of a camera as JPEG frames instead
+ * of raw Mats. It is bounded both by time span and by total bytes, whichever
+ * is hit first, so a 1080p camera needs tens of megabytes rather than
+ * gigabytes. Snapshots share the immutable frames, and a clip is written from
+ * them without decoding (see {@link MjpegAviWriter}).
+ *
+ * The buffer's encoder also encodes the camera's stream, so a frame without
+ * overlays is compressed once for both (see {@link org.example.pipeline.SharedFrame#jpeg}).
+ */
+public class PreRollBuffer {
+
+    private final long maxMillis;
+    private final long maxBytes;
+    private final IntPointer encodeParams;
+    private final Deque<EncodedFrame> frames = new ArrayDeque<>();
+    private long totalBytes = 0;
+
+    public PreRollBuffer(int seconds, int maxMegabytes, int jpegQuality) {
+        this.maxMillis = Math.max(1, seconds) * 1000L;
+        this.maxBytes = Math.max(1, maxMegabytes) * 1024L * 1024L;
+        this.encodeParams = new IntPointer(IMWRITE_JPEG_QUALITY, Math.max(1, Math.min(100, jpegQuality)));
+    }
+
+    /** JPEG of a borrowed frame at the configured quality. Thread-safe. */
+    public byte[] encode(Mat frame) {
+        BytePointer jpegBytes = new BytePointer();
+        imencode(".jpg", frame, jpegBytes, encodeParams);
+        byte[] jpeg = new byte[(int) jpegBytes.limit()];
+        jpegBytes.get(jpeg);
+        jpegBytes.close();
+        return jpeg;
+    }
+
+    /** Appends an encoded frame, evicting the oldest frames beyond the limits. */
+    public synchronized void add(EncodedFrame frame) {
+        frames.addLast(frame);
+        totalBytes += frame.size();
+        while (frames.size() > 1
+                && (totalBytes > maxBytes || frame.getTimestampMillis() - frames.peekFirst().getTimestampMillis() > maxMillis)) {
+            totalBytes -= frames.removeFirst().size();
+        }
+    }
+
+    /** The buffered frames, oldest first. Cheap: the frames themselves are shared. */
+    public synchronized List<EncodedFrame> snapshot() {
+        return new ArrayList<>(frames);
+    }
+
+    /** The buffered frames at or after the given time, oldest first. */
+    public synchronized List<EncodedFrame> snapshotSince(long fromMillis) {
+        List<EncodedFrame> result = new ArrayList<>();
+        for (EncodedFrame frame : frames) {
+            if (frame.getTimestampMillis() >= fromMillis) result.add(frame);
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        frames.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("frames", frames.size());
+        stats.put("bytes", totalBytes);
+        stats.put("spanMs", frames.isEmpty() ? 0 : frames.peekLast().getTimestampMillis() - frames.peekFirst().getTimestampMillis());
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+}
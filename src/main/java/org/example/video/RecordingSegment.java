@@ -0,0 +1,46 @@
+package org.example.video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecordingSegment is one index entry of the {@link RecordingStore}: a single
+ * segment file with its camera, time span and what caused or appeared in it.
+ * Instances are immutable and serialized as one JSON line of the index.
+ */
+public final class RecordingSegment {
+    private final String camera;
+    private final String file;
+    private final long startMillis;
+    private final long endMillis;
+    private final List<String> triggers;
+    private final List<String> identities;
+    private final int frames;
+    private final long bytes;
+
+    public RecordingSegment(String camera, String file, long startMillis, long endMillis,
+                            List<String> triggers, List<String> identities, int frames, long bytes) {
+        this.camera = camera;
+        this.file = file;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.triggers = new ArrayList<>(triggers);
+        this.identities = new ArrayList<>(identities);
+        this.frames = frames;
+        this.bytes = bytes;
+    }
+
+    public String getCamera() { return camera; }
+    /** Path relative to the store root, with '/' separators; also the segment's id. */
+    public String getFile() { return file; }
+    public long getStartMillis() { return startMillis; }
+    public long getEndMillis() { return endMillis; }
+    public List<String> getTriggers() { return List.copyOf(triggers); }
+    public List<String> getIdentities() { return List.copyOf(identities); }
+    public int getFrames() { return frames; }
+    public long getBytes() { return bytes; }
+
+    public boolean overlaps(long fromMillis, long toMillis) {
+        return startMillis < toMillis && endMillis >= fromMillis;
+    }
+}
@@ -0,0 +1,358 @@
+package org.example.video;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RecordingStore keeps recordings as segment files under
+ * {@code <root>/<camera>/<yyyy-MM-dd>/} and indexes them, so "what happened
+ * between 14:02 and 14:05 on camera 3" is a lookup instead of a directory scan.
+ *
+ * The index lives in {@code <root>/index.jsonl}: one JSON line per finished
+ * segment (camera, start/end, triggers, identities seen) and one
+ * {@code {"removed": file}} line per evicted segment. It is replayed and
+ * compacted at startup into one in-memory skip list per camera, keyed by start
+ * time.
+ *
+ * Retention runs on its own thread and evicts the oldest segments by age and
+ * by total bytes. It only takes the index file lock for the append of a
+ * removal line, so writers are never held up by file deletion.
+ */
+public class RecordingStore {
+
+    private static final String INDEX_FILE = "index.jsonl";
+    private static final long RETENTION_PERIOD_SECONDS = 60;
+
+    private final Path root;
+    private final Path indexFile;
+    private final long maxAgeMillis;
+    private final long maxBytes;
+    private final Gson gson = new Gson();
+
+    private final Map<String, ConcurrentSkipListMap<Long, RecordingSegment>> segments = new ConcurrentHashMap<>();
+    private final Map<String, RecordingSegment> byFile = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private volatile long longestSegmentMillis = 0;
+    private final Object indexLock = new Object();
+    private int removedLines = 0;
+    // Lines appended while a rewrite writes its snapshot; null when none is running.
+    private List<String> linesSinceSnapshot = null;
+
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong segmentsEvicted = new AtomicLong();
+    private final AtomicLong bytesEvicted = new AtomicLong();
+    private ScheduledExecutorService retention;
+
+    /**
+     * @param retentionDays segments older than this are deleted; 0 keeps them forever
+     * @param maxGigabytes  total size cap for all cameras; 0 means no cap
+     */
+    public RecordingStore(String root, int retentionDays, double maxGigabytes) {
+        this.root = Paths.get(root);
+        this.indexFile = this.root.resolve(INDEX_FILE);
+        this.maxAgeMillis = Math.max(0, retentionDays) * 24L * 60 * 60 * 1000;
+        this.maxBytes = (long) (Math.max(0, maxGigabytes) * 1024 * 1024 * 1024);
+    }
+
+    /** Loads and compacts the index, then starts the retention thread. */
+    public void start() {
+        try {
+            Files.createDirectories(root);
+            loadIndex();
+        } catch (IOException e) {
+            System.err.println("Error loading recording index: " + e.getMessage());
+        }
+        retention = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recording-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        retention.scheduleWithFixedDelay(this::enforceRetention, 0, RETENTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (retention != null) retention.shutdownNow();
+    }
+
+    /** Starts a new segment; the file is created with its first frame and indexed when finished. */
+    public SegmentWriter openSegment(String cameraId, long startMillis, double fps, String trigger) {
+        String day = new SimpleDateFormat("yyyy-MM-dd").format(new Date(startMillis));
+        String time = new SimpleDateFormat("HH-mm-ss-SSS").format(new Date(startMillis));
+        String relative = safeName(cameraId) + "/" + day + "/" + time + "_" + safeName(trigger) + ".avi";
+        return new SegmentWriter(this, cameraId, root.resolve(relative), relative, fps, trigger);
+    }
+
+    /** Writes a finished list of frames as one segment. */
+    public RecordingSegment writeClip(String cameraId, List<EncodedFrame> frames, double fps, String trigger) throws IOException {
+        if (frames.isEmpty()) throw new IOException("No frames to write");
+        SegmentWriter writer = openSegment(cameraId, frames.get(0).getTimestampMillis(), fps, trigger);
+        try {
+            for (EncodedFrame frame : frames) {
+                writer.append(frame);
+            }
+            return writer.finish();
+        } catch (IOException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    /** Segments of one camera (or all cameras when null) overlapping [from, to), oldest first. */
+    public List<RecordingSegment> query(String cameraId, long fromMillis, long toMillis) {
+        List<RecordingSegment> result = new ArrayList<>();
+        if (cameraId != null) {
+            collect(segments.get(cameraId), fromMillis, toMillis, result);
+        } else {
+            for (ConcurrentSkipListMap<Long, RecordingSegment> camera : segments.values()) {
+                collect(camera, fromMillis, toMillis, result);
+            }
+            result.sort(Comparator.comparingLong(RecordingSegment::getStartMillis));
+        }
+        return result;
+    }
+
+    private void collect(ConcurrentSkipListMap<Long, RecordingSegment> camera, long fromMillis, long toMillis, List<RecordingSegment> result) {
+        if (camera == null || toMillis <= fromMillis) return;
+        // No segment is longer than longestSegmentMillis, so earlier starts cannot reach fromMillis.
+        ConcurrentNavigableMap<Long, RecordingSegment> candidates =
+                camera.subMap(fromMillis - longestSegmentMillis, true, toMillis, false);
+        for (RecordingSegment segment : candidates.values()) {
+            if (segment.overlaps(fromMillis, toMillis)) result.add(segment);
+        }
+    }
+
+    /** The indexed segment with this relative file name, or null. */
+    public RecordingSegment find(String file) {
+        return byFile.get(file);
+    }
+
+    public Path resolve(RecordingSegment segment) {
+        return root.resolve(segment.getFile());
+    }
+
+    void add(RecordingSegment segment) {
+        index(segment);
+        segmentsWritten.incrementAndGet();
+        appendIndexLine(gson.toJson(segment));
+    }
+
+    private void index(RecordingSegment segment) {
+        ConcurrentSkipListMap<Long, RecordingSegment> camera =
+                segments.computeIfAbsent(segment.getCamera(), id -> new ConcurrentSkipListMap<>());
+        long key = segment.getStartMillis();
+        while (camera.putIfAbsent(key, segment) != null) key++;
+        byFile.put(segment.getFile(), segment);
+        totalBytes.addAndGet(segment.getBytes());
+        long length = segment.getEndMillis() - segment.getStartMillis();
+        if (length > longestSegmentMillis) longestSegmentMillis = length;
+    }
+
+    private boolean unindex(RecordingSegment segment) {
+        if (byFile.remove(segment.getFile()) == null) return false;
+        ConcurrentSkipListMap<Long, RecordingSegment> camera = segments.get(segment.getCamera());
+        if (camera != null) camera.values().remove(segment);
+        totalBytes.addAndGet(-segment.getBytes());
+        return true;
+    }
+
+    // --- Retention ---
+
+    private void enforceRetention() {
+        try {
+            long cutoff = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : Long.MIN_VALUE;
+            while (true) {
+                RecordingSegment oldest = oldestSegment();
+                if (oldest == null) break;
+                boolean tooOld = oldest.getEndMillis() < cutoff;
+                boolean tooBig = maxBytes > 0 && totalBytes.get() > maxBytes;
+                if (!tooOld && !tooBig) break;
+                evict(oldest);
+            }
+            compactIndexIfNeeded();
+        } catch (RuntimeException e) {
+            System.err.println("Error enforcing recording retention: " + e.getMessage());
+        }
+    }
+
+    private RecordingSegment oldestSegment() {
+        RecordingSegment oldest = null;
+        for (ConcurrentSkipListMap<Long, RecordingSegment> camera : segments.values()) {
+            Map.Entry<Long, RecordingSegment> first = camera.firstEntry();
+            if (first != null && (oldest == null || first.getValue().getStartMillis() < oldest.getStartMillis())) {
+                oldest = first.getValue();
+            }
+        }
+        return oldest;
+    }
+
+    private void evict(RecordingSegment segment) {
+        // Out of the index first, so queries stop returning it before the file disappears.
+        if (!unindex(segment)) return;
+        Path path = resolve(segment);
+        try {
+            Files.deleteIfExists(path);
+            deleteIfEmpty(path.getParent());
+        } catch (IOException e) {
+            System.err.println("Could not delete recording " + path + ": " + e.getMessage());
+        }
+        JsonObject removed = new JsonObject();
+        removed.addProperty("removed", segment.getFile());
+        appendIndexLine(removed.toString());
+        synchronized (indexLock) {
+            removedLines++;
+        }
+        segmentsEvicted.incrementAndGet();
+        bytesEvicted.addAndGet(segment.getBytes());
+    }
+
+    private static void deleteIfEmpty(Path dir) {
+        try {
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException ignored) {
+        } catch (IOException e) {
+            System.err.println("Could not delete directory " + dir + ": " + e.getMessage());
+        }
+    }
+
+    // --- Index file ---
+
+    private void appendIndexLine(String line) {
+        synchronized (indexLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing recording index: " + e.getMessage());
+            }
+            if (linesSinceSnapshot != null) linesSinceSnapshot.add(line);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) return;
+        Map<String, RecordingSegment> live = new LinkedHashMap<>();
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                lines++;
+                try {
+                    JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                    if (json.has("removed")) {
+                        live.remove(json.get("removed").getAsString());
+                    } else {
+                        RecordingSegment segment = gson.fromJson(json, RecordingSegment.class);
+                        live.put(segment.getFile(), segment);
+                    }
+                } catch (JsonParseException | IllegalStateException e) {
+                    System.err.println("Skipping bad recording index line: " + e.getMessage());
+                }
+            }
+        }
+        for (RecordingSegment segment : live.values()) {
+            // Files removed by hand are dropped from the index.
+            if (Files.exists(resolve(segment))) index(segment);
+        }
+        System.out.println("Recording index loaded: " + byFile.size() + " segments, " + totalBytes.get() / (1024 * 1024) + " MB.");
+        if (byFile.size() < lines) rewriteIndex();
+    }
+
+    private void compactIndexIfNeeded() {
+        synchronized (indexLock) {
+            if (removedLines <= Math.max(1000, byFile.size())) return;
+        }
+        rewriteIndex();
+    }
+
+    /**
+     * Rewrites the index with only the live segments. The snapshot is written
+     * without the lock, so finishing segments keep appending to the old file;
+     * the lines they append meanwhile are copied over before the rename, the
+     * only step appends wait for. A line for a segment the snapshot already
+     * holds is harmless: replay keys segments by file.
+     */
+    void rewriteIndex() {
+        List<RecordingSegment> live;
+        int removedAtSnapshot;
+        synchronized (indexLock) {
+            if (linesSinceSnapshot != null) return;
+            linesSinceSnapshot = new ArrayList<>();
+            removedAtSnapshot = removedLines;
+            live = new ArrayList<>(byFile.values());
+        }
+        live.sort(Comparator.comparingLong(RecordingSegment::getStartMillis));
+        Path tmp = root.resolve(INDEX_FILE + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (RecordingSegment segment : live) {
+                    writer.write(gson.toJson(segment));
+                    writer.newLine();
+                }
+            }
+            synchronized (indexLock) {
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                    for (String line : linesSinceSnapshot) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                removedLines -= removedAtSnapshot;
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting recording index: " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        } finally {
+            synchronized (indexLock) {
+                linesSinceSnapshot = null;
+            }
+        }
+    }
+
+    private static String safeName(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "-");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("segments", byFile.size());
+        stats.put("bytes", totalBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("segmentsWritten", segmentsWritten.get());
+        stats.put("segmentsEvicted", segmentsEvicted.get());
+        stats.put("bytesEvicted", bytesEvicted.get());
+        return stats;
+    }
+}
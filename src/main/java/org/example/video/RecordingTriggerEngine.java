@@ -0,0 +1,348 @@
+package org.example.video;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RecordingTriggerEngine saves clips on its own when configured events occur,
+ * so nothing depends on someone pressing "record". A trigger opens a clip that
+ * starts {@code preSeconds} before it (taken from the pre-roll buffer) and
+ * stays open until {@code postSeconds} after the last trigger; triggers that
+ * arrive while a clip is open extend it instead of starting another one. In
+ * continuous mode a clip is always open and events only annotate it.
+ *
+ * Events are plain names: {@link #UNKNOWN_FACE}, {@link #BODY_WITHOUT_FACE} and
+ * {@code ROLE:<role>}. A rule may be limited to a time window with
+ * {@code @HH-HH}, e.g. {@code BODY_WITHOUT_FACE@22-6} for after hours.
+ *
+ * Clips are written to the {@link RecordingStore} as segments of at most
+ * {@code segmentSeconds}, each indexed with the events and identities seen
+ * while it was recorded. Live frames pass through a
+ * {@link MotionAdaptiveDecimator}, so quiet stretches are stored at a reduced
+ * frame rate.
+ *
+ * {@link #fire(String)} is called from analysis and {@link #onFrame(EncodedFrame)}
+ * from the record stage; both only update state and queue work. Files are
+ * written on the engine's own thread, so a slow disk never stalls the pipeline.
+ * The writer's queue is bounded: while it is full, live and pre-roll frames are
+ * dropped and counted as {@code framesDropped}, but a few slots stay reserved
+ * so closing a segment is never lost.
+ */
+public class RecordingTriggerEngine {
+
+    public static final String UNKNOWN_FACE = "UNKNOWN_FACE";
+    public static final String BODY_WITHOUT_FACE = "BODY_WITHOUT_FACE";
+    public static final String ROLE_PREFIX = "ROLE:";
+    public static final String CONTINUOUS = "CONTINUOUS";
+
+    private static final double DEFAULT_FPS = 30.0;
+    /** About four seconds of frames at 30 fps waiting for the disk before frames are dropped. */
+    private static final int MAX_QUEUED_FRAMES = 120;
+    /** Queue slots only segment closes may use. */
+    private static final int RESERVED_SLOTS = 8;
+
+    private final String cameraId;
+    private final PreRollBuffer preRoll;
+    private final RecordingStore store;
+    private final List<TriggerRule> rules;
+    private final long preMillis;
+    private final long postMillis;
+    private final long segmentMillis;
+    private final boolean continuous;
+    private final MotionAdaptiveDecimator decimator;
+    private final ThreadPoolExecutor writer;
+
+    private Clip activeClip = null;
+
+    private final AtomicLong triggersFired = new AtomicLong();
+    private final AtomicLong triggersMerged = new AtomicLong();
+    private final AtomicLong clipsStarted = new AtomicLong();
+    private final AtomicLong segmentsSaved = new AtomicLong();
+    private final AtomicLong segmentsFailed = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    public RecordingTriggerEngine(String cameraId, PreRollBuffer preRoll, RecordingStore store, List<String> rules,
+                                  int preSeconds, int postSeconds, int segmentSeconds, boolean continuous,
+                                  MotionAdaptiveDecimator decimator) {
+        this.cameraId = cameraId;
+        this.preRoll = preRoll;
+        this.store = store;
+        this.rules = new ArrayList<>();
+        for (String rule : rules) {
+            TriggerRule parsed = TriggerRule.parse(rule);
+            if (parsed != null) this.rules.add(parsed);
+        }
+        this.preMillis = Math.max(0, preSeconds) * 1000L;
+        this.postMillis = Math.max(1, postSeconds) * 1000L;
+        this.segmentMillis = Math.max(1, segmentSeconds) * 1000L;
+        this.continuous = continuous;
+        this.decimator = decimator;
+        // Frames never take the reserved slots, so only a segment close can be
+        // rejected; it then runs on the caller rather than leave a file unfinished.
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES + RESERVED_SLOTS), r -> {
+            Thread t = new Thread(r, "clip-writer-" + cameraId);
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public boolean isEnabled() {
+        return continuous || !rules.isEmpty();
+    }
+
+    /** Reports an event now; returns true if it matched a rule and started or extended a clip. */
+    public boolean fire(String event) {
+        return fire(event, System.currentTimeMillis());
+    }
+
+    public synchronized boolean fire(String event, long nowMillis) {
+        if (!matches(event, nowMillis)) return false;
+        triggersFired.incrementAndGet();
+        decimator.reportActivity(nowMillis);
+        if (activeClip != null) {
+            activeClip.lastTriggerMillis = Math.max(activeClip.lastTriggerMillis, nowMillis);
+            if (activeClip.segmentEvents.add(event)) {
+                System.out.println("Recording on camera '" + cameraId + "' marked with " + event);
+            }
+            triggersMerged.incrementAndGet();
+            return true;
+        }
+        startClip(event, nowMillis, preMillis);
+        return true;
+    }
+
+    /** Motion or a detection was seen; recording returns to the full frame rate for a while. */
+    public void reportActivity() {
+        decimator.reportActivity(System.currentTimeMillis());
+    }
+
+    /** Records that a known person was seen; indexed with the segment being written, if any. */
+    public synchronized void observeIdentity(String name) {
+        if (activeClip != null) activeClip.segmentIdentities.add(name);
+    }
+
+    /**
+     * Appends a live frame to the open clip, if any. Closes an event clip once
+     * its post-roll has passed and starts a new segment when the current one
+     * is full.
+     */
+    public synchronized void onFrame(EncodedFrame frame) {
+        long ts = frame.getTimestampMillis();
+        if (activeClip == null && continuous) startClip(CONTINUOUS, ts, 0);
+        Clip clip = activeClip;
+        if (clip == null) return;
+        if (!continuous && ts > clip.lastTriggerMillis + postMillis) {
+            finishClip();
+            return;
+        }
+        // The pre-roll snapshot may already hold this frame.
+        if (ts <= clip.lastFrameMillis) return;
+        if (!decimator.keep(ts)) return;
+        if (ts - clip.segmentStartMillis >= segmentMillis) {
+            closeSegment(clip);
+            clip.segmentStartMillis = ts;
+        }
+        clip.lastFrameMillis = ts;
+        if (!queueFrames(1)) return;
+        writer.execute(() -> clip.append(frame));
+    }
+
+    /** Closes any open clip and waits briefly for pending writes. */
+    public void stop() {
+        synchronized (this) {
+            if (activeClip != null) finishClip();
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean matches(String event, long nowMillis) {
+        for (TriggerRule rule : rules) {
+            if (rule.matches(event, nowMillis)) return true;
+        }
+        return false;
+    }
+
+    private void startClip(String event, long nowMillis, long preRollMillis) {
+        List<EncodedFrame> preFrames = preRollMillis > 0 ? preRoll.snapshotSince(nowMillis - preRollMillis) : List.of();
+        Clip clip = new Clip(event, nowMillis, MjpegAviWriter.measuredFps(preRoll.snapshotSince(nowMillis - 2000), DEFAULT_FPS));
+        if (!preFrames.isEmpty()) {
+            clip.segmentStartMillis = preFrames.get(0).getTimestampMillis();
+            clip.lastFrameMillis = preFrames.get(preFrames.size() - 1).getTimestampMillis();
+        }
+        activeClip = clip;
+        clipsStarted.incrementAndGet();
+        System.out.println("Recording started on camera '" + cameraId + "' by " + event + " with " + preFrames.size() + " pre-roll frames.");
+        if (preFrames.isEmpty() || !queueFrames(preFrames.size())) return;
+        writer.execute(() -> {
+            for (EncodedFrame frame : preFrames) clip.append(frame);
+        });
+    }
+
+    /**
+     * Whether there is room to queue a write of {@code count} frames; if not,
+     * they are counted as dropped. Called with the engine's lock held, and the
+     * writer only ever drains the queue, so the answer cannot go stale.
+     */
+    private boolean queueFrames(int count) {
+        if (writer.getQueue().remainingCapacity() > RESERVED_SLOTS) return true;
+        framesDropped.addAndGet(count);
+        return false;
+    }
+
+    private void closeSegment(Clip clip) {
+        List<String> events = new ArrayList<>(clip.segmentEvents);
+        List<String> identities = new ArrayList<>(clip.segmentIdentities);
+        clip.segmentEvents.clear();
+        clip.segmentEvents.add(clip.openingEvent);
+        clip.segmentIdentities.clear();
+        writer.execute(() -> clip.closeSegment(events, identities));
+    }
+
+    private void finishClip() {
+        Clip clip = activeClip;
+        activeClip = null;
+        closeSegment(clip);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rules", rules.size());
+        stats.put("continuous", continuous);
+        stats.put("recording", activeClip != null);
+        stats.put("triggersFired", triggersFired.get());
+        stats.put("triggersMerged", triggersMerged.get());
+        stats.put("clipsStarted", clipsStarted.get());
+        stats.put("segmentsSaved", segmentsSaved.get());
+        stats.put("segmentsFailed", segmentsFailed.get());
+        stats.put("framesWritten", framesWritten.get());
+        stats.put("framesDropped", framesDropped.get());
+        stats.put("queuedWrites", writer.getQueue().size());
+        if (decimator.isEnabled()) stats.put("decimation", decimator.stats());
+        return stats;
+    }
+
+    /**
+     * One clip, possibly spanning several segments. Trigger bookkeeping is
+     * guarded by the engine; {@code segment} is only touched on the writer thread.
+     */
+    private final class Clip {
+        final String openingEvent;
+        final double fps;
+        final Set<String> segmentEvents = new LinkedHashSet<>();
+        final Set<String> segmentIdentities = new LinkedHashSet<>();
+        long lastTriggerMillis;
+        long segmentStartMillis;
+        long lastFrameMillis = Long.MIN_VALUE;
+
+        private SegmentWriter segment;
+        private boolean failed = false;
+
+        Clip(String openingEvent, long startMillis, double fps) {
+            this.openingEvent = openingEvent;
+            this.lastTriggerMillis = startMillis;
+            this.segmentStartMillis = startMillis;
+            this.fps = fps;
+            this.segmentEvents.add(openingEvent);
+        }
+
+        void append(EncodedFrame frame) {
+            if (failed) return;
+            try {
+                if (segment == null) segment = store.openSegment(cameraId, frame.getTimestampMillis(), fps, openingEvent);
+                segment.append(frame);
+                framesWritten.incrementAndGet();
+            } catch (IOException e) {
+                // Drop the rest of this segment; the next one starts fresh.
+                failed = true;
+                segmentsFailed.incrementAndGet();
+                System.err.println("Error writing recording segment on camera '" + cameraId + "': " + e.getMessage());
+                if (segment != null) segment.discard();
+            }
+        }
+
+        void closeSegment(List<String> events, List<String> identities) {
+            SegmentWriter current = segment;
+            segment = null;
+            failed = false;
+            if (current == null) return;
+            try {
+                current.addTriggers(events);
+                current.addIdentities(identities);
+                RecordingSegment saved = current.finish();
+                if (saved != null) {
+                    segmentsSaved.incrementAndGet();
+                    System.out.println("Recording segment saved: " + saved.getFile() + " (" + saved.getFrames() + " frames)");
+                }
+            } catch (IOException e) {
+                segmentsFailed.incrementAndGet();
+                System.err.println("Error finishing recording segment " + current.getFile() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** An event name, optionally restricted to a daily window of hours that may wrap past midnight. */
+    private static final class TriggerRule {
+        final String event;
+        final int fromHour;
+        final int toHour;
+
+        private TriggerRule(String event, int fromHour, int toHour) {
+            this.event = event;
+            this.fromHour = fromHour;
+            this.toHour = toHour;
+        }
+
+        static TriggerRule parse(String spec) {
+            String s = spec.trim();
+            if (s.isEmpty()) return null;
+            int at = s.indexOf('@');
+            if (at < 0) return new TriggerRule(normalize(s), -1, -1);
+            String[] hours = s.substring(at + 1).split("-");
+            try {
+                int from = Integer.parseInt(hours[0].trim());
+                int to = Integer.parseInt(hours[1].trim());
+                return new TriggerRule(normalize(s.substring(0, at)), from % 24, to % 24);
+            } catch (RuntimeException e) {
+                System.err.println("Invalid recording trigger '" + spec + "', expected NAME or NAME@HH-HH");
+                return null;
+            }
+        }
+
+        private static String normalize(String event) {
+            String e = event.trim();
+            if (e.regionMatches(true, 0, ROLE_PREFIX, 0, ROLE_PREFIX.length())) {
+                return ROLE_PREFIX + e.substring(ROLE_PREFIX.length()).trim();
+            }
+            return e.toUpperCase(Locale.ROOT);
+        }
+
+        boolean matches(String name, long nowMillis) {
+            if (!event.equalsIgnoreCase(name)) return false;
+            if (fromHour < 0 || fromHour == toHour) return true;
+            int hour = LocalTime.ofInstant(Instant.ofEpochMilli(nowMillis), ZoneId.systemDefault()).getHour();
+            return fromHour <= toHour
+                    ? hour >= fromHour && hour < toHour
+                    : hour >= fromHour || hour < toHour;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.video;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * SegmentWriter writes one segment file of a {@link RecordingStore}. The file
+ * is opened with the first frame; {@link #close()} finishes it and adds it to
+ * the store's index with the time span of the frames actually written.
+ *
+ * Each frame is placed in the time slot given by its capture timestamp, and
+ * slots without a frame become drop-frame chunks. Frames left out on purpose
+ * (decimation) or lost by the grabber therefore do not speed playback up.
+ * Not thread-safe: used from a single writer thread.
+ *
+ * Segment names are only unique to the millisecond, so the file is created
+ * exclusively; if a segment of the same camera, millisecond and trigger
+ * already exists, "_1", "_2", ... is added to the name.
+ */
+public final class SegmentWriter implements Closeable {
+
+    private final RecordingStore store;
+    private final String cameraId;
+    private static final int MAX_NAME_ATTEMPTS = 100;
+
+    private Path path;
+    private String relativeFile;
+    private final double fps;
+    private final Set<String> triggers = new LinkedHashSet<>();
+    private final Set<String> identities = new LinkedHashSet<>();
+
+    private MjpegAviWriter out;
+    private long firstMillis = -1;
+    private long lastMillis = -1;
+    private int pictures = 0;
+    private boolean closed = false;
+
+    SegmentWriter(RecordingStore store, String cameraId, Path path, String relativeFile, double fps, String trigger) {
+        this.store = store;
+        this.cameraId = cameraId;
+        this.path = path;
+        this.relativeFile = relativeFile;
+        this.fps = fps;
+        this.triggers.add(trigger);
+    }
+
+    public void append(EncodedFrame frame) throws IOException {
+        if (closed) throw new IOException("Segment already closed: " + relativeFile);
+        if (out == null) {
+            Files.createDirectories(path.getParent());
+            out = openUnique(frame.getWidth(), frame.getHeight());
+            firstMillis = frame.getTimestampMillis();
+        }
+        long slot = Math.round((frame.getTimestampMillis() - firstMillis) * out.getFps() / 1000.0);
+        if (slot > out.getFrameCount()) out.skip((int) (slot - out.getFrameCount()));
+        out.append(frame);
+        lastMillis = frame.getTimestampMillis();
+        pictures++;
+    }
+
+    private MjpegAviWriter openUnique(int width, int height) throws IOException {
+        String base = relativeFile.substring(0, relativeFile.length() - ".avi".length());
+        Path first = path;
+        for (int sequence = 1; ; sequence++) {
+            try {
+                return MjpegAviWriter.open(path, width, height, fps);
+            } catch (FileAlreadyExistsException e) {
+                if (sequence >= MAX_NAME_ATTEMPTS) throw e;
+                relativeFile = base + "_" + sequence + ".avi";
+                path = first.resolveSibling(relativeFile.substring(relativeFile.lastIndexOf('/') + 1));
+            }
+        }
+    }
+
+    public void addTriggers(Collection<String> names) { triggers.addAll(names); }
+    public void addIdentities(Collection<String> names) { identities.addAll(names); }
+
+    /** Pictures written, not counting skipped slots. */
+    public int getFrameCount() { return pictures; }
+    public long getFirstMillis() { return firstMillis; }
+    public String getFile() { return relativeFile; }
+
+    /** Finishes the file and indexes it; returns the entry, or null if no frame was written. */
+    public RecordingSegment finish() throws IOException {
+        if (closed) return null;
+        closed = true;
+        if (out == null) return null;
+        out.close();
+        // The last frame lasts one frame interval.
+        long end = lastMillis + Math.round(1000.0 / out.getFps());
+        RecordingSegment segment = new RecordingSegment(cameraId, relativeFile, firstMillis, end,
+                new ArrayList<>(triggers), new ArrayList<>(identities), pictures, Files.size(path));
+        store.add(segment);
+        return segment;
+    }
+
+    /** Abandons the segment, deleting whatever was written. */
+    public void discard() {
+        if (closed) return;
+        closed = true;
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Could not delete broken segment " + path + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+}
@@ -1,59 +1,44 @@
 package org.example.video;
 
-import org.bytedeco.javacv.FFmpegFrameRecorder;
-import org.bytedeco.javacv.FrameRecorder;
-import org.bytedeco.javacv.OpenCVFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameGrabber;
-import org.bytedeco.opencv.opencv_core.Mat;
-
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_H264;
-
 /**
- * VideoRecorder writes buffered Mats to an MP4 file with H264 encoding.
+ * VideoRecorder saves a snapshot of the pre-roll buffer as a clip. The JPEG
+ * frames are written into a Motion-JPEG AVI as they are, without re-encoding,
+ * and the clip is indexed in the {@link RecordingStore} as a MANUAL segment.
  */
 public class VideoRecorder {
-    private final OpenCVFrameConverter.ToMat toMatConverter = new OpenCVFrameConverter.ToMat();
+    private static final double DEFAULT_FPS = 30.0;
+    private static final String MANUAL_TRIGGER = "MANUAL";
+
     private final AtomicBoolean isRecording;
-    private final String recordingsDir;
+    private final RecordingStore store;
+    private final String cameraId;
 
-    public VideoRecorder(AtomicBoolean isRecording, String recordingsDir) {
+    public VideoRecorder(AtomicBoolean isRecording, RecordingStore store, String cameraId) {
         this.isRecording = isRecording;
-        this.recordingsDir = recordingsDir;
+        this.store = store;
+        this.cameraId = cameraId;
     }
 
-    public void recordBufferedMats(List<Mat> matsToRecord, OpenCVFrameGrabber activeGrabber, Runnable onDone, java.util.function.Consumer<String> onStatus) {
-        if (matsToRecord.isEmpty()) {
+    public void recordBufferedFrames(List<EncodedFrame> framesToRecord, Runnable onDone, java.util.function.Consumer<String> onStatus) {
+        if (framesToRecord.isEmpty()) {
             onStatus.accept("Error: Frame buffer is empty. Nothing to record.");
             isRecording.set(false);
             return;
         }
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
-        String outputPath = java.nio.file.Paths.get(recordingsDir, "clip_" + timestamp + ".mp4").toString();
-        try (FrameRecorder recorder = new FFmpegFrameRecorder(outputPath, activeGrabber.getImageWidth(), activeGrabber.getImageHeight(), 0)) {
-            recorder.setVideoCodec(AV_CODEC_ID_H264);
-            recorder.setFrameRate(activeGrabber.getFrameRate());
-            recorder.setVideoBitrate(2000000);
-            recorder.start();
-            for (Mat mat : matsToRecord) {
-                recorder.record(toMatConverter.convert(mat));
-            }
-            onStatus.accept("Status: Clip saved to " + outputPath);
-        } catch (FrameRecorder.Exception e) {
+        try {
+            RecordingSegment segment = store.writeClip(cameraId, framesToRecord,
+                    MjpegAviWriter.measuredFps(framesToRecord, DEFAULT_FPS), MANUAL_TRIGGER);
+            onStatus.accept("Status: Clip saved to " + store.resolve(segment));
+        } catch (IOException e) {
             e.printStackTrace();
             onStatus.accept("Error: Failed to save video clip.");
         } finally {
-            for (Mat mat : matsToRecord) {
-                mat.release();
-            }
             onDone.run();
             isRecording.set(false);
         }
     }
 }
-
-
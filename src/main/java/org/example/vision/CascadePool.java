@@ -0,0 +1,89 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.RectVector;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_objdetect.CascadeClassifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CascadePool hands out {@link CascadeClassifier} instances of one cascade
+ * file so that any number of threads can detect at the same time. A
+ * CascadeClassifier keeps scratch buffers between calls and must not be used
+ * by two threads at once; the camera analysis workers and the web server's
+ * /recognize handlers would otherwise share one. Loading a cascade takes a
+ * few milliseconds, so instances are kept for reuse (see {@link DetectorPool}).
+ */
+public final class CascadePool extends DetectorPool<CascadeClassifier> {
+
+    private static final Size NO_MAX_SIZE = new Size();
+
+    public CascadePool(String name, String cascadePath, int maxIdle) {
+        super(name, () -> load(name, cascadePath), maxIdle);
+    }
+
+    private static CascadeClassifier load(String name, String cascadePath) {
+        CascadeClassifier detector = new CascadeClassifier(cascadePath);
+        if (detector.empty()) {
+            detector.close();
+            throw new IllegalStateException("Could not load cascade " + name + " from " + cascadePath);
+        }
+        return detector;
+    }
+
+    /**
+     * Runs the cascade over the given full-resolution areas of the context's
+     * detection image. Minimum sizes are given in full-resolution pixels and
+     * scaled along with the image; the returned boxes are in full-resolution
+     * coordinates. Safe to call from any number of threads: each call checks
+     * out its own cascade.
+     */
+    public List<Rect> detect(FrameAnalysisContext context, List<Rect> areas, int minWidth, int minHeight, int minNeighbors) {
+        List<Rect> detections = new ArrayList<>();
+        double scale = context.detectionScale();
+        Size minSize = new Size(Math.max(1, (int) Math.round(minWidth * scale)), Math.max(1, (int) Math.round(minHeight * scale)));
+        Mat image = context.detectionImage();
+        CascadeClassifier detector = acquire();
+        try {
+            for (Rect fullArea : areas) {
+                Rect area = context.toDetection(fullArea);
+                if (area.width() < minSize.width() || area.height() < minSize.height()) continue;
+                Mat view = new Mat(image, area);
+                RectVector found = new RectVector();
+                detector.detectMultiScale(view, found, 1.1, minNeighbors, 0, minSize, NO_MAX_SIZE);
+                for (long i = 0; i < found.size(); i++) {
+                    detections.add(context.toFullResolution(found.get(i), area));
+                }
+                found.releaseReference();
+                view.close();
+            }
+        } finally {
+            release(detector);
+            minSize.close();
+        }
+        return detections;
+    }
+
+    /** Boxes in an equalized grayscale image, e.g. a training photo, with the given parameters. */
+    public List<Rect> detect(Mat equalizedGray, int minNeighbors, int minSize) {
+        List<Rect> detections = new ArrayList<>();
+        Size min = new Size(minSize, minSize);
+        RectVector found = new RectVector();
+        CascadeClassifier detector = acquire();
+        try {
+            detector.detectMultiScale(equalizedGray, found, 1.1, minNeighbors, 0, min, NO_MAX_SIZE);
+            for (long i = 0; i < found.size(); i++) {
+                Rect r = found.get(i);
+                detections.add(new Rect(r.x(), r.y(), r.width(), r.height()));
+            }
+        } finally {
+            release(detector);
+            found.releaseReference();
+            min.close();
+        }
+        return detections;
+    }
+}
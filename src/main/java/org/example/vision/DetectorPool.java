@@ -0,0 +1,99 @@
+package org.example.vision;
+
+import org.bytedeco.javacpp.Pointer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * DetectorPool hands out instances of a native detector that must not be
+ * used by two threads at once (OpenCV cascades and DNN nets keep scratch
+ * buffers between calls), so that any number of threads can detect at the
+ * same time.
+ *
+ * An instance is checked out for a single detection and handed back, so the
+ * pool only grows to the number of detections actually running in parallel.
+ * At most {@code maxIdle} instances are kept for reuse; extra ones are closed
+ * when returned. After warm-up every checkout is served from the idle list.
+ */
+public class DetectorPool<T extends Pointer> {
+
+    private final String name;
+    private final Supplier<T> loader;
+    private final ConcurrentLinkedDeque<T> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private volatile int maxIdle;
+
+    /** @param loader creates a ready instance or throws; called once here so an unusable model fails at startup */
+    public DetectorPool(String name, Supplier<T> loader, int maxIdle) {
+        this.name = name;
+        this.loader = loader;
+        this.maxIdle = Math.max(1, maxIdle);
+        T first = load();
+        idle.add(first);
+        idleCount.incrementAndGet();
+    }
+
+    public String getName() { return name; }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = Math.max(1, maxIdle);
+    }
+
+    /** An instance for the calling thread's exclusive use until {@link #release}. */
+    public T acquire() {
+        checkouts.incrementAndGet();
+        int busy = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(busy, Math::max);
+        T detector = idle.pollFirst();
+        if (detector != null) {
+            idleCount.decrementAndGet();
+            return detector;
+        }
+        return load();
+    }
+
+    public void release(T detector) {
+        inUse.decrementAndGet();
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.addFirst(detector);
+        } else {
+            idleCount.decrementAndGet();
+            detector.close();
+        }
+    }
+
+    private T load() {
+        T detector = loader.get();
+        created.incrementAndGet();
+        return detector;
+    }
+
+    /** Closes the idle instances; instances still checked out are closed on release. */
+    public void close() {
+        maxIdle = 0;
+        T detector;
+        while ((detector = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            detector.close();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", created.get());
+        stats.put("idle", idleCount.get());
+        stats.put("inUse", inUse.get());
+        stats.put("peakInUse", peakInUse.get());
+        stats.put("checkouts", checkouts.get());
+        return stats;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FaceDetector finds face boxes for the recognition service: in live frames
+ * ({@link #detect}) and in training photos ({@link #detectInPhoto}). Training
+ * crops and live crops come from the same detector, so the recognizer sees
+ * faces framed the same way in both. Implementations are safe to call from
+ * any number of threads. Which detector runs is chosen with
+ * {@code face.detector} ({@link #forName}).
+ */
+public interface FaceDetector {
+
+    String name();
+
+    /**
+     * Faces inside the given full-resolution areas of the context's frame, at
+     * least {@code minSize} full-resolution pixels wide. Detectors scan the
+     * context's images at its detection scale; the returned boxes are in
+     * full-resolution coordinates.
+     */
+    List<Rect> detect(FrameAnalysisContext context, List<Rect> areas, int minSize);
+
+    /**
+     * Faces in a whole still photo, e.g. a training image, with settings
+     * suited to close-up, single-person shots. The photo is passed both as
+     * BGR and as equalized grayscale so each detector uses the input it was
+     * trained on.
+     */
+    List<Rect> detectInPhoto(Mat bgr, Mat equalizedGray);
+
+    /** Detector instances kept for reuse, i.e. the detections expected to run in parallel. */
+    void setPoolSize(int size);
+
+    Map<String, Object> stats();
+
+    /** Frees the idle instances; detections still running finish normally. */
+    void close();
+
+    /**
+     * "haar" (default) or "yunet"; unknown names fall back to the default with
+     * a warning. YuNet reads its ONNX model from {@code modelPath} if set,
+     * otherwise from {@link YuNetFaceDetector#MODEL_RESOURCE} on the classpath.
+     *
+     * @throws IOException if the model file cannot be read
+     */
+    static FaceDetector forName(String name, String modelPath, float scoreThreshold, int poolSize) throws IOException {
+        if ("yunet".equalsIgnoreCase(name)) {
+            byte[] model = modelPath == null || modelPath.isBlank()
+                    ? ModelResources.read(YuNetFaceDetector.MODEL_RESOURCE)
+                    : Files.readAllBytes(Paths.get(modelPath));
+            return new YuNetFaceDetector(model, scoreThreshold, poolSize);
+        }
+        if (name != null && !name.isBlank() && !"haar".equalsIgnoreCase(name)) {
+            System.err.println("Unknown face.detector '" + name + "', using haar.");
+        }
+        return new HaarFaceDetector(ModelResources.extract(HaarFaceDetector.CASCADE_RESOURCE, ".xml"), poolSize);
+    }
+}
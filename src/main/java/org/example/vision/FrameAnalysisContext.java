@@ -0,0 +1,184 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgproc.*;
+
+/**
+ * FrameAnalysisContext wraps one BGR frame for the duration of its analysis
+ * and computes the derived images every detector needs (grayscale, equalized,
+ * downscaled grayscale) lazily and at most once. The motion detector, both
+ * cascades and the recognizer then share the same conversions instead of
+ * each running cvtColor/equalizeHist on the full frame.
+ *
+ * The cascades scan {@link #detectionImage()}, an equalized copy reduced by
+ * the configured detection scale; boxes found there are mapped back with
+ * {@link #toFullResolution(Rect, Rect)}, and recognition crops are always
+ * taken from the full-resolution frame. DNN face detectors scan
+ * {@link #detectionColor()}, the color frame at the same scale.
+ *
+ * The context does not own the frame. Derived images come from the thread's
+ * {@link MatPool} and go back to it on {@link #close()}; callers must not keep
+ * them beyond that.
+ *
+ * Not thread-safe: created and used by one analyze call.
+ */
+public class FrameAnalysisContext implements AutoCloseable {
+
+    private final Mat frame;
+    private final double detectionScale;
+    private Mat gray;
+    private Mat equalized;
+    private Mat detectionImage;
+    private Mat detectionColor;
+    private final Map<Integer, Mat> grayByWidth = new HashMap<>();
+    private final MatPool pool = MatPool.local();
+
+    public FrameAnalysisContext(Mat frame) {
+        this(frame, 1.0);
+    }
+
+    /** @param detectionScale factor in (0, 1] applied to the frame before the cascades scan it */
+    public FrameAnalysisContext(Mat frame, double detectionScale) {
+        this.frame = frame;
+        this.detectionScale = (detectionScale > 0 && detectionScale < 1.0) ? detectionScale : 1.0;
+    }
+
+    /** The original BGR frame. */
+    public Mat frame() { return frame; }
+
+    public int width() { return frame.cols(); }
+    public int height() { return frame.rows(); }
+
+    /** Full-resolution grayscale. */
+    public Mat gray() {
+        if (gray == null) {
+            gray = pool.acquire(frame.rows(), frame.cols(), CV_8UC1);
+            cvtColor(frame, gray, COLOR_BGR2GRAY);
+        }
+        return gray;
+    }
+
+    /** Full-resolution grayscale with its histogram equalized, as the cascades expect. */
+    public Mat equalized() {
+        if (equalized == null) {
+            Mat source = gray();
+            equalized = pool.acquire(source.rows(), source.cols(), CV_8UC1);
+            equalizeHist(source, equalized);
+        }
+        return equalized;
+    }
+
+    public double detectionScale() { return detectionScale; }
+
+    /** Equalized grayscale at the detection scale; the full-resolution equalized image when the scale is 1. */
+    public Mat detectionImage() {
+        if (detectionScale >= 1.0) return equalized();
+        if (detectionImage == null) {
+            Mat source = grayAtWidth((int) Math.round(frame.cols() * detectionScale));
+            detectionImage = pool.acquire(source.rows(), source.cols(), CV_8UC1);
+            equalizeHist(source, detectionImage);
+        }
+        return detectionImage;
+    }
+
+    /**
+     * The BGR frame at the detection scale, for detectors that work on color
+     * (e.g. YuNet); the frame itself when the scale is 1. Same geometry as
+     * {@link #detectionImage()}, so boxes map back the same way.
+     */
+    public Mat detectionColor() {
+        if (detectionScale >= 1.0) return frame;
+        if (detectionColor == null) {
+            int width = detectionWidth();
+            int height = detectionHeight();
+            Size size = new Size(width, height);
+            detectionColor = pool.acquire(height, width, frame.type());
+            resize(frame, detectionColor, size, 0, 0, INTER_AREA);
+            size.close();
+        }
+        return detectionColor;
+    }
+
+    // The size grayAtWidth produces for the detection scale.
+    private int detectionWidth() {
+        return Math.max(1, (int) Math.round(frame.cols() * detectionScale));
+    }
+
+    private int detectionHeight() {
+        double scale = (double) Math.round(frame.cols() * detectionScale) / frame.cols();
+        return Math.max(1, (int) Math.round(frame.rows() * scale));
+    }
+
+    /** Maps a full-resolution rectangle onto the detection image. */
+    public Rect toDetection(Rect rect) {
+        if (detectionScale >= 1.0) return rect;
+        int x1 = Math.max(0, (int) Math.floor(rect.x() * detectionScale));
+        int y1 = Math.max(0, (int) Math.floor(rect.y() * detectionScale));
+        int x2 = Math.min(detectionWidth(), (int) Math.ceil((rect.x() + rect.width()) * detectionScale));
+        int y2 = Math.min(detectionHeight(), (int) Math.ceil((rect.y() + rect.height()) * detectionScale));
+        return new Rect(x1, y1, Math.max(0, x2 - x1), Math.max(0, y2 - y1));
+    }
+
+    /**
+     * Maps a box found inside {@code area} of the detection image back to
+     * full-resolution frame coordinates, clipped to the frame.
+     */
+    public Rect toFullResolution(Rect found, Rect area) {
+        double inverse = 1.0 / detectionScale;
+        int x1 = (int) Math.round((found.x() + area.x()) * inverse);
+        int y1 = (int) Math.round((found.y() + area.y()) * inverse);
+        int x2 = Math.min(frame.cols(), (int) Math.round((found.x() + area.x() + found.width()) * inverse));
+        int y2 = Math.min(frame.rows(), (int) Math.round((found.y() + area.y() + found.height()) * inverse));
+        return new Rect(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Grayscale downscaled to at most {@code targetWidth} pixels wide (never
+     * upscaled). If the full-resolution gray already exists it is resized;
+     * otherwise the color frame is resized first so the conversion runs on the
+     * small image only.
+     */
+    public Mat grayAtWidth(int targetWidth) {
+        if (targetWidth >= frame.cols()) return gray();
+        Mat small = grayByWidth.get(targetWidth);
+        if (small != null) return small;
+
+        double scale = (double) targetWidth / frame.cols();
+        int width = Math.max(1, targetWidth);
+        int height = Math.max(1, (int) Math.round(frame.rows() * scale));
+        Size size = new Size(width, height);
+        small = pool.acquire(height, width, CV_8UC1);
+        if (gray != null) {
+            resize(gray, small, size, 0, 0, INTER_AREA);
+        } else {
+            Mat smallColor = pool.acquire(height, width, frame.type());
+            resize(frame, smallColor, size, 0, 0, INTER_AREA);
+            cvtColor(smallColor, small, COLOR_BGR2GRAY);
+            pool.release(smallColor);
+        }
+        size.close();
+        grayByWidth.put(targetWidth, small);
+        return small;
+    }
+
+    @Override
+    public void close() {
+        pool.release(gray);
+        pool.release(equalized);
+        pool.release(detectionImage);
+        pool.release(detectionColor);
+        for (Mat small : grayByWidth.values()) pool.release(small);
+        gray = null;
+        equalized = null;
+        detectionImage = null;
+        detectionColor = null;
+        grayByWidth.clear();
+    }
+}
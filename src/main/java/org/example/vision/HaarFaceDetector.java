@@ -0,0 +1,59 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The frontal-face Haar cascade, scanning the equalized grayscale detection
+ * image. Live frames require 6 neighbouring hits per face to keep false
+ * positives down; training photos are close-ups and accept 3.
+ */
+public final class HaarFaceDetector implements FaceDetector {
+
+    public static final String CASCADE_RESOURCE = "haarcascade_frontalface_default.xml";
+
+    private static final int LIVE_MIN_NEIGHBORS = 6;
+    private static final int PHOTO_MIN_NEIGHBORS = 3;
+    private static final int PHOTO_MIN_SIZE = 30;
+
+    private final CascadePool cascades;
+
+    public HaarFaceDetector(String cascadePath, int poolSize) {
+        this.cascades = new CascadePool("face", cascadePath, poolSize);
+    }
+
+    @Override
+    public String name() { return "haar"; }
+
+    @Override
+    public List<Rect> detect(FrameAnalysisContext context, List<Rect> areas, int minSize) {
+        return cascades.detect(context, areas, minSize, minSize, LIVE_MIN_NEIGHBORS);
+    }
+
+    @Override
+    public List<Rect> detectInPhoto(Mat bgr, Mat equalizedGray) {
+        return cascades.detect(equalizedGray, PHOTO_MIN_NEIGHBORS, PHOTO_MIN_SIZE);
+    }
+
+    @Override
+    public void setPoolSize(int size) {
+        cascades.setMaxIdle(size);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("detector", name());
+        stats.putAll(cascades.stats());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        cascades.close();
+    }
+}
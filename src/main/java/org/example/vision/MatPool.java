@@ -0,0 +1,126 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MatPool recycles scratch Mats by size and type so the detection and
+ * recognition hot path stops allocating and freeing native pixel buffers on
+ * every frame. Each thread has its own pool ({@link #local()}); a Mat must be
+ * returned on the thread that acquired it. Once the frame size is stable every
+ * acquire is a hit.
+ *
+ * A thread's pool holds at most {@link #MAX_POOLED_BYTES} in at most
+ * {@link #MAX_KEYS} sizes; beyond that the least recently used sizes are
+ * freed first. Camera threads see a handful of sizes and never hit the cap,
+ * while a /recognize worker that sees a new upload size on every request
+ * keeps only the most recent ones instead of one buffer set per size forever.
+ *
+ * Hit/miss counters are global across threads and reported in /metrics.
+ */
+public final class MatPool {
+
+    private static final int MAX_PER_KEY = 4;
+    // Room for the full-resolution gray, equalized and detection images of a 4K frame.
+    static final long MAX_POOLED_BYTES = 64L << 20;
+    static final int MAX_KEYS = 32;
+    private static final ThreadLocal<MatPool> LOCAL = ThreadLocal.withInitial(() -> new MatPool(MAX_POOLED_BYTES, MAX_KEYS));
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong discarded = new AtomicLong();
+    private static final AtomicLong evicted = new AtomicLong();
+    private static final AtomicLong pooledBytesTotal = new AtomicLong();
+
+    private final long maxBytes;
+    private final int maxKeys;
+    // Access order: the first entry is the size used least recently.
+    private final Map<Long, ArrayDeque<Mat>> free = new LinkedHashMap<>(16, 0.75f, true);
+    private long pooledBytes;
+
+    MatPool(long maxBytes, int maxKeys) {
+        this.maxBytes = maxBytes;
+        this.maxKeys = maxKeys;
+    }
+
+    /** The calling thread's pool. */
+    public static MatPool local() {
+        return LOCAL.get();
+    }
+
+    /** A Mat of exactly this geometry; its contents are undefined. */
+    public Mat acquire(int rows, int cols, int type) {
+        ArrayDeque<Mat> queue = free.get(key(rows, cols, type));
+        Mat mat = queue == null ? null : queue.pollFirst();
+        if (mat != null) {
+            hits.incrementAndGet();
+            forget(mat);
+            return mat;
+        }
+        misses.incrementAndGet();
+        return new Mat(rows, cols, type);
+    }
+
+    /** Hands a Mat back; it must not be used by the caller afterwards. */
+    public void release(Mat mat) {
+        if (mat == null || mat.isNull()) return;
+        ArrayDeque<Mat> queue = free.computeIfAbsent(key(mat.rows(), mat.cols(), mat.type()), k -> new ArrayDeque<>());
+        long size = bytes(mat);
+        if (queue.size() >= MAX_PER_KEY || size > maxBytes) {
+            discarded.incrementAndGet();
+            mat.release();
+            return;
+        }
+        queue.addFirst(mat);
+        pooledBytes += size;
+        pooledBytesTotal.addAndGet(size);
+        trim();
+    }
+
+    /** Frees Mats of the least recently used sizes until the pool is within its limits. */
+    private void trim() {
+        Iterator<ArrayDeque<Mat>> eldest = free.values().iterator();
+        while ((pooledBytes > maxBytes || free.size() > maxKeys) && eldest.hasNext()) {
+            ArrayDeque<Mat> queue = eldest.next();
+            while (!queue.isEmpty() && (pooledBytes > maxBytes || free.size() > maxKeys)) {
+                Mat mat = queue.pollLast();
+                forget(mat);
+                evicted.incrementAndGet();
+                mat.release();
+            }
+            if (queue.isEmpty()) eldest.remove();
+        }
+    }
+
+    private void forget(Mat mat) {
+        long size = bytes(mat);
+        pooledBytes -= size;
+        pooledBytesTotal.addAndGet(-size);
+    }
+
+    private static long bytes(Mat mat) {
+        return mat.total() * mat.elemSize();
+    }
+
+    private static long key(int rows, int cols, int type) {
+        return ((long) rows << 40) | ((long) cols << 16) | (type & 0xFFFF);
+    }
+
+    public static Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("discarded", discarded.get());
+        stats.put("evicted", evicted.get());
+        stats.put("pooledBytes", pooledBytesTotal.get());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        return stats;
+    }
+}
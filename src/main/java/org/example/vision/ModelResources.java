@@ -0,0 +1,40 @@
+package org.example.vision;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Detector models shipped on the classpath (src/main/resources). OpenCV
+ * loads cascades from a file path only, so those are copied to a temporary
+ * file first; DNN models are passed to OpenCV as bytes.
+ */
+public final class ModelResources {
+
+    private ModelResources() {}
+
+    /** Copies a resource to a temporary file, deleted on exit, and returns its path. */
+    public static String extract(String resource, String suffix) throws IOException {
+        try (InputStream is = open(resource)) {
+            File tempFile = File.createTempFile("model-", suffix);
+            tempFile.deleteOnExit();
+            try (FileOutputStream os = new FileOutputStream(tempFile)) {
+                is.transferTo(os);
+            }
+            return tempFile.getAbsolutePath();
+        }
+    }
+
+    public static byte[] read(String resource) throws IOException {
+        try (InputStream is = open(resource)) {
+            return is.readAllBytes();
+        }
+    }
+
+    private static InputStream open(String resource) throws IOException {
+        InputStream is = ModelResources.class.getClassLoader().getResourceAsStream(resource);
+        if (is == null) throw new IOException("Model file not found in resources: " + resource);
+        return is;
+    }
+}
@@ -3,6 +3,7 @@ package org.example.network
 import io.ktor.http.*
 import io.ktor.serialization.gson.gson
 import io.ktor.server.application.Application
+import io.ktor.server.application.ApplicationCall
 import io.ktor.server.application.call
 import io.ktor.server.application.install
 import io.ktor.server.plugins.contentnegotiation.ContentNegotiation
@@ -13,6 +14,8 @@ import io.ktor.http.content.PartData.FileItem
 import io.ktor.server.http.content.staticResources
 import io.ktor.server.plugins.cors.routing.CORS
 import io.ktor.server.response.respondOutputStream
+import io.ktor.server.response.respondFile
+import io.ktor.server.response.header
 import io.ktor.server.routing.post
 import io.ktor.server.websocket.webSocket
 import io.ktor.websocket.Frame
@@ -28,12 +31,65 @@ import io.ktor.server.websocket.WebSockets
 import kotlinx.coroutines.CancellationException
 import org.example.DatabaseService
 import org.example.FaceRecognitionService
+import org.example.metrics.MetricsRegistry
+import org.example.video.RecordingStore
 
 // DTOs (Unchanged)
 data class UserDto(val id: Int, val name: String, val role: String)
-data class LogDto(val name: String, val role: String, val timestamp: String, val confidence: Double)
+data class LogDto(val name: String, val role: String, val timestamp: String, val confidence: Double, val camera: String)
 data class BoxDto(val x: Int, val y: Int, val width: Int, val height: Int)
-data class RecognitionDto(val name: String, val confidence: Double, val box: BoxDto)
+data class RecognitionDto(val name: String, val confidence: Double, val box: BoxDto, val modelVersion: Long)
+data class SegmentDto(
+    val camera: String, val file: String, val start: String, val end: String,
+    val triggers: List<String>, val identities: List<String>, val frames: Int, val bytes: Long
+)
+
+/**
+ * Parses a query time: epoch milliseconds or a local ISO date-time such as 2024-05-01T14:02.
+ */
+private fun parseTime(value: String?): Long? {
+    if (value.isNullOrBlank()) return null
+    value.toLongOrNull()?.let { return it }
+    return try {
+        java.time.LocalDateTime.parse(value).atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli()
+    } catch (e: java.time.format.DateTimeParseException) {
+        null
+    }
+}
+
+private fun formatTime(millis: Long): String =
+    java.time.Instant.ofEpochMilli(millis).atZone(java.time.ZoneId.systemDefault()).toLocalDateTime().toString()
+
+/**
+ * Streams JPEG frames from [frameSource] as multipart MJPEG until the client disconnects.
+ */
+private suspend fun streamMjpeg(call: ApplicationCall, frameSource: () -> ByteArray?) {
+    try {
+        call.response.headers.append(HttpHeaders.ContentType, "multipart/x-mixed-replace; boundary=frame")
+        call.respondOutputStream {
+            while (true) {
+                val frameBytes = frameSource()
+                if (frameBytes != null) {
+                    write("--frame\r\n".toByteArray())
+                    write("Content-Type: image/jpeg\r\n".toByteArray())
+                    write("Content-Length: ${frameBytes.size}\r\n".toByteArray())
+                    write("\r\n".toByteArray())
+                    write(frameBytes)
+                    write("\r\n".toByteArray())
+                    flush()
+                }
+                delay(1000 / 30)
+            }
+        }
+    } catch (e: CancellationException) {
+        // This is expected when the client disconnects or server shuts down.
+        // We catch it to prevent it from being logged as an error.
+        println("MJPEG stream was cancelled by client or server shutdown. This is normal.")
+    } catch (e: Exception) {
+        // Log other, unexpected errors
+        println("An unexpected error occurred in the MJPEG stream: ${e.message}")
+    }
+}
 
 fun Application.serverModule() {
     install(CORS) {
@@ -50,41 +106,52 @@ fun Application.serverModule() {
         ?: error("DatabaseService not registered")
     val recognitionService: FaceRecognitionService = ServiceRegistry.recognitionService
         ?: error("FaceRecognitionService not registered")
+    val recordingStore: RecordingStore = ServiceRegistry.recordingStore
+        ?: error("RecordingStore not registered")
 
     routing {
         staticResources("/", "static")
 
         get("/camera/live.mjpeg") {
-            try { // --- FIX: Start of try-catch block
-                call.response.headers.append(HttpHeaders.ContentType, "multipart/x-mixed-replace; boundary=frame")
-                call.respondOutputStream {
-                    while (true) {
-                        val frameBytes = SharedFrameHolder.getFrame()
-                        if (frameBytes != null) {
-                            write("--frame\r\n".toByteArray())
-                            write("Content-Type: image/jpeg\r\n".toByteArray())
-                            write("Content-Length: ${frameBytes.size}\r\n".toByteArray())
-                            write("\r\n".toByteArray())
-                            write(frameBytes)
-                            write("\r\n".toByteArray())
-                            flush()
-                        }
-                        delay(1000 / 30)
-                    }
-                }
-            } catch (e: CancellationException) {
-                // This is expected when the client disconnects or server shuts down.
-                // We catch it to prevent it from being logged as an error.
-                println("MJPEG stream was cancelled by client or server shutdown. This is normal.")
-            } catch (e: Exception) {
-                // Log other, unexpected errors
-                println("An unexpected error occurred in the MJPEG stream: ${e.message}")
-            } // --- FIX: End of try-catch block
+            streamMjpeg(call) { SharedFrameHolder.getFrame() }
+        }
+
+        get("/camera/{id}/live.mjpeg") {
+            val cameraId = call.parameters["id"] ?: return@get call.respond(HttpStatusCode.BadRequest)
+            if (cameraId !in SharedFrameHolder.cameraIds()) {
+                return@get call.respond(HttpStatusCode.NotFound, mapOf("error" to "unknown camera $cameraId"))
+            }
+            streamMjpeg(call) { SharedFrameHolder.getFrame(cameraId) }
+        }
+
+        get("/cameras") {
+            call.respond(SharedFrameHolder.cameraIds())
         }
 
         get("/status") {
             call.respond(mapOf("status" to "running"))
         }
+        get("/metrics") {
+            call.respond(MetricsRegistry.snapshot())
+        }
+        // Index lookup: /recordings?camera=lobby&from=2024-05-01T14:02&to=2024-05-01T14:05
+        get("/recordings") {
+            val to = parseTime(call.request.queryParameters["to"]) ?: System.currentTimeMillis()
+            val from = parseTime(call.request.queryParameters["from"]) ?: (to - 60 * 60 * 1000)
+            val segments = recordingStore.query(call.request.queryParameters["camera"], from, to)
+            call.respond(segments.map {
+                SegmentDto(it.camera, it.file, formatTime(it.startMillis), formatTime(it.endMillis),
+                    it.triggers, it.identities, it.frames, it.bytes)
+            })
+        }
+        // Downloads an indexed segment by its file name from /recordings; anything else is 404.
+        get("/recordings/file/{path...}") {
+            val file = call.parameters.getAll("path")?.joinToString("/")
+            val segment = file?.let { recordingStore.find(it) }
+                ?: return@get call.respond(HttpStatusCode.NotFound, mapOf("error" to "unknown recording"))
+            call.response.header(HttpHeaders.ContentDisposition, "attachment; filename=\"${segment.file.substringAfterLast('/')}\"")
+            call.respondFile(recordingStore.resolve(segment).toFile())
+        }
         get("/users") {
             val users = databaseService.users
             val dtos = users.map { UserDto(it.id, it.name, it.role) }
@@ -92,7 +159,7 @@ fun Application.serverModule() {
         }
         get("/logs") {
             val logs = databaseService.history
-            val dtos = logs.map { LogDto(it.name, it.role, it.timestamp, it.confidence) }
+            val dtos = logs.map { LogDto(it.name, it.role, it.timestamp, it.confidence, it.camera) }
             call.respond(dtos)
         }
         post("/recognize") {
@@ -125,7 +192,8 @@ fun Application.serverModule() {
                 RecognitionDto(
                     name = it.name,
                     confidence = it.confidence,
-                    box = BoxDto(it.faceRect.x(), it.faceRect.y(), it.faceRect.width(), it.faceRect.height())
+                    box = BoxDto(it.faceRect.x(), it.faceRect.y(), it.faceRect.width(), it.faceRect.height()),
+                    modelVersion = it.modelVersion
                 )
             }
             call.respond(payload)
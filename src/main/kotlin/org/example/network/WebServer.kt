@@ -5,10 +5,12 @@ import io.ktor.server.engine.embeddedServer
 import io.ktor.server.netty.Netty
 import org.example.DatabaseService
 import org.example.FaceRecognitionService
+import org.example.video.RecordingStore
 
 class WebServer(
     private val databaseService: DatabaseService,
-    private val recognitionService: FaceRecognitionService
+    private val recognitionService: FaceRecognitionService,
+    private val recordingStore: RecordingStore
 ) {
     private var server: ApplicationEngine? = null
 
@@ -16,6 +18,7 @@ class WebServer(
         // Bridge Java services to the Ktor module
         ServiceRegistry.databaseService = databaseService
         ServiceRegistry.recognitionService = recognitionService
+        ServiceRegistry.recordingStore = recordingStore
 
         server = embeddedServer(Netty, port = 8080, host = "0.0.0.0") {
             serverModule()
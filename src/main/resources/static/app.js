@@ -15,7 +15,8 @@ document.addEventListener('DOMContentLoaded', () => {
                 const logEntry = document.createElement('div');
                 try {
                     const parsed = JSON.parse(message);
-                    logEntry.textContent = `[${timestamp}] ${parsed.type}: ${parsed.name}`;
+                    const camera = parsed.camera ? ` @ ${parsed.camera}` : '';
+                    logEntry.textContent = `[${timestamp}] ${parsed.type}${camera}: ${parsed.name}`;
                 } catch (e) {
                     logEntry.textContent = `[${timestamp}] ${message}`;
                 }
@@ -0,0 +1,122 @@
+package org.example.motion;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+import static org.bytedeco.opencv.global.opencv_imgproc.rectangle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MotionDetectorTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    private final List<Mat> frames = new ArrayList<>();
+    private final MotionDetector detector = new MotionDetector(true, 160, 25, 0.01, 2);
+
+    @AfterEach
+    void release() {
+        detector.release();
+        frames.forEach(Mat::close);
+    }
+
+    @Test
+    void firstFrameScansTheWholeFrame() {
+        MotionResult result = detector.analyze(background());
+        assertTrue(result.hasMotion());
+        assertNull(result.getRegions());
+    }
+
+    @Test
+    void staticSceneIsSkippedAfterTheHangover() {
+        detector.analyze(background());
+
+        assertTrue(detector.analyze(background()).hasMotion());
+        assertTrue(detector.analyze(background()).hasMotion());
+        assertSame(MotionResult.STATIC, detector.analyze(background()));
+        assertSame(MotionResult.STATIC, detector.analyze(background()));
+        assertEquals(2, detector.stats().getFramesSkipped());
+    }
+
+    @Test
+    void movingObjectIsReportedAsOneRegionAroundIt() {
+        settle();
+        Rect object = new Rect(100, 80, 60, 60);
+
+        MotionResult result = detector.analyze(withObject(object));
+
+        assertTrue(result.hasMotion());
+        assertEquals(1, result.getRegions().size());
+        Rect region = result.getRegions().get(0);
+        assertTrue(region.x() <= object.x() && region.y() <= object.y(), "region " + describe(region));
+        assertTrue(region.x() + region.width() >= object.x() + object.width()
+                && region.y() + region.height() >= object.y() + object.height(), "region " + describe(region));
+        assertTrue(region.width() < WIDTH / 2 && region.height() < HEIGHT / 2, "region " + describe(region));
+    }
+
+    @Test
+    void hangoverKeepsTheLastRegionsAfterTheObjectStops() {
+        settle();
+        List<Rect> moving = detector.analyze(withObject(new Rect(100, 80, 60, 60))).getRegions();
+
+        MotionResult first = detector.analyze(background());
+        MotionResult second = detector.analyze(background());
+
+        assertTrue(first.hasMotion());
+        assertSame(moving, first.getRegions());
+        assertTrue(second.hasMotion());
+        assertSame(moving, second.getRegions());
+        assertFalse(detector.analyze(background()).hasMotion());
+    }
+
+    @Test
+    void separateObjectsGetSeparateRegions() {
+        settle();
+        Mat frame = withObject(new Rect(20, 20, 40, 40));
+        rectangle(frame, new Rect(240, 160, 40, 40), new Scalar(255, 255, 255, 0), -1, 8, 0);
+
+        assertEquals(2, detector.analyze(frame).getRegions().size());
+    }
+
+    @Test
+    void disabledAndReleasedDetectorsScanEverything() {
+        MotionDetector disabled = new MotionDetector(false, 160, 25, 0.01, 2);
+        assertSame(MotionResult.WHOLE_FRAME, disabled.analyze(background()));
+
+        settle();
+        detector.release();
+        assertSame(MotionResult.WHOLE_FRAME, detector.analyze(background()));
+    }
+
+    private void settle() {
+        for (int i = 0; i < 4; i++) detector.analyze(background());
+        assertFalse(detector.analyze(background()).hasMotion());
+    }
+
+    private Mat background() {
+        Mat frame = new Mat(HEIGHT, WIDTH, CV_8UC3, new Scalar(60, 60, 60, 0));
+        frames.add(frame);
+        return frame;
+    }
+
+    private Mat withObject(Rect object) {
+        Mat frame = background();
+        rectangle(frame, object, new Scalar(255, 255, 255, 0), -1, 8, 0);
+        return frame;
+    }
+
+    private static String describe(Rect r) {
+        return r.x() + "," + r.y() + " " + r.width() + "x" + r.height();
+    }
+}
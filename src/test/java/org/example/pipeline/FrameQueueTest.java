@@ -0,0 +1,91 @@
+package org.example.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameQueueTest {
+
+    private final List<Integer> released = new ArrayList<>();
+
+    @Test
+    void latestWinsEvictsTheOldestItems() {
+        FrameQueue<Integer> queue = new FrameQueue<>(2, DropPolicy.LATEST_WINS, released::add);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(queue.offer(i));
+        }
+
+        assertEquals(List.of(1, 2, 3), released);
+        assertEquals(3, queue.dropped());
+        assertEquals(5, queue.accepted());
+        assertEquals(4, queue.poll());
+        assertEquals(5, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void neverDropBlocksUntilTheConsumerMakesRoom() throws InterruptedException {
+        FrameQueue<Integer> queue = new FrameQueue<>(1, DropPolicy.NEVER_DROP, released::add);
+        queue.offer(1);
+        CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            queue.offer(2);
+            offered.countDown();
+        });
+        producer.start();
+
+        assertFalse(offered.await(100, TimeUnit.MILLISECONDS), "a full NEVER_DROP queue must block the producer");
+        assertEquals(1, queue.poll());
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, queue.poll());
+        assertEquals(0, queue.dropped());
+        assertTrue(released.isEmpty());
+        producer.join();
+    }
+
+    @Test
+    void interruptedProducerReleasesItsItem() throws InterruptedException {
+        FrameQueue<Integer> queue = new FrameQueue<>(1, DropPolicy.NEVER_DROP, released::add);
+        queue.offer(1);
+        boolean[] result = {true};
+        Thread producer = new Thread(() -> result[0] = queue.offer(2));
+        producer.start();
+        producer.interrupt();
+        producer.join(5000);
+
+        assertFalse(result[0]);
+        assertEquals(List.of(2), released);
+        assertEquals(1, queue.dropped());
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    void clearReleasesQueuedItemsWithoutCountingThemDropped() {
+        FrameQueue<Integer> queue = new FrameQueue<>(4, DropPolicy.LATEST_WINS, released::add);
+        queue.offer(1);
+        queue.offer(2);
+        queue.clear();
+
+        assertEquals(List.of(1, 2), released);
+        assertEquals(0, queue.depth());
+        assertEquals(0, queue.dropped());
+    }
+
+    @Test
+    void capacityIsAtLeastOne() {
+        FrameQueue<Integer> queue = new FrameQueue<>(0, DropPolicy.LATEST_WINS, released::add);
+        assertEquals(1, queue.capacity());
+        queue.offer(1);
+        queue.offer(2);
+        assertEquals(List.of(1), released);
+        assertEquals(2, queue.poll());
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineStageTest {
+
+    @Test
+    void processesItemsInOrderOnASharedPool() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        PipelineStage<Integer> stage = new PipelineStage<>("test",
+                new FrameQueue<>(200, DropPolicy.NEVER_DROP, item -> { }), pool, item -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            seen.add(item);
+            concurrent.decrementAndGet();
+            done.countDown();
+        });
+
+        for (int i = 0; i < 200; i++) {
+            stage.submit(i);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) expected.add(i);
+        assertEquals(expected, seen);
+        assertEquals(1, maxConcurrent.get(), "one stage must never run its handler on two threads at once");
+        assertEquals(200, stage.stats().getProcessed());
+    }
+
+    @Test
+    void latestWinsStageDropsWhileTheHandlerIsBusy() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        List<Integer> released = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        PipelineStage<Integer> stage = new PipelineStage<>("analyze",
+                new FrameQueue<>(1, DropPolicy.LATEST_WINS, released::add), pool, item -> {
+            handled.add(item);
+            busy.countDown();
+            try {
+                unblock.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        stage.submit(0);
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            stage.submit(i);
+        }
+        unblock.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(0, 5), handled);
+        assertEquals(List.of(1, 2, 3, 4), released);
+        StageStats stats = stage.stats();
+        assertEquals(4, stats.getDropped());
+        assertEquals("LATEST_WINS", stats.getPolicy());
+    }
+
+    @Test
+    void handlerFailureDoesNotStopTheStage() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(3);
+        PipelineStage<Integer> stage = new PipelineStage<>("render",
+                new FrameQueue<>(8, DropPolicy.NEVER_DROP, item -> { }), pool, item -> {
+            done.countDown();
+            if (item == 1) throw new IllegalStateException("boom");
+        });
+
+        stage.submit(1);
+        stage.submit(2);
+        stage.submit(3);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    void stoppedStageReleasesQueuedAndNewItems() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<Integer> released = new ArrayList<>();
+        List<Integer> handled = new ArrayList<>();
+        PipelineStage<Integer> stage = new PipelineStage<>("record",
+                new FrameQueue<>(8, DropPolicy.NEVER_DROP, released::add), tasks::add, handled::add);
+
+        stage.submit(1);
+        stage.submit(2);
+        stage.stop();
+        stage.submit(3);
+        tasks.forEach(Runnable::run);
+
+        assertEquals(1, tasks.size(), "only one drain task may be scheduled at a time");
+        assertTrue(handled.isEmpty());
+        assertEquals(List.of(1, 2, 3), released);
+        assertEquals(1, stage.stats().getDropped());
+    }
+}
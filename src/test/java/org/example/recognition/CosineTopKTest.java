@@ -0,0 +1,140 @@
+package org.example.recognition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CosineTopKTest {
+
+    private static final int DIM = 32;
+
+    private final Random random = new Random(7);
+
+    @Test
+    void searchMatchesBruteForceBelowTheParallelThreshold() {
+        assertMatchesBruteForce(1000, 10, Set.of());
+        assertMatchesBruteForce(CosineTopK.PARALLEL_MIN_ROWS - 1, 5, Set.of());
+    }
+
+    @Test
+    void searchMatchesBruteForceAboveTheParallelThreshold() {
+        assertMatchesBruteForce(CosineTopK.PARALLEL_MIN_ROWS, 5, Set.of());
+        assertMatchesBruteForce(CosineTopK.PARALLEL_MIN_ROWS * 2 + 17, 10, Set.of());
+    }
+
+    @Test
+    void skippedLabelsNeverAppear() {
+        assertMatchesBruteForce(1000, 20, Set.of(0, 3));
+        assertMatchesBruteForce(CosineTopK.PARALLEL_MIN_ROWS * 2 + 17, 20, Set.of(1, 2, 4));
+    }
+
+    @Test
+    void searchOnlyLooksAtTheFirstCountRows() {
+        float[] matrix = randomRows(100);
+        int[] labels = new int[100];
+        float[] query = Arrays.copyOfRange(matrix, 90 * DIM, 91 * DIM);
+
+        CosineTopK.Hit[] hits = CosineTopK.search(matrix, DIM, labels, 50, query, 50, Set.of());
+
+        assertEquals(50, hits.length);
+        for (CosineTopK.Hit hit : hits) assertTrue(hit.row < 50, "row " + hit.row);
+    }
+
+    @Test
+    void tiesGoToTheEarlierRowInEveryChunk() {
+        for (int count : new int[]{1000, CosineTopK.PARALLEL_MIN_ROWS * 2 + 17}) {
+            float[] matrix = randomRows(count);
+            int[] duplicates = {count - 3, count / 2, 5, count / 3};
+            float[] query = Arrays.copyOfRange(matrix, 5 * DIM, 6 * DIM);
+            for (int row : duplicates) System.arraycopy(query, 0, matrix, row * DIM, DIM);
+
+            CosineTopK.Hit[] hits = CosineTopK.search(matrix, DIM, new int[count], count, query, 4, Set.of());
+
+            assertArrayEquals(new int[]{5, count / 3, count / 2, count - 3}, rows(hits));
+        }
+    }
+
+    @Test
+    void fewerRowsThanKReturnsThemAll() {
+        float[] matrix = randomRows(3);
+        CosineTopK.Hit[] hits = CosineTopK.search(matrix, DIM, new int[]{0, 1, 2}, 3, randomRows(1), 10, Set.of(1));
+        assertEquals(2, hits.length);
+        assertEquals(0, CosineTopK.search(matrix, DIM, new int[3], 0, randomRows(1), 10, Set.of()).length);
+    }
+
+    @Test
+    void vectorAndScalarDotAgree() {
+        // Lengths around the vector width exercise the tail loop as well.
+        for (int dim : new int[]{1, 3, 7, 8, 15, 16, 17, 128, 131}) {
+            float[] matrix = new float[dim * 3 + 5];
+            float[] query = new float[dim];
+            for (int i = 0; i < matrix.length; i++) matrix[i] = random.nextFloat() * 2 - 1;
+            for (int i = 0; i < dim; i++) query[i] = random.nextFloat() * 2 - 1;
+            for (int offset : new int[]{0, dim, 5}) {
+                float expected = CosineTopK.scalar(matrix, offset, query, dim);
+                assertEquals(expected, CosineTopK.dot(matrix, offset, query, dim), 1e-4f, "dim " + dim);
+                if (VectorDot.isUsable()) {
+                    assertEquals(expected, VectorDot.dot(matrix, offset, query, dim), 1e-4f, "dim " + dim);
+                }
+            }
+        }
+    }
+
+    private void assertMatchesBruteForce(int count, int k, Set<Integer> skip) {
+        float[] matrix = randomRows(count);
+        int[] labels = new int[count];
+        for (int i = 0; i < count; i++) labels[i] = i % 5;
+        float[] query = randomRows(1);
+
+        CosineTopK.Hit[] hits = CosineTopK.search(matrix, DIM, labels, count, query, k, skip);
+
+        List<Integer> expected = bruteForce(matrix, labels, count, query, skip);
+        assertArrayEquals(expected.subList(0, k).stream().mapToInt(Integer::intValue).toArray(), rows(hits), "count " + count);
+        for (CosineTopK.Hit hit : hits) {
+            assertEquals(CosineTopK.dot(matrix, hit.row * DIM, query, DIM), hit.similarity);
+        }
+    }
+
+    /** All rows whose label is not skipped, most similar first and the earlier row on ties. */
+    private static List<Integer> bruteForce(float[] matrix, int[] labels, int count, float[] query, Set<Integer> skip) {
+        float[] similarities = new float[count];
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            similarities[row] = CosineTopK.dot(matrix, row * DIM, query, DIM);
+            if (!skip.contains(labels[row])) rows.add(row);
+        }
+        rows.sort(Comparator.<Integer>comparingDouble(row -> -similarities[row]).thenComparingInt(row -> row));
+        return rows;
+    }
+
+    /** {@code count} random unit-length rows of {@link #DIM} floats. */
+    private float[] randomRows(int count) {
+        float[] rows = new float[count * DIM];
+        for (int row = 0; row < count; row++) {
+            double norm = 0;
+            for (int i = 0; i < DIM; i++) {
+                float value = (float) random.nextGaussian();
+                rows[row * DIM + i] = value;
+                norm += value * value;
+            }
+            float inverse = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < DIM; i++) rows[row * DIM + i] *= inverse;
+        }
+        return rows;
+    }
+
+    private static int[] rows(CosineTopK.Hit[] hits) {
+        int[] rows = new int[hits.length];
+        for (int i = 0; i < hits.length; i++) rows[i] = hits[i].row;
+        return rows;
+    }
+}
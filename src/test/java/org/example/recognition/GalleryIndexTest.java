@@ -0,0 +1,128 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GalleryIndexTest {
+
+    private static final int SIZE = 48;
+
+    private final Random random = new Random(7);
+    private final LbphFeatures features = new LbphFeatures();
+
+    @Test
+    void smallGalleriesAreScannedExactly() {
+        float[] histograms = histograms(40);
+        assertNull(GalleryIndex.build(new GalleryIndex.Settings(50, 0, 1, 0), features, histograms, 40));
+        assertNull(GalleryIndex.build(GalleryIndex.Settings.disabled(), features, histograms, 40));
+        assertNotNull(GalleryIndex.build(new GalleryIndex.Settings(40, 0, 1, 0), features, histograms, 40));
+    }
+
+    @Test
+    void listCountDefaultsToSquareRootOfSamples() {
+        GalleryIndex index = GalleryIndex.build(new GalleryIndex.Settings(1, 0, 1, 0), features, histograms(64), 64);
+        assertEquals(8, index.stats().get("lists"));
+        assertEquals(64, index.stats().get("rows"));
+
+        GalleryIndex fixed = GalleryIndex.build(new GalleryIndex.Settings(1, 3, 1, 0), features, histograms(64), 64);
+        assertEquals(3, fixed.stats().get("lists"));
+    }
+
+    @Test
+    void probingEveryListReturnsEveryRowInOrder() {
+        float[] histograms = histograms(50);
+        GalleryIndex index = GalleryIndex.build(new GalleryIndex.Settings(1, 5, 5, 0), features, histograms, 50);
+        assertArrayEquals(IntStream.range(0, 50).toArray(), index.candidates(row(histograms, 3)));
+    }
+
+    @Test
+    void singleProbeIncludesTheQuerysOwnRow() {
+        float[] histograms = histograms(50);
+        GalleryIndex index = GalleryIndex.build(new GalleryIndex.Settings(1, 5, 1, 0), features, histograms, 50);
+        for (int r = 0; r < 50; r++) {
+            int[] candidates = index.candidates(row(histograms, r));
+            assertTrue(candidates.length < 50);
+            assertTrue(Arrays.binarySearch(candidates, r) >= 0, "row " + r + " missing from its own list");
+        }
+    }
+
+    @Test
+    void extendAddsRowsUntilTheGalleryGrowsByHalf() {
+        float[] histograms = histograms(61);
+        GalleryIndex index = GalleryIndex.build(new GalleryIndex.Settings(1, 4, 4, 0), features, histograms, 40);
+
+        GalleryIndex extended = index.extend(histograms, features.length(), 60);
+        assertEquals(60, extended.rows());
+        assertEquals(40, index.rows());
+        assertArrayEquals(IntStream.range(0, 60).toArray(), extended.candidates(row(histograms, 0)));
+        // 21 rows on top of 40 is more than half: the caller must cluster again.
+        assertNull(extended.extend(histograms, features.length(), 61));
+    }
+
+    @Test
+    void indexedModelMatchesExactScanWhenProbingEveryList() {
+        MatVector faces = new MatVector();
+        int[] labels = new int[60];
+        for (int i = 0; i < labels.length; i++) {
+            Mat face = randomFace();
+            faces.push_back(face);
+            face.close();
+            labels[i] = i % 6;
+        }
+        RecognizerModel exact = new JavaLbphEngine().train(faces, labels);
+        RecognizerModel indexed = new JavaLbphEngine(new GalleryIndex.Settings(1, 6, 6, 0)).train(faces, labels);
+        assertNotNull(indexed.stats().get("index"));
+
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        int[] indexedLabel = new int[1];
+        double[] indexedDistance = new double[1];
+        for (int q = 0; q < 10; q++) {
+            Mat query = randomFace();
+            exact.predict(query, Set.of(), label, distance);
+            indexed.predict(query, Set.of(), indexedLabel, indexedDistance);
+            assertEquals(label[0], indexedLabel[0]);
+            assertEquals(distance[0], indexedDistance[0]);
+            query.close();
+        }
+        faces.close();
+    }
+
+    /** Histograms of {@code count} random faces, row-major. */
+    private float[] histograms(int count) {
+        int length = features.length();
+        float[] histograms = new float[count * length];
+        byte[] pixels = new byte[SIZE * SIZE];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(pixels);
+            features.histogram(pixels, SIZE, SIZE, histograms, i * length);
+        }
+        return histograms;
+    }
+
+    private float[] row(float[] histograms, int row) {
+        int length = features.length();
+        return Arrays.copyOfRange(histograms, row * length, (row + 1) * length);
+    }
+
+    private Mat randomFace() {
+        byte[] pixels = new byte[SIZE * SIZE];
+        random.nextBytes(pixels);
+        Mat face = new Mat(SIZE, SIZE, CV_8UC1);
+        face.data().put(pixels);
+        return face;
+    }
+}
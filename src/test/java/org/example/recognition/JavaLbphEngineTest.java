@@ -0,0 +1,186 @@
+package org.example.recognition;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaLbphEngineTest {
+
+    private static final int SIZE = 48;
+
+    private final Random random = new Random(42);
+    private final LbphFeatures features = new LbphFeatures();
+    private final MatVector faces = new MatVector();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void releaseFaces() {
+        faces.close();
+    }
+
+    @Test
+    void predictMatchesBruteForceScan() {
+        int[] labels = randomFaces(60, 6);
+        RecognizerModel model = new JavaLbphEngine().train(faces, labels);
+
+        for (int q = 0; q < 20; q++) {
+            Mat query = randomFace();
+            int expected = bruteForce(query, labels, Set.of());
+            int[] label = new int[1];
+            double[] distance = new double[1];
+            model.predict(query, Set.of(), label, distance);
+            assertEquals(labels[expected], label[0]);
+            assertEquals(chiSquare(histogram(faces.get(expected)), histogram(query)), distance[0], 1e-3);
+            query.close();
+        }
+    }
+
+    @Test
+    void predictSkipsRemovedLabels() {
+        int[] labels = randomFaces(40, 4);
+        RecognizerModel model = new JavaLbphEngine().train(faces, labels);
+        Mat query = faces.get(7).clone();
+
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        model.predict(query, Set.of(), label, distance);
+        assertEquals(labels[7], label[0]);
+        assertEquals(0.0, distance[0], 1e-6);
+
+        Set<Integer> skip = Set.of(labels[7]);
+        model.predict(query, skip, label, distance);
+        assertEquals(labels[bruteForce(query, labels, skip)], label[0]);
+
+        model.predict(query, Set.of(0, 1, 2, 3), label, distance);
+        assertEquals(-1, label[0]);
+        assertEquals(Double.MAX_VALUE, distance[0]);
+        query.close();
+    }
+
+    @Test
+    void saveAndLoadKeepSamplesAndPredictions() throws IOException {
+        int[] labels = randomFaces(30, 3);
+        JavaLbphEngine engine = new JavaLbphEngine();
+        RecognizerModel model = engine.train(faces, labels);
+        String file = dir.resolve("model.jlb").toString();
+        model.save(file);
+
+        RecognizerModel loaded = engine.load(file);
+        assertEquals(model.sampleCount(), loaded.sampleCount());
+        assertEquals(model.labels(), loaded.labels());
+        for (int q = 0; q < 10; q++) {
+            Mat query = randomFace();
+            int[] label = new int[1];
+            double[] distance = new double[1];
+            int[] loadedLabel = new int[1];
+            double[] loadedDistance = new double[1];
+            model.predict(query, Set.of(), label, distance);
+            loaded.predict(query, Set.of(), loadedLabel, loadedDistance);
+            assertEquals(label[0], loadedLabel[0]);
+            assertEquals(distance[0], loadedDistance[0]);
+            query.close();
+        }
+    }
+
+    @Test
+    void loadRejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("model.yml");
+        Files.writeString(file, "%YAML:1.0\n---\nopencv_lbphfaces:\n");
+        assertThrows(IOException.class, () -> new JavaLbphEngine().load(file.toString()));
+    }
+
+    @Test
+    void appendingDoesNotChangeOlderOrSiblingModels() throws IOException {
+        int[] labels = randomFaces(10, 2);
+        RecognizerModel base = new JavaLbphEngine().train(faces, labels);
+
+        MatVector first = new MatVector(randomFace());
+        MatVector second = new MatVector(randomFace());
+        // The first update appends in place; the sibling built from the same base must copy.
+        RecognizerModel appended = base.withSamples(first, new int[]{7});
+        RecognizerModel sibling = base.withSamples(second, new int[]{8});
+
+        assertEquals(10, base.sampleCount());
+        assertEquals(Set.of(0, 1), base.labels());
+        assertEquals(Set.of(0, 1, 7), appended.labels());
+        assertEquals(Set.of(0, 1, 8), sibling.labels());
+        assertPredicts(appended, first.get(0), 7);
+        assertPredicts(sibling, second.get(0), 8);
+
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        base.predict(first.get(0), Set.of(), label, distance);
+        assertTrue(distance[0] > 0, "the base model must not see the appended sample");
+        first.close();
+        second.close();
+    }
+
+    private static void assertPredicts(RecognizerModel model, Mat face, int expectedLabel) {
+        int[] label = new int[1];
+        double[] distance = new double[1];
+        model.predict(face, Set.of(), label, distance);
+        assertEquals(expectedLabel, label[0]);
+        assertEquals(0.0, distance[0], 1e-6);
+    }
+
+    /** Adds {@code count} random faces to {@link #faces}, labelled round-robin, and returns the labels. */
+    private int[] randomFaces(int count, int people) {
+        int[] labels = new int[count];
+        for (int i = 0; i < count; i++) {
+            Mat face = randomFace();
+            faces.push_back(face);
+            face.close();
+            labels[i] = i % people;
+        }
+        return labels;
+    }
+
+    private Mat randomFace() {
+        byte[] pixels = new byte[SIZE * SIZE];
+        random.nextBytes(pixels);
+        Mat face = new Mat(SIZE, SIZE, CV_8UC1);
+        face.data().put(pixels);
+        return face;
+    }
+
+    private float[] histogram(Mat face) {
+        byte[] pixels = new byte[face.rows() * face.cols()];
+        face.data().get(pixels);
+        return features.histogram(pixels, face.rows(), face.cols());
+    }
+
+    private static double chiSquare(float[] a, float[] b) {
+        return ChiSquare.scalar(a, 0, b, a.length, Double.MAX_VALUE);
+    }
+
+    /** Index of the nearest face whose label is not skipped; the first one on ties. */
+    private int bruteForce(Mat query, int[] labels, Set<Integer> skip) {
+        float[] q = histogram(query);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < labels.length; i++) {
+            if (skip.contains(labels[i])) continue;
+            double d = chiSquare(histogram(faces.get(i)), q);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.tracking;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoxTrackerTest {
+
+    @Test
+    void matchedDetectionsKeepTheirTrack() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.9);
+        List<Track<String>> first = tracker.update(List.of(new Rect(100, 100, 50, 50), new Rect(400, 100, 50, 50)), List.of("a", "b"));
+        // Listed in the other order and moved a little; IoU decides, not the position in the list.
+        List<Track<String>> second = tracker.update(List.of(new Rect(405, 102, 50, 50), new Rect(104, 101, 50, 50)));
+
+        assertSame(first.get(1), second.get(0));
+        assertSame(first.get(0), second.get(1));
+        assertEquals("b", second.get(0).getPayload());
+        assertEquals(2, second.get(0).getHits());
+        assertEquals(2, tracker.getTracks().size());
+    }
+
+    @Test
+    void unmatchedDetectionStartsANewTrackWithoutPayload() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.9);
+        Track<String> known = tracker.update(List.of(new Rect(0, 0, 40, 40)), List.of("known")).get(0);
+        List<Track<String>> next = tracker.update(List.of(new Rect(2, 0, 40, 40), new Rect(300, 300, 40, 40)));
+
+        assertSame(known, next.get(0));
+        assertNull(next.get(1).getPayload());
+        assertNotEquals(known.getId(), next.get(1).getId());
+    }
+
+    @Test
+    void predictMovesAlongTheSmoothedVelocity() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.9);
+        tracker.update(List.of(new Rect(100, 50, 40, 40)));
+        tracker.update(List.of(new Rect(110, 50, 40, 40)));
+
+        // A 10 px step is smoothed 50/50 with the initial zero velocity.
+        tracker.predict();
+        Rect predicted = tracker.currentRects().get(0);
+        assertEquals(115, predicted.x());
+        assertEquals(50, predicted.y());
+        assertEquals(40, predicted.width());
+    }
+
+    @Test
+    void velocityIsPerFrameAcrossSkippedFrames() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.9);
+        tracker.update(List.of(new Rect(100, 0, 40, 40)));
+        tracker.predict();
+        tracker.predict();
+        tracker.predict();
+        // Detected again three predicted frames later, 20 px away: 5 px per frame, smoothed to 2.5.
+        tracker.update(List.of(new Rect(120, 0, 40, 40)));
+        tracker.predict();
+        assertEquals(123, tracker.currentRects().get(0).x());
+    }
+
+    @Test
+    void tracksDecayAndAreDroppedBelowTheFloor() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.5);
+        tracker.update(List.of(new Rect(0, 0, 40, 40)));
+
+        tracker.predict();
+        assertEquals(0.5, tracker.lowestConfidence(), 1e-9);
+        tracker.predict();
+        assertEquals(0.25, tracker.lowestConfidence(), 1e-9);
+        tracker.predict();
+        assertTrue(tracker.getTracks().isEmpty());
+        assertEquals(1.0, tracker.lowestConfidence(), 1e-9);
+    }
+
+    @Test
+    void missesDecayFasterThanPredictedFrames() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.95);
+        Track<String> track = tracker.update(List.of(new Rect(0, 0, 40, 40))).get(0);
+
+        tracker.update(List.of());
+        assertEquals(1, track.getMisses());
+        assertEquals(0.5, track.getConfidence(), 1e-9);
+        tracker.update(List.of());
+        tracker.update(List.of());
+        assertTrue(tracker.getTracks().isEmpty());
+    }
+
+    @Test
+    void lowOverlapIsNotAMatch() {
+        BoxTracker<String> tracker = new BoxTracker<>(0.9);
+        Track<String> track = tracker.update(List.of(new Rect(0, 0, 40, 40))).get(0);
+        // IoU of these boxes is about 0.23, below the 0.3 threshold.
+        Track<String> other = tracker.update(List.of(new Rect(25, 0, 40, 40))).get(0);
+
+        assertNotEquals(track.getId(), other.getId());
+        assertEquals(1, track.getMisses());
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.tracking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionSchedulerTest {
+
+    @Test
+    void runsOnTheFirstFrameAndThenEveryInterval() {
+        DetectionScheduler scheduler = new DetectionScheduler(3, 10, 0.3);
+        StringBuilder faces = new StringBuilder();
+        StringBuilder bodies = new StringBuilder();
+        for (int frame = 0; frame < 12; frame++) {
+            faces.append(scheduler.shouldRun(DetectorKind.FACE) ? 'x' : '.');
+            bodies.append(scheduler.shouldRun(DetectorKind.BODY) ? 'x' : '.');
+        }
+        assertEquals("x..x..x..x..", faces.toString());
+        assertEquals("x.........x.", bodies.toString());
+    }
+
+    @Test
+    void lowConfidenceForcesTheNextFrameAndThenBacksOff() {
+        DetectionScheduler scheduler = new DetectionScheduler(4, 10, 0.3);
+        assertTrue(scheduler.shouldRun(DetectorKind.FACE));
+        assertFalse(scheduler.shouldRun(DetectorKind.FACE));
+        scheduler.reportTrackConfidence(DetectorKind.FACE, 0.1, false);
+
+        StringBuilder runs = new StringBuilder();
+        for (int frame = 0; frame < 12; frame++) {
+            boolean ran = scheduler.shouldRun(DetectorKind.FACE);
+            runs.append(ran ? 'x' : '.');
+            scheduler.reportTrackConfidence(DetectorKind.FACE, 0.9, ran);
+        }
+        // At once, then every 2nd frame, then every 4th, the configured interval.
+        assertEquals("x.x...x...x.", runs.toString());
+    }
+
+    @Test
+    void intervalsAreAtLeastOne() {
+        DetectionScheduler scheduler = new DetectionScheduler(0, -5, 0.3);
+        for (int frame = 0; frame < 3; frame++) {
+            assertTrue(scheduler.shouldRun(DetectorKind.FACE));
+            assertTrue(scheduler.shouldRun(DetectorKind.BODY));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statsCountRunsAndSkips() {
+        DetectionScheduler scheduler = new DetectionScheduler(3, 10, 0.3);
+        for (int frame = 0; frame < 7; frame++) {
+            scheduler.shouldRun(DetectorKind.FACE);
+        }
+        Map<String, Object> face = (Map<String, Object>) scheduler.stats().get("face");
+        assertEquals(3L, face.get("runs"));
+        assertEquals(4L, face.get("skipped"));
+        assertEquals(3, face.get("currentInterval"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.tracking;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.example.FaceRecognitionService.RecognitionResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FaceTrackManagerTest {
+
+    private static final double REPREDICT_DISTANCE = 70;
+    private static final long REFRESH_MS = 5000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final FaceTrackManager tracks = new FaceTrackManager(0.9, REPREDICT_DISTANCE, REFRESH_MS, now::get);
+    private final List<Rect> predicted = new ArrayList<>();
+
+    @Test
+    void sameTrackReusesTheCachedResult() {
+        TrackedFace first = update(new Rect(100, 100, 60, 60), 3, 40, 1);
+        TrackedFace second = update(new Rect(104, 102, 60, 60), 3, 40, 1);
+
+        assertTrue(first.isFresh());
+        assertFalse(second.isFresh());
+        assertEquals(first.getTrackId(), second.getTrackId());
+        assertEquals(3, second.getResult().getLabel());
+        assertEquals(104, second.getResult().getFaceRect().x());
+        assertEquals(1, predicted.size());
+        assertEquals(1L, tracks.stats().get("cacheHits"));
+    }
+
+    @Test
+    void newTrackIsPredicted() {
+        TrackedFace first = update(new Rect(100, 100, 60, 60), 3, 40, 1);
+        TrackedFace other = update(new Rect(400, 300, 60, 60), 5, 30, 1);
+
+        assertTrue(other.isFresh());
+        assertNotEquals(first.getTrackId(), other.getTrackId());
+        assertEquals(5, other.getResult().getLabel());
+        assertEquals(2, predicted.size());
+    }
+
+    @Test
+    void poorDistanceIsPredictedAgainOnEveryDetection() {
+        update(new Rect(100, 100, 60, 60), 3, REPREDICT_DISTANCE, 1);
+        TrackedFace again = update(new Rect(101, 100, 60, 60), 3, REPREDICT_DISTANCE - 1, 1);
+        TrackedFace cached = update(new Rect(102, 100, 60, 60), 3, REPREDICT_DISTANCE - 1, 1);
+
+        assertTrue(again.isFresh());
+        assertFalse(cached.isFresh());
+        assertEquals(2, predicted.size());
+    }
+
+    @Test
+    void cachedResultIsRefreshedAfterTheTimeout() {
+        update(new Rect(100, 100, 60, 60), 3, 40, 1);
+        now.addAndGet(REFRESH_MS);
+        assertFalse(update(new Rect(100, 100, 60, 60), 3, 40, 1).isFresh());
+        now.addAndGet(1);
+        assertTrue(update(new Rect(100, 100, 60, 60), 3, 40, 1).isFresh());
+        assertEquals(2, predicted.size());
+    }
+
+    @Test
+    void newModelVersionRepredictsEveryTrack() {
+        update(new Rect(100, 100, 60, 60), 3, 40, 1);
+        assertFalse(update(new Rect(100, 100, 60, 60), 3, 40, 1).isFresh());
+
+        TrackedFace retrained = update(new Rect(100, 100, 60, 60), 4, 35, 2);
+
+        assertTrue(retrained.isFresh());
+        assertEquals(4, retrained.getResult().getLabel());
+        assertEquals(2L, retrained.getResult().getModelVersion());
+    }
+
+    @Test
+    void declinedFaceWithoutCacheIsALowQualityUnknownUntilAGoodCrop() {
+        Rect face = new Rect(100, 100, 60, 60);
+        TrackedFace blurred = tracks.update(List.of(face), rect -> null, 1).get(0);
+
+        assertFalse(blurred.isFresh());
+        assertTrue(blurred.getResult().isLowQuality());
+        assertEquals(-1, blurred.getResult().getLabel());
+        assertEquals(1, tracks.current().size());
+        assertEquals(1L, tracks.stats().get("deferred"));
+
+        // The low-quality placeholder never counts as a usable cache entry.
+        TrackedFace sharp = update(new Rect(101, 100, 60, 60), 3, 40, 1);
+        assertTrue(sharp.isFresh());
+        assertEquals(blurred.getTrackId(), sharp.getTrackId());
+        assertEquals(3, sharp.getResult().getLabel());
+    }
+
+    @Test
+    void declinedFaceKeepsTheTracksCachedResult() {
+        update(new Rect(100, 100, 60, 60), 3, REPREDICT_DISTANCE + 10, 1);
+        TrackedFace declined = tracks.update(List.of(new Rect(101, 100, 60, 60)), rect -> null, 1).get(0);
+
+        assertFalse(declined.isFresh());
+        assertFalse(declined.getResult().isLowQuality());
+        assertEquals(3, declined.getResult().getLabel());
+        assertEquals(101, declined.getResult().getFaceRect().x());
+    }
+
+    /** Feeds one detected face; the predictor, if called, returns the given result. */
+    private TrackedFace update(Rect face, int label, double distance, long modelVersion) {
+        Function<Rect, RecognitionResult> predictor = rect -> {
+            predicted.add(rect);
+            return new RecognitionResult(label, "Family: Person" + label, distance, rect, modelVersion);
+        };
+        return tracks.update(List.of(face), predictor, modelVersion).get(0);
+    }
+}
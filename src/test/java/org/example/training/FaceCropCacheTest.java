@@ -0,0 +1,108 @@
+package org.example.training;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FaceCropCacheTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void committedCropsAreReadBackByPathSizeAndTime() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        FaceCropCache empty = FaceCropCache.open(file, WIDTH, HEIGHT);
+        try (FaceCropCache.Writer writer = empty.newWriter()) {
+            writer.add("a.jpg", 100, 1, crop(1));
+            writer.add("b.jpg", 200, 2, crop(2));
+            writer.commit();
+        }
+
+        FaceCropCache cache = FaceCropCache.open(file, WIDTH, HEIGHT);
+        assertEquals(2, cache.size());
+        assertArrayEquals(pixels(crop(2)), pixels(cache.get("b.jpg", 200, 2)));
+        assertArrayEquals(pixels(crop(1)), pixels(cache.get("a.jpg", 100, 1)));
+        assertNull(cache.get("a.jpg", 100, 3), "a changed photo is a miss");
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.close();
+    }
+
+    @Test
+    void commitReplacesTheFileTheCacheWasReadFrom() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        try (FaceCropCache.Writer writer = FaceCropCache.open(file, WIDTH, HEIGHT).newWriter()) {
+            writer.add("a.jpg", 100, 1, crop(1));
+            writer.commit();
+        }
+
+        FaceCropCache old = FaceCropCache.open(file, WIDTH, HEIGHT);
+        try (FaceCropCache.Writer writer = old.newWriter()) {
+            writer.add("a.jpg", 100, 1, old.get("a.jpg", 100, 1));
+            writer.add("c.jpg", 300, 3, crop(3));
+            writer.commit();
+        }
+
+        // The swap closes the old cache, so it can no longer read the replaced file.
+        assertNull(old.get("a.jpg", 100, 1));
+        FaceCropCache current = FaceCropCache.open(file, WIDTH, HEIGHT);
+        assertEquals(2, current.size());
+        assertArrayEquals(pixels(crop(3)), pixels(current.get("c.jpg", 300, 3)));
+        assertFalse(Files.exists(dir.resolve("cache.bin.tmp")));
+        current.close();
+    }
+
+    @Test
+    void damagedOrForeignFilesAreIgnored() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        try (FaceCropCache.Writer writer = FaceCropCache.open(file, WIDTH, HEIGHT).newWriter()) {
+            writer.add("a.jpg", 100, 1, crop(1));
+            writer.commit();
+        }
+        assertEquals(0, FaceCropCache.open(file, WIDTH + 1, HEIGHT).size());
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(0, FaceCropCache.open(file, WIDTH, HEIGHT).size());
+    }
+
+    @Test
+    void closedWriterLeavesTheCacheAlone() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        try (FaceCropCache.Writer writer = FaceCropCache.open(file, WIDTH, HEIGHT).newWriter()) {
+            writer.add("a.jpg", 100, 1, crop(1));
+        }
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(dir.resolve("cache.bin.tmp")));
+    }
+
+    private static Mat crop(int seed) {
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) pixels[i] = (byte) (seed * 31 + i);
+        Mat mat = new Mat(HEIGHT, WIDTH, CV_8UC1);
+        mat.data().put(pixels);
+        return mat;
+    }
+
+    private static byte[] pixels(Mat mat) {
+        byte[] pixels = new byte[mat.rows() * mat.cols()];
+        mat.data().get(pixels);
+        mat.close();
+        return pixels;
+    }
+}
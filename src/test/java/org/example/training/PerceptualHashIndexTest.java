@@ -0,0 +1,123 @@
+package org.example.training;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntBinaryOperator;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imwrite;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerceptualHashIndexTest {
+
+    private static final int SIZE = 72;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void hashIgnoresBrightnessAndScale() {
+        long hash = hash(SIZE, (x, y) -> 40 + (x * 7 + y * 3) % 90);
+        assertEquals(hash, hash(SIZE, (x, y) -> 100 + (x * 7 + y * 3) % 90));
+        assertEquals(hash, hash(SIZE * 2, (x, y) -> 40 + (x / 2 * 7 + y / 2 * 3) % 90));
+    }
+
+    @Test
+    void hashRecordsLeftToRightGradients() {
+        assertEquals(-1L, hash(SIZE, (x, y) -> 255 - x * 3));
+        assertEquals(0L, hash(SIZE, (x, y) -> x * 3));
+        assertEquals(64, PerceptualHashIndex.distance(0L, -1L));
+        assertEquals(0, PerceptualHashIndex.distance(42L, 42L));
+    }
+
+    @Test
+    void admitRejectsNearDuplicatesPerPerson() {
+        PerceptualHashIndex index = new PerceptualHashIndex(dir, 4);
+        assertTrue(index.admit("Staff", "Ada", 0b0000L));
+        assertFalse(index.admit("Staff", "Ada", 0b1111L));
+        assertTrue(index.admit("Staff", "Ada", 0b11111L));
+        assertTrue(index.admit("Staff", "Bob", 0b0000L));
+
+        index.remove("Staff", "Ada", 0b0000L);
+        assertTrue(index.admit("Staff", "Ada", 0b1111L << 8));
+
+        assertEquals(2, index.stats().get("people"));
+        assertEquals(4L, index.stats().get("admitted"));
+        assertEquals(1L, index.stats().get("rejected"));
+    }
+
+    @Test
+    void negativeDistanceAdmitsEverything() {
+        PerceptualHashIndex index = new PerceptualHashIndex(dir, -1);
+        assertTrue(index.admit("Staff", "Ada", 7L));
+        assertTrue(index.admit("Staff", "Ada", 7L));
+    }
+
+    @Test
+    void photosOnDiskAreHashedOnFirstAdmit() throws IOException {
+        Path person = Files.createDirectories(dir.resolve("Staff").resolve("Ada"));
+        Mat photo = image(SIZE, (x, y) -> 40 + (x * 7 + y * 3) % 90);
+        imwrite(person.resolve("a.png").toString(), photo);
+
+        PerceptualHashIndex index = new PerceptualHashIndex(dir, 2);
+        assertFalse(index.admit("Staff", "Ada", PerceptualHashIndex.dHash(photo)));
+
+        // Forgetting drops the cached hashes; the next admit rereads the now empty folder.
+        index.forget("Staff", "Ada");
+        Files.delete(person.resolve("a.png"));
+        assertTrue(index.admit("Staff", "Ada", PerceptualHashIndex.dHash(photo)));
+        photo.close();
+    }
+
+    @Test
+    void compactKeepsTheOldestOfEachDuplicateGroup() throws IOException {
+        Path person = Files.createDirectories(dir.resolve("Staff").resolve("Ada"));
+        write(person.resolve("1.png"), (x, y) -> 40 + (x * 7 + y * 3) % 90);
+        write(person.resolve("2.png"), (x, y) -> 90 + (x * 7 + y * 3) % 90);
+        write(person.resolve("3.png"), (x, y) -> 255 - x * 3);
+        write(person.resolve("4.png"), (x, y) -> 250 - x * 3);
+
+        PerceptualHashIndex.CompactionReport report = new PerceptualHashIndex(dir, 2).compact();
+
+        assertEquals(1, report.people);
+        assertEquals(4, report.photos);
+        assertEquals(2, report.removed);
+        assertTrue(report.bytesFreed > 0);
+        assertTrue(Files.exists(person.resolve("1.png")));
+        assertFalse(Files.exists(person.resolve("2.png")));
+        assertTrue(Files.exists(person.resolve("3.png")));
+        assertFalse(Files.exists(person.resolve("4.png")));
+    }
+
+    private static long hash(int size, IntBinaryOperator pixel) {
+        Mat image = image(size, pixel);
+        long hash = PerceptualHashIndex.dHash(image);
+        image.close();
+        return hash;
+    }
+
+    private static void write(Path file, IntBinaryOperator pixel) {
+        Mat image = image(SIZE, pixel);
+        imwrite(file.toString(), image);
+        image.close();
+    }
+
+    private static Mat image(int size, IntBinaryOperator pixel) {
+        byte[] pixels = new byte[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pixels[y * size + x] = (byte) pixel.applyAsInt(x, y);
+            }
+        }
+        Mat image = new Mat(size, size, CV_8UC1);
+        image.data().put(pixels);
+        return image;
+    }
+}
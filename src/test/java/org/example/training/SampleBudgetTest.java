@@ -0,0 +1,126 @@
+package org.example.training;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imwrite;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SampleBudgetTest {
+
+    private static final int SIZE = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsFlatPhotosFirstDownToNineTenthsOfTheLimit() throws IOException {
+        Path person = person("Staff", "Ada");
+        for (int i = 0; i < 9; i++) writeNoise(person.resolve("sharp" + i + ".png"), i);
+        for (int i = 0; i < 3; i++) writeFlat(person.resolve("flat" + i + ".png"), 128);
+
+        SampleBudget budget = new SampleBudget(dir, 10);
+        assertTrue(budget.isOverBudget("Staff", "Ada"));
+        SampleBudget.Report report = budget.enforce();
+
+        // A limit of 10 frees a tenth of it: 12 photos go down to 9.
+        assertEquals(9, report.kept());
+        assertEquals(3, report.evicted());
+        for (int i = 0; i < 9; i++) assertTrue(Files.exists(person.resolve("sharp" + i + ".png")));
+        for (int i = 0; i < 3; i++) assertFalse(Files.exists(person.resolve("flat" + i + ".png")));
+        assertFalse(budget.isOverBudget("Staff", "Ada"));
+    }
+
+    @Test
+    void keepsOneOfSeveralIdenticalPhotos() throws IOException {
+        Path person = person("Staff", "Ada");
+        for (int i = 0; i < 3; i++) writeNoise(person.resolve("same" + i + ".png"), 1);
+        writeNoise(person.resolve("other1.png"), 2);
+        writeNoise(person.resolve("other2.png"), 3);
+
+        SampleBudget.Report report = new SampleBudget(dir, 3).enforce();
+
+        assertEquals(2, report.evicted());
+        assertTrue(Files.exists(person.resolve("other1.png")));
+        assertTrue(Files.exists(person.resolve("other2.png")));
+        int copies = 0;
+        for (int i = 0; i < 3; i++) if (Files.exists(person.resolve("same" + i + ".png"))) copies++;
+        assertEquals(1, copies);
+    }
+
+    @Test
+    void unreadablePhotosAreEvictedBeforeReadableOnes() throws IOException {
+        Path person = person("Staff", "Ada");
+        for (int i = 0; i < 3; i++) writeFlat(person.resolve("flat" + i + ".png"), 40 + i * 80);
+        Files.write(person.resolve("broken.jpg"), new byte[]{1, 2, 3});
+
+        new SampleBudget(dir, 3).enforce();
+
+        assertFalse(Files.exists(person.resolve("broken.jpg")));
+        assertEquals(3, TrainingPhotos.listPhotos(person).size());
+    }
+
+    @Test
+    void leavesPeopleWithinTheBudgetAlone() throws IOException {
+        Path ada = person("Staff", "Ada");
+        Path bob = person("Visitor", "Bob");
+        for (int i = 0; i < 4; i++) writeNoise(ada.resolve(i + ".png"), i);
+        for (int i = 0; i < 6; i++) writeNoise(bob.resolve(i + ".png"), 10 + i);
+
+        SampleBudget budget = new SampleBudget(dir, 5);
+        SampleBudget.Report report = budget.enforce();
+
+        assertEquals(2, report.people.size());
+        assertEquals(0, report.people.get(0).evicted);
+        assertEquals(4, report.people.get(0).kept);
+        // 5 - 5 / 10 = 5, so one of Bob's six photos goes.
+        assertEquals(1, report.people.get(1).evicted);
+        assertEquals(5, TrainingPhotos.listPhotos(bob).size());
+        assertEquals(1, budget.stats().get("evicted"));
+    }
+
+    @Test
+    void zeroLimitDisablesTheBudget() throws IOException {
+        Path person = person("Staff", "Ada");
+        for (int i = 0; i < 3; i++) writeNoise(person.resolve(i + ".png"), i);
+
+        SampleBudget budget = new SampleBudget(dir, 0);
+        assertFalse(budget.isEnabled());
+        assertFalse(budget.isOverBudget("Staff", "Ada"));
+        assertEquals(0, budget.enforce().evicted());
+        assertEquals(3, TrainingPhotos.listPhotos(person).size());
+    }
+
+    private Path person(String role, String name) throws IOException {
+        return Files.createDirectories(dir.resolve(role).resolve(name));
+    }
+
+    private static void writeNoise(Path file, long seed) {
+        byte[] pixels = new byte[SIZE * SIZE];
+        new Random(seed).nextBytes(pixels);
+        write(file, pixels);
+    }
+
+    private static void writeFlat(Path file, int level) {
+        byte[] pixels = new byte[SIZE * SIZE];
+        Arrays.fill(pixels, (byte) level);
+        write(file, pixels);
+    }
+
+    private static void write(Path file, byte[] pixels) {
+        Mat image = new Mat(SIZE, SIZE, CV_8UC1);
+        image.data().put(pixels);
+        imwrite(file.toString(), image);
+        image.close();
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MjpegAviWriterTest {
+
+    // Offset of the 'movi' fourcc after RIFF, the hdrl list (192 bytes) and the movi LIST header; idx1 offsets count from it.
+    static final int MOVI_FOURCC = 12 + 8 + 192 + 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void headerDescribesTheClip() throws IOException {
+        Path file = dir.resolve("clip.avi");
+        MjpegAviWriter.write(file, List.of(frame(101, 0), frame(64, 40), frame(80, 80)), 25);
+        ByteBuffer avi = read(file);
+
+        assertEquals("RIFF", fourcc(avi, 0));
+        assertEquals(avi.capacity() - 8, avi.getInt(4));
+        assertEquals("AVI ", fourcc(avi, 8));
+        assertEquals("hdrl", fourcc(avi, 20));
+        assertEquals("avih", fourcc(avi, 24));
+        assertEquals(40_000, avi.getInt(32));       // microseconds per frame
+        assertEquals(0x10, avi.getInt(44));         // AVIF_HASINDEX
+        assertEquals(3, avi.getInt(48));            // total frames
+        assertEquals(101, avi.getInt(60));          // suggested buffer: the largest frame
+        assertEquals(640, avi.getInt(64));
+        assertEquals(480, avi.getInt(68));
+
+        int strh = 12 + 8 + 4 + (8 + 56) + 12;
+        assertEquals("strh", fourcc(avi, strh));
+        assertEquals("vids", fourcc(avi, strh + 8));
+        assertEquals("MJPG", fourcc(avi, strh + 12));
+        assertEquals(1000, avi.getInt(strh + 28));  // scale
+        assertEquals(25_000, avi.getInt(strh + 32)); // rate
+        assertEquals(3, avi.getInt(strh + 40));     // length in frames
+
+        assertEquals("LIST", fourcc(avi, MOVI_FOURCC - 8));
+        assertEquals("movi", fourcc(avi, MOVI_FOURCC));
+    }
+
+    @Test
+    void indexPointsAtEveryChunk() throws IOException {
+        Path file = dir.resolve("clip.avi");
+        List<EncodedFrame> frames = List.of(frame(101, 0), frame(64, 40), frame(80, 80));
+        MjpegAviWriter.write(file, frames, 25);
+        ByteBuffer avi = read(file);
+
+        int moviSize = avi.getInt(MOVI_FOURCC - 4);
+        int idx1 = MOVI_FOURCC + moviSize;
+        assertEquals("idx1", fourcc(avi, idx1));
+        assertEquals(16 * frames.size(), avi.getInt(idx1 + 4));
+        assertEquals(avi.capacity(), idx1 + 8 + 16 * frames.size());
+
+        for (int i = 0; i < frames.size(); i++) {
+            int entry = idx1 + 8 + 16 * i;
+            assertEquals("00dc", fourcc(avi, entry));
+            assertEquals(0x10, avi.getInt(entry + 4));  // key frame
+            int chunk = MOVI_FOURCC + avi.getInt(entry + 8);
+            int size = avi.getInt(entry + 12);
+            assertEquals("00dc", fourcc(avi, chunk));
+            assertEquals(size, avi.getInt(chunk + 4));
+            byte[] jpeg = new byte[size];
+            avi.get(chunk + 8, jpeg);
+            assertArrayEquals(frames.get(i).getJpeg(), jpeg);
+        }
+        // Odd-sized chunks are padded to an even length.
+        assertEquals(4 + 8 + 102, avi.getInt(idx1 + 8 + 16 + 8));
+    }
+
+    @Test
+    void skippedSlotsAreEmptyIndexedChunks() throws IOException {
+        Path file = dir.resolve("clip.avi");
+        try (MjpegAviWriter writer = MjpegAviWriter.open(file, 640, 480, 10)) {
+            writer.append(frame(50, 0));
+            writer.skip(2);
+            writer.append(frame(60, 300));
+            assertEquals(4, writer.getFrameCount());
+        }
+        ByteBuffer avi = read(file);
+
+        assertEquals(4, avi.getInt(48));
+        int idx1 = MOVI_FOURCC + avi.getInt(MOVI_FOURCC - 4);
+        int[] sizes = new int[4];
+        for (int i = 0; i < 4; i++) {
+            int entry = idx1 + 8 + 16 * i;
+            sizes[i] = avi.getInt(entry + 12);
+            assertEquals(sizes[i], avi.getInt(MOVI_FOURCC + avi.getInt(entry + 8) + 4));
+        }
+        assertArrayEquals(new int[]{50, 0, 0, 60}, sizes);
+    }
+
+    @Test
+    void neverOverwritesAFile() throws IOException {
+        Path file = dir.resolve("clip.avi");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(FileAlreadyExistsException.class, () -> MjpegAviWriter.open(file, 640, 480, 25));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+    }
+
+    @Test
+    void measuredFpsUsesTheCaptureTimestamps() {
+        assertEquals(20.0, MjpegAviWriter.measuredFps(List.of(frame(1, 0), frame(1, 50), frame(1, 100)), 15), 1e-9);
+        assertEquals(15.0, MjpegAviWriter.measuredFps(List.of(frame(1, 0)), 15), 1e-9);
+        assertEquals(15.0, MjpegAviWriter.measuredFps(List.of(frame(1, 0), frame(1, 0)), 15), 1e-9);
+    }
+
+    private static EncodedFrame frame(int size, long timestampMillis) {
+        byte[] jpeg = new byte[size];
+        Arrays.fill(jpeg, (byte) size);
+        return new EncodedFrame(jpeg, timestampMillis, 640, 480);
+    }
+
+    static ByteBuffer read(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static String fourcc(ByteBuffer buffer, int offset) {
+        byte[] code = new byte[4];
+        buffer.get(offset, code);
+        return new String(code, StandardCharsets.US_ASCII);
+    }
+}
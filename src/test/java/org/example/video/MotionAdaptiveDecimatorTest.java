@@ -0,0 +1,90 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MotionAdaptiveDecimatorTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+
+    @Test
+    void disabledKeepsEveryFrame() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(0, 5, now::get);
+        assertFalse(decimator.isEnabled());
+        assertEquals(21, kept(0, 2000, 100, decimator).size());
+        assertEquals(0L, decimator.stats().get("framesDropped"));
+    }
+
+    @Test
+    void idleSceneKeepsTheIdleRate() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(2, 5, now::get);
+
+        assertEquals(List.of(0L, 500L, 1000L, 1500L, 2000L), kept(0, 2000, 100, decimator));
+        assertEquals(5L, decimator.stats().get("framesKept"));
+        assertEquals(16L, decimator.stats().get("framesDropped"));
+    }
+
+    @Test
+    void irregularFramesKeepTheFirstOneAfterEachInterval() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(2, 5, now::get);
+        List<Long> kept = new ArrayList<>();
+        for (long ts : new long[]{0, 330, 660, 990, 1320, 1650}) {
+            if (decimator.keep(ts)) kept.add(ts);
+        }
+        assertEquals(List.of(0L, 660L, 1320L), kept);
+    }
+
+    @Test
+    void activityKeepsEveryFrameForTheHoldThenReturnsToTheIdleRate() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(1, 2, now::get);
+        decimator.reportActivity(1000);
+
+        List<Long> kept = kept(1000, 5000, 250, decimator);
+
+        // Every frame up to 1000 + 2 s, then one per second counted from the last kept frame.
+        List<Long> expected = new ArrayList<>();
+        for (long ts = 1000; ts <= 3000; ts += 250) expected.add(ts);
+        expected.add(4000L);
+        expected.add(5000L);
+        assertEquals(expected, kept);
+    }
+
+    @Test
+    void olderActivityNeverShortensTheHold() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(1, 2, now::get);
+        decimator.reportActivity(5000);
+        decimator.reportActivity(1000);
+
+        assertTrue(decimator.keep(6900));
+        assertTrue(decimator.keep(7000));
+        assertFalse(decimator.keep(7100));
+    }
+
+    @Test
+    void statsReportActivityAgainstTheClock() {
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(1, 2, now::get);
+        now.set(10_000);
+        assertEquals(false, decimator.stats().get("active"));
+
+        decimator.reportActivity(10_000);
+        now.set(12_000);
+        assertEquals(true, decimator.stats().get("active"));
+        now.set(12_001);
+        assertEquals(false, decimator.stats().get("active"));
+    }
+
+    private static List<Long> kept(long from, long to, long step, MotionAdaptiveDecimator decimator) {
+        List<Long> kept = new ArrayList<>();
+        for (long ts = from; ts <= to; ts += step) {
+            if (decimator.keep(ts)) kept.add(ts);
+        }
+        return kept;
+    }
+}
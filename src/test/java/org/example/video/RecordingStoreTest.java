@@ -0,0 +1,169 @@
+package org.example.video;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingStoreTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final List<RecordingStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void stopStores() {
+        stores.forEach(RecordingStore::stop);
+    }
+
+    @Test
+    void queriesReturnOverlappingSegmentsOfOneCamera() throws IOException {
+        RecordingStore store = start(0, 0);
+        RecordingSegment early = store.writeClip("door", frames(T0, 10), 10, "manual");
+        RecordingSegment late = store.writeClip("door", frames(T0 + 60_000, 10), 10, "motion");
+        RecordingSegment other = store.writeClip("yard", frames(T0, 10), 10, "manual");
+
+        assertEquals(List.of(early), store.query("door", T0 + 500, T0 + 600));
+        assertEquals(List.of(early, late), store.query("door", T0, T0 + 120_000));
+        assertEquals(List.of(late), store.query("door", T0 + 30_000, T0 + 61_000));
+        assertTrue(store.query("door", T0 + 5_000, T0 + 50_000).isEmpty());
+        assertEquals(3, store.query(null, T0, T0 + 120_000).size());
+        assertEquals(other, store.find(other.getFile()));
+        assertTrue(Files.exists(store.resolve(other)));
+    }
+
+    @Test
+    void segmentSpanComesFromTheFramesWritten() throws IOException {
+        RecordingStore store = start(0, 0);
+        RecordingSegment segment = store.writeClip("door", frames(T0, 10), 10, "manual");
+
+        assertEquals(T0, segment.getStartMillis());
+        // Ten frames 100 ms apart; the last one lasts one frame interval.
+        assertEquals(T0 + 1000, segment.getEndMillis());
+        assertEquals(10, segment.getFrames());
+        assertEquals(Files.size(store.resolve(segment)), segment.getBytes());
+        assertEquals(List.of("manual"), segment.getTriggers());
+        assertTrue(segment.getFile().startsWith("door/"));
+    }
+
+    @Test
+    void indexSurvivesARestart() throws IOException {
+        RecordingStore store = start(0, 0);
+        RecordingSegment kept = store.writeClip("door", frames(T0, 5), 10, "manual");
+        RecordingSegment deleted = store.writeClip("door", frames(T0 + 10_000, 5), 10, "manual");
+        store.stop();
+        // Files removed by hand are dropped from the index on the next start.
+        Files.delete(dir.resolve(deleted.getFile()));
+
+        RecordingStore restarted = start(0, 0);
+        assertNotNull(restarted.find(kept.getFile()));
+        assertNull(restarted.find(deleted.getFile()));
+        assertEquals(1, restarted.query("door", T0, T0 + 60_000).size());
+        assertEquals(1, Files.readAllLines(dir.resolve("index.jsonl")).size());
+    }
+
+    @Test
+    void segmentsOpenedInTheSameMillisecondGetDistinctFiles() throws IOException {
+        RecordingStore store = start(0, 0);
+        RecordingSegment first = store.writeClip("door", frames(T0, 3), 10, "manual");
+        RecordingSegment second = store.writeClip("door", frames(T0, 3), 10, "manual");
+        RecordingSegment third = store.writeClip("door", frames(T0, 3), 10, "manual");
+
+        assertNotEquals(first.getFile(), second.getFile());
+        assertTrue(second.getFile().endsWith("_manual_1.avi"), second.getFile());
+        assertTrue(third.getFile().endsWith("_manual_2.avi"), third.getFile());
+        assertEquals(3, store.query("door", T0, T0 + 1000).size());
+    }
+
+    @Test
+    void retentionEvictsTheOldestSegmentsOverTheSizeCap() throws IOException, InterruptedException {
+        RecordingStore writer = start(0, 0);
+        RecordingSegment oldest = writer.writeClip("door", frames(T0, 5), 10, "manual");
+        RecordingSegment middle = writer.writeClip("yard", frames(T0 + 1000, 5), 10, "manual");
+        RecordingSegment newest = writer.writeClip("door", frames(T0 + 2000, 5), 10, "manual");
+        writer.stop();
+
+        // Room for one segment and a half: the two oldest, across cameras, must go.
+        double capGigabytes = newest.getBytes() * 1.5 / (1024.0 * 1024 * 1024);
+        RecordingStore store = start(0, capGigabytes);
+        awaitSegments(store, 1);
+
+        assertNotNull(store.find(newest.getFile()));
+        assertNull(store.find(oldest.getFile()));
+        assertNull(store.find(middle.getFile()));
+        assertFalse(Files.exists(dir.resolve(oldest.getFile())));
+        assertEquals(2L, store.stats().get("segmentsEvicted"));
+    }
+
+    @Test
+    void retentionEvictsSegmentsOlderThanTheRetentionPeriod() throws IOException, InterruptedException {
+        RecordingStore writer = start(0, 0);
+        writer.writeClip("door", frames(T0, 5), 10, "manual");
+        long recent = System.currentTimeMillis() - 60_000;
+        RecordingSegment kept = writer.writeClip("door", frames(recent, 5), 10, "manual");
+        writer.stop();
+
+        RecordingStore store = start(1, 0);
+        awaitSegments(store, 1);
+        assertNotNull(store.find(kept.getFile()));
+    }
+
+    @Test
+    void segmentsFinishedDuringACompactionStayIndexed() throws Exception {
+        RecordingStore store = start(0, 0);
+        for (int i = 0; i < 50; i++) store.writeClip("door", frames(T0 + 1000L * i, 2), 10, "manual");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread compactor = new Thread(() -> {
+            while (writing.get()) store.rewriteIndex();
+        });
+        compactor.start();
+        List<RecordingSegment> written = new ArrayList<>();
+        for (int i = 0; i < 30; i++) written.add(store.writeClip("yard", frames(T0 + 1000L * i, 2), 10, "motion"));
+        writing.set(false);
+        compactor.join();
+        store.stop();
+
+        RecordingStore restarted = start(0, 0);
+        for (RecordingSegment segment : written) assertNotNull(restarted.find(segment.getFile()), segment.getFile());
+        assertEquals(80, ((Number) restarted.stats().get("segments")).intValue());
+    }
+
+    private RecordingStore start(int retentionDays, double maxGigabytes) {
+        RecordingStore store = new RecordingStore(dir.toString(), retentionDays, maxGigabytes);
+        stores.add(store);
+        store.start();
+        return store;
+    }
+
+    private static void awaitSegments(RecordingStore store, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (((Number) store.stats().get("segments")).intValue() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, ((Number) store.stats().get("segments")).intValue());
+    }
+
+    private static List<EncodedFrame> frames(long startMillis, int count) {
+        List<EncodedFrame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            frames.add(new EncodedFrame(new byte[200 + i], startMillis + 100L * i, 320, 240));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.video;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingTriggerEngineTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 10);
+
+    @TempDir
+    Path dir;
+
+    private final List<RecordingTriggerEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void stopEngines() {
+        engines.forEach(RecordingTriggerEngine::stop);
+    }
+
+    @Test
+    void namesMatchCaseInsensitively() {
+        assertTrue(engine("unknown_face").fire(RecordingTriggerEngine.UNKNOWN_FACE, at(12, 0)));
+        assertTrue(engine(" Body_Without_Face ").fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(12, 0)));
+        assertFalse(engine("UNKNOWN_FACE").fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(12, 0)));
+    }
+
+    @Test
+    void roleRulesKeepTheRoleName() {
+        RecordingTriggerEngine engine = engine("role: Visitor");
+        assertTrue(engine.fire(RecordingTriggerEngine.ROLE_PREFIX + "Visitor", at(12, 0)));
+        assertFalse(engine.fire(RecordingTriggerEngine.ROLE_PREFIX + "Staff", at(12, 0)));
+    }
+
+    @Test
+    void windowWithinOneDay() {
+        RecordingTriggerEngine engine = engine("UNKNOWN_FACE@9-17");
+        assertFalse(engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(8, 59)));
+        assertTrue(engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(9, 0)));
+        assertTrue(engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(16, 59)));
+        assertFalse(engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(17, 0)));
+    }
+
+    @Test
+    void windowWrapsPastMidnight() {
+        RecordingTriggerEngine engine = engine("BODY_WITHOUT_FACE@22-6");
+        assertFalse(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(21, 59)));
+        assertTrue(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(22, 0)));
+        assertTrue(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(23, 30)));
+        assertTrue(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(0, 0)));
+        assertTrue(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(5, 59)));
+        assertFalse(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(6, 0)));
+        assertFalse(engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(12, 0)));
+    }
+
+    @Test
+    void equalHoursMeanAllDayAndHour24IsMidnight() {
+        RecordingTriggerEngine allDay = engine("UNKNOWN_FACE@8-8");
+        assertTrue(allDay.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(3, 0)));
+        assertTrue(allDay.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(20, 0)));
+
+        RecordingTriggerEngine night = engine("UNKNOWN_FACE@24-6");
+        assertTrue(night.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(0, 30)));
+        assertFalse(night.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(23, 30)));
+    }
+
+    @Test
+    void invalidAndBlankRulesAreIgnored() {
+        RecordingTriggerEngine engine = engine("UNKNOWN_FACE@night", "BODY_WITHOUT_FACE@22", "  ");
+        assertFalse(engine.isEnabled());
+        assertFalse(engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(23, 0)));
+
+        assertTrue(engine("UNKNOWN_FACE@night", "ROLE:Staff").isEnabled());
+    }
+
+    @Test
+    void triggersDuringAClipExtendIt() {
+        RecordingTriggerEngine engine = engine("UNKNOWN_FACE", "BODY_WITHOUT_FACE");
+        engine.fire(RecordingTriggerEngine.UNKNOWN_FACE, at(12, 0));
+        engine.fire(RecordingTriggerEngine.BODY_WITHOUT_FACE, at(12, 0) + 1000);
+
+        assertEquals(1L, engine.stats().get("clipsStarted"));
+        assertEquals(2L, engine.stats().get("triggersFired"));
+        assertEquals(1L, engine.stats().get("triggersMerged"));
+        assertEquals(true, engine.stats().get("recording"));
+    }
+
+    @Test
+    void framesAreDroppedWhileTheWriterIsStalledButTheSegmentIsSaved() throws Exception {
+        CountDownLatch disk = new CountDownLatch(1);
+        RecordingStore stalled = new RecordingStore(dir.toString(), 0, 0) {
+            @Override
+            public SegmentWriter openSegment(String cameraId, long startMillis, double fps, String trigger) {
+                try {
+                    disk.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.openSegment(cameraId, startMillis, fps, trigger);
+            }
+        };
+        RecordingTriggerEngine engine = new RecordingTriggerEngine("test", new PreRollBuffer(5, 8, 80),
+                stalled, List.of(), 0, 10, 600, true, new MotionAdaptiveDecimator(0, 0));
+        long start = at(12, 0);
+        for (int i = 0; i < 500; i++) {
+            engine.onFrame(new EncodedFrame(new byte[100], start + 33L * i, 320, 240));
+        }
+        long dropped = (Long) engine.stats().get("framesDropped");
+        assertTrue(dropped > 0, "dropped " + dropped);
+
+        disk.countDown();
+        engine.stop();
+
+        assertEquals(500L, (Long) engine.stats().get("framesWritten") + dropped);
+        assertEquals(1L, engine.stats().get("segmentsSaved"));
+        assertEquals(0L, engine.stats().get("segmentsFailed"));
+    }
+
+    private RecordingTriggerEngine engine(String... rules) {
+        RecordingTriggerEngine engine = new RecordingTriggerEngine("test", new PreRollBuffer(5, 8, 80),
+                new RecordingStore(dir.toString(), 0, 0), Arrays.asList(rules), 5, 10, 60, false,
+                new MotionAdaptiveDecimator(0, 0));
+        engines.add(engine);
+        return engine;
+    }
+
+    private static long at(int hour, int minute) {
+        return DAY.atTime(hour, minute).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.example.video.MjpegAviWriterTest.MOVI_FOURCC;
+import static org.example.video.MjpegAviWriterTest.fourcc;
+import static org.example.video.MjpegAviWriterTest.read;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SegmentWriterTest {
+
+    private static final long START = 1_720_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decimatedFramesKeepTheirTimeSlots() throws IOException {
+        RecordingStore store = new RecordingStore(dir.toString(), 0, 0);
+        MotionAdaptiveDecimator decimator = new MotionAdaptiveDecimator(2, 1, () -> START);
+        SegmentWriter segment = store.openSegment("test", START, 10, "CONTINUOUS");
+
+        // Two seconds at 10 fps with activity for the first half second: 0-500 ms kept, then one frame per 500 ms.
+        decimator.reportActivity(START - 500);
+        for (int i = 0; i <= 20; i++) {
+            long ts = START + 100L * i;
+            if (decimator.keep(ts)) segment.append(frame(ts));
+        }
+        RecordingSegment saved = segment.finish();
+
+        assertEquals(9, saved.getFrames());
+        assertEquals(START, saved.getStartMillis());
+        assertEquals(START + 2100, saved.getEndMillis());
+
+        ByteBuffer avi = read(store.resolve(saved));
+        assertEquals(21, avi.getInt(48));  // total frames in the header: every slot, shown or not
+        int idx1 = MOVI_FOURCC + avi.getInt(MOVI_FOURCC - 4);
+        assertEquals("idx1", fourcc(avi, idx1));
+        assertEquals(16 * 21, avi.getInt(idx1 + 4));
+        int[] sizes = new int[21];
+        for (int slot = 0; slot < 21; slot++) sizes[slot] = avi.getInt(idx1 + 8 + 16 * slot + 12);
+        int[] expected = new int[21];
+        for (int slot : new int[]{0, 1, 2, 3, 4, 5, 10, 15, 20}) expected[slot] = 32;
+        assertArrayEquals(expected, sizes);
+    }
+
+    @Test
+    void lateFramesRoundToTheNearestSlot() throws IOException {
+        RecordingStore store = new RecordingStore(dir.toString(), 0, 0);
+        SegmentWriter segment = store.openSegment("test", START, 10, "CONTINUOUS");
+        for (long offset : new long[]{0, 140, 160, 390}) segment.append(frame(START + offset));
+        RecordingSegment saved = segment.finish();
+
+        ByteBuffer avi = read(store.resolve(saved));
+        assertEquals(5, avi.getInt(48));
+        int idx1 = MOVI_FOURCC + avi.getInt(MOVI_FOURCC - 4);
+        int[] sizes = new int[5];
+        for (int slot = 0; slot < 5; slot++) sizes[slot] = avi.getInt(idx1 + 8 + 16 * slot + 12);
+        // 140 ms rounds to slot 1 and 160 ms to slot 2; nothing arrives near 300 ms, so slot 3 is a drop frame.
+        assertArrayEquals(new int[]{32, 32, 32, 0, 32}, sizes);
+    }
+
+    private static EncodedFrame frame(long timestampMillis) {
+        byte[] jpeg = new byte[32];
+        Arrays.fill(jpeg, (byte) 7);
+        return new EncodedFrame(jpeg, timestampMillis, 320, 240);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_GRAY2BGR;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FaceQualityGateTest {
+
+    private final Random random = new Random(11);
+    private final List<Mat> images = new ArrayList<>();
+    private final FaceQualityGate gate = new FaceQualityGate("test", new FaceQualityGate.Settings(40, 1.5, 20, 15));
+
+    @AfterEach
+    void releaseImages() {
+        images.forEach(Mat::close);
+    }
+
+    @Test
+    void texturedCropPasses() {
+        assertNull(gate.check(image(64, 64, (x, y) -> random.nextInt(256))));
+        assertNull(gate.check(image(200, 160, (x, y) -> random.nextInt(256))));
+    }
+
+    @Test
+    void smallAndElongatedBoxesAreRejectedBeforeTheImageIsRead() {
+        Mat frame = image(200, 200, (x, y) -> random.nextInt(256));
+        assertEquals(FaceQualityGate.Reason.TOO_SMALL, gate.check(frame, new Rect(0, 0, 39, 80)));
+        assertEquals(FaceQualityGate.Reason.BAD_ASPECT, gate.check(frame, new Rect(0, 0, 40, 61)));
+        assertNull(gate.check(frame, new Rect(0, 0, 40, 60)));
+    }
+
+    @Test
+    void smoothCropsAreBlurry() {
+        assertEquals(FaceQualityGate.Reason.BLURRY, gate.check(image(64, 64, (x, y) -> 128)));
+        // A ramp has plenty of contrast but no edges.
+        assertEquals(FaceQualityGate.Reason.BLURRY, gate.check(image(128, 128, (x, y) -> x * 2)));
+    }
+
+    @Test
+    void faintTextureIsLowContrast() {
+        assertEquals(FaceQualityGate.Reason.LOW_CONTRAST, gate.check(image(64, 64, (x, y) -> 124 + random.nextInt(8))));
+    }
+
+    @Test
+    void checksOnlyTheFaceBoxOfAColorFrame() {
+        Mat gray = image(240, 320, (x, y) -> x < 160 ? random.nextInt(256) : 90);
+        Mat frame = new Mat();
+        cvtColor(gray, frame, COLOR_GRAY2BGR);
+        images.add(frame);
+
+        assertNull(gate.check(frame, new Rect(20, 40, 100, 120)));
+        assertEquals(FaceQualityGate.Reason.BLURRY, gate.check(frame, new Rect(180, 40, 100, 120)));
+    }
+
+    @Test
+    void statsCountChecksAndRejectionsByReason() {
+        gate.check(image(64, 64, (x, y) -> random.nextInt(256)));
+        gate.check(image(30, 30, (x, y) -> random.nextInt(256)));
+        gate.check(image(64, 64, (x, y) -> 128));
+        gate.check(image(64, 64, (x, y) -> 200));
+
+        Map<String, Object> stats = gate.stats();
+        assertEquals(4L, stats.get("checked"));
+        assertEquals(3L, stats.get("rejected"));
+        Map<?, ?> reasons = (Map<?, ?>) stats.get("reasons");
+        assertEquals(1L, reasons.get("TOO_SMALL"));
+        assertEquals(2L, reasons.get("BLURRY"));
+        assertEquals(0L, reasons.get("LOW_CONTRAST"));
+
+        gate.setSettings(new FaceQualityGate.Settings(10, 2, 0, 0));
+        assertNull(gate.check(image(30, 30, (x, y) -> 128)));
+        assertEquals(10, gate.stats().get("minSize"));
+    }
+
+    private Mat image(int rows, int cols, IntBinaryOperator pixel) {
+        byte[] pixels = new byte[rows * cols];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                pixels[y * cols + x] = (byte) pixel.applyAsInt(x, y);
+            }
+        }
+        Mat image = new Mat(rows, cols, CV_8UC1);
+        image.data().put(pixels);
+        images.add(image);
+        return image;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.vision;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.Test;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MatPoolTest {
+
+    @Test
+    void releasedMatIsReusedForTheSameGeometry() {
+        MatPool pool = new MatPool(1 << 20, 8);
+        Mat mat = pool.acquire(10, 20, CV_8UC1);
+        pool.release(mat);
+
+        assertSame(mat, pool.acquire(10, 20, CV_8UC1));
+        Mat other = pool.acquire(10, 20, CV_8UC3);
+        assertNotSame(mat, other);
+        mat.close();
+        other.close();
+    }
+
+    @Test
+    void byteLimitFreesTheLeastRecentlyUsedSizeFirst() {
+        // Room for two 100x100 gray Mats.
+        MatPool pool = new MatPool(25_000, 8);
+        Mat first = pool.acquire(100, 100, CV_8UC1);
+        Mat second = pool.acquire(100, 101, CV_8UC1);
+        Mat third = pool.acquire(100, 99, CV_8UC1);
+        pool.release(first);
+        pool.release(second);
+        // Using the first size again makes the second one the eldest.
+        assertSame(first, pool.acquire(100, 100, CV_8UC1));
+        pool.release(first);
+        pool.release(third);
+
+        assertSame(first, pool.acquire(100, 100, CV_8UC1));
+        assertSame(third, pool.acquire(100, 99, CV_8UC1));
+        Mat fresh = pool.acquire(100, 101, CV_8UC1);
+        assertNotSame(second, fresh);
+        first.close();
+        third.close();
+        fresh.close();
+    }
+
+    @Test
+    void keyLimitBoundsTheNumberOfSizes() {
+        MatPool pool = new MatPool(1 << 20, 3);
+        Mat[] mats = new Mat[5];
+        for (int i = 0; i < mats.length; i++) {
+            mats[i] = pool.acquire(10 + i, 10, CV_8UC1);
+        }
+        for (Mat mat : mats) pool.release(mat);
+
+        for (int i = 0; i < 2; i++) {
+            Mat fresh = pool.acquire(10 + i, 10, CV_8UC1);
+            assertNotSame(mats[i], fresh);
+            fresh.close();
+        }
+        for (int i = 2; i < mats.length; i++) {
+            assertSame(mats[i], pool.acquire(10 + i, 10, CV_8UC1));
+            mats[i].close();
+        }
+    }
+
+    @Test
+    void matsLargerThanTheWholePoolAreNotKept() {
+        MatPool pool = new MatPool(1_000, 8);
+        Mat large = pool.acquire(100, 100, CV_8UC1);
+        long discarded = (Long) MatPool.stats().get("discarded");
+        pool.release(large);
+
+        assertEquals(discarded + 1, (Long) MatPool.stats().get("discarded"));
+        Mat fresh = pool.acquire(100, 100, CV_8UC1);
+        assertNotSame(large, fresh);
+        fresh.close();
+    }
+}
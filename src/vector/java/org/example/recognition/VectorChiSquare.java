@@ -0,0 +1,64 @@
+package org.example.recognition;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link ChiSquare} kernel on {@code jdk.incubator.vector}. Only loaded
+ * when the incubator module is present. Sums are kept per lane in float and
+ * reduced at each early-exit check, so distances match the scalar loop to
+ * float rounding.
+ */
+final class VectorChiSquare {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorChiSquare() {}
+
+    /** False if the platform has no usable vector shape, e.g. the API is present but disabled. */
+    static boolean isUsable() {
+        try {
+            return SPECIES.length() > 1;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /** Checks the running sum against {@code limit} every {@code checkInterval} bins. */
+    static double distance(float[] gallery, int offset, float[] query, int length, double limit, int checkInterval) {
+        double half = limit / 2;
+        double sum = 0;
+        int step = SPECIES.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + checkInterval);
+            int bound = start + SPECIES.loopBound(end - start);
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = start;
+            for (; i < bound; i += step) {
+                FloatVector g = FloatVector.fromArray(SPECIES, gallery, offset + i);
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                FloatVector a = g.sub(q);
+                FloatVector b = g.add(q);
+                VectorMask<Float> filled = b.compare(VectorOperators.GT, 0f);
+                // Lanes where both bins are empty keep a*a = 0 instead of dividing by zero.
+                acc = acc.add(a.mul(a).div(b, filled));
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+            for (; i < end; i++) {
+                float g = gallery[offset + i];
+                float q = query[i];
+                float b = g + q;
+                if (b > 0) {
+                    double a = g - q;
+                    sum += a * a / b;
+                }
+            }
+            if (sum >= half) break;
+            start = end;
+        }
+        return 2 * sum;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.recognition;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link CosineTopK} dot product on {@code jdk.incubator.vector}. Only
+ * loaded when the incubator module is present. Embedding sizes are multiples
+ * of the vector length in practice (SFace: 128), so the tail loop rarely runs.
+ */
+final class VectorDot {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorDot() {}
+
+    /** False if the platform has no usable vector shape, e.g. the API is present but disabled. */
+    static boolean isUsable() {
+        try {
+            return SPECIES.length() > 1;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    static float dot(float[] matrix, int offset, float[] query, int dim) {
+        int bound = SPECIES.loopBound(dim);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector m = FloatVector.fromArray(SPECIES, matrix, offset + i);
+            FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+            acc = m.fma(q, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < dim; i++) sum += matrix[offset + i] * query[i];
+        return sum;
+    }
+}